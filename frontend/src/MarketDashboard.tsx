@@ -18,7 +18,10 @@ interface Agent {
 }
 
 interface MarketSnapshot {
+  sequence: number;
   price: number;
+  instruments?: string[];
+  prices?: number[];
   agents: Agent[];
   config?: {
     totalAssetUnits: number;
@@ -31,6 +34,38 @@ interface MarketSnapshot {
   };
 }
 
+interface MarketDelta {
+  sequence: number;
+  baseSequence: number;
+  price: number;
+  prices?: number[];
+  changed: Agent[];
+  removed: string[];
+  config?: MarketSnapshot["config"];
+}
+
+const applyDelta = (base: MarketSnapshot, delta: MarketDelta): MarketSnapshot => {
+  const changed = new Map(delta.changed.map((agent) => [agent.name, agent]));
+  const removed = new Set(delta.removed);
+  const agents = base.agents
+    .filter((agent) => !removed.has(agent.name))
+    .map((agent) => changed.get(agent.name) ?? agent);
+  const known = new Set(agents.map((agent) => agent.name));
+  for (const agent of delta.changed) {
+    if (!known.has(agent.name)) {
+      agents.push(agent);
+    }
+  }
+  return {
+    sequence: delta.sequence,
+    price: delta.price,
+    instruments: base.instruments,
+    prices: delta.prices ?? base.prices,
+    agents,
+    config: delta.config ?? base.config,
+  };
+};
+
 const MarketDashboard: React.FC = () => {
   const [snapshot, setSnapshot] = useState<MarketSnapshot | null>(null);
   const [priceHistory, setPriceHistory] = useState<
@@ -211,6 +246,60 @@ const MarketDashboard: React.FC = () => {
   useEffect(() => {
     console.log("🔄 MarketDashboard mounted");
 
+    let current: MarketSnapshot | null = null;
+    let resyncing = false;
+
+    const applySnapshot = (parsed: MarketSnapshot) => {
+      current = parsed;
+      setSnapshot(parsed);
+      setPriceHistory((prev) => {
+        const next = [...prev, { price: parsed.price, time: Date.now() }];
+        if (next.length > maxHistoryPoints) {
+          next.splice(0, next.length - maxHistoryPoints);
+        }
+        return next;
+      });
+      setAgentHistory((prev) => {
+        const next = { ...prev };
+        const now = Date.now();
+        for (const agent of parsed.agents) {
+          const totalValue =
+            agent.cashBalance + agent.positionUnits * parsed.price;
+          const history = next[agent.name] ? [...next[agent.name]] : [];
+          history.push({
+            time: now,
+            position: agent.positionUnits,
+            value: totalValue,
+          });
+          if (history.length > maxHistoryPoints) {
+            history.splice(0, history.length - maxHistoryPoints);
+          }
+          next[agent.name] = history;
+        }
+        return next;
+      });
+    };
+
+    const resync = async () => {
+      if (resyncing) {
+        return;
+      }
+      resyncing = true;
+      try {
+        const res = await fetch("/api/market/snapshot");
+        if (res.ok) {
+          const latest = (await res.json()) as MarketSnapshot;
+          if (!current || latest.sequence > current.sequence) {
+            applySnapshot(latest);
+          }
+        }
+      } catch (err) {
+        console.error("❌ Resync failed:", err);
+      } finally {
+        resyncing = false;
+      }
+    };
+
     const socket = new SockJS("/ws-market");
     const client = new Client({
       webSocketFactory: () => socket,
@@ -219,36 +308,17 @@ const MarketDashboard: React.FC = () => {
       onConnect: () => {
         console.log("✅ STOMP connected");
         client.subscribe("/topic/market", (msg) => {
-          console.log("📩 Received:", msg.body);
-          const parsed = JSON.parse(msg.body) as MarketSnapshot;
-          setSnapshot(parsed);
-          setPriceHistory((prev) => {
-            const next = [...prev, { price: parsed.price, time: Date.now() }];
-            if (next.length > maxHistoryPoints) {
-              next.splice(0, next.length - maxHistoryPoints);
-            }
-            return next;
-          });
-          setAgentHistory((prev) => {
-            const next = { ...prev };
-            const now = Date.now();
-            for (const agent of parsed.agents) {
-              const totalValue =
-                agent.cashBalance + agent.positionUnits * parsed.price;
-              const history = next[agent.name] ? [...next[agent.name]] : [];
-              history.push({
-                time: now,
-                position: agent.positionUnits,
-                value: totalValue,
-              });
-              if (history.length > maxHistoryPoints) {
-                history.splice(0, history.length - maxHistoryPoints);
-              }
-              next[agent.name] = history;
-            }
-            return next;
-          });
+          applySnapshot(JSON.parse(msg.body) as MarketSnapshot);
+        });
+        client.subscribe("/topic/market/delta", (msg) => {
+          const delta = JSON.parse(msg.body) as MarketDelta;
+          if (!current || delta.baseSequence !== current.sequence) {
+            resync();
+            return;
+          }
+          applySnapshot(applyDelta(current, delta));
         });
+        resync();
       },
       onStompError: (frame) => {
         console.error("❌ STOMP error:", frame);
@@ -475,6 +545,13 @@ const MarketDashboard: React.FC = () => {
             📊 Market Price:{" "}
             {snapshot ? snapshot.price.toFixed(2) : "Loading..."}
           </h2>
+          {snapshot?.instruments && snapshot.instruments.length > 1 && (
+            <div style={{ margin: "0 0 6px 70px", fontSize: 13 }}>
+              {snapshot.instruments
+                .map((symbol, i) => `${symbol} ${snapshot.prices?.[i]?.toFixed(2) ?? "-"}`)
+                .join(" · ")}
+            </div>
+          )}
           <div style={{ fontWeight: 600, margin: "0 0 6px 70px" }}>
             Price Trend
           </div>
@@ -1,5 +1,7 @@
 export interface Order {
+  agentId: number;
   agentName: string;
+  instrument: number;
   price: number;
   quantity: number;
   type: 'BUY' | 'SELL';
@@ -9,12 +11,16 @@ export interface AgentState {
   name: string;
   lastOrders: Order[];
   positionUnits: number;
+  positions: number[];
   cashBalance: number;
   initialCash: number;
 }
 
 export interface MarketSnapshot {
+  sequence: number;
   price: number;
+  instruments: string[];
+  prices: number[];
   agents: AgentState[];
   config?: {
     totalAssetUnits: number;
@@ -26,3 +32,117 @@ export interface MarketSnapshot {
     initialPositions: Record<string, number>;
   };
 }
+
+export interface MarketDelta {
+  sequence: number;
+  baseSequence: number;
+  price: number;
+  prices: number[];
+  changed: AgentState[];
+  removed: string[];
+  config?: MarketSnapshot['config'];
+}
+
+export const MARKET_BINARY_CONTENT_TYPE = 'application/octet-stream;schema=market-v3';
+
+/**
+ * Decodes a binary market message (see MarketBinaryCodec on the server). Subscribe with
+ * `{ 'content-type': MARKET_BINARY_CONTENT_TYPE }` over a plain WebSocket connection to
+ * `/ws-market/websocket` and pass `message.binaryBody`.
+ */
+export function decodeMarketMessage(bytes: Uint8Array): MarketSnapshot | MarketDelta {
+  const view = new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength);
+  const text = new TextDecoder();
+  let offset = 0;
+  const u8 = () => view.getUint8(offset++);
+  const i32 = () => {
+    const value = view.getInt32(offset);
+    offset += 4;
+    return value;
+  };
+  const i64 = () => {
+    const value = Number(view.getBigInt64(offset));
+    offset += 8;
+    return value;
+  };
+  const f64 = () => {
+    const value = view.getFloat64(offset);
+    offset += 8;
+    return value;
+  };
+  const str = () => {
+    const length = i32();
+    const value = text.decode(bytes.subarray(offset, offset + length));
+    offset += length;
+    return value;
+  };
+
+  const kind = u8();
+  const version = u8();
+  if (version !== 3) {
+    throw new Error(`Unsupported market message version ${version}`);
+  }
+  const sequence = i64();
+  const baseSequence = kind === 2 ? i64() : 0;
+  const price = f64();
+  const instruments: string[] = [];
+  const prices: number[] = [];
+  for (let n = i32(); n > 0; n--) {
+    if (kind === 1) {
+      instruments.push(str());
+    }
+    prices.push(f64());
+  }
+  let config: MarketSnapshot['config'];
+  if (u8() === 1) {
+    const totalAssetUnits = f64();
+    const totalCash = f64();
+    const fundingRate = f64();
+    const dividendRate = f64();
+    const currentTotalAssets = f64();
+    const currentTotalCash = f64();
+    const initialPositions: Record<string, number> = {};
+    for (let n = i32(); n > 0; n--) {
+      const name = str();
+      initialPositions[name] = f64();
+    }
+    config = {
+      totalAssetUnits,
+      totalCash,
+      fundingRate,
+      dividendRate,
+      currentTotalAssets,
+      currentTotalCash,
+      initialPositions,
+    };
+  }
+  const agents: AgentState[] = [];
+  for (let n = i32(); n > 0; n--) {
+    const name = str();
+    const positionUnits = f64();
+    const cashBalance = f64();
+    const initialCash = f64();
+    const positions: number[] = [];
+    for (let m = i32(); m > 0; m--) {
+      positions.push(f64());
+    }
+    const lastOrders: Order[] = [];
+    for (let m = i32(); m > 0; m--) {
+      const agentId = i32();
+      const instrument = i32();
+      const orderPrice = f64();
+      const quantity = i32();
+      const type = u8() === 0 ? 'BUY' : 'SELL';
+      lastOrders.push({ agentId, agentName: name, instrument, price: orderPrice, quantity, type });
+    }
+    agents.push({ name, lastOrders, positionUnits, positions, cashBalance, initialCash });
+  }
+  if (kind === 1) {
+    return { sequence, price, instruments, prices, agents, config };
+  }
+  const removed: string[] = [];
+  for (let n = i32(); n > 0; n--) {
+    removed.push(str());
+  }
+  return { sequence, baseSequence, price, prices, changed: agents, removed, config };
+}
@@ -0,0 +1,71 @@
+package com.example.marketsimulator.engine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dividend accrual and the cash/position totals over whole ledger columns, scalar loops against the Vector API. The
+ * dividend rate is tiny so balances stay in range however long the benchmark runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccrualBenchmark {
+	
+	@Param({ "1000000" })
+	int accounts;
+	
+	@Param({ "1", "4" })
+	int instruments;
+	
+	@Param({ "scalar", "vector" })
+	String kernel;
+	
+	private LedgerKernels kernels;
+	private double[][] positions;
+	private double[] cash;
+	private double[] prices;
+	
+	@Setup
+	public void setUp() {
+		kernels = "vector".equals(kernel) ? new VectorLedgerKernels() : new LedgerKernels.Scalar();
+		SplittableRandom random = new SplittableRandom(1);
+		positions = new double[instruments][accounts];
+		cash = new double[accounts];
+		prices = new double[instruments];
+		for (int instrument = 0; instrument < instruments; instrument++) {
+			prices[instrument] = 90.0 + random.nextDouble(20.0);
+			for (int i = 0; i < accounts; i++) {
+				positions[instrument][i] = random.nextDouble(100.0);
+			}
+		}
+		for (int i = 0; i < accounts; i++) {
+			cash[i] = random.nextDouble(10000.0);
+		}
+	}
+	
+	@Benchmark
+	public double[] dividend() {
+		kernels.applyDividend(positions, cash, accounts, prices, 1e-12);
+		return cash;
+	}
+	
+	@Benchmark
+	public double totals() {
+		return kernels.sum(cash, accounts) + kernels.sum(positions[0], accounts);
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.agent.Agent;
+import com.example.marketsimulator.agent.MeanReversionTrader;
+import com.example.marketsimulator.agent.MomentumTrader;
+import com.example.marketsimulator.agent.NaiveMarketMaker;
+import com.example.marketsimulator.agent.RandomTrader;
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentDecisionBenchmark {
+	
+	@Param({ "RT", "MT", "MR", "NMM" })
+	String agentType;
+	
+	private Agent agent;
+	private final Market market = new Market();
+	private final OrderBuffer buffer = new OrderBuffer();
+	private final double[] walk = new double[1024];
+	private int step;
+	
+	@Setup
+	public void setUp() {
+		agent = switch (agentType) {
+			case "RT" -> new RandomTrader("RT1", 1L);
+			case "MT" -> new MomentumTrader("MT1");
+			case "MR" -> new MeanReversionTrader("MR1");
+			default -> new NaiveMarketMaker("NMM1", 2.0);
+		};
+		double price = 100.0;
+		for (int i = 0; i < walk.length; i++) {
+			price += Math.sin(i * 0.37) * 0.5;
+			walk[i] = price;
+		}
+	}
+	
+	@Benchmark
+	public int decideAction() {
+		market.updatePrice(walk[step++ & (walk.length - 1)]);
+		buffer.clear();
+		agent.decideAction(market, buffer);
+		return buffer.size();
+	}
+}
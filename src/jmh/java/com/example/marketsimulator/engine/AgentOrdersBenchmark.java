@@ -0,0 +1,80 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.model.MarketSnapshot;
+import com.example.marketsimulator.model.Order;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Regression guard for per-agent order lookup in snapshots: the indexed view the engine uses against the former
+ * filter-by-name reconstruction, which is quadratic in the population.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AgentOrdersBenchmark {
+	
+	@Param({ "10000" })
+	int agentCount;
+	
+	private SimulationEngine engine;
+	private List<Order> allOrders;
+	private List<String> names;
+	
+	@Setup
+	public void setUp() {
+		engine = new SimulationEngine(BenchmarkSettings.serial(1));
+		String[] types = { "NMM", "RT", "MT", "MR" };
+		for (int i = 0; i < agentCount; i++) {
+			String name = engine.addAgent(types[i % types.length], null);
+			engine.setBalances(name, 100.0, 1_000_000.0);
+		}
+		engine.step();
+		allOrders = new ArrayList<>();
+		names = new ArrayList<>();
+		for (MarketSnapshot.AgentState agent : engine.snapshot().agents) {
+			allOrders.addAll(agent.lastOrders);
+			names.add(agent.name);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		engine.close();
+	}
+	
+	@Benchmark
+	public void indexedView(Blackhole blackhole) {
+		for (MarketSnapshot.AgentState agent : engine.snapshot().agents) {
+			for (Order order : agent.lastOrders) {
+				blackhole.consume(order);
+			}
+		}
+	}
+	
+	@Benchmark
+	public void filterByName(Blackhole blackhole) {
+		for (String name : names) {
+			for (Order order : allOrders.stream().filter(o -> o.agentName.equals(name)).toList()) {
+				blackhole.consume(order);
+			}
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.example.marketsimulator.engine;
+
+final class BenchmarkSettings {
+	
+	private BenchmarkSettings() {
+	}
+	
+	static SimulationSettings serial(long seed) {
+		return new SimulationSettings(100, 10000, "NMM1:100,RT1:0", 0.01, 0.01, 5, seed, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+	}
+}
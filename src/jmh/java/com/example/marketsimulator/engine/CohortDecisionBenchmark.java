@@ -0,0 +1,85 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.agent.Agent;
+import com.example.marketsimulator.agent.MeanReversionTrader;
+import com.example.marketsimulator.agent.RandomTrader;
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One serial decision pass over a population of 90% random and 10% mean reversion traders, held as agent objects or as
+ * cohorts. Both layouts produce the same orders.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CohortDecisionBenchmark {
+	
+	@Param({ "100000", "1000000" })
+	int agentCount;
+	
+	@Param({ "OBJECTS", "COHORTS" })
+	String layout;
+	
+	private final AgentDecisionPhase phase = new AgentDecisionPhase(AgentDecisionPhase.Mode.SERIAL, 1, 1);
+	private final Market market = new Market();
+	private final OrderBuffer orders = new OrderBuffer();
+	private final List<Agent> agents = new ArrayList<>();
+	private final AgentCohorts cohorts = new AgentCohorts();
+	private final double[] walk = new double[1024];
+	private int step;
+	
+	@Setup
+	public void setUp() {
+		int randomTraders = agentCount / 10 * 9;
+		for (int id = 0; id < agentCount; id++) {
+			if (layout.equals("OBJECTS")) {
+				Agent agent = id < randomTraders ? new RandomTrader("RT" + id, id) : new MeanReversionTrader("MR" + id);
+				agent.setId(id);
+				agents.add(agent);
+			} else if (id < randomTraders) {
+				cohorts.assign(id, cohorts.randomTraders(), cohorts.randomTraders().add(id, id));
+				agents.add(null);
+			} else {
+				int member = cohorts.meanReversionTraders(MeanReversionTrader.DEFAULT_WINDOW).add(id);
+				cohorts.assign(id, cohorts.meanReversionTraders(MeanReversionTrader.DEFAULT_WINDOW), member);
+				agents.add(null);
+			}
+		}
+		double price = 100.0;
+		for (int i = 0; i < walk.length; i++) {
+			price += Math.sin(i * 0.37) * 0.5;
+			walk[i] = price;
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		phase.close();
+	}
+	
+	@Benchmark
+	public int decide() {
+		market.updatePrice(walk[step++ & (walk.length - 1)]);
+		phase.decide(agents, cohorts, market, orders);
+		return orders.size();
+	}
+}
@@ -0,0 +1,82 @@
+package com.example.marketsimulator.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Forced sales of bankrupt agents to market makers. Balances are restored before every invocation because liquidation
+ * consumes them, so scores include that reset; compare runs against each other rather than in absolute terms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LiquidationBenchmark {
+	
+	@Param({ "10", "1000" })
+	int bankruptCount;
+	
+	@Param({ "10" })
+	int marketMakerCount;
+	
+	private SimulationEngine engine;
+	private int[] candidates;
+	private final List<String> marketMakers = new ArrayList<>();
+	private final List<String> bankrupt = new ArrayList<>();
+	private double[] mmBids;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		engine = new SimulationEngine(BenchmarkSettings.serial(1));
+		for (int i = 0; i < marketMakerCount; i++) {
+			marketMakers.add(engine.addAgent("NMM", null));
+		}
+		for (int i = 0; i < bankruptCount; i++) {
+			bankrupt.add(engine.addAgent("RT", null));
+		}
+		AccountLedger ledger = engine.ledger();
+		mmBids = new double[ledger.size()];
+		Arrays.fill(mmBids, Double.NaN);
+		for (int i = 0; i < marketMakers.size(); i++) {
+			mmBids[ledger.idOf(marketMakers.get(i))] = 99.0 - i * 0.1;
+		}
+		candidates = bankrupt.stream().mapToInt(ledger::idOf).toArray();
+	}
+	
+	@Setup(Level.Invocation)
+	public void restoreBalances() {
+		for (String name : marketMakers) {
+			engine.setBalances(name, 0.0, 1_000.0 * bankruptCount);
+		}
+		for (String name : bankrupt) {
+			engine.setBalances(name, 10.0, -2_000.0);
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		engine.close();
+	}
+	
+	@Benchmark
+	public void liquidateBankruptAgents() {
+		engine.liquidateBankruptAgents(candidates, candidates.length, mmBids);
+	}
+}
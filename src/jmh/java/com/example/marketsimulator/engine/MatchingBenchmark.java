@@ -0,0 +1,81 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** One tick's worth of matchAndSettle: {@code orderCount} fresh orders against the resting book. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingBenchmark {
+	
+	@Param({ "10", "1000", "100000" })
+	int orderCount;
+	
+	private SimulationEngine engine;
+	private final List<String> names = new ArrayList<>();
+	private List<OrderBuffer> batches;
+	private int next;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		engine = new SimulationEngine(BenchmarkSettings.serial(1));
+		int traders = Math.max(2, Math.min(orderCount, 10_000));
+		for (int i = 0; i < traders; i++) {
+			names.add(engine.addAgent("RT", null));
+		}
+		SplittableRandom random = new SplittableRandom(42);
+		batches = new ArrayList<>();
+		for (int b = 0; b < 16; b++) {
+			OrderBuffer orders = new OrderBuffer(orderCount);
+			for (int i = 0; i < orderCount; i++) {
+				int agentId = engine.ledger().idOf(names.get(random.nextInt(traders)));
+				double price = 100.0 + (random.nextDouble() - 0.5) * 10;
+				orders.add(agentId, price, 10, random.nextBoolean() ? Order.Type.BUY : Order.Type.SELL);
+			}
+			batches.add(orders);
+		}
+	}
+	
+	/** Trading drains sellers' inventory, so every iteration starts from the same funded ledger. */
+	@Setup(Level.Iteration)
+	public void fundTraders() {
+		for (String name : names) {
+			engine.setBalances(name, 1_000_000.0, 1_000_000.0);
+		}
+		next = 0;
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		engine.close();
+	}
+	
+	@Benchmark
+	public double matchAndSettle() {
+		engine.advanceTick();
+		OrderBuffer orders = batches.get(next);
+		next = (next + 1) & 15;
+		return engine.matchAndSettle(orders);
+	}
+}
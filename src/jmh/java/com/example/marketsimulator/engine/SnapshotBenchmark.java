@@ -0,0 +1,59 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.model.MarketSnapshot;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** A full tick followed by the MarketSnapshot the scheduled driver broadcasts, and the snapshot on its own. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+	
+	@Param({ "100", "1000", "10000" })
+	int agentCount;
+	
+	private SimulationEngine engine;
+	
+	@Setup(Level.Iteration)
+	public void setUp() {
+		engine = new SimulationEngine(BenchmarkSettings.serial(1));
+		String[] types = { "NMM", "RT", "MT", "MR" };
+		for (int i = 0; i < agentCount; i++) {
+			String name = engine.addAgent(types[i % types.length], null);
+			engine.setBalances(name, 100.0, 1_000_000.0);
+		}
+		engine.step();
+	}
+	
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		engine.close();
+	}
+	
+	@Benchmark
+	public MarketSnapshot tickAndSnapshot() {
+		engine.step();
+		return engine.snapshot();
+	}
+	
+	@Benchmark
+	public MarketSnapshot snapshotOnly() {
+		return engine.snapshot();
+	}
+}
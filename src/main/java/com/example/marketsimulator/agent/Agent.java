@@ -2,10 +2,17 @@ package com.example.marketsimulator.agent;
 
 import com.example.marketsimulator.model.Market;
 import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.nio.ByteBuffer;
 import java.util.List;
 
+/**
+ * A market participant. Subclasses implement the buffer variant of {@code decideAction}, which the engine calls every
+ * tick; the built-in agents do so without allocating.
+ */
 public abstract class Agent {
 	protected String name;
+	protected int id = -1;
 	
 	public Agent(String name) {
 		this.name = name;
@@ -15,5 +22,41 @@ public abstract class Agent {
 		return name;
 	}
 	
-	public abstract List<Order> decideAction(Market market);
+	public int getId() {
+		return id;
+	}
+	
+	/** Set by the engine to the agent's ledger account id; changes when another account is removed. */
+	public void setId(int id) {
+		this.id = id;
+	}
+	
+	/**
+	 * Appends this tick's orders to {@code out}. Called once per tick, possibly on a worker thread while other agents
+	 * decide concurrently. Implementations may mutate their own fields but must not share mutable state (including
+	 * random number generators) with other agents, and must not modify the market.
+	 */
+	public abstract void decideAction(Market market, OrderBuffer out);
+	
+	/** Runs {@link #decideAction(Market, OrderBuffer)} once and returns its orders as objects. */
+	public final List<Order> decideAction(Market market) {
+		OrderBuffer buffer = new OrderBuffer(2);
+		decideAction(market, buffer);
+		return buffer.toOrders(0, buffer.size(), id, name);
+	}
+	
+	/**
+	 * Number of bytes {@link #writeState} writes. Agents whose decisions depend on earlier ticks override all three
+	 * state methods so that a checkpointed agent resumes exactly where it stopped.
+	 */
+	public int stateBytes() {
+		return 0;
+	}
+	
+	public void writeState(ByteBuffer out) {
+	}
+	
+	/** Restores what {@link #writeState} wrote; {@code in} holds exactly those bytes. */
+	public void readState(ByteBuffer in) {
+	}
 }
@@ -0,0 +1,89 @@
+package com.example.marketsimulator.agent;
+
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A whole population of agents of one strategy, stored column-wise instead of as one {@link Agent} object each.
+ * Members are numbered {@code 0..size()-1}, each owning one ledger account, and decide in one loop per run of members
+ * that writes straight into the tick's {@link OrderBuffer}. A member decides exactly like the {@link Agent} subclass
+ * it stands in for and checkpoints the same state bytes, so the two layouts are interchangeable for the rest of the
+ * engine.
+ */
+public abstract class AgentCohort {
+	private int[] accounts = new int[16];
+	protected int size;
+	
+	public int size() {
+		return size;
+	}
+	
+	/** The ledger account of {@code member}. */
+	public int account(int member) {
+		return accounts[member];
+	}
+	
+	/** Set by the engine when the member's account id changes because another account was removed. */
+	public void setAccount(int member, int id) {
+		accounts[member] = id;
+	}
+	
+	public void ensureCapacity(int capacity) {
+		if (capacity > accounts.length) {
+			int grown = Math.max(capacity, (int) Math.min(accounts.length * 2L, maxCapacity()));
+			accounts = Arrays.copyOf(accounts, grown);
+			grow(grown);
+		}
+	}
+	
+	/** Appends a member for account {@code id} and returns its number; subclasses then fill in its columns. */
+	protected int addMember(int id) {
+		ensureCapacity(size + 1);
+		accounts[size] = id;
+		return size++;
+	}
+	
+	/**
+	 * Swap-removes {@code member}: the last member takes its number. Returns the number the moved member had, or -1 when
+	 * {@code member} was the last one.
+	 */
+	public int remove(int member) {
+		int last = --size;
+		if (member == last) {
+			return -1;
+		}
+		accounts[member] = accounts[last];
+		move(last, member);
+		return last;
+	}
+	
+	public void clear() {
+		size = 0;
+	}
+	
+	/**
+	 * Appends the orders of members {@code [from, to)} to {@code out}, one agent range each, in member order. Runs on a
+	 * decision worker thread when the engine decides in parallel; concurrent calls always cover disjoint members.
+	 */
+	public abstract void decide(Market market, int from, int to, OrderBuffer out);
+	
+	/** The most members this cohort's columns can hold. */
+	public int maxCapacity() {
+		return Integer.MAX_VALUE - 8;
+	}
+	
+	/** Resizes every column to {@code capacity} members. */
+	protected abstract void grow(int capacity);
+	
+	/** Copies member {@code from}'s columns over member {@code to}'s. */
+	protected abstract void move(int from, int to);
+	
+	/** Same contract as {@link Agent#stateBytes()}, for one member. */
+	public abstract int stateBytes(int member);
+	
+	public abstract void writeState(int member, ByteBuffer out);
+	
+	public abstract void readState(int member, ByteBuffer in);
+}
@@ -0,0 +1,30 @@
+package com.example.marketsimulator.agent;
+
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.OrderBuffer;
+
+/**
+ * The account of an outside client trading through the order gateway. It makes no decisions of its own: the tick
+ * thread hands it the client's orders before the decision phase, and it submits them as its decisions for that tick.
+ */
+public class ExternalTrader extends Trader {
+	private final OrderBuffer pending = new OrderBuffer(4);
+	
+	public ExternalTrader(String name) {
+		super(name);
+	}
+	
+	/** Queues an order for this tick; called on the tick thread only. */
+	public void submit(int instrument, double price, int quantity, Order.Type type) {
+		pending.add(id, instrument, price, quantity, type);
+	}
+	
+	@Override
+	public void decideAction(Market market, OrderBuffer out) {
+		for (int i = 0; i < pending.size(); i++) {
+			out.add(id, pending.instrument(i), pending.price(i), pending.quantity(i), pending.type(i));
+		}
+		pending.clear();
+	}
+}
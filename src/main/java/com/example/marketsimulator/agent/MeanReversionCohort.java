@@ -0,0 +1,122 @@
+package com.example.marketsimulator.agent;
+
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link MeanReversionTrader}s sharing one window length. Every member's price window is a ring of {@code window}
+ * slots in one flat array, member {@code m} owning {@code [m * window, (m + 1) * window)}, next to columns for the
+ * ring position, the number of prices seen and their running sum.
+ */
+public class MeanReversionCohort extends AgentCohort {
+	private final int window;
+	private double[] prices = new double[0];
+	private int[] counts = new int[16];
+	private int[] nexts = new int[16];
+	private double[] sums = new double[16];
+	
+	public MeanReversionCohort(int window) {
+		this.window = Math.max(1, window);
+		grow(counts.length);
+	}
+	
+	public int window() {
+		return window;
+	}
+	
+	/** Adds a member for account {@code id} that decides like a new {@code MeanReversionTrader} of this window. */
+	public int add(int id) {
+		int member = addMember(id);
+		Arrays.fill(prices, member * window, (member + 1) * window, 0.0);
+		counts[member] = 0;
+		nexts[member] = 0;
+		sums[member] = 0.0;
+		return member;
+	}
+	
+	@Override
+	public void decide(Market market, int from, int to, OrderBuffer out) {
+		double current = market.getPrice();
+		int window = this.window;
+		double[] prices = this.prices;
+		out.ensureCapacity(to - from, to - from);
+		for (int member = from; member < to; member++) {
+			int slot = member * window + nexts[member];
+			double evicted = prices[slot];
+			prices[slot] = current;
+			nexts[member] = (nexts[member] + 1) % window;
+			double sum = sums[member] + current;
+			int count = counts[member];
+			if (count == window) {
+				sum -= evicted;
+			} else {
+				counts[member] = ++count;
+			}
+			sums[member] = sum;
+			out.addAgentOrder(account(member), 0, current, 10, current > sum / count ? Order.Type.SELL : Order.Type.BUY);
+		}
+	}
+	
+	/** The flat price array bounds a cohort of {@code window} to this many members. */
+	public static int maxMembers(int window) {
+		return (Integer.MAX_VALUE - 8) / Math.max(1, window);
+	}
+	
+	@Override
+	public int maxCapacity() {
+		return maxMembers(window);
+	}
+	
+	@Override
+	protected void grow(int capacity) {
+		if (capacity > maxCapacity()) {
+			throw new IllegalArgumentException("a mean reversion cohort with window " + window + " holds at most " + maxCapacity() + " agents");
+		}
+		prices = Arrays.copyOf(prices, capacity * window);
+		counts = Arrays.copyOf(counts, capacity);
+		nexts = Arrays.copyOf(nexts, capacity);
+		sums = Arrays.copyOf(sums, capacity);
+	}
+	
+	@Override
+	protected void move(int from, int to) {
+		System.arraycopy(prices, from * window, prices, to * window, window);
+		counts[to] = counts[from];
+		nexts[to] = nexts[from];
+		sums[to] = sums[from];
+	}
+	
+	/** Laid out like {@link MeanReversionTrader#writeState}, so members and objects restore from each other's bytes. */
+	@Override
+	public int stateBytes(int member) {
+		return 3 * Integer.BYTES + (1 + window) * Double.BYTES;
+	}
+	
+	@Override
+	public void writeState(int member, ByteBuffer out) {
+		out.putInt(window);
+		out.putInt(counts[member]);
+		out.putInt(nexts[member]);
+		out.putDouble(sums[member]);
+		for (int slot = member * window; slot < (member + 1) * window; slot++) {
+			out.putDouble(prices[slot]);
+		}
+	}
+	
+	@Override
+	public void readState(int member, ByteBuffer in) {
+		int length = in.getInt();
+		if (length != window) {
+			throw new IllegalArgumentException("state of window " + length + " does not fit a cohort of window " + window);
+		}
+		counts[member] = in.getInt();
+		nexts[member] = in.getInt();
+		sums[member] = in.getDouble();
+		for (int slot = member * window; slot < (member + 1) * window; slot++) {
+			prices[slot] = in.getDouble();
+		}
+	}
+}
@@ -2,34 +2,70 @@ package com.example.marketsimulator.agent;
 
 import com.example.marketsimulator.model.Market;
 import com.example.marketsimulator.model.Order;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.List;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.nio.ByteBuffer;
 
 public class MeanReversionTrader extends Trader {
-	private final Deque<Double> window = new ArrayDeque<>();
-	private final int windowSize;
+	public static final int DEFAULT_WINDOW = 5;
+	
+	private double[] window;
+	private int windowCount = 0;
+	private int windowNext = 0;
 	private double sum = 0.0;
 	
 	public MeanReversionTrader(String name) {
-		this(name, 5);
+		this(name, DEFAULT_WINDOW);
 	}
 	
 	public MeanReversionTrader(String name, int windowSize) {
 		super(name);
-		this.windowSize = Math.max(1, windowSize);
+		this.window = new double[Math.max(1, windowSize)];
 	}
 	
 	@Override
-	public List<Order> decideAction(Market market) {
+	public void decideAction(Market market, OrderBuffer out) {
 		double current = market.getPrice();
-		window.addLast(current);
+		double evicted = window[windowNext];
+		window[windowNext] = current;
+		windowNext = (windowNext + 1) % window.length;
 		sum += current;
-		if (window.size() > windowSize) {
-			sum -= window.removeFirst();
+		if (windowCount == window.length) {
+			sum -= evicted;
+		} else {
+			windowCount++;
 		}
-		double avg = sum / window.size();
+		double avg = sum / windowCount;
 		Order.Type type = current > avg ? Order.Type.SELL : Order.Type.BUY;
-		return List.of(new Order(name, current, 10, type));
+		out.add(id, current, 10, type);
+	}
+	
+	@Override
+	public int stateBytes() {
+		return 3 * Integer.BYTES + (1 + window.length) * Double.BYTES;
+	}
+	
+	@Override
+	public void writeState(ByteBuffer out) {
+		out.putInt(window.length);
+		out.putInt(windowCount);
+		out.putInt(windowNext);
+		out.putDouble(sum);
+		for (double price : window) {
+			out.putDouble(price);
+		}
+	}
+	
+	@Override
+	public void readState(ByteBuffer in) {
+		int length = in.getInt();
+		if (length != window.length) {
+			window = new double[length];
+		}
+		windowCount = in.getInt();
+		windowNext = in.getInt();
+		sum = in.getDouble();
+		for (int i = 0; i < length; i++) {
+			window[i] = in.getDouble();
+		}
 	}
 }
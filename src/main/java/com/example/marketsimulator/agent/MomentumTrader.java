@@ -2,20 +2,21 @@ package com.example.marketsimulator.agent;
 
 import com.example.marketsimulator.model.Market;
 import com.example.marketsimulator.model.Order;
-import java.util.List;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.nio.ByteBuffer;
 
 public class MomentumTrader extends Trader {
-	private Double lastPrice = null;
+	private double lastPrice = Double.NaN;
 	
 	public MomentumTrader(String name) {
 		super(name);
 	}
 	
 	@Override
-	public List<Order> decideAction(Market market) {
+	public void decideAction(Market market, OrderBuffer out) {
 		double current = market.getPrice();
 		Order.Type type;
-		if (lastPrice == null) {
+		if (Double.isNaN(lastPrice)) {
 			type = Order.Type.BUY;
 		} else if (current > lastPrice) {
 			type = Order.Type.BUY;
@@ -25,6 +26,21 @@ public class MomentumTrader extends Trader {
 			type = Order.Type.BUY;
 		}
 		lastPrice = current;
-		return List.of(new Order(name, current, 10, type));
+		out.add(id, current, 10, type);
+	}
+	
+	@Override
+	public int stateBytes() {
+		return Double.BYTES;
+	}
+	
+	@Override
+	public void writeState(ByteBuffer out) {
+		out.putDouble(lastPrice);
+	}
+	
+	@Override
+	public void readState(ByteBuffer in) {
+		lastPrice = in.getDouble();
 	}
 }
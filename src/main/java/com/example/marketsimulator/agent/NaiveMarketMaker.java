@@ -2,20 +2,48 @@ package com.example.marketsimulator.agent;
 
 import com.example.marketsimulator.model.Market;
 import com.example.marketsimulator.model.Order;
-import java.util.List;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.nio.ByteBuffer;
 
 public class NaiveMarketMaker extends MarketMaker {
-	private final double spread;
+	public static final double DEFAULT_SPREAD = 2.0;
+	
+	private double spread;
 	
 	public NaiveMarketMaker(String name, double spread) {
 		super(name);
 		this.spread = spread;
 	}
 	
+	/** Quotes a bid and an ask around the last price of every listed instrument. */
+	@Override
+	public void decideAction(Market market, OrderBuffer out) {
+		for (int instrument = 0; instrument < market.instrumentCount(); instrument++) {
+			double mid = market.getPrice(instrument);
+			out.add(id, instrument, mid - spread / 2, 10, Order.Type.BUY);
+			out.add(id, instrument, mid + spread / 2, 10, Order.Type.SELL);
+		}
+	}
+	
+	public double getSpread() {
+		return spread;
+	}
+	
+	/** The spread is configurable per run, so it travels with the agent through checkpoints and shard handoffs. */
+	@Override
+	public int stateBytes() {
+		return Double.BYTES;
+	}
+	
+	@Override
+	public void writeState(ByteBuffer out) {
+		out.putDouble(spread);
+	}
+	
 	@Override
-	public List<Order> decideAction(Market market) {
-		double mid = market.getPrice();
-		return List.of(
-		        new Order(name, mid - spread / 2, 10, Order.Type.BUY), new Order(name, mid + spread / 2, 10, Order.Type.SELL));
+	public void readState(ByteBuffer in) {
+		if (in.remaining() >= Double.BYTES) {
+			spread = in.getDouble();
+		}
 	}
 }
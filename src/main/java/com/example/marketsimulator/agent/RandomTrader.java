@@ -2,21 +2,83 @@ package com.example.marketsimulator.agent;
 
 import com.example.marketsimulator.model.Market;
 import com.example.marketsimulator.model.Order;
-import java.util.List;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 public class RandomTrader extends Trader {
-	private final Random random = new Random();
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long MASK = (1L << 48) - 1;
+	
+	private final CheckpointableRandom random;
 	
 	public RandomTrader(String name) {
+		this(name, new Random().nextLong());
+	}
+	
+	public RandomTrader(String name, long seed) {
 		super(name);
+		this.random = new CheckpointableRandom(seed);
 	}
 	
+	/** Trades one instrument per tick, picked at random when several are listed. */
 	@Override
-	public List<Order> decideAction(Market market) {
-		double base = market.getPrice();
+	public void decideAction(Market market, OrderBuffer out) {
+		int instrument = market.instrumentCount() > 1 ? random.nextInt(market.instrumentCount()) : 0;
+		double base = market.getPrice(instrument);
 		double price = base + (random.nextDouble() - 0.5) * 10;
 		Order.Type type = random.nextBoolean() ? Order.Type.BUY : Order.Type.SELL;
-		return List.of(new Order(name, price, 10, type));
+		out.add(id, instrument, price, 10, type);
+	}
+	
+	@Override
+	public int stateBytes() {
+		return Long.BYTES;
+	}
+	
+	@Override
+	public void writeState(ByteBuffer out) {
+		out.putLong(random.state);
+	}
+	
+	@Override
+	public void readState(ByteBuffer in) {
+		random.state = in.getLong();
+	}
+	
+	/** The generator state {@code new Random(seed)} starts from. */
+	static long initialState(long seed) {
+		return (seed ^ MULTIPLIER) & MASK;
+	}
+	
+	/** One step of {@link Random}'s linear congruential generator; {@code next(bits)} is the top bits of the result. */
+	static long nextState(long state) {
+		return (state * MULTIPLIER + 0xBL) & MASK;
+	}
+	
+	/**
+	 * {@link Random} with the generator state in a plain field so it can be checkpointed. It reimplements the documented
+	 * {@link Random#next(int)} step, so a given seed yields the same sequence as {@code new Random(seed)}, and skips the
+	 * atomic update an agent-owned generator does not need.
+	 */
+	@SuppressWarnings("serial")
+	private static final class CheckpointableRandom extends Random {
+		private long state;
+		
+		CheckpointableRandom(long seed) {
+			super(seed);
+		}
+		
+		@Override
+		public void setSeed(long seed) {
+			// Also called by the superclass constructor, before this class's fields are initialized.
+			state = initialState(seed);
+		}
+		
+		@Override
+		protected int next(int bits) {
+			state = nextState(state);
+			return (int) (state >>> (48 - bits));
+		}
 	}
 }
@@ -0,0 +1,81 @@
+package com.example.marketsimulator.agent;
+
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link RandomTrader}s as one column of generator states. Each member steps {@link java.util.Random}'s generator
+ * inline, drawing the same numbers in the same order as a {@code RandomTrader} with the same seed.
+ */
+public class RandomTraderCohort extends AgentCohort {
+	private long[] states = new long[16];
+	
+	/** Adds a member for account {@code id} that decides like {@code new RandomTrader(name, seed)}. */
+	public int add(int id, long seed) {
+		int member = addMember(id);
+		states[member] = RandomTrader.initialState(seed);
+		return member;
+	}
+	
+	@Override
+	public void decide(Market market, int from, int to, OrderBuffer out) {
+		int instrumentCount = market.instrumentCount();
+		long[] states = this.states;
+		out.ensureCapacity(to - from, to - from);
+		for (int member = from; member < to; member++) {
+			long state = states[member];
+			int instrument = 0;
+			if (instrumentCount > 1) {
+				// Random.nextInt(bound)
+				state = RandomTrader.nextState(state);
+				int r = (int) (state >>> 17);
+				int m = instrumentCount - 1;
+				if ((instrumentCount & m) == 0) {
+					r = (int) ((instrumentCount * (long) r) >> 31);
+				} else {
+					for (int u = r; u - (r = u % instrumentCount) + m < 0; u = (int) (state >>> 17)) {
+						state = RandomTrader.nextState(state);
+					}
+				}
+				instrument = r;
+			}
+			// Random.nextDouble() and Random.nextBoolean()
+			state = RandomTrader.nextState(state);
+			long high = state >>> 22;
+			state = RandomTrader.nextState(state);
+			double uniform = ((high << 27) + (state >>> 21)) * 0x1.0p-53;
+			state = RandomTrader.nextState(state);
+			Order.Type type = (state >>> 47) != 0 ? Order.Type.BUY : Order.Type.SELL;
+			states[member] = state;
+			out.addAgentOrder(account(member), instrument, market.getPrice(instrument) + (uniform - 0.5) * 10, 10, type);
+		}
+	}
+	
+	@Override
+	protected void grow(int capacity) {
+		states = Arrays.copyOf(states, capacity);
+	}
+	
+	@Override
+	protected void move(int from, int to) {
+		states[to] = states[from];
+	}
+	
+	@Override
+	public int stateBytes(int member) {
+		return Long.BYTES;
+	}
+	
+	@Override
+	public void writeState(int member, ByteBuffer out) {
+		out.putLong(states[member]);
+	}
+	
+	@Override
+	public void readState(int member, ByteBuffer in) {
+		states[member] = in.getLong();
+	}
+}
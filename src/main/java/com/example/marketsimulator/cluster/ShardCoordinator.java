@@ -0,0 +1,280 @@
+package com.example.marketsimulator.cluster;
+
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.engine.SimulationSettings;
+import com.example.marketsimulator.journal.EventSink;
+import com.example.marketsimulator.journal.JournalEventType;
+import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a simulation whose agents live in {@link ShardWorker} processes. The coordinator owns the engine (ledger, books,
+ * matching, settlement and liquidation) and every worker owns a disjoint share of the agents. A tick is one barrier
+ * round: the coordinator sends each worker a TICK frame with the prices to decide on and the account changes since the
+ * last tick, each worker decides for all of its agents and answers with a single ORDERS frame, and the coordinator
+ * merges the frames into account order and runs the rest of the tick with {@link SimulationEngine#step(OrderBuffer)}.
+ * The outcome is identical to running the same agents in one engine.
+ *
+ * <p>The coordinator is the engine's {@link EventSink}: account openings, removals and resets tell it which agents to
+ * ship, drop or renumber, and every event is passed on to {@code journal} when there is one. Agents are shipped with
+ * their strategy state and from then on only the worker's copy advances, so the agents section of the engine's
+ * checkpoints holds strategy state as of shipping. Not thread-safe, like the engine.
+ */
+public class ShardCoordinator implements EventSink, AutoCloseable {
+	private final EventSink journal;
+	private final SocketChannel[] workers;
+	private final ShardProtocol.Frame[] outgoing;
+	private final ShardProtocol.Frame[] incoming;
+	private final int[] pendingOrders;
+	private final int[] workerAgents;
+	private final int instrumentCount;
+	private final OrderBuffer decided = new OrderBuffer(1024);
+	private final SimulationEngine engine;
+	private int[] owners = new int[64];
+	private int[] changes = new int[48];
+	private int changeCount;
+	private boolean resync = true;
+	
+	/** Listens on {@code unix:<path>}, {@code <host>:<port>} or {@code <port>} for workers to connect to. */
+	public static ServerSocketChannel listen(String address) throws IOException {
+		return ShardProtocol.listen(address);
+	}
+	
+	/**
+	 * Accepts {@code workerCount} workers on {@code server}, blocking until all of them have connected, then starts the
+	 * engine. {@code journal} may be null.
+	 */
+	public ShardCoordinator(SimulationSettings settings, EventSink journal, ServerSocketChannel server, int workerCount) throws IOException {
+		if (workerCount < 1) {
+			throw new IllegalArgumentException("shard worker count must be >= 1");
+		}
+		this.journal = journal;
+		this.workers = new SocketChannel[workerCount];
+		this.outgoing = new ShardProtocol.Frame[workerCount];
+		this.incoming = new ShardProtocol.Frame[workerCount];
+		this.pendingOrders = new int[workerCount];
+		this.workerAgents = new int[workerCount];
+		List<String> instruments = settings.instruments();
+		this.instrumentCount = instruments.size();
+		try {
+			for (int w = 0; w < workerCount; w++) {
+				workers[w] = server.accept();
+				ShardProtocol.configure(workers[w]);
+				outgoing[w] = new ShardProtocol.Frame();
+				incoming[w] = new ShardProtocol.Frame();
+				outgoing[w].begin(ShardProtocol.HELLO);
+				outgoing[w].buffer.putShort((short) w).putShort((short) workerCount).putShort((short) instruments.size());
+				for (String symbol : instruments) {
+					outgoing[w].string(symbol);
+				}
+				outgoing[w].send(workers[w]);
+			}
+		} catch (IOException ex) {
+			closeWorkers();
+			throw ex;
+		}
+		this.engine = new SimulationEngine(settings, this);
+	}
+	
+	/** The coordinator's engine, for adding agents, rates, snapshots and the like between ticks. */
+	public SimulationEngine engine() {
+		return engine;
+	}
+	
+	public int workerCount() {
+		return workers.length;
+	}
+	
+	/** Runs one tick across all workers. */
+	public void step() throws IOException {
+		long tick = engine.getTick() + 1;
+		sendTick(tick);
+		for (int w = 0; w < workers.length; w++) {
+			ShardProtocol.Frame frame = incoming[w];
+			byte type = frame.receive(workers[w]);
+			long answered = frame.buffer.getLong();
+			if (type != ShardProtocol.ORDERS || answered != tick) {
+				throw new IOException("worker " + w + " answered tick " + tick + " with frame type " + type + " for tick " + answered);
+			}
+			pendingOrders[w] = frame.buffer.getInt();
+		}
+		decided.clear();
+		int accounts = engine.getAgentCount();
+		for (int id = 0; id < accounts; id++) {
+			int w = owners[id];
+			ByteBuffer in = incoming[w].buffer;
+			decided.beginAgent();
+			while (pendingOrders[w] > 0 && in.getInt(in.position()) == id) {
+				in.getInt();
+				int instrument = in.getShort() & 0xFFFF;
+				double price = in.getDouble();
+				int quantity = in.getInt();
+				decided.add(id, instrument, price, quantity, in.get() == 1 ? Order.Type.BUY : Order.Type.SELL);
+				pendingOrders[w]--;
+			}
+			decided.endAgent();
+		}
+		for (int w = 0; w < workers.length; w++) {
+			if (pendingOrders[w] != 0) {
+				throw new IOException("worker " + w + " sent orders for accounts it does not own");
+			}
+		}
+		engine.step(decided);
+	}
+	
+	private void sendTick(long tick) throws IOException {
+		if (resync) {
+			changeCount = 0;
+			Arrays.fill(workerAgents, 0);
+			for (int id = 0; id < engine.getAgentCount(); id++) {
+				assign(id);
+			}
+		}
+		for (int w = 0; w < workers.length; w++) {
+			ShardProtocol.Frame frame = outgoing[w];
+			frame.begin(ShardProtocol.TICK);
+			frame.ensure(Long.BYTES + instrumentCount * Double.BYTES + Integer.BYTES + 1);
+			frame.buffer.putLong(tick);
+			for (int instrument = 0; instrument < instrumentCount; instrument++) {
+				frame.buffer.putDouble(engine.getPrice(instrument));
+			}
+			int countAt = frame.buffer.position();
+			frame.buffer.putInt(0);
+			int count = 0;
+			if (resync) {
+				frame.buffer.put(ShardProtocol.CLEAR);
+				count++;
+				for (int id = 0; id < engine.getAgentCount(); id++) {
+					if (owners[id] == w) {
+						putAdd(frame, id);
+						count++;
+					}
+				}
+			}
+			for (int c = 0; c < changeCount; c += 3) {
+				int kind = changes[c];
+				int id = changes[c + 1];
+				if (kind == ShardProtocol.ADD && owners[id] == w) {
+					putAdd(frame, id);
+					count++;
+				} else if (kind == ShardProtocol.REMOVE) {
+					frame.ensure(1 + 2 * Integer.BYTES);
+					frame.buffer.put(ShardProtocol.REMOVE).putInt(id).putInt(changes[c + 2]);
+					count++;
+				}
+			}
+			frame.buffer.putInt(countAt, count);
+			frame.send(workers[w]);
+		}
+		changeCount = 0;
+		resync = false;
+	}
+	
+	private void putAdd(ShardProtocol.Frame frame, int id) {
+		frame.ensure(1 + Integer.BYTES + 1);
+		frame.buffer.put(ShardProtocol.ADD).putInt(id).put(engine.agentType(id));
+		frame.string(engine.agentName(id));
+		int stateBytes = engine.agentStateBytes(id);
+		frame.ensure(Integer.BYTES + stateBytes);
+		frame.buffer.putInt(stateBytes);
+		engine.writeAgentState(id, frame.buffer);
+	}
+	
+	/** Gives a new account to the worker with the fewest agents. */
+	private void assign(int id) {
+		if (id >= owners.length) {
+			owners = Arrays.copyOf(owners, Math.max(owners.length * 2, id + 1));
+		}
+		int least = 0;
+		for (int w = 1; w < workerAgents.length; w++) {
+			if (workerAgents[w] < workerAgents[least]) {
+				least = w;
+			}
+		}
+		owners[id] = least;
+		workerAgents[least]++;
+	}
+	
+	private void addChange(int kind, int id, int moved) {
+		if (changeCount + 3 > changes.length) {
+			changes = Arrays.copyOf(changes, changes.length * 2);
+		}
+		changes[changeCount++] = kind;
+		changes[changeCount++] = id;
+		changes[changeCount++] = moved;
+	}
+	
+	@Override
+	public void append(JournalEventType type, int flags, long tick, int instrument, int account, int counterparty, double price, double quantity) {
+		switch (type) {
+			case ACCOUNT_OPENED -> {
+				if (!resync) {
+					assign(account);
+					addChange(ShardProtocol.ADD, account, -1);
+				}
+			}
+			case ACCOUNT_REMOVED -> {
+				if (!resync) {
+					workerAgents[owners[account]]--;
+					if (counterparty >= 0) {
+						owners[account] = owners[counterparty];
+					}
+					addChange(ShardProtocol.REMOVE, account, counterparty);
+				}
+			}
+			case RESET -> resync = true;
+			default -> {
+			}
+		}
+		if (journal != null) {
+			journal.append(type, flags, tick, instrument, account, counterparty, price, quantity);
+		}
+	}
+	
+	@Override
+	public boolean checkpointDue(long tick) {
+		return journal != null && journal.checkpointDue(tick);
+	}
+	
+	@Override
+	public void checkpoint(long tick, ByteBuffer state) {
+		if (journal != null) {
+			journal.checkpoint(tick, state);
+		}
+	}
+	
+	/** Tells the workers to stop and closes their connections and the engine. */
+	@Override
+	public void close() {
+		for (int w = 0; w < workers.length; w++) {
+			if (workers[w] != null && workers[w].isOpen()) {
+				try {
+					outgoing[w].begin(ShardProtocol.SHUTDOWN);
+					outgoing[w].send(workers[w]);
+				} catch (IOException ex) {
+					// the worker is gone already; closing the channel is all that is left
+				}
+			}
+		}
+		closeWorkers();
+		engine.close();
+	}
+	
+	private void closeWorkers() {
+		for (SocketChannel worker : workers) {
+			if (worker != null) {
+				try {
+					worker.close();
+				} catch (IOException ex) {
+					// nothing more to release
+				}
+			}
+		}
+	}
+}
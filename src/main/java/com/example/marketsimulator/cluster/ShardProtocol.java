@@ -0,0 +1,153 @@
+package com.example.marketsimulator.cluster;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Wire format between a {@link ShardCoordinator} and its {@link ShardWorker}s. Every message is one frame of a
+ * big-endian {@code i32} length, a {@code u8} type and the payload, so a tick costs each worker one frame in each
+ * direction however many agents and orders it carries. Strings are a {@code u16} length and UTF-8 bytes.
+ * <ul>
+ * <li>{@code HELLO}, to a worker once it connects: {@code u16 worker, u16 workers, u16 instruments}, then each
+ * symbol.</li>
+ * <li>{@code TICK}, to every worker: {@code i64 tick}, one {@code f64} price per instrument, {@code i32 changes}, then
+ * each change as a {@code u8} kind followed by {@code i32 account, u8 type, name, i32 length, state} for {@code ADD},
+ * {@code i32 account, i32 moved} for {@code REMOVE}, or nothing for {@code CLEAR}.</li>
+ * <li>{@code ORDERS}, the answer to a tick: {@code i64 tick, i32 count}, then per order
+ * {@code i32 account, u16 instrument, f64 price, i32 quantity, u8 buy}, in ascending account order.</li>
+ * <li>{@code SHUTDOWN}, to every worker when the run ends: no payload.</li>
+ * </ul>
+ */
+final class ShardProtocol {
+	static final byte HELLO = 1;
+	static final byte TICK = 2;
+	static final byte ORDERS = 3;
+	static final byte SHUTDOWN = 4;
+	
+	static final byte ADD = 1;
+	static final byte REMOVE = 2;
+	static final byte CLEAR = 3;
+	
+	static final int ORDER_BYTES = Integer.BYTES + Short.BYTES + Double.BYTES + Integer.BYTES + 1;
+	private static final int MAX_FRAME_BYTES = 1 << 30;
+	private static final String UNIX_PREFIX = "unix:";
+	
+	private ShardProtocol() {
+	}
+	
+	/** {@code unix:<path>} for a Unix domain socket, otherwise {@code host:port} or just a port on localhost. */
+	static SocketAddress address(String raw) {
+		String trimmed = raw == null ? "" : raw.trim();
+		if (trimmed.startsWith(UNIX_PREFIX)) {
+			return UnixDomainSocketAddress.of(trimmed.substring(UNIX_PREFIX.length()));
+		}
+		int colon = trimmed.lastIndexOf(':');
+		try {
+			if (colon < 0) {
+				return new InetSocketAddress("localhost", Integer.parseInt(trimmed));
+			}
+			return new InetSocketAddress(trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1)));
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("shard address must be unix:<path>, <host>:<port> or <port>: " + raw);
+		}
+	}
+	
+	static ServerSocketChannel listen(String raw) throws IOException {
+		SocketAddress address = address(raw);
+		if (address instanceof UnixDomainSocketAddress unix) {
+			Files.deleteIfExists(unix.getPath());
+			return ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(address);
+		}
+		return ServerSocketChannel.open().bind(address);
+	}
+	
+	static SocketChannel connect(String raw) throws IOException {
+		SocketChannel channel = SocketChannel.open(address(raw));
+		configure(channel);
+		return channel;
+	}
+	
+	/** Frames are written whole, so Nagle's algorithm would only delay the tick barrier. */
+	static void configure(SocketChannel channel) throws IOException {
+		if (!(channel.getLocalAddress() instanceof UnixDomainSocketAddress)) {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		}
+	}
+	
+	/** A reusable, growable frame buffer for one direction of one connection. */
+	static final class Frame {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64 << 10);
+		
+		/** Starts an outgoing frame of {@code type}; the payload is then put into {@link #buffer}. */
+		void begin(byte type) {
+			buffer.clear();
+			buffer.putInt(0);
+			buffer.put(type);
+		}
+		
+		void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+		
+		void string(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			ensure(Short.BYTES + bytes.length);
+			buffer.putShort((short) bytes.length);
+			buffer.put(bytes);
+		}
+		
+		String readString() {
+			byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		
+		void send(SocketChannel channel) throws IOException {
+			buffer.putInt(0, buffer.position() - Integer.BYTES);
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		
+		/** Reads the next whole frame and returns its type, leaving {@link #buffer} positioned at the payload. */
+		byte receive(SocketChannel channel) throws IOException {
+			buffer.clear().limit(Integer.BYTES);
+			readFully(channel);
+			int length = buffer.getInt(0);
+			if (length < 1 || length > MAX_FRAME_BYTES) {
+				throw new IOException("invalid shard frame length " + length);
+			}
+			if (buffer.capacity() < Integer.BYTES + length) {
+				buffer = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, Integer.BYTES + length));
+			}
+			buffer.clear().position(Integer.BYTES).limit(Integer.BYTES + length);
+			readFully(channel);
+			buffer.position(Integer.BYTES);
+			return buffer.get();
+		}
+		
+		private void readFully(SocketChannel channel) throws IOException {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("shard connection closed");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.example.marketsimulator.cluster;
+
+import com.example.marketsimulator.agent.Agent;
+import com.example.marketsimulator.engine.AgentDecisionPhase;
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The agent side of a {@link ShardCoordinator}: holds the agents the coordinator ships to it and answers every TICK
+ * frame with one ORDERS frame holding their decisions against the tick's prices. Decisions run through an
+ * {@link AgentDecisionPhase}, so a worker can fan out over its own cores as well.
+ */
+public class ShardWorker implements AutoCloseable {
+	private static final long CONNECT_RETRY_MILLIS = 100;
+	
+	private final SocketChannel channel;
+	private final AgentDecisionPhase decisionPhase;
+	private final ShardProtocol.Frame incoming = new ShardProtocol.Frame();
+	private final ShardProtocol.Frame outgoing = new ShardProtocol.Frame();
+	private final OrderBuffer orders = new OrderBuffer(1024);
+	private final List<Agent> agents = new ArrayList<>();
+	private Agent[] byId = new Agent[64];
+	private int idLimit;
+	private boolean reordered;
+	private Market market;
+	private int index = -1;
+	
+	public ShardWorker(SocketChannel channel, AgentDecisionPhase decisionPhase) {
+		this.channel = channel;
+		this.decisionPhase = decisionPhase;
+	}
+	
+	/** Connects to the coordinator at {@code address}, retrying for up to {@code timeoutMillis} while it starts up. */
+	public static ShardWorker connect(String address, AgentDecisionPhase decisionPhase, long timeoutMillis) throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (true) {
+			try {
+				return new ShardWorker(ShardProtocol.connect(address), decisionPhase);
+			} catch (SocketException ex) {
+				if (System.currentTimeMillis() >= deadline) {
+					throw ex;
+				}
+				Thread.sleep(CONNECT_RETRY_MILLIS);
+			}
+		}
+	}
+	
+	/** Serves ticks until the coordinator shuts the run down, and returns how many it served. */
+	public long run() throws IOException {
+		if (incoming.receive(channel) != ShardProtocol.HELLO) {
+			throw new IOException("coordinator did not start with HELLO");
+		}
+		ByteBuffer in = incoming.buffer;
+		index = in.getShort();
+		in.getShort();
+		String[] symbols = new String[in.getShort()];
+		for (int instrument = 0; instrument < symbols.length; instrument++) {
+			symbols[instrument] = incoming.readString();
+		}
+		market = new Market(List.of(symbols), 1);
+		long ticks = 0;
+		while (true) {
+			byte type = incoming.receive(channel);
+			if (type == ShardProtocol.SHUTDOWN) {
+				return ticks;
+			}
+			if (type != ShardProtocol.TICK) {
+				throw new IOException("unexpected frame type " + type + " from coordinator");
+			}
+			tick();
+			ticks++;
+		}
+	}
+	
+	/** Worker index the coordinator assigned, or -1 before the handshake. */
+	public int index() {
+		return index;
+	}
+	
+	public int agentCount() {
+		return agents.size();
+	}
+	
+	private void tick() throws IOException {
+		ByteBuffer in = incoming.buffer;
+		long tick = in.getLong();
+		for (int instrument = 0; instrument < market.instrumentCount(); instrument++) {
+			market.updatePrice(instrument, in.getDouble());
+		}
+		for (int changes = in.getInt(); changes > 0; changes--) {
+			switch (in.get()) {
+				case ShardProtocol.ADD -> add(in.getInt(), in.get());
+				case ShardProtocol.REMOVE -> remove(in.getInt(), in.getInt());
+				case ShardProtocol.CLEAR -> {
+					Arrays.fill(byId, 0, idLimit, null);
+					idLimit = 0;
+					reordered = true;
+				}
+				default -> throw new IOException("unknown account change in tick " + tick);
+			}
+		}
+		if (reordered) {
+			agents.clear();
+			for (int id = 0; id < idLimit; id++) {
+				if (byId[id] != null) {
+					agents.add(byId[id]);
+				}
+			}
+			reordered = false;
+		}
+		
+		decisionPhase.decide(agents, market, orders);
+		outgoing.begin(ShardProtocol.ORDERS);
+		outgoing.ensure(Long.BYTES + Integer.BYTES + orders.size() * ShardProtocol.ORDER_BYTES);
+		ByteBuffer out = outgoing.buffer;
+		out.putLong(tick).putInt(orders.size());
+		for (int i = 0; i < orders.size(); i++) {
+			out.putInt(orders.agentId(i)).putShort((short) orders.instrument(i)).putDouble(orders.price(i)).putInt(orders.quantity(i)).put((byte) (orders.isBuy(i) ? 1 : 0));
+		}
+		outgoing.send(channel);
+	}
+	
+	private void add(int id, int type) {
+		String name = incoming.readString();
+		ByteBuffer in = incoming.buffer;
+		int stateBytes = in.getInt();
+		Agent agent = SimulationEngine.restoreAgent(type, name, in.slice(in.position(), stateBytes));
+		in.position(in.position() + stateBytes);
+		agent.setId(id);
+		if (id >= byId.length) {
+			byId = Arrays.copyOf(byId, Math.max(byId.length * 2, id + 1));
+		}
+		byId[id] = agent;
+		idLimit = Math.max(idLimit, id + 1);
+		reordered = true;
+	}
+	
+	/** Mirrors the engine's swap-remove: {@code id} is dropped and the account at {@code moved}, if any, takes its id. */
+	private void remove(int id, int moved) {
+		if (id < idLimit && byId[id] != null) {
+			byId[id] = null;
+			reordered = true;
+		}
+		if (moved >= 0 && moved < idLimit && byId[moved] != null) {
+			byId[id] = byId[moved];
+			byId[id].setId(id);
+			byId[moved] = null;
+			reordered = true;
+		}
+	}
+	
+	@Override
+	public void close() {
+		decisionPhase.close();
+		try {
+			channel.close();
+		} catch (IOException ex) {
+			// nothing more to release
+		}
+	}
+}
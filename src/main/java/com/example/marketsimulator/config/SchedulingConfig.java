@@ -1,11 +0,0 @@
-package com.example.marketsimulator.config;
-
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.EnableScheduling;
-
-@Configuration
-@EnableScheduling
-@ConditionalOnProperty(name = "market.scheduling.enabled", havingValue = "true", matchIfMissing = true)
-public class SchedulingConfig {
-}
@@ -0,0 +1,67 @@
+package com.example.marketsimulator.config;
+
+import com.example.marketsimulator.engine.AgentDecisionPhase;
+import com.example.marketsimulator.engine.OrderGateway;
+import com.example.marketsimulator.engine.SimulationSettings;
+import com.example.marketsimulator.journal.EventJournal;
+import com.example.marketsimulator.persistence.WriteBehindStore;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+public class SimulationConfig {
+	
+	@Bean
+	public SimulationSettings simulationSettings(
+	                                             @Value("${market.total-asset-units:100}") double totalAssetUnits, @Value("${market.total-cash:10000}") double totalCash, @Value("${market.initial-positions:MM1:100,RT1:0}") String initialPositions, @Value("${market.funding-rate:0.01}") double fundingRate, @Value("${market.dividend-rate:0.02}") double dividendRate, @Value("${market.order-ttl-ticks:5}") long orderTtlTicks, @Value("${market.seed:#{null}}") Long seed, @Value("${market.decision.executor:serial}") String decisionExecutor, @Value("${market.decision.parallelism:0}") int decisionParallelism, @Value("${market.decision.min-chunk-size:256}") int decisionMinChunkSize, @Value("${market.instruments:SIM}") String instruments, @Value("${market.history.capacity:10000}") int historyCapacity, @Value("${market.market-maker.spread:2.0}") double marketMakerSpread
+	) {
+		int parallelism = decisionParallelism > 0 ? decisionParallelism : Runtime.getRuntime().availableProcessors();
+		return new SimulationSettings(
+		        totalAssetUnits, totalCash, initialPositions, fundingRate, dividendRate, Math.max(1, orderTtlTicks), seed != null ? seed : new Random().nextLong(), AgentDecisionPhase.parseMode(decisionExecutor), parallelism, decisionMinChunkSize, parseInstruments(instruments), historyCapacity, marketMakerSpread
+		);
+	}
+	
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(name = "market.journal.enabled", havingValue = "true")
+	public EventJournal eventJournal(
+	                                 @Value("${market.journal.directory:journal}") String directory, @Value("${market.journal.segment-bytes:67108864}") int segmentBytes, @Value("${market.journal.ring-capacity:65536}") int ringCapacity, @Value("${market.journal.checkpoint-interval:10000}") long checkpointInterval
+	) throws IOException {
+		return new EventJournal(Path.of(directory), segmentBytes, ringCapacity, checkpointInterval);
+	}
+	
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(name = "market.persistence.enabled", havingValue = "true")
+	public WriteBehindStore writeBehindStore(
+	                                         JdbcTemplate jdbc, PlatformTransactionManager transactionManager, @Value("${market.persistence.queue-capacity:65536}") int queueCapacity, @Value("${market.persistence.batch-size:1000}") int batchSize, @Value("${market.persistence.flush-interval-ms:1000}") long flushIntervalMillis, @Value("${market.persistence.pnl-interval-ticks:10}") long pnlIntervalTicks
+	) {
+		return new WriteBehindStore(jdbc, transactionManager, queueCapacity, batchSize, flushIntervalMillis, pnlIntervalTicks);
+	}
+	
+	@Bean
+	public OrderGateway orderGateway(SimulationSettings settings, @Value("${market.gateway.capacity:65536}") int capacity, @Value("${market.gateway.max-clients:4096}") int maxClients, @Value("${market.gateway.max-sequence-gap:65536}") long maxSequenceGap) {
+		return new OrderGateway(settings.instruments(), capacity, maxClients, maxSequenceGap);
+	}
+	
+	private static List<String> parseInstruments(String raw) {
+		List<String> symbols = new ArrayList<>();
+		for (String symbol : raw.split(",")) {
+			String trimmed = symbol.trim();
+			if (!trimmed.isEmpty() && !symbols.contains(trimmed)) {
+				symbols.add(trimmed);
+			}
+		}
+		if (symbols.isEmpty()) {
+			throw new IllegalArgumentException("market.instruments must list at least one symbol");
+		}
+		return List.copyOf(symbols);
+	}
+}
@@ -1,16 +1,26 @@
 package com.example.marketsimulator.config;
 
+import com.example.marketsimulator.handler.MarketBinaryMessageConverter;
+import com.example.marketsimulator.handler.MarketSubscriptionInterceptor;
+import java.util.List;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+	private final MarketSubscriptionInterceptor subscriptionInterceptor;
+	
+	public WebSocketConfig(MarketSubscriptionInterceptor subscriptionInterceptor) {
+		this.subscriptionInterceptor = subscriptionInterceptor;
+	}
 	
 	@Override
 	public void configureMessageBroker(MessageBrokerRegistry config) {
-		config.enableSimpleBroker("/topic");
+		config.enableSimpleBroker("/topic", "/queue");
 		config.setApplicationDestinationPrefixes("/app");
 	}
 	
@@ -18,4 +28,15 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 	public void registerStompEndpoints(StompEndpointRegistry registry) {
 		registry.addEndpoint("/ws-market").setAllowedOriginPatterns("*").withSockJS();
 	}
+	
+	@Override
+	public void configureClientInboundChannel(ChannelRegistration registration) {
+		registration.interceptors(subscriptionInterceptor);
+	}
+	
+	@Override
+	public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+		messageConverters.add(new MarketBinaryMessageConverter());
+		return true;
+	}
 }
@@ -1,6 +1,9 @@
 package com.example.marketsimulator.controller;
 
+import com.example.marketsimulator.engine.AgentGroup;
 import com.example.marketsimulator.service.MarketSimulationService;
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -30,6 +33,48 @@ public class AgentController {
 		}
 	}
 	
+	/**
+	 * Adds whole populations at once. Every group is validated, and checked against what the engine can still hold,
+	 * before any is added, so a request with a bad group adds nothing and gets a 400.
+	 */
+	@PostMapping("/bulk")
+	public AddAgentsResponse addAgents(@RequestBody AddAgentsRequest request) {
+		if (request == null || request.groups == null || request.groups.isEmpty()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "groups are required");
+		}
+		List<AgentGroup> groups = new ArrayList<>(request.groups.size());
+		long total = 0;
+		try {
+			for (AgentGroupRequest group : request.groups) {
+				if (group == null) {
+					throw new IllegalArgumentException("group must not be null");
+				}
+				groups.add(new AgentGroup(group.type, group.count, group.namePrefix, group.minCash, group.maxCash, group.minPosition, group.maxPosition, group.spread, group.window));
+				total += group.count;
+			}
+		} catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+		}
+		if (total > AgentGroup.MAX_COUNT) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most " + AgentGroup.MAX_COUNT + " agents per request");
+		}
+		long started = System.nanoTime();
+		List<List<String>> names;
+		try {
+			names = marketSimulationService.addAgents(groups);
+		} catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+		}
+		AddAgentsResponse response = new AddAgentsResponse();
+		response.elapsedMillis = (System.nanoTime() - started) / 1e6;
+		for (int g = 0; g < groups.size(); g++) {
+			List<String> added = names.get(g);
+			response.created += added.size();
+			response.groups.add(new AddedGroup(groups.get(g).type(), added.size(), added.get(0), added.get(added.size() - 1)));
+		}
+		return response;
+	}
+	
 	public static class AddAgentRequest {
 		public String type;
 		public String name;
@@ -42,4 +87,41 @@ public class AgentController {
 			this.name = name;
 		}
 	}
+	
+	public static class AddAgentsRequest {
+		public List<AgentGroupRequest> groups;
+	}
+	
+	/** One population; unset fields take the defaults documented on {@link AgentGroup}. */
+	public static class AgentGroupRequest {
+		public String type;
+		public int count;
+		public String namePrefix;
+		public Double minCash;
+		public Double maxCash;
+		public Double minPosition;
+		public Double maxPosition;
+		public Double spread;
+		public Integer window;
+	}
+	
+	public static class AddAgentsResponse {
+		public int created;
+		public double elapsedMillis;
+		public List<AddedGroup> groups = new ArrayList<>();
+	}
+	
+	public static class AddedGroup {
+		public String type;
+		public int count;
+		public String firstName;
+		public String lastName;
+		
+		public AddedGroup(String type, int count, String firstName, String lastName) {
+			this.type = type;
+			this.count = count;
+			this.firstName = firstName;
+			this.lastName = lastName;
+		}
+	}
 }
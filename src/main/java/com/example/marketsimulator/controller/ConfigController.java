@@ -1,10 +1,18 @@
 package com.example.marketsimulator.controller;
 
+import com.example.marketsimulator.model.CheckpointInfo;
+import com.example.marketsimulator.model.TickSchedule;
 import com.example.marketsimulator.service.MarketSimulationService;
+import com.example.marketsimulator.service.TickScheduler;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -12,9 +20,11 @@ import org.springframework.web.server.ResponseStatusException;
 @RequestMapping("/api/config")
 public class ConfigController {
 	private final MarketSimulationService marketSimulationService;
+	private final TickScheduler tickScheduler;
 	
-	public ConfigController(MarketSimulationService marketSimulationService) {
+	public ConfigController(MarketSimulationService marketSimulationService, TickScheduler tickScheduler) {
 		this.marketSimulationService = marketSimulationService;
+		this.tickScheduler = tickScheduler;
 	}
 	
 	@PatchMapping
@@ -31,12 +41,37 @@ public class ConfigController {
 	
 	@PatchMapping("/pause")
 	public void pause() {
-		marketSimulationService.pause();
+		tickScheduler.pause();
 	}
 	
 	@PatchMapping("/resume")
 	public void resume() {
-		marketSimulationService.resume();
+		tickScheduler.resume();
+	}
+	
+	@GetMapping("/schedule")
+	public TickSchedule schedule() {
+		return new TickSchedule(tickScheduler.getRate(), tickScheduler.getOverrunPolicy().name(), tickScheduler.isPaused(), tickScheduler.lastLagNanos() / 1e6, tickScheduler.overruns(), tickScheduler.skippedTicks());
+	}
+	
+	/** Changes the tick rate and/or overrun policy of the running simulation; omitted fields keep their value. */
+	@PatchMapping("/schedule")
+	public TickSchedule updateSchedule(@RequestBody UpdateScheduleRequest request) {
+		if (request == null) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "request body required");
+		}
+		try {
+			TickScheduler.OverrunPolicy policy = request.overrunPolicy == null ? null : TickScheduler.OverrunPolicy.parse(request.overrunPolicy);
+			if (request.ticksPerSecond != null) {
+				tickScheduler.setRate(request.ticksPerSecond);
+			}
+			if (policy != null) {
+				tickScheduler.setOverrunPolicy(policy);
+			}
+		} catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+		}
+		return schedule();
 	}
 	
 	@PatchMapping("/reset")
@@ -44,8 +79,37 @@ public class ConfigController {
 		marketSimulationService.reset();
 	}
 	
+	@PostMapping("/checkpoint")
+	public CheckpointInfo checkpoint(@RequestParam(defaultValue = "latest") String name) {
+		try {
+			return marketSimulationService.checkpoint(name);
+		} catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+		} catch (IOException ex) {
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "could not write checkpoint " + name, ex);
+		}
+	}
+	
+	@PostMapping("/restore")
+	public CheckpointInfo restore(@RequestParam(defaultValue = "latest") String name) {
+		try {
+			return marketSimulationService.restore(name);
+		} catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+		} catch (NoSuchFileException ex) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "no checkpoint named " + name);
+		} catch (IOException ex) {
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "could not read checkpoint " + name, ex);
+		}
+	}
+	
 	public static class UpdateConfigRequest {
 		public Double fundingRate;
 		public Double dividendRate;
 	}
+	
+	public static class UpdateScheduleRequest {
+		public Double ticksPerSecond;
+		public String overrunPolicy;
+	}
 }
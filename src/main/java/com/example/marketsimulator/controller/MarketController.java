@@ -1,25 +1,79 @@
 package com.example.marketsimulator.controller;
 
-import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.engine.OrderGateway;
 import com.example.marketsimulator.model.Order;
+import java.security.Principal;
+import java.util.ArrayList;
 import java.util.List;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
+/**
+ * STOMP entry point for outside clients trading against the simulated agents. Orders sent to {@code /app/order} go
+ * through the lock-free {@link OrderGateway} into the next tick and are acknowledged on the sender's
+ * {@code /user/queue/order-acks}. A client trades through an account added as an {@code EXT} agent.
+ * <p>
+ * The gateway keys clients on the connection, never on a name in the payload: an authenticated principal trades
+ * through the account named after it, and an anonymous STOMP session through the account its first accepted order
+ * names, which no other session can use until the session disconnects.
+ */
 @Controller
 public class MarketController {
 	
-	private final SimpMessagingTemplate messagingTemplate;
-	private final Market market = new Market();
+	private final OrderGateway gateway;
 	
-	public MarketController(SimpMessagingTemplate messagingTemplate) {
-		this.messagingTemplate = messagingTemplate;
+	public MarketController(OrderGateway gateway) {
+		this.gateway = gateway;
 	}
 	
 	@MessageMapping("/order")
-	public void receiveOrders(List<Order> orders) {
-		market.applyOrders(orders);
-		messagingTemplate.convertAndSend("/topic/market", market);
+	@SendToUser(destinations = "/queue/order-acks", broadcast = false)
+	public List<OrderAck> receiveOrders(List<ClientOrder> orders, Principal principal, @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+		String identity = identity(principal, sessionId);
+		List<OrderAck> acks = new ArrayList<>(orders.size());
+		for (ClientOrder order : orders) {
+			String account = principal != null ? principal.getName() : order.client;
+			OrderGateway.Result result = gateway.offer(identity, account, order.sequence, order.instrument, order.price, order.quantity, order.type);
+			acks.add(new OrderAck(account, order.sequence, result));
+		}
+		return acks;
+	}
+	
+	/** Releases an anonymous session's account claim; a principal keeps its account and sequence across sessions. */
+	@EventListener
+	public void sessionClosed(SessionDisconnectEvent event) {
+		if (event.getUser() == null) {
+			gateway.release(identity(null, event.getSessionId()));
+		}
+	}
+	
+	private static String identity(Principal principal, String sessionId) {
+		return principal != null ? "user:" + principal.getName() : "session:" + sessionId;
+	}
+	
+	public static class ClientOrder {
+		public String client;
+		public long sequence;
+		public String instrument;
+		public double price;
+		public int quantity;
+		public Order.Type type;
+	}
+	
+	public static class OrderAck {
+		public String client;
+		public long sequence;
+		public OrderGateway.Result result;
+		
+		public OrderAck(String client, long sequence, OrderGateway.Result result) {
+			this.client = client;
+			this.sequence = sequence;
+			this.result = result;
+		}
 	}
 }
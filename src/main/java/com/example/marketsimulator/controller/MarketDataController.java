@@ -0,0 +1,184 @@
+package com.example.marketsimulator.controller;
+
+import com.example.marketsimulator.model.MarketSnapshot;
+import com.example.marketsimulator.model.MarketState;
+import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.PriceCandles;
+import com.example.marketsimulator.service.MarketSimulationService;
+import com.example.marketsimulator.service.SnapshotPublisher;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/market")
+public class MarketDataController {
+	private static final int MAX_POINTS = 10_000;
+	private static final int MAX_PAGE = 10_000;
+	private static final Set<String> STATE_FIELDS = Set.of("instruments", "prices", "rates", "totals", "agents");
+	private static final Set<String> AGENT_FIELDS = Set.of("name", "cash", "initialCash", "positions", "equity", "pnl", "lastOrders");
+	
+	private final SnapshotPublisher snapshotPublisher;
+	private final MarketSimulationService marketSimulationService;
+	
+	public MarketDataController(SnapshotPublisher snapshotPublisher, MarketSimulationService marketSimulationService) {
+		this.snapshotPublisher = snapshotPublisher;
+		this.marketSimulationService = marketSimulationService;
+	}
+	
+	@GetMapping("/snapshot")
+	public MarketSnapshot snapshot() {
+		MarketSnapshot latest = snapshotPublisher.latest();
+		if (latest == null) {
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "no snapshot published yet");
+		}
+		return latest;
+	}
+	
+	/**
+	 * The latest published state, served without waiting for the tick in progress. {@code fields} picks top-level parts
+	 * ({@code instruments, prices, rates, totals, agents}; all by default), {@code agentFields} picks per-agent fields
+	 * ({@code name, cash, initialCash, positions, equity, pnl, lastOrders}; all but {@code lastOrders} by default), and
+	 * {@code offset}/{@code limit} page through the agents in account order. {@code version} and {@code tick} are always
+	 * present, so a client paging through agents can tell when the state moved on between pages.
+	 */
+	@GetMapping("/state")
+	public StateResponse state(@RequestParam(required = false) List<String> fields, @RequestParam(required = false) List<String> agentFields, @RequestParam(defaultValue = "0") int offset, @RequestParam(defaultValue = "100") int limit) {
+		Set<String> parts = projection(fields, STATE_FIELDS, STATE_FIELDS);
+		Set<String> agentParts = projection(agentFields, AGENT_FIELDS, Set.of("name", "cash", "initialCash", "positions", "equity", "pnl"));
+		if (offset < 0 || limit < 0 || limit > MAX_PAGE) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "offset must be >= 0 and limit between 0 and " + MAX_PAGE);
+		}
+		MarketState state = marketSimulationService.state();
+		StateResponse response = new StateResponse();
+		response.version = state.version();
+		response.tick = state.tick();
+		response.price = state.price(0);
+		response.agentCount = state.agentCount();
+		if (parts.contains("instruments")) {
+			response.instruments = state.instruments();
+		}
+		if (parts.contains("prices")) {
+			response.prices = state.prices();
+		}
+		if (parts.contains("rates")) {
+			response.fundingRate = state.fundingRate();
+			response.dividendRate = state.dividendRate();
+		}
+		if (parts.contains("totals")) {
+			response.totalAssetUnits = state.totalAssetUnits();
+			response.totalCash = state.totalCash();
+			response.currentTotalAssets = state.currentTotalAssets();
+			response.currentTotalCash = state.currentTotalCash();
+		}
+		if (parts.contains("agents")) {
+			response.offset = offset;
+			int end = (int) Math.min(state.agentCount(), (long) offset + limit);
+			response.agents = new ArrayList<>(Math.max(0, end - offset));
+			for (int id = offset; id < end; id++) {
+				response.agents.add(agentView(state, id, agentParts));
+			}
+		}
+		return response;
+	}
+	
+	/**
+	 * OHLCV candles overlapping ticks {@code [from, to]}. Without {@code resolution} (1, 10, 100 or 1000 ticks) the finest
+	 * one that covers the range within {@code maxPoints} is chosen; longer ranges are merged down to {@code maxPoints}.
+	 */
+	@GetMapping("/history")
+	public PriceCandles history(@RequestParam(required = false) String instrument, @RequestParam(defaultValue = "0") int resolution, @RequestParam(defaultValue = "0") long from, @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to, @RequestParam(defaultValue = "500") int maxPoints) {
+		if (from > to) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be <= to");
+		}
+		try {
+			return marketSimulationService.history(instrument, resolution, from, to, Math.min(maxPoints, MAX_POINTS));
+		} catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+		}
+	}
+	
+	private static Set<String> projection(List<String> requested, Set<String> known, Set<String> defaults) {
+		if (requested == null || requested.isEmpty()) {
+			return defaults;
+		}
+		Set<String> picked = new HashSet<>();
+		for (String field : requested) {
+			String trimmed = field.trim();
+			if (!known.contains(trimmed)) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown field " + trimmed + ", expected one of " + new TreeSet<>(known));
+			}
+			picked.add(trimmed);
+		}
+		return picked;
+	}
+	
+	private static AgentView agentView(MarketState state, int id, Set<String> parts) {
+		AgentView view = new AgentView();
+		if (parts.contains("name")) {
+			view.name = state.name(id);
+		}
+		if (parts.contains("cash")) {
+			view.cash = state.cash(id);
+		}
+		if (parts.contains("initialCash")) {
+			view.initialCash = state.initialCash(id);
+		}
+		if (parts.contains("positions")) {
+			view.positions = state.positions(id);
+		}
+		if (parts.contains("equity") || parts.contains("pnl")) {
+			double equity = state.equity(id);
+			if (parts.contains("equity")) {
+				view.equity = equity;
+			}
+			if (parts.contains("pnl")) {
+				view.pnl = equity - state.initialCash(id);
+			}
+		}
+		if (parts.contains("lastOrders")) {
+			view.lastOrders = state.lastOrders(id);
+		}
+		return view;
+	}
+	
+	/** A {@link MarketState} projection; parts that were not asked for are left out of the JSON. */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public static class StateResponse {
+		public long version;
+		public long tick;
+		/** Price of the primary instrument. */
+		public double price;
+		public int agentCount;
+		public List<String> instruments;
+		public double[] prices;
+		public Double fundingRate;
+		public Double dividendRate;
+		public Double totalAssetUnits;
+		public Double totalCash;
+		public Double currentTotalAssets;
+		public Double currentTotalCash;
+		public Integer offset;
+		public List<AgentView> agents;
+	}
+	
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public static class AgentView {
+		public String name;
+		public Double cash;
+		public Double initialCash;
+		public double[] positions;
+		public Double equity;
+		public Double pnl;
+		public List<Order> lastOrders;
+	}
+}
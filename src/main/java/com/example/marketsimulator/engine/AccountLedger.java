@@ -0,0 +1,360 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.model.AccountColumns;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Positions and cash for every account, stored column-wise in parallel primitive arrays indexed by a dense account id,
+ * with one position column per instrument. Removing an account moves the last account into the freed slot, so ids stay
+ * dense; callers that keep ids elsewhere must re-point the moved account.
+ * <p>
+ * The ledger also keeps a set of accounts that may have negative cash or a short position. While every price is
+ * positive, only these accounts can have negative equity, so bankruptcy checks visit {@link #atRiskCount()} accounts
+ * instead of all of them. Changes that can put an account at risk add it to the set.
+ * <p>
+ * Every change also marks the {@link AccountColumns} chunk of the account, so {@link #publish} copies only the chunks
+ * changed since the columns it last published.
+ */
+public class AccountLedger {
+	public static final int MARKET_MAKER = 1;
+	public static final int CASH_UNCHECKED = 2;
+	
+	private final double[][] positions;
+	private double[] cash = new double[16];
+	private double[] initialCash = new double[16];
+	private int[] flags = new int[16];
+	private String[] names = new String[16];
+	private int[] atRiskSlots = new int[16];
+	private int[] atRisk = new int[16];
+	private int atRiskCount;
+	private boolean[] changedChunks = new boolean[1];
+	private final Map<String, Integer> idsByName = new HashMap<>();
+	private int size;
+	
+	public AccountLedger() {
+		this(1);
+	}
+	
+	public AccountLedger(int instrumentCount) {
+		positions = new double[instrumentCount][16];
+	}
+	
+	public int instrumentCount() {
+		return positions.length;
+	}
+	
+	/** Opens an account holding {@code positionUnits} of every instrument. */
+	public int open(String name, int accountFlags, double positionUnits, double cashBalance, double initialCashBalance) {
+		if (size == cash.length) {
+			grow(size * 2);
+		}
+		int id = size++;
+		for (double[] column : positions) {
+			column[id] = positionUnits;
+		}
+		cash[id] = cashBalance;
+		initialCash[id] = initialCashBalance;
+		flags[id] = accountFlags;
+		names[id] = name;
+		idsByName.put(name, id);
+		atRiskSlots[id] = -1;
+		track(id);
+		changed(id);
+		return id;
+	}
+	
+	/** Makes room for {@code accounts} accounts at once, so opening many accounts in a row copies the columns once. */
+	public void ensureCapacity(int accounts) {
+		if (accounts > cash.length) {
+			grow(Math.max(accounts, cash.length * 2));
+		}
+	}
+	
+	private void grow(int capacity) {
+		for (int instrument = 0; instrument < positions.length; instrument++) {
+			positions[instrument] = Arrays.copyOf(positions[instrument], capacity);
+		}
+		cash = Arrays.copyOf(cash, capacity);
+		initialCash = Arrays.copyOf(initialCash, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+		names = Arrays.copyOf(names, capacity);
+		atRiskSlots = Arrays.copyOf(atRiskSlots, capacity);
+		atRisk = Arrays.copyOf(atRisk, capacity);
+		changedChunks = Arrays.copyOf(changedChunks, AccountColumns.chunkCount(capacity));
+	}
+	
+	/**
+	 * Removes the account and moves the last account into its slot. Returns the previous id of the moved account, or -1
+	 * when the removed account was the last one.
+	 */
+	public int remove(int id) {
+		idsByName.remove(names[id]);
+		untrack(id);
+		int last = --size;
+		if (id != last) {
+			for (double[] column : positions) {
+				column[id] = column[last];
+			}
+			cash[id] = cash[last];
+			initialCash[id] = initialCash[last];
+			flags[id] = flags[last];
+			names[id] = names[last];
+			idsByName.put(names[id], id);
+			atRiskSlots[id] = atRiskSlots[last];
+			if (atRiskSlots[id] >= 0) {
+				atRisk[atRiskSlots[id]] = id;
+			}
+		}
+		names[last] = null;
+		changed(id);
+		changed(last);
+		return id != last ? last : -1;
+	}
+	
+	public void clear() {
+		Arrays.fill(names, 0, size, null);
+		idsByName.clear();
+		size = 0;
+		atRiskCount = 0;
+		Arrays.fill(changedChunks, true);
+	}
+	
+	/** Size of the at-risk set; {@link #atRisk} lists its accounts in no particular order. */
+	public int atRiskCount() {
+		return atRiskCount;
+	}
+	
+	public int atRisk(int index) {
+		return atRisk[index];
+	}
+	
+	/** Drops {@code id} from the at-risk set once it has neither negative cash nor a short position. */
+	void refreshAtRisk(int id) {
+		track(id);
+	}
+	
+	private void track(int id) {
+		boolean risky = cash[id] < 0.0;
+		for (int instrument = 0; !risky && instrument < positions.length; instrument++) {
+			risky = positions[instrument][id] < 0.0;
+		}
+		if (risky && atRiskSlots[id] < 0) {
+			atRiskSlots[id] = atRiskCount;
+			atRisk[atRiskCount++] = id;
+		} else if (!risky && atRiskSlots[id] >= 0) {
+			untrack(id);
+		}
+	}
+	
+	private void untrack(int id) {
+		int slot = atRiskSlots[id];
+		if (slot < 0) {
+			return;
+		}
+		int moved = atRisk[--atRiskCount];
+		atRisk[slot] = moved;
+		atRiskSlots[moved] = slot;
+		atRiskSlots[id] = -1;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int idOf(String name) {
+		Integer id = idsByName.get(name);
+		return id == null ? -1 : id;
+	}
+	
+	public boolean contains(String name) {
+		return idsByName.containsKey(name);
+	}
+	
+	public String name(int id) {
+		return names[id];
+	}
+	
+	public double position(int instrument, int id) {
+		return positions[instrument][id];
+	}
+	
+	public double cash(int id) {
+		return cash[id];
+	}
+	
+	public double initialCash(int id) {
+		return initialCash[id];
+	}
+	
+	public int flags(int id) {
+		return flags[id];
+	}
+	
+	public boolean isMarketMaker(int id) {
+		return (flags[id] & MARKET_MAKER) != 0;
+	}
+	
+	public boolean isCashUnchecked(int id) {
+		return (flags[id] & CASH_UNCHECKED) != 0;
+	}
+	
+	/** Cash plus every position marked at {@code prices}, indexed by instrument. */
+	public double equity(int id, double[] prices) {
+		double equity = cash[id];
+		for (int instrument = 0; instrument < positions.length; instrument++) {
+			equity += positions[instrument][id] * prices[instrument];
+		}
+		return equity;
+	}
+	
+	/** Sets the account's cash and its position in every instrument. */
+	public void set(int id, double positionUnits, double cashBalance) {
+		for (double[] column : positions) {
+			column[id] = positionUnits;
+		}
+		cash[id] = cashBalance;
+		track(id);
+		changed(id);
+	}
+	
+	public void setPosition(int instrument, int id, double positionUnits) {
+		positions[instrument][id] = positionUnits;
+		track(id);
+		changed(id);
+	}
+	
+	public void transfer(int instrument, int buyer, int seller, double units, double price) {
+		positions[instrument][buyer] += units;
+		positions[instrument][seller] -= units;
+		cash[buyer] -= units * price;
+		cash[seller] += units * price;
+		track(buyer);
+		track(seller);
+		changed(buyer);
+		changed(seller);
+	}
+	
+	/**
+	 * Moves units without touching cash. Calls for different instruments touch disjoint columns and may run
+	 * concurrently, so the at-risk set is left to the {@link #applyCashDeltas} call that settles the cash. Concurrent
+	 * calls may mark the same chunk changed, which is harmless since they all store {@code true}.
+	 */
+	public void transferUnits(int instrument, int buyer, int seller, double units) {
+		double[] column = positions[instrument];
+		column[buyer] += units;
+		column[seller] -= units;
+		changed(buyer);
+		changed(seller);
+	}
+	
+	/**
+	 * Adds {@code deltas[id]} to the cash of the first {@code count} accounts in {@code ids} and zeroes their deltas. An
+	 * account listed more than once gets its delta once; accounts not listed must have a zero delta.
+	 */
+	public void applyCashDeltas(double[] deltas, int[] ids, int count) {
+		for (int n = 0; n < count; n++) {
+			int i = ids[n];
+			double delta = deltas[i];
+			cash[i] += delta;
+			deltas[i] = 0.0;
+			if (delta != 0.0) {
+				track(i);
+				changed(i);
+			}
+		}
+	}
+	
+	/** Charges {@code rate} on negative cash balances, which are all in the at-risk set; the set does not change. */
+	public void applyFunding(double rate) {
+		double factor = 1.0 + rate;
+		for (int n = 0; n < atRiskCount; n++) {
+			int i = atRisk[n];
+			if (cash[i] < 0.0) {
+				cash[i] = cash[i] * factor;
+				changed(i);
+			}
+		}
+	}
+	
+	/** The cash change {@link #applyFunding} makes to the account. */
+	public double funding(int id, double rate) {
+		return cash[id] < 0.0 ? cash[id] * (1.0 + rate) - cash[id] : 0.0;
+	}
+	
+	/**
+	 * Pays {@code rate} on every position. Only short positions, which are at risk already, lose cash, so the at-risk
+	 * set stays a superset; accounts that a payout made safe leave it at the next {@link #refreshAtRisk}.
+	 */
+	public void applyDividend(double[] prices, double rate) {
+		LedgerKernels.INSTANCE.applyDividend(positions, cash, size, prices, rate);
+		Arrays.fill(changedChunks, true);
+	}
+	
+	/** The cash change {@link #applyDividend} makes to the account. */
+	public double dividend(int id, double[] prices, double rate) {
+		double dividend = 0.0;
+		for (int instrument = 0; instrument < positions.length; instrument++) {
+			dividend += positions[instrument][id] * prices[instrument] * rate;
+		}
+		return dividend;
+	}
+	
+	/** Exact-size copy of the cash column. */
+	public double[] copyOfCash() {
+		return Arrays.copyOf(cash, size);
+	}
+	
+	/** Whether an account in {@code chunk} of the {@link AccountColumns} changed since the last {@link #publish}. */
+	public boolean chunkChanged(int chunk) {
+		return changedChunks[chunk];
+	}
+	
+	/**
+	 * Columns of every account for a published state. Chunks unchanged since {@code previous}, the columns this ledger
+	 * published last, are shared with it and the rest are copied; null copies every chunk. {@code orders} holds the last
+	 * orders of each chunk and becomes part of the columns.
+	 */
+	public AccountColumns publish(AccountColumns previous, OrderBuffer[] orders) {
+		int chunks = AccountColumns.chunkCount(size);
+		String[][] nameChunks = new String[chunks][];
+		double[][] cashChunks = new double[chunks][];
+		double[][] initialCashChunks = new double[chunks][];
+		double[][][] positionChunks = new double[positions.length][chunks][];
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			if (previous != null && chunk < previous.chunkCount() && !changedChunks[chunk]) {
+				nameChunks[chunk] = previous.nameChunk(chunk);
+				cashChunks[chunk] = previous.cashChunk(chunk);
+				initialCashChunks[chunk] = previous.initialCashChunk(chunk);
+				for (int instrument = 0; instrument < positions.length; instrument++) {
+					positionChunks[instrument][chunk] = previous.positionChunk(instrument, chunk);
+				}
+			} else {
+				int from = chunk << AccountColumns.CHUNK_SHIFT;
+				int to = Math.min(size, from + AccountColumns.CHUNK_SIZE);
+				nameChunks[chunk] = Arrays.copyOfRange(names, from, to);
+				cashChunks[chunk] = Arrays.copyOfRange(cash, from, to);
+				initialCashChunks[chunk] = Arrays.copyOfRange(initialCash, from, to);
+				for (int instrument = 0; instrument < positions.length; instrument++) {
+					positionChunks[instrument][chunk] = Arrays.copyOfRange(positions[instrument], from, to);
+				}
+			}
+		}
+		Arrays.fill(changedChunks, false);
+		return new AccountColumns(size, nameChunks, cashChunks, initialCashChunks, positionChunks, orders);
+	}
+	
+	public double totalCash() {
+		return LedgerKernels.INSTANCE.sum(cash, size);
+	}
+	
+	public double totalPositions(int instrument) {
+		return LedgerKernels.INSTANCE.sum(positions[instrument], size);
+	}
+	
+	private void changed(int id) {
+		changedChunks[id >>> AccountColumns.CHUNK_SHIFT] = true;
+	}
+}
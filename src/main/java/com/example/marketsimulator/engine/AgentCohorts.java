@@ -0,0 +1,125 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.agent.AgentCohort;
+import com.example.marketsimulator.agent.MeanReversionCohort;
+import com.example.marketsimulator.agent.RandomTraderCohort;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The engine's cohorts and, per account, which cohort member owns it. Accounts owned by {@link
+ * com.example.marketsimulator.agent.Agent} objects have no entry. Kept in step with the ledger's swap-removes, so a
+ * block of accounts opened together stays a run of consecutive members that decides in one call.
+ */
+final class AgentCohorts {
+	private RandomTraderCohort randomTraders;
+	private final List<MeanReversionCohort> meanReversionTraders = new ArrayList<>();
+	private final List<AgentCohort> cohorts = new ArrayList<>();
+	// cohort index + 1 per account, 0 for accounts without a cohort member
+	private int[] cohortOf = new int[16];
+	private int[] memberOf = new int[16];
+	
+	RandomTraderCohort randomTraders() {
+		if (randomTraders == null) {
+			randomTraders = new RandomTraderCohort();
+			cohorts.add(randomTraders);
+		}
+		return randomTraders;
+	}
+	
+	MeanReversionCohort meanReversionTraders(int window) {
+		for (MeanReversionCohort cohort : meanReversionTraders) {
+			if (cohort.window() == window) {
+				return cohort;
+			}
+		}
+		MeanReversionCohort cohort = new MeanReversionCohort(window);
+		meanReversionTraders.add(cohort);
+		cohorts.add(cohort);
+		return cohort;
+	}
+	
+	/** Members of the mean reversion cohort of {@code window}, without creating it. */
+	int meanReversionTraderCount(int window) {
+		for (MeanReversionCohort cohort : meanReversionTraders) {
+			if (cohort.window() == window) {
+				return cohort.size();
+			}
+		}
+		return 0;
+	}
+	
+	/** Records that {@code member} of {@code cohort}, one of the cohorts handed out above, owns account {@code id}. */
+	void assign(int id, AgentCohort cohort, int member) {
+		ensureCapacity(id + 1);
+		cohortOf[id] = cohorts.indexOf(cohort) + 1;
+		memberOf[id] = member;
+	}
+	
+	void ensureCapacity(int accounts) {
+		if (accounts > cohortOf.length) {
+			int capacity = Math.max(accounts, cohortOf.length * 2);
+			cohortOf = Arrays.copyOf(cohortOf, capacity);
+			memberOf = Arrays.copyOf(memberOf, capacity);
+		}
+	}
+	
+	/** The cohort owning account {@code id}, or null when an agent object owns it. */
+	AgentCohort cohort(int id) {
+		return id < cohortOf.length && cohortOf[id] != 0 ? cohorts.get(cohortOf[id] - 1) : null;
+	}
+	
+	int member(int id) {
+		return memberOf[id];
+	}
+	
+	/**
+	 * How many accounts from {@code id} on, at most up to {@code to}, belong to consecutive members of account {@code
+	 * id}'s cohort.
+	 */
+	int run(int id, int to) {
+		int cohort = cohortOf[id];
+		int limit = Math.min(to, cohortOf.length);
+		int end = id + 1;
+		while (end < limit && cohortOf[end] == cohort && memberOf[end] == memberOf[end - 1] + 1) {
+			end++;
+		}
+		return end - id;
+	}
+	
+	/**
+	 * Mirrors the ledger's swap-remove of account {@code id}: its member leaves its cohort, and the account at {@code
+	 * moved}, if any, takes id {@code id}.
+	 */
+	void remove(int id, int moved) {
+		AgentCohort cohort = cohort(id);
+		if (cohort != null) {
+			int member = memberOf[id];
+			if (cohort.remove(member) >= 0) {
+				memberOf[cohort.account(member)] = member;
+			}
+		}
+		if (id >= cohortOf.length) {
+			// neither account has ever belonged to a cohort
+			return;
+		}
+		if (moved >= 0 && moved < cohortOf.length) {
+			cohortOf[id] = cohortOf[moved];
+			memberOf[id] = memberOf[moved];
+			cohortOf[moved] = 0;
+			if (cohortOf[id] != 0) {
+				cohorts.get(cohortOf[id] - 1).setAccount(memberOf[id], id);
+			}
+		} else {
+			cohortOf[id] = 0;
+		}
+	}
+	
+	void clear() {
+		for (AgentCohort cohort : cohorts) {
+			cohort.clear();
+		}
+		Arrays.fill(cohortOf, 0);
+	}
+}
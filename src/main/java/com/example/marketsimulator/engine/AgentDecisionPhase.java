@@ -0,0 +1,132 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.agent.Agent;
+import com.example.marketsimulator.agent.AgentCohort;
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs {@link Agent#decideAction(Market, OrderBuffer)} for every agent, and {@link AgentCohort#decide} for every cohort
+ * member, optionally fanned out over an executor. Agents are split into contiguous index ranges, each worker fills its
+ * own buffer, and the buffers are concatenated in range order, so the merged orders are identical to a serial pass
+ * regardless of the thread count. Buffers are reused across ticks; the serial path does not allocate.
+ */
+public class AgentDecisionPhase implements AutoCloseable {
+	
+	public enum Mode {
+		SERIAL, FORK_JOIN, VIRTUAL
+	}
+	
+	private final ExecutorService executor;
+	private final int parallelism;
+	private final int minChunkSize;
+	private OrderBuffer[] chunkBuffers = new OrderBuffer[0];
+	
+	public AgentDecisionPhase(Mode mode, int parallelism, int minChunkSize) {
+		this.parallelism = Math.max(1, parallelism);
+		this.minChunkSize = Math.max(1, minChunkSize);
+		this.executor = newExecutor(mode, this.parallelism);
+	}
+	
+	/** The executor for {@code mode}, or null for {@link Mode#SERIAL}. */
+	static ExecutorService newExecutor(Mode mode, int parallelism) {
+		return switch (mode) {
+			case SERIAL -> null;
+			case FORK_JOIN -> new ForkJoinPool(parallelism);
+			case VIRTUAL -> Executors.newVirtualThreadPerTaskExecutor();
+		};
+	}
+	
+	public static Mode parseMode(String raw) {
+		String normalized = raw == null ? "" : raw.trim().toUpperCase().replace('-', '_');
+		return switch (normalized) {
+			case "", "SERIAL" -> Mode.SERIAL;
+			case "FORK_JOIN", "FORKJOIN" -> Mode.FORK_JOIN;
+			case "VIRTUAL" -> Mode.VIRTUAL;
+			default -> throw new IllegalArgumentException("decision executor must be serial, fork-join, or virtual");
+		};
+	}
+	
+	/** Replaces the contents of {@code out} with this tick's orders, one agent range per agent in list order. */
+	public void decide(List<Agent> agents, Market market, OrderBuffer out) {
+		decide(agents, null, market, out);
+	}
+	
+	/**
+	 * Like {@link #decide(List, Market, OrderBuffer)} for the engine's accounts, where the agent at an account owned by
+	 * a cohort member is null and each run of consecutive members decides in one {@link AgentCohort#decide} call.
+	 */
+	void decide(List<Agent> agents, AgentCohorts cohorts, Market market, OrderBuffer out) {
+		out.clear();
+		int count = agents.size();
+		int chunks = executor == null ? 1 : Math.min(parallelism, (count + minChunkSize - 1) / minChunkSize);
+		if (chunks <= 1) {
+			decideRange(agents, cohorts, 0, count, market, out);
+			return;
+		}
+		if (chunkBuffers.length < chunks) {
+			int previous = chunkBuffers.length;
+			chunkBuffers = Arrays.copyOf(chunkBuffers, chunks);
+			for (int chunk = previous; chunk < chunks; chunk++) {
+				chunkBuffers[chunk] = new OrderBuffer();
+			}
+		}
+		List<Callable<Void>> tasks = new ArrayList<>(chunks);
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int from = (int) ((long) count * chunk / chunks);
+			int to = (int) ((long) count * (chunk + 1) / chunks);
+			OrderBuffer buffer = chunkBuffers[chunk];
+			tasks.add(() -> {
+				buffer.clear();
+				decideRange(agents, cohorts, from, to, market, buffer);
+				return null;
+			});
+		}
+		try {
+			List<Future<Void>> futures = executor.invokeAll(tasks);
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				futures.get(chunk).get();
+				out.appendAll(chunkBuffers[chunk]);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("agent decision phase interrupted", ex);
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("agent decision failed", ex.getCause());
+		}
+	}
+	
+	private static void decideRange(List<Agent> agents, AgentCohorts cohorts, int from, int to, Market market, OrderBuffer out) {
+		int i = from;
+		while (i < to) {
+			Agent agent = agents.get(i);
+			if (agent != null) {
+				out.beginAgent();
+				agent.decideAction(market, out);
+				out.endAgent();
+				i++;
+			} else {
+				int run = cohorts.run(i, to);
+				int member = cohorts.member(i);
+				cohorts.cohort(i).decide(market, member, member + run, out);
+				i += run;
+			}
+		}
+	}
+	
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+}
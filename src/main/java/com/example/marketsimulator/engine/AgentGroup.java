@@ -0,0 +1,42 @@
+package com.example.marketsimulator.engine;
+
+/**
+ * A batch of agents of one type for {@link SimulationEngine#addAgents}. Opening cash and position are drawn uniformly
+ * from {@code [minCash, maxCash]} and {@code [minPosition, maxPosition]}; with only one bound given every agent gets
+ * that value, and with neither they get what {@link SimulationEngine#addAgent(String, String)} gives. {@code spread}
+ * applies to market makers and {@code window} to mean reversion traders. Names are {@code namePrefix} followed by a
+ * counter, skipping taken names, or the type's usual generated names when the prefix is null. Null fields take their
+ * defaults.
+ */
+public record AgentGroup(String type, int count, String namePrefix, Double minCash, Double maxCash, Double minPosition, Double maxPosition, Double spread, Integer window) {
+	public static final int MAX_COUNT = 10_000_000;
+	/** Each mean reversion trader keeps {@code window} prices, so this bounds its state to about 8 KiB. */
+	public static final int MAX_WINDOW = 1000;
+	
+	public AgentGroup {
+		SimulationEngine.parseAgentType(type);
+		if (count < 1 || count > MAX_COUNT) {
+			throw new IllegalArgumentException("count must be between 1 and " + MAX_COUNT);
+		}
+		if (namePrefix != null && namePrefix.isBlank()) {
+			namePrefix = null;
+		}
+		requireRange("cash", minCash, maxCash);
+		requireRange("position", minPosition, maxPosition);
+		if (spread != null && !(spread >= 0.0 && spread < Double.POSITIVE_INFINITY)) {
+			throw new IllegalArgumentException("spread must be a finite number >= 0");
+		}
+		if (window != null && (window < 1 || window > MAX_WINDOW)) {
+			throw new IllegalArgumentException("window must be between 1 and " + MAX_WINDOW);
+		}
+	}
+	
+	private static void requireRange(String field, Double min, Double max) {
+		if ((min != null && !Double.isFinite(min)) || (max != null && !Double.isFinite(max))) {
+			throw new IllegalArgumentException(field + " bounds must be finite");
+		}
+		if (min != null && max != null && min > max) {
+			throw new IllegalArgumentException("min" + Character.toUpperCase(field.charAt(0)) + field.substring(1) + " must be <= max" + Character.toUpperCase(field.charAt(0)) + field.substring(1));
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.journal.EventSink;
+import com.example.marketsimulator.journal.JournalEventType;
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.OrderBook;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Matches one tick's orders instrument by instrument. Each instrument has its own book and position column, so
+ * instruments are matched concurrently when an executor is configured. Cash moves are collected per instrument and
+ * merged into the ledger in instrument order afterwards, so results do not depend on scheduling.
+ * <p>
+ * Cash is one budget shared by every instrument. Before matching, each buyer's cash is reserved instrument by
+ * instrument, in instrument order: an instrument may spend what is left after every earlier instrument has reserved
+ * the most its bids there could cost (incoming bids plus resting ones, each at its limit price), plus whatever the
+ * account receives in that instrument. No instrument can spend more than it reserved, so trading never takes a buyer's
+ * cash below zero, the same guarantee as with a single instrument. The reservation is conservative: cash an earlier
+ * instrument reserved but did not spend is not offered to later ones in the same tick. With a single instrument there
+ * is nothing to reserve or merge and settlements go straight to the ledger. Fills are journaled the same way: collected
+ * per instrument and appended in instrument order once matching is done, so the journal keeps one producer.
+ */
+class InstrumentMatchingPhase implements AutoCloseable {
+	
+	private final Market market;
+	private final AccountLedger ledger;
+	private final Matcher[] matchers;
+	private final ExecutorService executor;
+	private final EventSink journal;
+	private boolean recordingTrades;
+	private double[] claimed = new double[16];
+	
+	InstrumentMatchingPhase(Market market, AccountLedger ledger, AgentDecisionPhase.Mode mode, int parallelism, EventSink journal) {
+		this.market = market;
+		this.ledger = ledger;
+		this.journal = journal;
+		this.recordingTrades = journal != null;
+		this.matchers = new Matcher[market.instrumentCount()];
+		for (int instrument = 0; instrument < matchers.length; instrument++) {
+			matchers[instrument] = new Matcher(instrument);
+		}
+		int threads = Math.min(Math.max(1, parallelism), matchers.length);
+		this.executor = matchers.length > 1 && threads > 1 ? AgentDecisionPhase.newExecutor(mode, threads) : null;
+	}
+	
+	/**
+	 * Expires resting orders older than {@code expireBefore}, matches every order in {@code orders} against its
+	 * instrument's book and updates the instrument prices from their last trades. Returns the last trade price of the
+	 * primary instrument, or NaN when it did not trade.
+	 */
+	double match(OrderBuffer orders, long tick, long expireBefore) {
+		for (Matcher matcher : matchers) {
+			matcher.prepare(ledger.size());
+			matcher.book.expireBefore(expireBefore);
+		}
+		for (int i = 0; i < orders.size(); i++) {
+			int instrument = orders.instrument(i);
+			if (instrument < 0 || instrument >= matchers.length) {
+				throw new IllegalStateException("order for unknown instrument " + instrument);
+			}
+			matchers[instrument].route(i);
+		}
+		if (matchers.length > 1) {
+			reserveCash(orders);
+		}
+		if (executor == null) {
+			for (Matcher matcher : matchers) {
+				matcher.run(orders, tick);
+			}
+		} else {
+			runConcurrently(orders, tick);
+		}
+		for (Matcher matcher : matchers) {
+			if (journal != null) {
+				matcher.journalTrades(tick);
+			}
+			if (!matcher.direct) {
+				ledger.applyCashDeltas(matcher.cashDeltas, matcher.touchedIds, matcher.touchedCount);
+			}
+			if (!Double.isNaN(matcher.lastTradePrice)) {
+				market.updatePrice(matcher.instrument, matcher.lastTradePrice);
+			}
+		}
+		return matchers[0].lastTradePrice;
+	}
+	
+	/** Keeps the fills of later {@link #match} calls for {@link #reportTrades}; they are always kept while journaling. */
+	void recordTrades(boolean enabled) {
+		recordingTrades = enabled || journal != null;
+	}
+	
+	/** Hands the fills of the last {@link #match} call to {@code listener}, in the order they were journaled. */
+	void reportTrades(long tick, SimulationEngine.TradeListener listener) {
+		for (Matcher matcher : matchers) {
+			String symbol = market.symbol(matcher.instrument);
+			for (int t = 0; t < matcher.tradeCount; t++) {
+				listener.trade(tick, symbol, ledger.name(matcher.tradeBuyers[t]), ledger.name(matcher.tradeSellers[t]), matcher.tradePrices[t], matcher.tradeQuantities[t]);
+			}
+		}
+	}
+	
+	/** Units of {@code instrument} filled by the last {@link #match} call. */
+	double lastVolume(int instrument) {
+		return matchers[instrument].fillVolume;
+	}
+	
+	/** Highest fill price of {@code instrument} in the last {@link #match} call, or -Infinity when it did not trade. */
+	double lastHigh(int instrument) {
+		return matchers[instrument].fillHigh;
+	}
+	
+	/** Lowest fill price of {@code instrument} in the last {@link #match} call, or +Infinity when it did not trade. */
+	double lastLow(int instrument) {
+		return matchers[instrument].fillLow;
+	}
+	
+	/** Fills settled by the last {@link #match} call, over all instruments. */
+	int lastTradeCount() {
+		int fills = 0;
+		for (Matcher matcher : matchers) {
+			fills += matcher.fillCount;
+		}
+		return fills;
+	}
+	
+	/**
+	 * Sets every buyer's budget in every instrument, in instrument order: its cash less the most that the earlier
+	 * instruments could spend. Only accounts with bids are visited.
+	 */
+	private void reserveCash(OrderBuffer orders) {
+		if (claimed.length < ledger.size()) {
+			claimed = new double[Math.max(ledger.size(), claimed.length * 2)];
+		}
+		for (Matcher matcher : matchers) {
+			matcher.collectDemand(orders);
+			for (int n = 0; n < matcher.demandCount; n++) {
+				int id = matcher.demandIds[n];
+				matcher.budget[id] = Math.max(0.0, ledger.cash(id) - claimed[id]);
+				claimed[id] += matcher.demand[id];
+			}
+		}
+		for (Matcher matcher : matchers) {
+			for (int n = 0; n < matcher.demandCount; n++) {
+				int id = matcher.demandIds[n];
+				claimed[id] = 0.0;
+				matcher.demand[id] = 0.0;
+			}
+		}
+	}
+	
+	private void runConcurrently(OrderBuffer orders, long tick) {
+		List<Callable<Void>> tasks = new ArrayList<>(matchers.length);
+		for (Matcher matcher : matchers) {
+			tasks.add(() -> {
+				matcher.run(orders, tick);
+				return null;
+			});
+		}
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("matching phase interrupted", ex);
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("matching failed", ex.getCause());
+		}
+	}
+	
+	private static int[] append(int[] ids, int index, int id) {
+		if (index == ids.length) {
+			ids = Arrays.copyOf(ids, index * 2);
+		}
+		ids[index] = id;
+		return ids;
+	}
+	
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+	
+	private final class Matcher implements OrderBook.TradeHandler, OrderBook.RestingOrderVisitor {
+		final int instrument;
+		final OrderBook book;
+		final boolean direct;
+		double[] cashDeltas = new double[16];
+		int[] touchedIds = new int[16];
+		int touchedCount;
+		double[] budget = new double[16];
+		double[] demand = new double[16];
+		int[] demandIds = new int[16];
+		int demandCount;
+		int[] orderIndices = new int[16];
+		int orderCount;
+		double lastTradePrice;
+		int[] tradeBuyers = new int[16];
+		int[] tradeSellers = new int[16];
+		double[] tradePrices = new double[16];
+		double[] tradeQuantities = new double[16];
+		int tradeCount;
+		int fillCount;
+		double fillVolume;
+		double fillHigh;
+		double fillLow;
+		
+		Matcher(int instrument) {
+			this.instrument = instrument;
+			this.book = market.book(instrument);
+			this.direct = matchers.length == 1;
+		}
+		
+		void prepare(int accounts) {
+			if (!direct && cashDeltas.length < accounts) {
+				int capacity = Math.max(accounts, cashDeltas.length * 2);
+				cashDeltas = new double[capacity];
+				budget = new double[capacity];
+				demand = new double[capacity];
+			}
+			touchedCount = 0;
+			demandCount = 0;
+			orderCount = 0;
+			tradeCount = 0;
+			fillCount = 0;
+			fillVolume = 0.0;
+			fillHigh = Double.NEGATIVE_INFINITY;
+			fillLow = Double.POSITIVE_INFINITY;
+			lastTradePrice = Double.NaN;
+		}
+		
+		void route(int orderIndex) {
+			if (orderCount == orderIndices.length) {
+				orderIndices = Arrays.copyOf(orderIndices, orderCount * 2);
+			}
+			orderIndices[orderCount++] = orderIndex;
+		}
+		
+		/** Adds up, per account, the most that its incoming and resting bids in this instrument could spend. */
+		void collectDemand(OrderBuffer orders) {
+			book.forEachResting(this);
+			for (int n = 0; n < orderCount; n++) {
+				int i = orderIndices[n];
+				if (orders.isBuy(i)) {
+					addDemand(orders.agentId(i), orders.price(i) * orders.quantity(i));
+				}
+			}
+		}
+		
+		@Override
+		public void visit(int agentId, double price, boolean isBuy, double remaining, long restingTick) {
+			if (isBuy) {
+				addDemand(agentId, price * remaining);
+			}
+		}
+		
+		private void addDemand(int id, double amount) {
+			// a bid that cannot cost anything cannot buy anything either, so its account needs no budget
+			if (amount <= 0.0) {
+				return;
+			}
+			if (demand[id] == 0.0) {
+				demandIds = append(demandIds, demandCount++, id);
+			}
+			demand[id] += amount;
+		}
+		
+		void run(OrderBuffer orders, long tick) {
+			for (int n = 0; n < orderCount; n++) {
+				int i = orderIndices[n];
+				double tradePrice = book.submit(orders.agentId(i), orders.price(i), orders.quantity(i), orders.isBuy(i), tick, this);
+				if (!Double.isNaN(tradePrice)) {
+					lastTradePrice = tradePrice;
+				}
+			}
+		}
+		
+		@Override
+		public double settle(int buyerId, int sellerId, double price, double quantity) {
+			double sellerPosition = ledger.position(instrument, sellerId);
+			double buyerCash = direct ? ledger.cash(buyerId) : budget[buyerId] + cashDeltas[buyerId];
+			if (buyerId == sellerId) {
+				// A self-trade moves nothing, so the cash limit never binds; filling it piecewise would loop forever.
+				boolean canTrade = sellerPosition > 0.0 && (buyerCash > 0.0 || ledger.isCashUnchecked(buyerId));
+				return canTrade ? quantity : 0.0;
+			}
+			double maxByCash = price > 0.0 ? buyerCash / price : 0.0;
+			if (ledger.isCashUnchecked(buyerId)) {
+				maxByCash = quantity;
+			}
+			double tradable = Math.min(quantity, Math.min(sellerPosition, maxByCash));
+			if (tradable <= 0.0) {
+				return 0.0;
+			}
+			fillCount++;
+			fillVolume += tradable;
+			fillHigh = Math.max(fillHigh, price);
+			fillLow = Math.min(fillLow, price);
+			if (recordingTrades) {
+				recordTrade(buyerId, sellerId, price, tradable);
+			}
+			if (direct) {
+				ledger.transfer(instrument, buyerId, sellerId, tradable, price);
+			} else {
+				ledger.transferUnits(instrument, buyerId, sellerId, tradable);
+				// an account whose delta nets back to zero may be listed twice; applying the deltas tolerates that
+				if (cashDeltas[buyerId] == 0.0) {
+					touchedIds = append(touchedIds, touchedCount++, buyerId);
+				}
+				if (cashDeltas[sellerId] == 0.0) {
+					touchedIds = append(touchedIds, touchedCount++, sellerId);
+				}
+				cashDeltas[buyerId] -= tradable * price;
+				cashDeltas[sellerId] += tradable * price;
+			}
+			return tradable;
+		}
+		
+		private void recordTrade(int buyerId, int sellerId, double price, double quantity) {
+			if (tradeCount == tradeBuyers.length) {
+				int capacity = tradeCount * 2;
+				tradeBuyers = Arrays.copyOf(tradeBuyers, capacity);
+				tradeSellers = Arrays.copyOf(tradeSellers, capacity);
+				tradePrices = Arrays.copyOf(tradePrices, capacity);
+				tradeQuantities = Arrays.copyOf(tradeQuantities, capacity);
+			}
+			tradeBuyers[tradeCount] = buyerId;
+			tradeSellers[tradeCount] = sellerId;
+			tradePrices[tradeCount] = price;
+			tradeQuantities[tradeCount] = quantity;
+			tradeCount++;
+		}
+		
+		void journalTrades(long tick) {
+			for (int t = 0; t < tradeCount; t++) {
+				journal.append(JournalEventType.TRADE, 0, tick, instrument, tradeBuyers[t], tradeSellers[t], tradePrices[t], tradeQuantities[t]);
+			}
+		}
+		
+		@Override
+		public boolean hasInventory(int sellerId) {
+			return ledger.position(instrument, sellerId) > 0.0;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.marketsimulator.engine;
+
+/**
+ * Whole-column loops over the ledger's primitive arrays. {@link #INSTANCE} uses the Vector API when the JVM was started
+ * with {@code --add-modules jdk.incubator.vector} and falls back to plain loops otherwise, or when
+ * {@code -Dmarket.vector.disabled=true} is set. Both compute the dividend with the same operations in the same order
+ * per account, so ledger balances do not depend on which one runs; column sums are reduced lane-wise and may differ
+ * from the scalar sum in the last bits.
+ */
+abstract class LedgerKernels {
+	static final LedgerKernels INSTANCE = select();
+	
+	/** Adds {@code sum over instruments of position * price * rate} to each of the first {@code size} cash balances. */
+	abstract void applyDividend(double[][] positions, double[] cash, int size, double[] prices, double rate);
+	
+	abstract double sum(double[] column, int size);
+	
+	private static LedgerKernels select() {
+		if (Boolean.getBoolean("market.vector.disabled") || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return new Scalar();
+		}
+		try {
+			return new VectorLedgerKernels();
+		} catch (LinkageError ex) {
+			return new Scalar();
+		}
+	}
+	
+	static final class Scalar extends LedgerKernels {
+		
+		@Override
+		void applyDividend(double[][] positions, double[] cash, int size, double[] prices, double rate) {
+			for (int i = 0; i < size; i++) {
+				double dividend = 0.0;
+				for (int instrument = 0; instrument < positions.length; instrument++) {
+					dividend += positions[instrument][i] * prices[instrument] * rate;
+				}
+				cash[i] = cash[i] + dividend;
+			}
+		}
+		
+		@Override
+		double sum(double[] column, int size) {
+			double total = 0.0;
+			for (int i = 0; i < size; i++) {
+				total += column[i];
+			}
+			return total;
+		}
+	}
+}
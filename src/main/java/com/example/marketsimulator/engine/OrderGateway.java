@@ -0,0 +1,248 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.model.Order;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded multi-producer, single-consumer ring through which outside clients' orders reach the engine. Any number of
+ * threads {@link #offer} without locking: a producer claims a slot with one CAS on the tail, fills the slot's columns
+ * and publishes it by advancing the slot's sequence, and the tick thread {@link #drain}s published slots in claim
+ * order. A full ring rejects the order instead of blocking the producer.
+ * <p>
+ * Orders are offered on behalf of a client identity that the caller vouches for, such as an authenticated principal
+ * or a connection, never a name taken from the order itself. An identity trades through one {@code EXT} account, which
+ * it claims with its first accepted order; an account claimed by one identity rejects every other identity until the
+ * claim is {@link #release released}. Each identity numbers its orders: an order whose sequence is not above the
+ * identity's last accepted one is rejected as a duplicate or replay, and so is one more than {@code maxSequenceGap}
+ * above it, so no single order can use up the sequence space. A client that submits from one thread has its orders
+ * reach the engine in sequence order.
+ * <p>
+ * At most {@code maxClients} identities are tracked at a time: orders from a new identity beyond that are rejected, and
+ * an identity is forgotten when the engine reports that its account does not exist, so identities without an account
+ * do not hold their place.
+ */
+public class OrderGateway {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	public static final int DEFAULT_MAX_CLIENTS = 4096;
+	public static final long DEFAULT_MAX_SEQUENCE_GAP = 1 << 16;
+	
+	public enum Result {
+		ACCEPTED, REJECTED_FULL, REJECTED_SEQUENCE, REJECTED_INVALID, REJECTED_CLIENTS, REJECTED_ACCOUNT
+	}
+	
+	/** Receives drained orders; returns false when {@code account} is not an external account. */
+	@FunctionalInterface
+	public interface Consumer {
+		boolean accept(String account, long sequence, int instrument, double price, int quantity, Order.Type type);
+	}
+	
+	private final List<String> instruments;
+	private final int mask;
+	private final int maxClients;
+	private final long maxSequenceGap;
+	private final AtomicLongArray sequences;
+	private final Client[] clients;
+	private final long[] clientSequences;
+	private final int[] slotInstruments;
+	private final double[] prices;
+	private final int[] quantities;
+	private final Order.Type[] types;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head;
+	private final Map<String, Client> clientsByIdentity = new ConcurrentHashMap<>();
+	private final Map<String, String> owners = new ConcurrentHashMap<>();
+	private final LongAdder[] results = new LongAdder[Result.values().length];
+	private final LongAdder unknownClients = new LongAdder();
+	
+	public OrderGateway(List<String> instruments, int capacity) {
+		this(instruments, capacity, DEFAULT_MAX_CLIENTS);
+	}
+	
+	public OrderGateway(List<String> instruments, int capacity, int maxClients) {
+		this(instruments, capacity, maxClients, DEFAULT_MAX_SEQUENCE_GAP);
+	}
+	
+	public OrderGateway(List<String> instruments, int capacity, int maxClients, long maxSequenceGap) {
+		if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("gateway capacity must be a power of two >= 2");
+		}
+		if (maxClients < 1) {
+			throw new IllegalArgumentException("gateway max clients must be >= 1");
+		}
+		if (maxSequenceGap < 1) {
+			throw new IllegalArgumentException("gateway max sequence gap must be >= 1");
+		}
+		this.instruments = List.copyOf(instruments);
+		this.mask = capacity - 1;
+		this.maxClients = maxClients;
+		this.maxSequenceGap = maxSequenceGap;
+		this.sequences = new AtomicLongArray(capacity);
+		for (int slot = 0; slot < capacity; slot++) {
+			sequences.set(slot, slot);
+		}
+		this.clients = new Client[capacity];
+		this.clientSequences = new long[capacity];
+		this.slotInstruments = new int[capacity];
+		this.prices = new double[capacity];
+		this.quantities = new int[capacity];
+		this.types = new Order.Type[capacity];
+		for (int r = 0; r < results.length; r++) {
+			results[r] = new LongAdder();
+		}
+	}
+	
+	/**
+	 * Queues an order of {@code identity} on {@code account} for the next tick. {@code identity} must come from the
+	 * transport, not from the order. {@code instrument} is a listed symbol, or null for the first one. Safe to call from
+	 * any thread.
+	 */
+	public Result offer(String identity, String account, long sequence, String instrument, double price, int quantity, Order.Type type) {
+		int instrumentId = instrument == null ? 0 : instruments.indexOf(instrument);
+		if (identity == null || account == null || account.isBlank() || instrumentId < 0 || !(price > 0.0) || Double.isInfinite(price) || quantity <= 0 || type == null) {
+			return record(Result.REJECTED_INVALID);
+		}
+		Client client = clientsByIdentity.get(identity);
+		if (client == null) {
+			// racing producers can overshoot the cap by at most one entry each
+			if (clientsByIdentity.size() >= maxClients) {
+				return record(Result.REJECTED_CLIENTS);
+			}
+			String owner = owners.putIfAbsent(account, identity);
+			if (owner != null && !owner.equals(identity)) {
+				return record(Result.REJECTED_ACCOUNT);
+			}
+			client = clientsByIdentity.computeIfAbsent(identity, i -> new Client(i, account));
+			if (!client.account.equals(account)) {
+				// a racing order of the same identity claimed another account first
+				owners.remove(account, identity);
+			}
+		}
+		if (!client.account.equals(account)) {
+			return record(Result.REJECTED_ACCOUNT);
+		}
+		AtomicLong last = client.lastSequence;
+		long previous;
+		do {
+			previous = last.get();
+			if (sequence <= previous || sequence - previous > maxSequenceGap) {
+				return record(Result.REJECTED_SEQUENCE);
+			}
+		} while (!last.compareAndSet(previous, sequence));
+		long claimed;
+		while (true) {
+			claimed = tail.get();
+			long available = sequences.getAcquire((int) claimed & mask);
+			if (available < claimed) {
+				// the slot still holds an order from one lap ago: the ring is full. Give the sequence back so the client
+				// can retry it, unless a later order of the same client got in meanwhile.
+				last.compareAndSet(sequence, previous);
+				return record(Result.REJECTED_FULL);
+			}
+			if (available == claimed && tail.compareAndSet(claimed, claimed + 1)) {
+				break;
+			}
+		}
+		int slot = (int) claimed & mask;
+		clients[slot] = client;
+		clientSequences[slot] = sequence;
+		slotInstruments[slot] = instrumentId;
+		prices[slot] = price;
+		quantities[slot] = quantity;
+		types[slot] = type;
+		sequences.setRelease(slot, claimed + 1);
+		return record(Result.ACCEPTED);
+	}
+	
+	/**
+	 * Hands published orders to {@code consumer} in claim order, at most one ring's worth so producers cannot hold the
+	 * tick thread here, and returns how many there were. Identities whose account the consumer does not know are
+	 * forgotten and their claim released. Tick thread only.
+	 */
+	public int drain(Consumer consumer) {
+		long next = head;
+		int drained = 0;
+		while (true) {
+			int slot = (int) next & mask;
+			if (drained > mask || sequences.getAcquire(slot) != next + 1) {
+				head = next;
+				return drained;
+			}
+			Client client = clients[slot];
+			if (!consumer.accept(client.account, clientSequences[slot], slotInstruments[slot], prices[slot], quantities[slot], types[slot])) {
+				unknownClients.increment();
+				forget(client);
+			}
+			clients[slot] = null;
+			sequences.setRelease(slot, next + mask + 1);
+			next++;
+			drained++;
+		}
+	}
+	
+	/** Orders claimed but not yet drained; approximate while producers are active. */
+	public int depth() {
+		return (int) Math.max(0, tail.get() - head);
+	}
+	
+	public int capacity() {
+		return mask + 1;
+	}
+	
+	public long count(Result result) {
+		return results[result.ordinal()].sum();
+	}
+	
+	/** Forgets {@code identity}'s sequence and releases its account claim, for example when its connection closes. */
+	public void release(String identity) {
+		Client client = clientsByIdentity.get(identity);
+		if (client != null) {
+			forget(client);
+		}
+	}
+	
+	/**
+	 * Forgets every identity and claim, for when the accounts they traded through are replaced by an engine reset or
+	 * restore. Orders already queued are still drained.
+	 */
+	public void releaseAll() {
+		clientsByIdentity.clear();
+		owners.clear();
+	}
+	
+	/** Identities whose claim and last accepted sequence are being tracked. */
+	public int clients() {
+		return clientsByIdentity.size();
+	}
+	
+	/** Accepted orders dropped at drain time because their client has no external account. */
+	public long unknownClients() {
+		return unknownClients.sum();
+	}
+	
+	private Result record(Result result) {
+		results[result.ordinal()].increment();
+		return result;
+	}
+	
+	private void forget(Client client) {
+		if (clientsByIdentity.remove(client.identity, client)) {
+			owners.remove(client.account, client.identity);
+		}
+	}
+	
+	private static final class Client {
+		final String identity;
+		final String account;
+		final AtomicLong lastSequence = new AtomicLong();
+		
+		Client(String identity, String account) {
+			this.identity = identity;
+			this.account = account;
+		}
+	}
+}
@@ -0,0 +1,1108 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.agent.Agent;
+import com.example.marketsimulator.agent.AgentCohort;
+import com.example.marketsimulator.agent.ExternalTrader;
+import com.example.marketsimulator.agent.MarketMaker;
+import com.example.marketsimulator.agent.MeanReversionCohort;
+import com.example.marketsimulator.agent.MeanReversionTrader;
+import com.example.marketsimulator.agent.MomentumTrader;
+import com.example.marketsimulator.agent.NaiveMarketMaker;
+import com.example.marketsimulator.agent.RandomTrader;
+import com.example.marketsimulator.agent.RandomTraderCohort;
+import com.example.marketsimulator.journal.EventSink;
+import com.example.marketsimulator.journal.JournalEvent;
+import com.example.marketsimulator.journal.JournalEventType;
+import com.example.marketsimulator.model.AccountColumns;
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.MarketSnapshot;
+import com.example.marketsimulator.model.MarketState;
+import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.OrderBook;
+import com.example.marketsimulator.model.OrderBuffer;
+import com.example.marketsimulator.model.PriceCandles;
+import com.example.marketsimulator.model.PriceHistory;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The tick logic of the simulation, independent of Spring and of how ticks are driven. Not thread-safe: callers
+ * serialize access (the scheduled service holds its monitor, the batch runner owns its engine outright).
+ */
+public class SimulationEngine implements AutoCloseable {
+	private static final int CHECKPOINT_MAGIC = 0x4D53434B;
+	private static final short CHECKPOINT_VERSION = 3;
+	private static final int MAX_ACCOUNTS = Integer.MAX_VALUE - 8;
+	private static final byte NAIVE_MARKET_MAKER = 0;
+	private static final byte RANDOM_TRADER = 1;
+	private static final byte MOMENTUM_TRADER = 2;
+	private static final byte MEAN_REVERSION_TRADER = 3;
+	private static final byte EXTERNAL_TRADER = 4;
+	
+	private final Market market;
+	// one entry per account, null where a cohort member owns the account
+	private final ArrayList<Agent> agents = new ArrayList<>();
+	private final AgentCohorts cohorts = new AgentCohorts();
+	private final List<Agent> initialAgents = new ArrayList<>();
+	private final AccountLedger ledger;
+	private final double totalAssetUnits;
+	private double totalCash;
+	private final Map<String, Double> initialPositions;
+	private volatile double fundingRate;
+	private volatile double dividendRate;
+	private int mmCounter = 1;
+	private int rtCounter = 1;
+	private int mtCounter = 1;
+	private int mrCounter = 1;
+	private final long orderTtlTicks;
+	private final long seed;
+	private final double marketMakerSpread;
+	private final AgentDecisionPhase decisionPhase;
+	private final InstrumentMatchingPhase matchingPhase;
+	private long tick = 0;
+	private final OrderBuffer orders = new OrderBuffer(1024);
+	private int[] bankruptCandidates = new int[16];
+	private double[] mmBids = new double[16];
+	private final double[] prices;
+	private final double[] openPrices;
+	private final EventSink journal;
+	private final TickStats stats = new TickStats();
+	private final OrderGateway.Consumer externalOrderRouter = this::routeExternalOrder;
+	private OrderGateway gateway;
+	private TradeListener tradeListener;
+	private final AtomicReference<MarketState> state = new AtomicReference<>();
+	private volatile boolean publishingStates;
+	private long stateVersion;
+	private AccountColumns publishedColumns;
+	private boolean[] orderedChunks = new boolean[1];
+	
+	/** Receives fills as the engine settles them; see {@link #attachTradeListener}. */
+	@FunctionalInterface
+	public interface TradeListener {
+		void trade(long tick, String instrument, String buyer, String seller, double price, double quantity);
+	}
+	
+	public SimulationEngine(SimulationSettings settings) {
+		this(settings, null);
+	}
+	
+	/**
+	 * An engine that records its orders, fills, accruals and account changes to {@code journal}, when not null, and hands
+	 * it checkpoints when it asks for them.
+	 */
+	public SimulationEngine(SimulationSettings settings, EventSink journal) {
+		this.journal = journal;
+		this.totalAssetUnits = settings.totalAssetUnits();
+		this.totalCash = settings.totalCash();
+		this.fundingRate = settings.fundingRate();
+		this.dividendRate = settings.dividendRate();
+		this.orderTtlTicks = Math.max(1, settings.orderTtlTicks());
+		this.seed = settings.seed();
+		this.marketMakerSpread = settings.marketMakerSpread();
+		this.market = new Market(settings.instruments(), settings.historyCapacity());
+		this.ledger = new AccountLedger(market.instrumentCount());
+		this.prices = new double[market.instrumentCount()];
+		this.openPrices = new double[market.instrumentCount()];
+		this.decisionPhase = new AgentDecisionPhase(settings.decisionMode(), settings.decisionParallelism(), settings.decisionMinChunkSize());
+		this.matchingPhase = new InstrumentMatchingPhase(market, ledger, settings.decisionMode(), settings.decisionParallelism(), journal);
+		addInitialAgents();
+		this.initialPositions = parseInitialPositions(settings.initialPositions());
+		seedInitialBalances();
+		checkpointIfDue();
+	}
+	
+	public void step() {
+		advanceTick();
+		long started = System.nanoTime();
+		stats.externalOrders = gateway == null ? 0 : gateway.drain(externalOrderRouter);
+		decisionPhase.decide(agents, cohorts, market, orders);
+		stats.nanos[TickStats.Phase.DECISIONS.ordinal()] = System.nanoTime() - started;
+		completeTick();
+	}
+	
+	/**
+	 * Runs one tick on orders decided elsewhere instead of asking the agents, for replay and for agents sharded across
+	 * worker processes. {@code decided} must hold one agent range per account, in account order.
+	 */
+	public void step(OrderBuffer decided) {
+		if (decided.agentCount() != ledger.size()) {
+			throw new IllegalArgumentException("decided orders cover " + decided.agentCount() + " accounts, engine has " + ledger.size());
+		}
+		advanceTick();
+		stats.externalOrders = 0;
+		orders.clear();
+		orders.appendAll(decided);
+		stats.nanos[TickStats.Phase.DECISIONS.ordinal()] = 0L;
+		completeTick();
+	}
+	
+	/**
+	 * Feeds outside clients' orders into {@link #step()}: at the start of every tick the gateway is drained and each
+	 * order becomes part of its client's {@link ExternalTrader} decisions, so it is matched, journaled and settled like
+	 * any agent order.
+	 */
+	public void attachGateway(OrderGateway gateway) {
+		this.gateway = gateway;
+	}
+	
+	/**
+	 * Hands every fill of later ticks to {@code listener} on the thread running the tick, right after matching and before
+	 * bankrupt accounts are removed. Null detaches the listener.
+	 */
+	public void attachTradeListener(TradeListener listener) {
+		this.tradeListener = listener;
+		matchingPhase.recordTrades(listener != null);
+	}
+	
+	/** The accounts clients traded through are gone, so their claims and sequences start over. */
+	private void releaseGatewayClients() {
+		if (gateway != null) {
+			gateway.releaseAll();
+		}
+	}
+	
+	private boolean routeExternalOrder(String account, long sequence, int instrument, double price, int quantity, Order.Type type) {
+		int id = ledger.idOf(account);
+		if (id < 0 || !(agents.get(id) instanceof ExternalTrader trader)) {
+			return false;
+		}
+		trader.submit(instrument, price, quantity, type);
+		return true;
+	}
+	
+	private void completeTick() {
+		if (journal != null) {
+			journal.append(JournalEventType.TICK, 0, tick, 0, -1, -1, 0.0, 0.0);
+			for (int i = 0; i < orders.size(); i++) {
+				journal.append(JournalEventType.ORDER, orders.isBuy(i) ? 0 : JournalEvent.SELL, tick, orders.instrument(i), orders.agentId(i), -1, orders.price(i), orders.quantity(i));
+			}
+		}
+		
+		long started = System.nanoTime();
+		applyFundingRate();
+		long funded = System.nanoTime();
+		applyDividendRate();
+		long paid = System.nanoTime();
+		
+		for (int instrument = 0; instrument < openPrices.length; instrument++) {
+			openPrices[instrument] = market.getPrice(instrument);
+		}
+		matchAndSettle(orders);
+		if (tradeListener != null) {
+			matchingPhase.reportTrades(tick, tradeListener);
+		}
+		long matched = System.nanoTime();
+		
+		refreshPrices();
+		recordHistory();
+		int removed = 0;
+		int candidateCount = findBankruptCandidates();
+		if (candidateCount > 0) {
+			int accounts = ledger.size();
+			int bidCount = accounts * market.instrumentCount();
+			if (mmBids.length < bidCount) {
+				mmBids = new double[Math.max(bidCount, mmBids.length * 2)];
+			}
+			Arrays.fill(mmBids, 0, bidCount, Double.NaN);
+			for (int i = 0; i < orders.size(); i++) {
+				int agentId = orders.agentId(i);
+				if (orders.isBuy(i) && ledger.isMarketMaker(agentId)) {
+					int slot = orders.instrument(i) * accounts + agentId;
+					double bid = mmBids[slot];
+					mmBids[slot] = Double.isNaN(bid) ? orders.price(i) : Math.max(bid, orders.price(i));
+				}
+			}
+			liquidateBankruptAgents(bankruptCandidates, candidateCount, mmBids);
+			for (int i = candidateCount - 1; i >= 0; i--) {
+				int id = bankruptCandidates[i];
+				if (ledger.equity(id, prices) < 0.0) {
+					removeAccount(id);
+					removed++;
+				}
+			}
+		}
+		long liquidated = System.nanoTime();
+		stats.nanos[TickStats.Phase.FUNDING.ordinal()] = funded - started;
+		stats.nanos[TickStats.Phase.DIVIDENDS.ordinal()] = paid - funded;
+		stats.nanos[TickStats.Phase.MATCHING.ordinal()] = matched - paid;
+		stats.nanos[TickStats.Phase.LIQUIDATION.ordinal()] = liquidated - matched;
+		stats.orders = orders.size();
+		stats.trades = matchingPhase.lastTradeCount();
+		stats.removedAccounts = removed;
+		checkpointIfDue();
+		publishState();
+	}
+	
+	/** Timings and counts of the last completed tick; overwritten by the next one. */
+	public TickStats lastTickStats() {
+		return stats;
+	}
+	
+	private void checkpointIfDue() {
+		if (journal != null && journal.checkpointDue(tick)) {
+			journal.checkpoint(tick, checkpoint());
+		}
+	}
+	
+	/** Swap-removes the account, re-pointing the agent and resting orders of the account moved into its slot. */
+	private void removeAccount(int id) {
+		for (int instrument = 0; instrument < market.instrumentCount(); instrument++) {
+			market.book(instrument).cancelAll(id);
+		}
+		orders.removeAgent(id);
+		int moved = ledger.remove(id);
+		cohorts.remove(id, moved);
+		if (journal != null) {
+			journal.append(JournalEventType.ACCOUNT_REMOVED, 0, tick, 0, id, moved, 0.0, 0.0);
+		}
+		int last = agents.size() - 1;
+		agents.set(id, agents.get(last));
+		agents.remove(last);
+		if (moved >= 0) {
+			if (agents.get(id) != null) {
+				agents.get(id).setId(id);
+			}
+			for (int instrument = 0; instrument < market.instrumentCount(); instrument++) {
+				market.book(instrument).reassign(moved, id);
+			}
+		}
+	}
+	
+	/**
+	 * Collects accounts with negative equity into {@code bankruptCandidates}, in ascending id order, and returns how many
+	 * there are. With every price positive only the ledger's at-risk accounts can qualify, so only they are checked, and
+	 * solvent ones are pruned from the set on the way.
+	 */
+	private int findBankruptCandidates() {
+		boolean pricesPositive = true;
+		for (double price : prices) {
+			pricesPositive &= price > 0.0;
+		}
+		int count = 0;
+		if (pricesPositive) {
+			// Backwards, so that pruning, which moves the last member into the freed slot, only moves visited members.
+			for (int n = ledger.atRiskCount() - 1; n >= 0; n--) {
+				int id = ledger.atRisk(n);
+				if (ledger.equity(id, prices) < 0.0) {
+					count = addBankruptCandidate(count, id);
+				} else {
+					ledger.refreshAtRisk(id);
+				}
+			}
+			Arrays.sort(bankruptCandidates, 0, count);
+		} else {
+			for (int id = 0; id < ledger.size(); id++) {
+				if (ledger.equity(id, prices) < 0.0) {
+					count = addBankruptCandidate(count, id);
+				}
+			}
+		}
+		return count;
+	}
+	
+	private int addBankruptCandidate(int count, int id) {
+		if (count == bankruptCandidates.length) {
+			bankruptCandidates = Arrays.copyOf(bankruptCandidates, count * 2);
+		}
+		bankruptCandidates[count] = id;
+		return count + 1;
+	}
+	
+	private void recordHistory() {
+		for (int instrument = 0; instrument < prices.length; instrument++) {
+			double open = openPrices[instrument];
+			double close = prices[instrument];
+			double high = Math.max(Math.max(open, close), matchingPhase.lastHigh(instrument));
+			double low = Math.min(Math.min(open, close), matchingPhase.lastLow(instrument));
+			market.history().record(instrument, tick, open, high, low, close, matchingPhase.lastVolume(instrument));
+		}
+	}
+	
+	/** OHLCV candles of {@code symbol}, or of the primary instrument when null; see {@link PriceHistory#query}. */
+	public PriceCandles history(String symbol, int resolution, long fromTick, long toTick, int maxPoints) {
+		int instrument = symbol == null ? 0 : market.instrumentId(symbol);
+		if (instrument < 0) {
+			throw new IllegalArgumentException("unknown instrument " + symbol);
+		}
+		PriceCandles candles = market.history().query(instrument, resolution, fromTick, toTick, maxPoints);
+		candles.instrument = market.symbol(instrument);
+		return candles;
+	}
+	
+	private void refreshPrices() {
+		for (int instrument = 0; instrument < prices.length; instrument++) {
+			prices[instrument] = market.getPrice(instrument);
+		}
+	}
+	
+	public MarketSnapshot snapshot() {
+		return buildState(stateVersion).toSnapshot();
+	}
+	
+	/**
+	 * Publishes a {@link MarketState} after every tick and after every change made between ticks, for readers on other
+	 * threads. Each state shares the account chunks nobody changed with the one before, so publishing copies the
+	 * chunks of the accounts that changed; still, only engines with such readers turn it on.
+	 */
+	public void publishStates(boolean enabled) {
+		publishingStates = enabled;
+		publishState();
+	}
+	
+	/** The last published state, or null when publishing is off. Safe to call from any thread. */
+	public MarketState state() {
+		return publishingStates ? state.get() : null;
+	}
+	
+	private void publishState() {
+		if (publishingStates) {
+			state.set(buildState(++stateVersion));
+		}
+	}
+	
+	private MarketState buildState(long version) {
+		double[] currentPrices = new double[prices.length];
+		for (int instrument = 0; instrument < prices.length; instrument++) {
+			currentPrices[instrument] = market.getPrice(instrument);
+		}
+		publishedColumns = ledger.publish(publishedColumns, orderChunks(publishedColumns));
+		return new MarketState(version, tick, market.symbols(), currentPrices, fundingRate, dividendRate, totalAssetUnits, totalCash, ledger.totalCash(), ledger.totalPositions(0), initialPositions, publishedColumns, market.history().view());
+	}
+	
+	/**
+	 * The last orders of every account chunk. A chunk is copied when it holds orders now, held some in {@code previous}
+	 * or has changed accounts, which covers accounts opened or moved into it; the others have no orders in either.
+	 */
+	private OrderBuffer[] orderChunks(AccountColumns previous) {
+		int chunks = AccountColumns.chunkCount(ledger.size());
+		if (orderedChunks.length < chunks) {
+			orderedChunks = new boolean[Math.max(chunks, orderedChunks.length * 2)];
+		}
+		Arrays.fill(orderedChunks, false);
+		for (int i = 0; i < orders.size(); i++) {
+			// orders carry the id their account had when they were decided; later moves mark both chunks changed
+			int chunk = AccountColumns.chunk(orders.agentId(i));
+			if (chunk < chunks) {
+				orderedChunks[chunk] = true;
+			}
+		}
+		OrderBuffer[] orderChunks = new OrderBuffer[chunks];
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			boolean hadOrders = previous != null && chunk < previous.chunkCount() && previous.orderChunk(chunk) != null;
+			if (orderedChunks[chunk] || hadOrders || ledger.chunkChanged(chunk)) {
+				orderChunks[chunk] = copyOrders(chunk);
+			}
+		}
+		return orderChunks;
+	}
+	
+	/** Copy of the orders of the accounts in {@code chunk}, one agent range per account, or null when there are none. */
+	private OrderBuffer copyOrders(int chunk) {
+		int from = chunk << AccountColumns.CHUNK_SHIFT;
+		int to = Math.min(ledger.size(), from + AccountColumns.CHUNK_SIZE);
+		int count = 0;
+		for (int id = from; id < to; id++) {
+			count += orders.agentEnd(id) - orders.agentStart(id);
+		}
+		if (count == 0) {
+			return null;
+		}
+		OrderBuffer copy = new OrderBuffer(count);
+		copy.ensureCapacity(0, to - from);
+		for (int id = from; id < to; id++) {
+			copy.beginAgent();
+			for (int i = orders.agentStart(id); i < orders.agentEnd(id); i++) {
+				copy.add(orders.agentId(i), orders.instrument(i), orders.price(i), orders.quantity(i), orders.type(i));
+			}
+			copy.endAgent();
+		}
+		return copy;
+	}
+	
+	public long getTick() {
+		return tick;
+	}
+	
+	public double getPrice() {
+		return market.getPrice();
+	}
+	
+	public double getPrice(int instrument) {
+		return market.getPrice(instrument);
+	}
+	
+	public int getAgentCount() {
+		return agents.size();
+	}
+	
+	/** The agent object at account {@code id}, or null when a cohort member owns the account. */
+	public Agent agent(int id) {
+		return agents.get(id);
+	}
+	
+	public String agentName(int id) {
+		return ledger.name(id);
+	}
+	
+	/** The checkpoint type code of the agent at account {@code id}, whether an object or a cohort member. */
+	public byte agentType(int id) {
+		AgentCohort cohort = cohorts.cohort(id);
+		if (cohort == null) {
+			return agentType(agents.get(id));
+		}
+		return cohort instanceof RandomTraderCohort ? RANDOM_TRADER : MEAN_REVERSION_TRADER;
+	}
+	
+	/** Size of the strategy state {@link #writeAgentState} writes for account {@code id}; see {@link Agent#stateBytes()}. */
+	public int agentStateBytes(int id) {
+		AgentCohort cohort = cohorts.cohort(id);
+		return cohort == null ? agents.get(id).stateBytes() : cohort.stateBytes(cohorts.member(id));
+	}
+	
+	/** Writes the strategy state of the agent at account {@code id}, in the layout its agent object would write. */
+	public void writeAgentState(int id, ByteBuffer out) {
+		AgentCohort cohort = cohorts.cohort(id);
+		if (cohort == null) {
+			agents.get(id).writeState(out);
+		} else {
+			cohort.writeState(cohorts.member(id), out);
+		}
+	}
+	
+	/** Combined equity of the market makers still in the market, at current prices. */
+	public double marketMakerEquity() {
+		refreshPrices();
+		double equity = 0.0;
+		for (int id = 0; id < ledger.size(); id++) {
+			if (ledger.isMarketMaker(id)) {
+				equity += ledger.equity(id, prices);
+			}
+		}
+		return equity;
+	}
+	
+	void advanceTick() {
+		tick++;
+	}
+	
+	AccountLedger ledger() {
+		return ledger;
+	}
+	
+	void setBalances(String name, double positionUnits, double cashBalance) {
+		ledger.set(ledger.idOf(name), positionUnits, cashBalance);
+	}
+	
+	/** Matches {@code batch} and updates instrument prices; returns the primary instrument's last trade price or NaN. */
+	double matchAndSettle(OrderBuffer batch) {
+		return matchingPhase.match(batch, tick, tick - orderTtlTicks + 1);
+	}
+	
+	/**
+	 * Sells each candidate's positions to market makers at their best bids this tick. {@code mmBids} holds one slot per
+	 * instrument and account, at {@code instrument * accountCount + accountId}; NaN means no bid.
+	 */
+	void liquidateBankruptAgents(int[] bankruptCandidates, int candidateCount, double[] mmBids) {
+		for (int c = 0; c < candidateCount; c++) {
+			for (int instrument = 0; instrument < market.instrumentCount(); instrument++) {
+				liquidate(bankruptCandidates[c], instrument, mmBids);
+			}
+		}
+	}
+	
+	private void liquidate(int id, int instrument, double[] mmBids) {
+		double positionUnits = ledger.position(instrument, id);
+		if (positionUnits <= 0.0) {
+			return;
+		}
+		int offset = instrument * ledger.size();
+		double remaining = positionUnits;
+		for (int mm = 0; mm < ledger.size(); mm++) {
+			if (!ledger.isMarketMaker(mm) || mm == id) {
+				continue;
+			}
+			double price = mmBids[offset + mm];
+			if (Double.isNaN(price) || price <= 0.0) {
+				continue;
+			}
+			double maxBuy = ledger.cash(mm) / price;
+			if (maxBuy <= 0.0) {
+				continue;
+			}
+			double tradeUnits = Math.min(remaining, maxBuy);
+			if (tradeUnits <= 0.0) {
+				continue;
+			}
+			ledger.transfer(instrument, mm, id, tradeUnits, price);
+			if (journal != null) {
+				journal.append(JournalEventType.LIQUIDATION, 0, tick, instrument, mm, id, price, tradeUnits);
+			}
+			remaining -= tradeUnits;
+			if (remaining <= 0.0) {
+				break;
+			}
+		}
+	}
+	
+	void applyFundingRate() {
+		double rate = fundingRate;
+		if (rate <= 0.0) {
+			return;
+		}
+		if (journal != null) {
+			for (int id = 0; id < ledger.size(); id++) {
+				double amount = ledger.funding(id, rate);
+				if (amount != 0.0) {
+					journal.append(JournalEventType.FUNDING, 0, tick, 0, id, -1, rate, amount);
+				}
+			}
+		}
+		ledger.applyFunding(rate);
+	}
+	
+	void applyDividendRate() {
+		double rate = dividendRate;
+		if (rate <= 0.0) {
+			return;
+		}
+		refreshPrices();
+		if (journal != null) {
+			for (int id = 0; id < ledger.size(); id++) {
+				double amount = ledger.dividend(id, prices, rate);
+				if (amount != 0.0) {
+					journal.append(JournalEventType.DIVIDEND, 0, tick, 0, id, -1, rate, amount);
+				}
+			}
+		}
+		ledger.applyDividend(prices, rate);
+	}
+	
+	public String addAgent(String type, String name) {
+		byte agentType = parseAgentType(type);
+		String resolvedName = (name == null) ? "" : name.trim();
+		if (agentType == EXTERNAL_TRADER && ledger.contains(resolvedName)) {
+			// an external account is addressed by its client's name, so a taken name cannot be swapped for another
+			throw new IllegalArgumentException("name " + resolvedName + " is already taken");
+		}
+		if (resolvedName.isEmpty() || ledger.contains(resolvedName)) {
+			resolvedName = nextName(agentType);
+		}
+		double initialCash = defaultCash(agentType);
+		openAccount(newAgent(agentType, resolvedName), 0.0, initialCash);
+		totalCash += initialCash;
+		publishState();
+		return resolvedName;
+	}
+	
+	/**
+	 * Adds a whole {@link AgentGroup} in one pass and returns the new agents' names in account order. Names are checked
+	 * against the ledger's name index, so the cost per agent does not grow with the number of accounts. Opening balances
+	 * are drawn from a stream seeded by the engine seed and the current tick and account count, so the same engine state
+	 * always gets the same balances. Random and mean reversion traders join the engine's cohorts instead of becoming
+	 * agent objects; they decide the same either way.
+	 */
+	public List<String> addAgents(AgentGroup group) {
+		return addAgents(List.of(group)).get(0);
+	}
+	
+	/**
+	 * Adds several groups like {@link #addAgents(AgentGroup)}, returning each group's names. Whether the engine can hold
+	 * all of them is checked first, so a group that does not fit throws before any group is added.
+	 */
+	public List<List<String>> addAgents(List<AgentGroup> groups) {
+		long accounts = ledger.size();
+		Map<Integer, Long> meanReversionTraders = new HashMap<>();
+		for (AgentGroup group : groups) {
+			accounts += group.count();
+			if (parseAgentType(group.type()) == MEAN_REVERSION_TRADER) {
+				int window = group.window() != null ? group.window() : MeanReversionTrader.DEFAULT_WINDOW;
+				long members = meanReversionTraders.merge(window, (long) group.count(), Long::sum) + cohorts.meanReversionTraderCount(window);
+				int capacity = MeanReversionCohort.maxMembers(window);
+				if (members > capacity) {
+					throw new IllegalArgumentException("at most " + capacity + " mean reversion traders of window " + window);
+				}
+			}
+		}
+		if (accounts > MAX_ACCOUNTS) {
+			throw new IllegalArgumentException("at most " + MAX_ACCOUNTS + " accounts");
+		}
+		List<List<String>> names = new ArrayList<>(groups.size());
+		for (AgentGroup group : groups) {
+			names.add(openGroup(group));
+		}
+		publishState();
+		return names;
+	}
+	
+	private List<String> openGroup(AgentGroup group) {
+		byte agentType = parseAgentType(group.type());
+		double spread = group.spread() != null ? group.spread() : marketMakerSpread;
+		int window = group.window() != null ? group.window() : MeanReversionTrader.DEFAULT_WINDOW;
+		double minCash = group.minCash() != null ? group.minCash() : group.maxCash() != null ? group.maxCash() : defaultCash(agentType);
+		double maxCash = group.maxCash() != null ? group.maxCash() : minCash;
+		double minPosition = group.minPosition() != null ? group.minPosition() : group.maxPosition() != null ? group.maxPosition() : 0.0;
+		double maxPosition = group.maxPosition() != null ? group.maxPosition() : minPosition;
+		SplittableRandom balances = new SplittableRandom(agentSeed(tick + ":" + ledger.size()));
+		List<String> names = new ArrayList<>(group.count());
+		ledger.ensureCapacity(ledger.size() + group.count());
+		agents.ensureCapacity(agents.size() + group.count());
+		boolean cohort = hasCohort(agentType);
+		if (cohort) {
+			cohorts.ensureCapacity(ledger.size() + group.count());
+			AgentCohort joined = agentType == RANDOM_TRADER ? cohorts.randomTraders() : cohorts.meanReversionTraders(window);
+			joined.ensureCapacity(joined.size() + group.count());
+		}
+		int next = 1;
+		for (int n = 0; n < group.count(); n++) {
+			String name;
+			if (group.namePrefix() == null) {
+				name = nextName(agentType);
+			} else {
+				do {
+					name = group.namePrefix() + next++;
+				} while (ledger.contains(name));
+			}
+			double cash = minCash < maxCash ? balances.nextDouble(minCash, maxCash) : minCash;
+			double position = minPosition < maxPosition ? balances.nextDouble(minPosition, maxPosition) : minPosition;
+			if (cohort) {
+				openCohortAccount(agentType, name, window, position, cash);
+			} else {
+				openAccount(newAgent(agentType, name, spread, window), position, cash);
+			}
+			totalCash += cash;
+			names.add(name);
+		}
+		return names;
+	}
+	
+	/** Re-opens a journaled account of checkpoint type code {@code type} with its journaled opening balances. */
+	String addAgent(int type, double initialCash, double positionUnits) {
+		byte agentType = switch (type) {
+			case NAIVE_MARKET_MAKER, RANDOM_TRADER, MOMENTUM_TRADER, MEAN_REVERSION_TRADER, EXTERNAL_TRADER -> (byte) type;
+			default -> throw new IllegalArgumentException("unknown agent type " + type);
+		};
+		String name = nextName(agentType);
+		openAccount(newAgent(agentType, name), positionUnits, initialCash);
+		totalCash += initialCash;
+		return name;
+	}
+	
+	/** The checkpoint type code for an agent type as the API names it, e.g. {@code RT} or {@code RANDOM_TRADER}. */
+	static byte parseAgentType(String type) {
+		String normalized = type == null ? "" : type.trim().toUpperCase();
+		return switch (normalized) {
+			case "MM", "NMM", "MARKET_MAKER", "NAIVE_MARKET_MAKER" -> NAIVE_MARKET_MAKER;
+			case "RT", "RANDOM_TRADER" -> RANDOM_TRADER;
+			case "MT", "MOMENTUM_TRADER" -> MOMENTUM_TRADER;
+			case "MR", "MEAN_REVERSION_TRADER" -> MEAN_REVERSION_TRADER;
+			case "EXT", "EXTERNAL", "EXTERNAL_TRADER" -> EXTERNAL_TRADER;
+			default -> throw new IllegalArgumentException("type must be NMM, RT, MT, MR, or EXT");
+		};
+	}
+	
+	private static boolean hasCohort(byte type) {
+		return type == RANDOM_TRADER || type == MEAN_REVERSION_TRADER;
+	}
+	
+	private static double defaultCash(byte type) {
+		return type == NAIVE_MARKET_MAKER ? -5000.0 : 5000.0;
+	}
+	
+	/** The next free generated name for {@code type}; the counters only move forward, so each name is probed once. */
+	private String nextName(byte type) {
+		String name;
+		switch (type) {
+			case NAIVE_MARKET_MAKER -> {
+				do {
+					name = "NMM" + mmCounter++;
+				} while (ledger.contains(name));
+			}
+			case RANDOM_TRADER -> {
+				do {
+					name = "RT" + rtCounter++;
+				} while (ledger.contains(name));
+			}
+			case MOMENTUM_TRADER -> {
+				do {
+					name = "MT" + mtCounter++;
+				} while (ledger.contains(name));
+			}
+			case MEAN_REVERSION_TRADER -> {
+				do {
+					name = "MR" + mrCounter++;
+				} while (ledger.contains(name));
+			}
+			default -> {
+				int n = agents.size() + 1;
+				while (ledger.contains("EXT" + n)) {
+					n++;
+				}
+				name = "EXT" + n;
+			}
+		}
+		return name;
+	}
+	
+	private Agent newAgent(byte type, String name) {
+		return newAgent(type, name, marketMakerSpread, MeanReversionTrader.DEFAULT_WINDOW);
+	}
+	
+	private Agent newAgent(byte type, String name, double spread, int window) {
+		return switch (type) {
+			case NAIVE_MARKET_MAKER -> new NaiveMarketMaker(name, spread);
+			case RANDOM_TRADER -> new RandomTrader(name, agentSeed(name));
+			case MOMENTUM_TRADER -> new MomentumTrader(name);
+			case MEAN_REVERSION_TRADER -> new MeanReversionTrader(name, window);
+			case EXTERNAL_TRADER -> new ExternalTrader(name);
+			default -> throw new IllegalArgumentException("unknown agent type " + type);
+		};
+	}
+	
+	/**
+	 * Rebuilds an agent of checkpoint type {@code type} from the strategy state its {@link Agent#writeState} wrote, as a
+	 * restore does.
+	 */
+	public static Agent restoreAgent(int type, String name, ByteBuffer state) {
+		Agent agent = switch (type) {
+			case NAIVE_MARKET_MAKER -> new NaiveMarketMaker(name, NaiveMarketMaker.DEFAULT_SPREAD);
+			case RANDOM_TRADER -> new RandomTrader(name, 0L);
+			case MOMENTUM_TRADER -> new MomentumTrader(name);
+			case MEAN_REVERSION_TRADER -> new MeanReversionTrader(name);
+			case EXTERNAL_TRADER -> new ExternalTrader(name);
+			default -> throw new IllegalArgumentException("unknown agent type " + type);
+		};
+		agent.readState(state);
+		return agent;
+	}
+	
+	/** The checkpoint type code of {@code agent}, also journaled as the counterparty of its ACCOUNT_OPENED event. */
+	public static byte agentType(Agent agent) {
+		if (agent instanceof NaiveMarketMaker) {
+			return NAIVE_MARKET_MAKER;
+		}
+		if (agent instanceof RandomTrader) {
+			return RANDOM_TRADER;
+		}
+		if (agent instanceof MomentumTrader) {
+			return MOMENTUM_TRADER;
+		}
+		if (agent instanceof MeanReversionTrader) {
+			return MEAN_REVERSION_TRADER;
+		}
+		if (agent instanceof ExternalTrader) {
+			return EXTERNAL_TRADER;
+		}
+		throw new IllegalStateException("cannot checkpoint agent type " + agent.getClass().getName());
+	}
+	
+	private long agentSeed(String name) {
+		long mixed = (seed ^ name.hashCode()) * 0x9E3779B97F4A7C15L;
+		return mixed ^ (mixed >>> 31);
+	}
+	
+	public void updateRates(Double newFundingRate, Double newDividendRate) {
+		if (newFundingRate != null) {
+			if (newFundingRate < 0.0) {
+				throw new IllegalArgumentException("fundingRate must be >= 0");
+			}
+			fundingRate = newFundingRate;
+		}
+		if (newDividendRate != null) {
+			if (newDividendRate < 0.0) {
+				throw new IllegalArgumentException("dividendRate must be >= 0");
+			}
+			dividendRate = newDividendRate;
+		}
+		if (journal != null) {
+			journal.append(JournalEventType.RATES, 0, tick, 0, -1, -1, fundingRate, dividendRate);
+		}
+		publishState();
+	}
+	
+	public void reset() {
+		if (journal != null) {
+			journal.append(JournalEventType.RESET, 0, tick, 0, -1, -1, 0.0, 0.0);
+		}
+		agents.clear();
+		cohorts.clear();
+		ledger.clear();
+		addInitialAgents();
+		seedInitialBalances();
+		market.reset();
+		tick = 0;
+		orders.clear();
+		releaseGatewayClients();
+		checkpointIfDue();
+		publishState();
+	}
+	
+	/**
+	 * Encodes the full simulation state: tick, rates, instrument prices, every account with its agent type, and every
+	 * resting order, followed by an agents section starting at {@link #checkpointAgentsOffset} with the naming counters
+	 * and each agent's name and strategy state. Matching and settlement never read the agents section, so replay
+	 * verification compares only the bytes before it.
+	 */
+	public ByteBuffer checkpoint() {
+		StateWriter out = new StateWriter(256 + ledger.size() * (48 + 8 * prices.length));
+		out.buffer.putInt(CHECKPOINT_MAGIC);
+		out.buffer.putShort(CHECKPOINT_VERSION);
+		out.buffer.putInt(0);
+		out.buffer.putLong(tick);
+		out.buffer.putDouble(fundingRate);
+		out.buffer.putDouble(dividendRate);
+		out.buffer.putDouble(totalCash);
+		out.buffer.putShort((short) market.instrumentCount());
+		for (int instrument = 0; instrument < market.instrumentCount(); instrument++) {
+			out.string(market.symbol(instrument));
+			out.ensure(Double.BYTES);
+			out.buffer.putDouble(market.getPrice(instrument));
+		}
+		out.ensure(Integer.BYTES);
+		out.buffer.putInt(ledger.size());
+		for (int id = 0; id < ledger.size(); id++) {
+			out.ensure(1 + Integer.BYTES + (2 + prices.length) * Double.BYTES);
+			out.buffer.put(agentType(id));
+			out.buffer.putInt(ledger.flags(id));
+			out.buffer.putDouble(ledger.cash(id));
+			out.buffer.putDouble(ledger.initialCash(id));
+			for (int instrument = 0; instrument < prices.length; instrument++) {
+				out.buffer.putDouble(ledger.position(instrument, id));
+			}
+		}
+		for (int instrument = 0; instrument < market.instrumentCount(); instrument++) {
+			OrderBook book = market.book(instrument);
+			out.ensure(Integer.BYTES + book.size() * 29);
+			out.buffer.putInt(book.size());
+			book.forEachResting((agentId, price, isBuy, remaining, restingTick) -> {
+				out.buffer.putInt(agentId);
+				out.buffer.putDouble(price);
+				out.buffer.put((byte) (isBuy ? 1 : 0));
+				out.buffer.putDouble(remaining);
+				out.buffer.putLong(restingTick);
+			});
+		}
+		out.buffer.putInt(6, out.buffer.position());
+		out.ensure(4 * Integer.BYTES);
+		out.buffer.putInt(mmCounter);
+		out.buffer.putInt(rtCounter);
+		out.buffer.putInt(mtCounter);
+		out.buffer.putInt(mrCounter);
+		for (int id = 0; id < ledger.size(); id++) {
+			out.string(ledger.name(id));
+			int stateBytes = agentStateBytes(id);
+			out.ensure(Integer.BYTES + stateBytes);
+			out.buffer.putInt(stateBytes);
+			int end = out.buffer.position() + stateBytes;
+			writeAgentState(id, out.buffer);
+			if (out.buffer.position() != end) {
+				throw new IllegalStateException(ledger.name(id) + " wrote " + (out.buffer.position() + stateBytes - end) + " state bytes, declared " + stateBytes);
+			}
+		}
+		return out.buffer.flip();
+	}
+	
+	/** Where the agents section of a {@link #checkpoint()} starts; the bytes before it are what ticks settle against. */
+	public static int checkpointAgentsOffset(ByteBuffer checkpoint) {
+		return checkpoint.getInt(checkpoint.position() + 6);
+	}
+	
+	/**
+	 * Replaces the whole engine state with a {@link #checkpoint()} taken from an engine with the same instruments. An
+	 * attached journal records a reset followed by a checkpoint of the restored state, so replay can start from there.
+	 * A checkpoint that fails to decode leaves the engine as it was.
+	 */
+	public void restore(ByteBuffer checkpoint) {
+		ByteBuffer previous = checkpoint();
+		try {
+			restoreState(checkpoint);
+		} catch (IllegalArgumentException | BufferUnderflowException | IndexOutOfBoundsException ex) {
+			restoreState(previous);
+			throw ex instanceof IllegalArgumentException invalid ? invalid : new IllegalArgumentException("truncated engine checkpoint", ex);
+		}
+		releaseGatewayClients();
+		if (journal != null) {
+			journal.append(JournalEventType.RESET, 0, tick, 0, -1, -1, 0.0, 0.0);
+			journal.checkpoint(tick, checkpoint());
+		}
+		publishState();
+	}
+	
+	private void restoreState(ByteBuffer checkpoint) {
+		ByteBuffer in = checkpoint.duplicate();
+		if (in.getInt() != CHECKPOINT_MAGIC || in.getShort() != CHECKPOINT_VERSION) {
+			throw new IllegalArgumentException("not a version " + CHECKPOINT_VERSION + " engine checkpoint");
+		}
+		ByteBuffer agentState = checkpoint.duplicate().position(checkpoint.position() + in.getInt());
+		int[] counters = { agentState.getInt(), agentState.getInt(), agentState.getInt(), agentState.getInt() };
+		long restoredTick = in.getLong();
+		double restoredFundingRate = in.getDouble();
+		double restoredDividendRate = in.getDouble();
+		double restoredTotalCash = in.getDouble();
+		int instrumentCount = in.getShort();
+		double[] restoredPrices = new double[instrumentCount];
+		for (int instrument = 0; instrument < instrumentCount; instrument++) {
+			String symbol = StateWriter.readString(in);
+			if (instrumentCount != market.instrumentCount() || !symbol.equals(market.symbol(instrument))) {
+				throw new IllegalArgumentException("checkpoint instruments do not match " + market.symbols());
+			}
+			restoredPrices[instrument] = in.getDouble();
+		}
+		
+		agents.clear();
+		cohorts.clear();
+		ledger.clear();
+		market.reset();
+		orders.clear();
+		int accounts = in.getInt();
+		for (int id = 0; id < accounts; id++) {
+			String name = StateWriter.readString(agentState);
+			byte type = in.get();
+			int stateBytes = agentState.getInt();
+			ByteBuffer state = agentState.slice(agentState.position(), stateBytes);
+			agentState.position(agentState.position() + stateBytes);
+			int accountFlags = in.getInt();
+			double cash = in.getDouble();
+			double initialCash = in.getDouble();
+			int opened = ledger.open(name, accountFlags, 0.0, cash, initialCash);
+			if (hasCohort(type)) {
+				// the window length leads a mean reversion trader's state
+				AgentCohort cohort = joinCohort(opened, type, name, type == MEAN_REVERSION_TRADER ? state.getInt(0) : 0);
+				cohort.readState(cohort.size() - 1, state);
+				agents.add(null);
+			} else {
+				Agent agent = newAgent(type, name);
+				agent.readState(state);
+				agent.setId(opened);
+				agents.add(agent);
+			}
+			for (int instrument = 0; instrument < instrumentCount; instrument++) {
+				ledger.setPosition(instrument, id, in.getDouble());
+			}
+		}
+		for (int instrument = 0; instrument < instrumentCount; instrument++) {
+			OrderBook book = market.book(instrument);
+			for (int n = in.getInt(); n > 0; n--) {
+				book.restore(in.getInt(), in.getDouble(), in.get() == 1, in.getDouble(), in.getLong());
+			}
+			market.updatePrice(instrument, restoredPrices[instrument]);
+		}
+		tick = restoredTick;
+		fundingRate = restoredFundingRate;
+		dividendRate = restoredDividendRate;
+		totalCash = restoredTotalCash;
+		mmCounter = counters[0];
+		rtCounter = counters[1];
+		mtCounter = counters[2];
+		mrCounter = counters[3];
+	}
+	
+	@Override
+	public void close() {
+		decisionPhase.close();
+		matchingPhase.close();
+	}
+	
+	private void addInitialAgents() {
+		initialAgents.clear();
+		initialAgents.add(new NaiveMarketMaker("NMM1", marketMakerSpread));
+		initialAgents.add(new RandomTrader("RT1", agentSeed("RT1")));
+		mmCounter = 2;
+		rtCounter = 2;
+		mtCounter = 1;
+		mrCounter = 1;
+	}
+	
+	private void seedInitialBalances() {
+		double initialCashPerAgent = 100.0;
+		for (Agent agent : initialAgents) {
+			openAccount(agent, initialPositions.getOrDefault(agent.getName(), 0.0), initialCashPerAgent);
+		}
+	}
+	
+	void openAccount(Agent agent, double positionUnits, double initialCash) {
+		int flags = 0;
+		if (agent instanceof MarketMaker) {
+			flags |= AccountLedger.MARKET_MAKER;
+		}
+		if (agent instanceof RandomTrader) {
+			flags |= AccountLedger.CASH_UNCHECKED;
+		}
+		agent.setId(ledger.open(agent.getName(), flags, positionUnits, initialCash, initialCash));
+		if (journal != null) {
+			journal.append(JournalEventType.ACCOUNT_OPENED, flags, tick, 0, agent.getId(), agentType(agent), initialCash, positionUnits);
+		}
+		agents.add(agent);
+	}
+	
+	/** Opens an account for a new cohort member of {@code type}, one of the types {@link #hasCohort} accepts. */
+	private void openCohortAccount(byte type, String name, int window, double positionUnits, double initialCash) {
+		int flags = type == RANDOM_TRADER ? AccountLedger.CASH_UNCHECKED : 0;
+		int id = ledger.open(name, flags, positionUnits, initialCash, initialCash);
+		joinCohort(id, type, name, window);
+		if (journal != null) {
+			journal.append(JournalEventType.ACCOUNT_OPENED, flags, tick, 0, id, type, initialCash, positionUnits);
+		}
+		agents.add(null);
+	}
+	
+	/** Adds a member for account {@code id} to the cohort for {@code type} and returns the cohort; the member is last. */
+	private AgentCohort joinCohort(int id, byte type, String name, int window) {
+		AgentCohort cohort;
+		if (type == RANDOM_TRADER) {
+			RandomTraderCohort randomTraders = cohorts.randomTraders();
+			randomTraders.add(id, agentSeed(name));
+			cohort = randomTraders;
+		} else {
+			MeanReversionCohort meanReversionTraders = cohorts.meanReversionTraders(window);
+			meanReversionTraders.add(id);
+			cohort = meanReversionTraders;
+		}
+		cohorts.assign(id, cohort, cohort.size() - 1);
+		return cohort;
+	}
+	
+	private Map<String, Double> parseInitialPositions(String raw) {
+		Map<String, Double> parsed = new HashMap<>();
+		if (raw != null && !raw.isBlank()) {
+			String[] entries = raw.split(",");
+			for (String entry : entries) {
+				String trimmed = entry.trim();
+				if (trimmed.isEmpty() || !trimmed.contains(":")) {
+					continue;
+				}
+				String[] parts = trimmed.split(":", 2);
+				String name = parts[0].trim();
+				if (name.isEmpty()) {
+					continue;
+				}
+				try {
+					double value = Double.parseDouble(parts[1].trim());
+					parsed.put(name, value);
+				} catch (NumberFormatException ignored) {
+					// ignore invalid values
+				}
+			}
+		}
+		if (parsed.isEmpty()) {
+			parsed.put(initialAgents.get(0).getName(), totalAssetUnits);
+		}
+		double sum = parsed.values().stream().mapToDouble(Double::doubleValue).sum();
+		if (sum <= 0.0) {
+			parsed.replaceAll((k, v) -> 0.0);
+			parsed.put(initialAgents.get(0).getName(), totalAssetUnits);
+			return parsed;
+		}
+		if (Math.abs(sum - totalAssetUnits) > 1e-6) {
+			double scale = totalAssetUnits / sum;
+			parsed.replaceAll((k, v) -> v * scale);
+		}
+		return parsed;
+	}
+}
@@ -0,0 +1,202 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.journal.EventSink;
+import com.example.marketsimulator.journal.JournalCheckpoint;
+import com.example.marketsimulator.journal.JournalEvent;
+import com.example.marketsimulator.journal.JournalEventType;
+import com.example.marketsimulator.journal.JournalReader;
+import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds a journaled run by feeding its recorded orders back through matching and settlement, skipping agent
+ * decisions. Replay starts from the latest checkpoint at or before {@code fromTick}, so seeking costs at most one
+ * checkpoint interval. Every event the engine produces is compared with the recording, and so is its full state at each
+ * recorded checkpoint; the first difference ends the replay. Agent names and strategy state are not journaled, so agents
+ * added during the replayed span get generated names and the agents section of checkpoints is not compared. A reset or
+ * restore in the recording ends the run being replayed.
+ */
+public final class SimulationReplay {
+	
+	public record Result(long fromTick, long toTick, long ticks, long eventsVerified, int checkpointsVerified, double price, String divergence) {
+		public boolean matched() {
+			return divergence == null;
+		}
+	}
+	
+	private SimulationReplay() {
+	}
+	
+	/**
+	 * Replays the journal in {@code directory} up to and including {@code toTick}, or to the end of the run when
+	 * {@code toTick} is negative. {@code settings} must match the recorded run's instruments and order TTL.
+	 */
+	public static Result run(SimulationSettings settings, Path directory, long fromTick, long toTick) throws IOException {
+		long lastTick = toTick < 0 ? Long.MAX_VALUE : toTick;
+		List<JournalCheckpoint> checkpoints = JournalCheckpoint.list(directory);
+		JournalCheckpoint start = null;
+		for (JournalCheckpoint checkpoint : checkpoints) {
+			if (checkpoint.tick() <= fromTick) {
+				start = checkpoint;
+			}
+		}
+		if (start == null) {
+			throw new IllegalArgumentException("no checkpoint at or before tick " + fromTick + " in " + directory);
+		}
+		Verifier verifier = new Verifier(directory, checkpoints);
+		try (SimulationEngine engine = new SimulationEngine(settings, verifier)) {
+			engine.restore(start.read());
+			verifier.arm(start.sequence());
+			long ticks = 0;
+			String divergence = null;
+			try {
+				ticks = replay(engine, directory, start.sequence(), lastTick);
+			} catch (Divergence ex) {
+				divergence = ex.getMessage();
+			}
+			return new Result(start.tick(), engine.getTick(), ticks, verifier.verified, verifier.checkpointsVerified, engine.getPrice(), divergence);
+		}
+	}
+	
+	private static long replay(SimulationEngine engine, Path directory, long fromSequence, long lastTick) throws IOException {
+		JournalReader input = JournalReader.open(directory);
+		input.seek(fromSequence);
+		JournalEvent event = new JournalEvent();
+		OrderBuffer recorded = new OrderBuffer(1024);
+		long ticks = 0;
+		boolean pending = input.next(event);
+		while (pending) {
+			switch (event.type) {
+				case TICK -> {
+					if (event.tick > lastTick) {
+						return ticks;
+					}
+					if (event.tick != engine.getTick() + 1) {
+						throw new Divergence("recording jumps from tick " + engine.getTick() + " to " + event.tick);
+					}
+					recorded.clear();
+					pending = input.next(event);
+					for (int id = 0; id < engine.getAgentCount(); id++) {
+						recorded.beginAgent();
+						while (pending && event.type == JournalEventType.ORDER && event.account == id) {
+							recorded.add(id, event.instrument, event.price, (int) event.quantity, event.isSell() ? Order.Type.SELL : Order.Type.BUY);
+							pending = input.next(event);
+						}
+						recorded.endAgent();
+					}
+					while (pending && isTickOutcome(event.type)) {
+						pending = input.next(event);
+					}
+					engine.step(recorded);
+					ticks++;
+					continue;
+				}
+				case ACCOUNT_OPENED -> engine.addAgent(event.counterparty, event.price, event.quantity);
+				case RATES -> engine.updateRates(event.price, event.quantity);
+				case RESET -> {
+					return ticks;
+				}
+				default -> throw new Divergence("unexpected " + event.type + " outside a tick at sequence " + event.sequence);
+			}
+			pending = input.next(event);
+		}
+		return ticks;
+	}
+	
+	/** Events a tick produces from its orders; the replayed engine regenerates them and the verifier checks them. */
+	private static boolean isTickOutcome(JournalEventType type) {
+		return switch (type) {
+			case FUNDING, DIVIDEND, TRADE, LIQUIDATION, ACCOUNT_REMOVED -> true;
+			default -> false;
+		};
+	}
+	
+	private static final class Divergence extends RuntimeException {
+		Divergence(String message) {
+			super(message, null, false, false);
+		}
+	}
+	
+	/** Compares what the replayed engine records with the next recorded event and with recorded checkpoints. */
+	private static final class Verifier implements EventSink {
+		private final Path directory;
+		private final Map<Long, JournalCheckpoint> checkpointsBySequence = new HashMap<>();
+		private final JournalEvent expected = new JournalEvent();
+		private JournalReader recording;
+		private long sequence;
+		long verified;
+		int checkpointsVerified;
+		
+		Verifier(Path directory, List<JournalCheckpoint> checkpoints) {
+			this.directory = directory;
+			for (JournalCheckpoint checkpoint : checkpoints) {
+				checkpointsBySequence.put(checkpoint.sequence(), checkpoint);
+			}
+		}
+		
+		void arm(long fromSequence) throws IOException {
+			recording = JournalReader.open(directory);
+			recording.seek(fromSequence);
+			sequence = fromSequence;
+		}
+		
+		@Override
+		public void append(JournalEventType type, int flags, long tick, int instrument, int account, int counterparty, double price, double quantity) {
+			if (recording == null) {
+				return;
+			}
+			if (!recording.next(expected)) {
+				throw new Divergence("tick " + tick + ": replay produced " + type + " past the end of the recording");
+			}
+			boolean same = expected.type == type && expected.flags == flags && expected.tick == tick && expected.instrument == instrument && expected.account == account && expected.counterparty == counterparty && Double.doubleToLongBits(expected.price) == Double.doubleToLongBits(price) && Double.doubleToLongBits(expected.quantity) == Double.doubleToLongBits(quantity);
+			if (!same) {
+				JournalEvent produced = new JournalEvent();
+				produced.sequence = expected.sequence;
+				produced.type = type;
+				produced.flags = flags;
+				produced.tick = tick;
+				produced.instrument = instrument;
+				produced.account = account;
+				produced.counterparty = counterparty;
+				produced.price = price;
+				produced.quantity = quantity;
+				throw new Divergence("tick " + tick + ": recorded [" + expected + "] but replay produced [" + produced + "]");
+			}
+			sequence++;
+			verified++;
+		}
+		
+		@Override
+		public boolean checkpointDue(long tick) {
+			return recording != null && checkpointsBySequence.containsKey(sequence);
+		}
+		
+		@Override
+		public void checkpoint(long tick, ByteBuffer state) {
+			if (recording == null) {
+				return;
+			}
+			JournalCheckpoint checkpoint = checkpointsBySequence.get(sequence);
+			ByteBuffer recorded;
+			try {
+				recorded = checkpoint.read();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			int stateBytes = SimulationEngine.checkpointAgentsOffset(state);
+			ByteBuffer replayed = state.slice(state.position(), stateBytes);
+			if (checkpoint.tick() != tick || SimulationEngine.checkpointAgentsOffset(recorded) != stateBytes || !recorded.slice(recorded.position(), stateBytes).equals(replayed)) {
+				int offset = replayed.mismatch(recorded);
+				throw new Divergence("tick " + tick + ": state differs from checkpoint " + checkpoint.path().getFileName() + (offset >= 0 ? " at byte " + offset : ""));
+			}
+			checkpointsVerified++;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.example.marketsimulator.engine;
+
+import com.example.marketsimulator.agent.NaiveMarketMaker;
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.PriceHistory;
+import java.util.List;
+
+public record SimulationSettings(double totalAssetUnits, double totalCash, String initialPositions, double fundingRate, double dividendRate, long orderTtlTicks, long seed, AgentDecisionPhase.Mode decisionMode, int decisionParallelism, int decisionMinChunkSize, List<String> instruments, int historyCapacity, double marketMakerSpread) {
+	
+	public SimulationSettings(double totalAssetUnits, double totalCash, String initialPositions, double fundingRate, double dividendRate, long orderTtlTicks, long seed, AgentDecisionPhase.Mode decisionMode, int decisionParallelism, int decisionMinChunkSize, List<String> instruments, int historyCapacity) {
+		this(totalAssetUnits, totalCash, initialPositions, fundingRate, dividendRate, orderTtlTicks, seed, decisionMode, decisionParallelism, decisionMinChunkSize, instruments, historyCapacity, NaiveMarketMaker.DEFAULT_SPREAD);
+	}
+	
+	public SimulationSettings(double totalAssetUnits, double totalCash, String initialPositions, double fundingRate, double dividendRate, long orderTtlTicks, long seed, AgentDecisionPhase.Mode decisionMode, int decisionParallelism, int decisionMinChunkSize, List<String> instruments) {
+		this(totalAssetUnits, totalCash, initialPositions, fundingRate, dividendRate, orderTtlTicks, seed, decisionMode, decisionParallelism, decisionMinChunkSize, instruments, PriceHistory.DEFAULT_CAPACITY);
+	}
+	
+	/** Single-instrument settings, as before instruments were configurable. */
+	public SimulationSettings(double totalAssetUnits, double totalCash, String initialPositions, double fundingRate, double dividendRate, long orderTtlTicks, long seed, AgentDecisionPhase.Mode decisionMode, int decisionParallelism, int decisionMinChunkSize) {
+		this(totalAssetUnits, totalCash, initialPositions, fundingRate, dividendRate, orderTtlTicks, seed, decisionMode, decisionParallelism, decisionMinChunkSize, List.of(Market.DEFAULT_SYMBOL));
+	}
+	
+	public SimulationSettings withSeed(long newSeed) {
+		return new SimulationSettings(totalAssetUnits, totalCash, initialPositions, fundingRate, dividendRate, orderTtlTicks, newSeed, decisionMode, decisionParallelism, decisionMinChunkSize, instruments, historyCapacity, marketMakerSpread);
+	}
+	
+	public SimulationSettings withDecisionMode(AgentDecisionPhase.Mode mode) {
+		return new SimulationSettings(totalAssetUnits, totalCash, initialPositions, fundingRate, dividendRate, orderTtlTicks, seed, mode, decisionParallelism, decisionMinChunkSize, instruments, historyCapacity, marketMakerSpread);
+	}
+	
+	public SimulationSettings withRates(double newFundingRate, double newDividendRate) {
+		return new SimulationSettings(totalAssetUnits, totalCash, initialPositions, newFundingRate, newDividendRate, orderTtlTicks, seed, decisionMode, decisionParallelism, decisionMinChunkSize, instruments, historyCapacity, marketMakerSpread);
+	}
+	
+	public SimulationSettings withMarketMakerSpread(double spread) {
+		return new SimulationSettings(totalAssetUnits, totalCash, initialPositions, fundingRate, dividendRate, orderTtlTicks, seed, decisionMode, decisionParallelism, decisionMinChunkSize, instruments, historyCapacity, spread);
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.marketsimulator.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Growable big-endian buffer for engine checkpoints. Callers {@link #ensure} room before writing primitives. */
+final class StateWriter {
+	ByteBuffer buffer;
+	
+	StateWriter(int capacity) {
+		buffer = ByteBuffer.allocate(Math.max(64, capacity));
+	}
+	
+	void ensure(int bytes) {
+		if (buffer.remaining() < bytes) {
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+			buffer.flip();
+			grown.put(buffer);
+			buffer = grown;
+		}
+	}
+	
+	/** Writes a u16 length and the UTF-8 bytes. */
+	void string(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		ensure(Short.BYTES + bytes.length);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+	
+	static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getShort() & 0xFFFF];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,40 @@
+package com.example.marketsimulator.engine;
+
+/**
+ * Phase durations and counts of the engine's last completed tick. The engine overwrites them every tick with a
+ * handful of {@link System#nanoTime()} reads, so they are always collected; read them on the tick thread.
+ */
+public final class TickStats {
+	
+	public enum Phase {
+		DECISIONS, FUNDING, DIVIDENDS, MATCHING, LIQUIDATION
+	}
+	
+	final long[] nanos = new long[Phase.values().length];
+	int orders;
+	int externalOrders;
+	int trades;
+	int removedAccounts;
+	
+	public long nanos(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+	
+	public int orders() {
+		return orders;
+	}
+	
+	/** Gateway orders drained into this tick, included in {@link #orders()}. */
+	public int externalOrders() {
+		return externalOrders;
+	}
+	
+	public int trades() {
+		return trades;
+	}
+	
+	/** Accounts removed as bankrupt this tick. */
+	public int removedAccounts() {
+		return removedAccounts;
+	}
+}
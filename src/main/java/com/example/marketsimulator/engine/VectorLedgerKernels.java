@@ -0,0 +1,50 @@
+package com.example.marketsimulator.engine;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link LedgerKernels} on {@link DoubleVector}s of the platform's preferred width, with a scalar tail. Small ledgers
+ * take the scalar loop only: they gain nothing, and their loops stay cold long enough for vectors to be allocated
+ * before C2 compiles them away.
+ */
+final class VectorLedgerKernels extends LedgerKernels {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final int MIN_ACCOUNTS = 1024;
+	
+	@Override
+	void applyDividend(double[][] positions, double[] cash, int size, double[] prices, double rate) {
+		int bound = size < MIN_ACCOUNTS ? 0 : SPECIES.loopBound(size);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector dividend = DoubleVector.zero(SPECIES);
+			for (int instrument = 0; instrument < positions.length; instrument++) {
+				dividend = dividend.add(DoubleVector.fromArray(SPECIES, positions[instrument], i).mul(prices[instrument]).mul(rate));
+			}
+			DoubleVector.fromArray(SPECIES, cash, i).add(dividend).intoArray(cash, i);
+		}
+		for (; i < size; i++) {
+			double dividend = 0.0;
+			for (int instrument = 0; instrument < positions.length; instrument++) {
+				dividend += positions[instrument][i] * prices[instrument] * rate;
+			}
+			cash[i] = cash[i] + dividend;
+		}
+	}
+	
+	@Override
+	double sum(double[] column, int size) {
+		int bound = size < MIN_ACCOUNTS ? 0 : SPECIES.loopBound(size);
+		DoubleVector lanes = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			lanes = lanes.add(DoubleVector.fromArray(SPECIES, column, i));
+		}
+		double total = lanes.reduceLanes(VectorOperators.ADD);
+		for (; i < size; i++) {
+			total += column[i];
+		}
+		return total;
+	}
+}
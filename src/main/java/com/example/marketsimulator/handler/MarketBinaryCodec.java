@@ -0,0 +1,162 @@
+package com.example.marketsimulator.handler;
+
+import com.example.marketsimulator.model.MarketDelta;
+import com.example.marketsimulator.model.MarketSnapshot;
+import com.example.marketsimulator.model.Order;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact big-endian encoding of {@link MarketSnapshot} and {@link MarketDelta}, decoded by {@code decodeMarketMessage}
+ * in {@code frontend/src/types.ts}. Layout:
+ *
+ * <pre>
+ * message  := u8 kind (1 snapshot, 2 delta) u8 version i64 sequence [i64 baseSequence if delta] f64 price
+ *             instruments config u32 agentCount agent* [u32 removedCount string* if delta]
+ * instruments := i32 count, then (string symbol f64 price)* in a snapshot or f64 price* in a delta
+ * config   := u8 present [f64 totalAssetUnits f64 totalCash f64 fundingRate f64 dividendRate f64 currentTotalAssets
+ *             f64 currentTotalCash i32 count (string f64)*]
+ * agent    := string name f64 positionUnits f64 cashBalance f64 initialCash i32 positionCount f64* i32 orderCount
+ *             order*
+ * order    := i32 agentId i32 instrument f64 price i32 quantity u8 type (0 buy, 1 sell)
+ * string   := i32 length, UTF-8 bytes
+ * </pre>
+ *
+ * Orders do not repeat the agent name; the decoder takes it from the enclosing agent. Instrument symbols are fixed for
+ * the lifetime of the engine, so deltas carry only the prices, in snapshot order. Every count and length is an i32:
+ * an external client can leave more than 65535 orders in one tick, which a u16 count would wrap.
+ */
+public final class MarketBinaryCodec {
+	public static final byte SNAPSHOT = 1;
+	public static final byte DELTA = 2;
+	public static final byte VERSION = 3;
+	
+	private MarketBinaryCodec() {
+	}
+	
+	public static byte[] encode(MarketSnapshot snapshot) {
+		Writer out = new Writer(64 + snapshot.agents.size() * 64);
+		out.header(SNAPSHOT, snapshot.sequence);
+		out.buffer.putDouble(snapshot.price);
+		List<String> instruments = snapshot.instruments == null ? List.of() : snapshot.instruments;
+		out.ensure(Integer.BYTES);
+		out.buffer.putInt(instruments.size());
+		for (int i = 0; i < instruments.size(); i++) {
+			out.string(instruments.get(i));
+			out.ensure(Double.BYTES);
+			out.buffer.putDouble(snapshot.prices[i]);
+		}
+		out.config(snapshot.config);
+		out.agents(snapshot.agents);
+		return out.toByteArray();
+	}
+	
+	public static byte[] encode(MarketDelta delta) {
+		Writer out = new Writer(64 + delta.changed.size() * 64 + delta.removed.size() * 16);
+		out.header(DELTA, delta.sequence);
+		out.buffer.putLong(delta.baseSequence);
+		out.buffer.putDouble(delta.price);
+		double[] prices = delta.prices == null ? new double[0] : delta.prices;
+		out.ensure(Integer.BYTES + prices.length * Double.BYTES);
+		out.buffer.putInt(prices.length);
+		for (double price : prices) {
+			out.buffer.putDouble(price);
+		}
+		out.config(delta.config);
+		out.agents(delta.changed);
+		out.ensure(4);
+		out.buffer.putInt(delta.removed.size());
+		for (String name : delta.removed) {
+			out.string(name);
+		}
+		return out.toByteArray();
+	}
+	
+	private static final class Writer {
+		ByteBuffer buffer;
+		
+		Writer(int capacity) {
+			buffer = ByteBuffer.allocate(capacity);
+		}
+		
+		void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+		
+		void header(byte kind, long sequence) {
+			buffer.put(kind);
+			buffer.put(VERSION);
+			buffer.putLong(sequence);
+		}
+		
+		void config(MarketSnapshot.MarketConfig config) {
+			ensure(1);
+			if (config == null) {
+				buffer.put((byte) 0);
+				return;
+			}
+			ensure(6 * Double.BYTES + Integer.BYTES);
+			buffer.put((byte) 1);
+			buffer.putDouble(config.totalAssetUnits);
+			buffer.putDouble(config.totalCash);
+			buffer.putDouble(config.fundingRate);
+			buffer.putDouble(config.dividendRate);
+			buffer.putDouble(config.currentTotalAssets);
+			buffer.putDouble(config.currentTotalCash);
+			Map<String, Double> positions = config.initialPositions;
+			buffer.putInt(positions == null ? 0 : positions.size());
+			if (positions != null) {
+				for (Map.Entry<String, Double> entry : positions.entrySet()) {
+					string(entry.getKey());
+					ensure(Double.BYTES);
+					buffer.putDouble(entry.getValue());
+				}
+			}
+		}
+		
+		void agents(List<MarketSnapshot.AgentState> agents) {
+			ensure(Integer.BYTES);
+			buffer.putInt(agents.size());
+			for (MarketSnapshot.AgentState agent : agents) {
+				string(agent.name);
+				List<Order> orders = agent.lastOrders;
+				double[] positions = agent.positions == null ? new double[0] : agent.positions;
+				ensure(3 * Double.BYTES + 2 * Integer.BYTES + positions.length * Double.BYTES + orders.size() * 21);
+				buffer.putDouble(agent.positionUnits);
+				buffer.putDouble(agent.cashBalance);
+				buffer.putDouble(agent.initialCash);
+				buffer.putInt(positions.length);
+				for (double position : positions) {
+					buffer.putDouble(position);
+				}
+				buffer.putInt(orders.size());
+				for (Order order : orders) {
+					buffer.putInt(order.agentId);
+					buffer.putInt(order.instrument);
+					buffer.putDouble(order.price);
+					buffer.putInt(order.quantity);
+					buffer.put((byte) (order.type == Order.Type.BUY ? 0 : 1));
+				}
+			}
+		}
+		
+		void string(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			ensure(Integer.BYTES + bytes.length);
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+		
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer.array(), buffer.position());
+		}
+	}
+}
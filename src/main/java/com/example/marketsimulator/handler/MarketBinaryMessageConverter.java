@@ -0,0 +1,40 @@
+package com.example.marketsimulator.handler;
+
+import com.example.marketsimulator.model.MarketDelta;
+import com.example.marketsimulator.model.MarketSnapshot;
+import java.util.Map;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeType;
+
+/**
+ * Writes snapshots and deltas with {@link MarketBinaryCodec} when a message is sent with the {@link #MIME_TYPE}
+ * content type. The main type is {@code application/octet-stream} so the STOMP handler sends binary WebSocket frames.
+ */
+public class MarketBinaryMessageConverter extends AbstractMessageConverter {
+	public static final MimeType MIME_TYPE = new MimeType("application", "octet-stream", Map.of("schema", "market-v" + MarketBinaryCodec.VERSION));
+	
+	public MarketBinaryMessageConverter() {
+		super(MIME_TYPE);
+		setStrictContentTypeMatch(true);
+	}
+	
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return MarketSnapshot.class == clazz || MarketDelta.class == clazz;
+	}
+	
+	@Override
+	protected boolean canConvertFrom(Message<?> message, Class<?> targetClass) {
+		return false;
+	}
+	
+	@Override
+	protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+		if (payload instanceof MarketSnapshot snapshot) {
+			return MarketBinaryCodec.encode(snapshot);
+		}
+		return MarketBinaryCodec.encode((MarketDelta) payload);
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.marketsimulator.handler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+/**
+ * Negotiates the wire format per STOMP subscription and counts subscribers per destination, so publishers only encode
+ * formats somebody listens to. A SUBSCRIBE frame whose {@code content-type} header is {@code application/octet-stream}
+ * is moved to the destination's {@link #BINARY_SUFFIX} twin, where {@link MarketBinaryMessageConverter} output is
+ * published. Binary frames need a plain WebSocket connection ({@code /ws-market/websocket}); SockJS transports are
+ * text-only.
+ */
+@Component
+public class MarketSubscriptionInterceptor implements ChannelInterceptor {
+	public static final String BINARY_SUFFIX = "/binary";
+	
+	private final Map<String, AtomicInteger> subscribers = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, String>> subscriptionsBySession = new ConcurrentHashMap<>();
+	
+	@Override
+	public Message<?> preSend(Message<?> message, MessageChannel channel) {
+		StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+		if (accessor == null || accessor.getCommand() == null) {
+			return message;
+		}
+		switch (accessor.getCommand()) {
+			case SUBSCRIBE -> subscribe(accessor);
+			case UNSUBSCRIBE -> unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+			case DISCONNECT -> disconnect(accessor.getSessionId());
+			default -> {
+			}
+		}
+		return message;
+	}
+	
+	public boolean hasSubscribers(String destination) {
+		AtomicInteger count = subscribers.get(destination);
+		return count != null && count.get() > 0;
+	}
+	
+	public boolean hasBinarySubscribers(String destination) {
+		return hasSubscribers(destination + BINARY_SUFFIX);
+	}
+	
+	private void subscribe(StompHeaderAccessor accessor) {
+		String destination = accessor.getDestination();
+		if (destination == null || accessor.getSubscriptionId() == null) {
+			return;
+		}
+		MimeType contentType = accessor.getContentType();
+		if (!destination.endsWith(BINARY_SUFFIX) && contentType != null && MarketBinaryMessageConverter.MIME_TYPE.isCompatibleWith(contentType)) {
+			destination = destination + BINARY_SUFFIX;
+			accessor.setDestination(destination);
+		}
+		subscriptionsBySession.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>()).put(accessor.getSubscriptionId(), destination);
+		subscribers.computeIfAbsent(destination, d -> new AtomicInteger()).incrementAndGet();
+	}
+	
+	private void unsubscribe(String sessionId, String subscriptionId) {
+		Map<String, String> subscriptions = subscriptionsBySession.get(sessionId);
+		if (subscriptions == null || subscriptionId == null) {
+			return;
+		}
+		String destination = subscriptions.remove(subscriptionId);
+		if (destination != null) {
+			subscribers.get(destination).decrementAndGet();
+		}
+	}
+	
+	private void disconnect(String sessionId) {
+		Map<String, String> subscriptions = subscriptionsBySession.remove(sessionId);
+		if (subscriptions != null) {
+			for (String destination : subscriptions.values()) {
+				subscribers.get(destination).decrementAndGet();
+			}
+		}
+	}
+}
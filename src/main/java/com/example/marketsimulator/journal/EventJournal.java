@@ -0,0 +1,251 @@
+package com.example.marketsimulator.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only binary journal of simulation events. {@link #append} only copies primitives into a single-producer ring;
+ * a background thread moves them into fixed-size records of memory-mapped segment files and maps a new segment when
+ * the current one is full, so the tick thread never blocks on I/O. A full ring makes the producer wait rather than drop
+ * events. Appends must not run concurrently; the engine's callers already serialize access to it.
+ *
+ * <p>Every {@code checkpointInterval} ticks (and at tick 0) the engine's state is written next to the segments as a
+ * {@link JournalCheckpoint}, so replay can start from the nearest one instead of the beginning. Reopening a directory
+ * continues the sequence in a fresh segment. See {@link JournalFormat} for the layout and {@link JournalReader} for
+ * reading it back.
+ */
+public class EventJournal implements EventSink, AutoCloseable {
+	public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+	public static final int DEFAULT_RING_CAPACITY = 1 << 16;
+	public static final long DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+	private static final long IDLE_PARK_NANOS = 100_000;
+	
+	private final Path directory;
+	private final int segmentBytes;
+	private final int recordsPerSegment;
+	private final long baseSequence;
+	private final long checkpointInterval;
+	
+	private final int mask;
+	private final byte[] types;
+	private final byte[] flags;
+	private final int[] instruments;
+	private final int[] accounts;
+	private final int[] counterparties;
+	private final long[] ticks;
+	private final double[] prices;
+	private final double[] quantities;
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong consumed = new AtomicLong();
+	private long nextSequence;
+	private long cachedConsumed;
+	
+	private final Thread writer;
+	private volatile boolean closed;
+	private volatile Throwable failure;
+	private MappedByteBuffer segment;
+	private int segmentRecords;
+	
+	public EventJournal(Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_RING_CAPACITY, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+	
+	/** A {@code checkpointInterval} of zero or less only checkpoints at tick 0. */
+	public EventJournal(Path directory, int segmentBytes, int ringCapacity, long checkpointInterval) throws IOException {
+		if (segmentBytes < JournalFormat.HEADER_BYTES + JournalFormat.RECORD_BYTES) {
+			throw new IllegalArgumentException("segmentBytes must hold at least one record");
+		}
+		if (ringCapacity < 2 || ringCapacity > 1 << 30) {
+			throw new IllegalArgumentException("ringCapacity must be between 2 and 2^30");
+		}
+		Files.createDirectories(directory);
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.recordsPerSegment = (segmentBytes - JournalFormat.HEADER_BYTES) / JournalFormat.RECORD_BYTES;
+		this.baseSequence = nextSequenceOnDisk(directory);
+		this.checkpointInterval = checkpointInterval;
+		int capacity = Integer.highestOneBit(ringCapacity - 1) << 1;
+		this.mask = capacity - 1;
+		this.types = new byte[capacity];
+		this.flags = new byte[capacity];
+		this.instruments = new int[capacity];
+		this.accounts = new int[capacity];
+		this.counterparties = new int[capacity];
+		this.ticks = new long[capacity];
+		this.prices = new double[capacity];
+		this.quantities = new double[capacity];
+		this.writer = new Thread(this::drain, "event-journal");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+	
+	@Override
+	public void append(JournalEventType type, int eventFlags, long tick, int instrument, int account, int counterparty, double price, double quantity) {
+		if (closed) {
+			throw new IllegalStateException("journal is closed");
+		}
+		long sequence = nextSequence;
+		if (sequence - cachedConsumed > mask) {
+			awaitCapacity(sequence);
+		}
+		int slot = (int) sequence & mask;
+		types[slot] = type.code;
+		flags[slot] = (byte) eventFlags;
+		instruments[slot] = instrument;
+		accounts[slot] = account;
+		counterparties[slot] = counterparty;
+		ticks[slot] = tick;
+		prices[slot] = price;
+		quantities[slot] = quantity;
+		nextSequence = sequence + 1;
+		published.lazySet(sequence + 1);
+	}
+	
+	@Override
+	public boolean checkpointDue(long tick) {
+		return tick == 0 || (checkpointInterval > 0 && tick % checkpointInterval == 0);
+	}
+	
+	/** Writes the checkpoint synchronously; it is small next to the events between two checkpoints. */
+	@Override
+	public void checkpoint(long tick, ByteBuffer state) {
+		try {
+			JournalCheckpoint.write(directory, nextSequence(), tick, state);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	public Path directory() {
+		return directory;
+	}
+	
+	/** Journal-wide sequence the next appended event will get. */
+	public long nextSequence() {
+		return baseSequence + nextSequence;
+	}
+	
+	/** Waits until every appended event is in a mapped segment and visible to readers. */
+	public void flush() {
+		long target = published.get();
+		while (consumed.get() < target) {
+			checkWriter();
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+		}
+	}
+	
+	/** Writes out every appended event, forces the current segment to disk and stops the writer. */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure != null) {
+			throw new IllegalStateException("journal writer failed", failure);
+		}
+	}
+	
+	private void awaitCapacity(long sequence) {
+		int spins = 0;
+		while (sequence - (cachedConsumed = consumed.get()) > mask) {
+			checkWriter();
+			if (++spins < 100) {
+				Thread.onSpinWait();
+			} else {
+				LockSupport.unpark(writer);
+				LockSupport.parkNanos(1_000);
+			}
+		}
+	}
+	
+	private void checkWriter() {
+		if (failure != null) {
+			throw new IllegalStateException("journal writer failed", failure);
+		}
+	}
+	
+	private void drain() {
+		long head = 0;
+		try {
+			while (true) {
+				long available = published.get();
+				if (head == available) {
+					if (closed && published.get() == head) {
+						break;
+					}
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					continue;
+				}
+				for (long sequence = head; sequence < available; sequence++) {
+					write(baseSequence + sequence, (int) sequence & mask);
+				}
+				head = available;
+				consumed.lazySet(head);
+			}
+			if (segment != null) {
+				segment.force();
+			}
+		} catch (IOException ex) {
+			failure = new UncheckedIOException(ex);
+		} catch (RuntimeException | Error ex) {
+			failure = ex;
+		}
+	}
+	
+	private void write(long sequence, int slot) throws IOException {
+		if (segment == null || segmentRecords == recordsPerSegment) {
+			roll(sequence);
+		}
+		int offset = JournalFormat.HEADER_BYTES + segmentRecords * JournalFormat.RECORD_BYTES;
+		segment.put(offset + 1, flags[slot]);
+		segment.putShort(offset + 2, (short) instruments[slot]);
+		segment.putInt(offset + 4, accounts[slot]);
+		segment.putInt(offset + 8, counterparties[slot]);
+		segment.putLong(offset + 16, ticks[slot]);
+		segment.putDouble(offset + 24, prices[slot]);
+		segment.putDouble(offset + 32, quantities[slot]);
+		// The type goes last: a non-zero type is what marks the record as written.
+		segment.put(offset, types[slot]);
+		segmentRecords++;
+	}
+	
+	private void roll(long firstSequence) throws IOException {
+		Path path = directory.resolve(JournalFormat.segmentName(firstSequence));
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+		}
+		segment.order(ByteOrder.LITTLE_ENDIAN);
+		segment.putInt(0, JournalFormat.MAGIC);
+		segment.putInt(4, JournalFormat.VERSION);
+		segment.putInt(8, JournalFormat.RECORD_BYTES);
+		segment.putLong(16, firstSequence);
+		segmentRecords = 0;
+	}
+	
+	private static long nextSequenceOnDisk(Path directory) throws IOException {
+		List<Path> segments = JournalFormat.segments(directory);
+		if (segments.isEmpty()) {
+			return 0;
+		}
+		MappedByteBuffer last = JournalFormat.mapReadOnly(segments.get(segments.size() - 1));
+		return JournalFormat.firstSequence(last) + JournalFormat.recordCount(last);
+	}
+}
@@ -0,0 +1,21 @@
+package com.example.marketsimulator.journal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receiver of the events the engine records. {@link EventJournal} persists them; replay verification compares them
+ * against a recording instead.
+ */
+public interface EventSink {
+	
+	void append(JournalEventType type, int flags, long tick, int instrument, int account, int counterparty, double price, double quantity);
+	
+	/** Whether the engine should hand over its state after completing {@code tick} (or after a reset, at tick 0). */
+	default boolean checkpointDue(long tick) {
+		return false;
+	}
+	
+	/** Receives the engine state, as written by {@code SimulationEngine#checkpoint()}. */
+	default void checkpoint(long tick, ByteBuffer state) {
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.marketsimulator.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A checkpoint file in a journal directory: the engine state after {@code tick}, taken when the journal's next
+ * sequence was {@code sequence}, so replaying from {@code sequence} on continues exactly where the state left off.
+ * Files are named after the sequence and hold a 32-byte little-endian header
+ * ({@code i32 magic i32 version i64 sequence i64 tick i32 length i32 reserved}) followed by the state bytes.
+ */
+public record JournalCheckpoint(Path path, long sequence, long tick) {
+	static final String SUFFIX = ".checkpoint";
+	private static final int MAGIC = 0x4D4A434B;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 32;
+	
+	/** Every checkpoint in {@code directory}, oldest first. */
+	public static List<JournalCheckpoint> list(Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return List.of();
+		}
+		List<Path> paths;
+		try (Stream<Path> files = Files.list(directory)) {
+			paths = files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList();
+		}
+		List<JournalCheckpoint> checkpoints = new ArrayList<>(paths.size());
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		for (Path path : paths) {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				header.clear();
+				while (header.hasRemaining() && channel.read(header) >= 0) {
+					// keep reading until the header is complete or the file ends
+				}
+			}
+			if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("not a version " + VERSION + " checkpoint: " + path);
+			}
+			checkpoints.add(new JournalCheckpoint(path, header.getLong(8), header.getLong(16)));
+		}
+		checkpoints.sort(Comparator.comparingLong(JournalCheckpoint::sequence));
+		return checkpoints;
+	}
+	
+	/** Maps the state bytes of this checkpoint. */
+	public ByteBuffer read() throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int length = mapped.order(ByteOrder.LITTLE_ENDIAN).getInt(24);
+			return mapped.slice(HEADER_BYTES, length).order(ByteOrder.BIG_ENDIAN);
+		}
+	}
+	
+	/** Writes {@code state} (position to limit) through a temporary file, so readers never see a partial checkpoint. */
+	public static JournalCheckpoint write(Path directory, long sequence, long tick, ByteBuffer state) throws IOException {
+		Path path = directory.resolve(String.format("%020d%s", sequence, SUFFIX));
+		Path temporary = directory.resolve(path.getFileName() + ".tmp");
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(tick).putInt(state.remaining()).putInt(0).flip();
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer body = state.duplicate();
+			while (header.hasRemaining() || body.hasRemaining()) {
+				channel.write(new ByteBuffer[] { header, body });
+			}
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return new JournalCheckpoint(path, sequence, tick);
+	}
+}
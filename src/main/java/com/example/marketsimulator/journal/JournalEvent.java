@@ -0,0 +1,28 @@
+package com.example.marketsimulator.journal;
+
+/**
+ * One journal record as read back by {@link JournalReader}. Readers fill the same instance record after record, so
+ * copy out whatever must outlive the next call.
+ */
+public class JournalEvent {
+	public static final int SELL = 1;
+	
+	public long sequence;
+	public JournalEventType type;
+	public int flags;
+	public long tick;
+	public int instrument;
+	public int account;
+	public int counterparty;
+	public double price;
+	public double quantity;
+	
+	public boolean isSell() {
+		return (flags & SELL) != 0;
+	}
+	
+	@Override
+	public String toString() {
+		return sequence + " " + type + " tick=" + tick + " instrument=" + instrument + " account=" + account + " counterparty=" + counterparty + " price=" + price + " quantity=" + quantity + " flags=" + flags;
+	}
+}
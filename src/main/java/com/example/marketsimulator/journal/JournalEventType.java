@@ -0,0 +1,50 @@
+package com.example.marketsimulator.journal;
+
+/** Kinds of journal records. The codes are part of the on-disk format; zero marks an unwritten record. */
+public enum JournalEventType {
+	/** An order from the decision phase: account, instrument, price, quantity, {@link JournalEvent#SELL} flag. */
+	ORDER(1),
+	/** A fill: account is the buyer, counterparty the seller. */
+	TRADE(2),
+	/** Funding charged on negative cash: price is the rate, quantity the cash change. */
+	FUNDING(3),
+	/** Dividend accrued over every position: price is the rate, quantity the cash change. */
+	DIVIDEND(4),
+	/** A forced sale of a bankrupt account (counterparty) to a market maker (account). */
+	LIQUIDATION(5),
+	/**
+	 * An account was opened: flags are the ledger flags, counterparty the agent type (0 market maker, 1 random, 2
+	 * momentum, 3 mean reversion), price the cash, quantity the units of each instrument.
+	 */
+	ACCOUNT_OPENED(6),
+	/**
+	 * An account was removed. Ids are dense, so counterparty is the id of the account moved into the freed slot, or -1
+	 * when none was.
+	 */
+	ACCOUNT_REMOVED(7),
+	/** The engine was reset or restored from a checkpoint; account ids start over. */
+	RESET(8),
+	/** Start of a tick; every other event up to the next TICK belongs to it or follows it. */
+	TICK(9),
+	/** Rates were changed: price is the funding rate, quantity the dividend rate. */
+	RATES(10);
+	
+	private static final JournalEventType[] BY_CODE = new JournalEventType[11];
+	
+	static {
+		for (JournalEventType type : values()) {
+			BY_CODE[type.code] = type;
+		}
+	}
+	
+	final byte code;
+	
+	JournalEventType(int code) {
+		this.code = (byte) code;
+	}
+	
+	/** Returns the type with the given code, or null for zero and unknown codes. */
+	static JournalEventType fromCode(int code) {
+		return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.marketsimulator.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * On-disk layout shared by the writer and the reader. A journal is a directory of segment files named after the
+ * sequence of their first record, so they sort in write order. Each segment is a 64-byte header followed by fixed
+ * little-endian records:
+ *
+ * <pre>
+ * header := i32 magic i32 version i32 recordBytes i32 reserved i64 firstSequence (zero padding to 64 bytes)
+ * record := u8 type u8 flags u16 instrument i32 account i32 counterparty i32 reserved i64 tick f64 price f64 quantity
+ * </pre>
+ *
+ * Segments are preallocated and zero-filled, so the first record with type 0 ends a segment.
+ */
+final class JournalFormat {
+	static final int MAGIC = 0x4D4A4E4C;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 64;
+	static final int RECORD_BYTES = 40;
+	static final String SUFFIX = ".journal";
+	
+	private JournalFormat() {
+	}
+	
+	static String segmentName(long firstSequence) {
+		return String.format("%020d%s", firstSequence, SUFFIX);
+	}
+	
+	static List<Path> segments(Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return List.of();
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+		}
+	}
+	
+	static MappedByteBuffer mapReadOnly(Path segment) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_BYTES) {
+				throw new IOException("not a version " + VERSION + " journal segment: " + segment);
+			}
+			return buffer;
+		}
+	}
+	
+	/** First sequence of a segment, taken from its file name. */
+	static long firstSequence(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+	}
+	
+	static long firstSequence(ByteBuffer segment) {
+		return segment.getLong(16);
+	}
+	
+	/** Number of written records, found by scanning to the first unwritten one. */
+	static int recordCount(ByteBuffer segment) {
+		int capacity = (segment.capacity() - HEADER_BYTES) / RECORD_BYTES;
+		int count = 0;
+		while (count < capacity && segment.get(HEADER_BYTES + count * RECORD_BYTES) != 0) {
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.marketsimulator.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Sequential reader over every segment of a journal directory, oldest first. Segments are mapped one at a time;
+ * records still sitting in a live journal's ring are not visible until the writer has copied them (see
+ * {@link EventJournal#flush()}).
+ */
+public class JournalReader {
+	private final List<Path> segments;
+	private int segmentIndex = -1;
+	private MappedByteBuffer segment;
+	private int recordIndex;
+	private int recordCapacity;
+	private long sequence;
+	
+	private JournalReader(List<Path> segments) {
+		this.segments = segments;
+	}
+	
+	public static JournalReader open(Path directory) throws IOException {
+		return new JournalReader(JournalFormat.segments(directory));
+	}
+	
+	/** Positions the reader so that the next record returned is the one with {@code target} sequence, if written. */
+	public void seek(long target) {
+		int index = segments.size() - 1;
+		while (index > 0 && JournalFormat.firstSequence(segments.get(index)) > target) {
+			index--;
+		}
+		segmentIndex = index;
+		if (index < 0) {
+			return;
+		}
+		openSegment(segments.get(index));
+		long skip = Math.max(0, target - sequence);
+		recordIndex = (int) Math.min(skip, recordCapacity);
+		sequence += recordIndex;
+	}
+	
+	/** Fills {@code event} with the next record and returns true, or returns false at the end of the journal. */
+	public boolean next(JournalEvent event) {
+		while (true) {
+			if (segment != null && recordIndex < recordCapacity) {
+				int offset = JournalFormat.HEADER_BYTES + recordIndex * JournalFormat.RECORD_BYTES;
+				JournalEventType type = JournalEventType.fromCode(segment.get(offset));
+				if (type != null) {
+					event.sequence = sequence++;
+					event.type = type;
+					event.flags = segment.get(offset + 1) & 0xFF;
+					event.instrument = segment.getShort(offset + 2) & 0xFFFF;
+					event.account = segment.getInt(offset + 4);
+					event.counterparty = segment.getInt(offset + 8);
+					event.tick = segment.getLong(offset + 16);
+					event.price = segment.getDouble(offset + 24);
+					event.quantity = segment.getDouble(offset + 32);
+					recordIndex++;
+					return true;
+				}
+			}
+			if (segmentIndex + 1 >= segments.size()) {
+				return false;
+			}
+			openSegment(segments.get(++segmentIndex));
+		}
+	}
+	
+	private void openSegment(Path path) {
+		try {
+			segment = JournalFormat.mapReadOnly(path);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		recordIndex = 0;
+		recordCapacity = (segment.capacity() - JournalFormat.HEADER_BYTES) / JournalFormat.RECORD_BYTES;
+		sequence = JournalFormat.firstSequence(segment);
+	}
+}
@@ -0,0 +1,148 @@
+package com.example.marketsimulator.model;
+
+import java.util.List;
+
+/**
+ * The account columns of a {@link MarketState}, indexed by account id like the ledger's and split into chunks of
+ * {@link #CHUNK_SIZE} accounts. Each state shares, with the state before it, every chunk in which no account changed,
+ * so publishing a state copies the chunks of the accounts that changed rather than every column. Chunks are never
+ * modified once published. The last orders of a chunk's accounts are kept in one {@link OrderBuffer} per chunk, with
+ * one agent range per account in id order; a chunk without orders has none.
+ */
+public final class AccountColumns {
+	public static final int CHUNK_SHIFT = 10;
+	public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	
+	private final int size;
+	private final String[][] names;
+	private final double[][] cash;
+	private final double[][] initialCash;
+	private final double[][][] positions;
+	private final OrderBuffer[] orders;
+	
+	/**
+	 * Columns of {@code size} accounts from their chunks, indexed by chunk; {@code positions} by instrument, then chunk.
+	 * The chunks become part of the published state, so the caller must not modify them afterwards.
+	 */
+	public AccountColumns(int size, String[][] names, double[][] cash, double[][] initialCash, double[][][] positions, OrderBuffer[] orders) {
+		this.size = size;
+		this.names = names;
+		this.cash = cash;
+		this.initialCash = initialCash;
+		this.positions = positions;
+		this.orders = orders;
+	}
+	
+	/** Number of chunks holding {@code accounts} accounts. */
+	public static int chunkCount(int accounts) {
+		return (accounts + CHUNK_MASK) >>> CHUNK_SHIFT;
+	}
+	
+	/** The chunk holding account {@code id}. */
+	public static int chunk(int id) {
+		return id >>> CHUNK_SHIFT;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int chunkCount() {
+		return names.length;
+	}
+	
+	public int instrumentCount() {
+		return positions.length;
+	}
+	
+	public String name(int id) {
+		return names[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+	}
+	
+	public double cash(int id) {
+		return cash[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+	}
+	
+	public double initialCash(int id) {
+		return initialCash[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+	}
+	
+	public double position(int instrument, int id) {
+		return positions[instrument][id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+	}
+	
+	/** The orders the account submitted in the last tick. */
+	public List<Order> lastOrders(int id) {
+		OrderBuffer chunk = orders[id >>> CHUNK_SHIFT];
+		return chunk == null ? List.of() : chunk.agentOrders(id & CHUNK_MASK, id, name(id));
+	}
+	
+	public String[] nameChunk(int chunk) {
+		return names[chunk];
+	}
+	
+	public double[] cashChunk(int chunk) {
+		return cash[chunk];
+	}
+	
+	public double[] initialCashChunk(int chunk) {
+		return initialCash[chunk];
+	}
+	
+	public double[] positionChunk(int instrument, int chunk) {
+		return positions[instrument][chunk];
+	}
+	
+	/** Last orders of the chunk's accounts, or null when none of them submitted any. */
+	public OrderBuffer orderChunk(int chunk) {
+		return orders[chunk];
+	}
+	
+	/** Whether both columns hold the very same {@code chunk}, so every account in it is the same in both. */
+	boolean sharesChunk(AccountColumns other, int chunk) {
+		if (chunk >= names.length || chunk >= other.names.length || positions.length != other.positions.length) {
+			return false;
+		}
+		if (names[chunk] != other.names[chunk] || cash[chunk] != other.cash[chunk] || initialCash[chunk] != other.initialCash[chunk] || orders[chunk] != other.orders[chunk]) {
+			return false;
+		}
+		for (int instrument = 0; instrument < positions.length; instrument++) {
+			if (positions[instrument][chunk] != other.positions[instrument][chunk]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** Whether account {@code id} here and {@code otherId} in {@code other} hold the same balances and last orders. */
+	boolean sameAccount(int id, AccountColumns other, int otherId) {
+		if (cash(id) != other.cash(otherId) || initialCash(id) != other.initialCash(otherId) || positions.length != other.positions.length) {
+			return false;
+		}
+		for (int instrument = 0; instrument < positions.length; instrument++) {
+			if (position(instrument, id) != other.position(instrument, otherId)) {
+				return false;
+			}
+		}
+		OrderBuffer chunk = orders[id >>> CHUNK_SHIFT];
+		OrderBuffer otherChunk = other.orders[otherId >>> CHUNK_SHIFT];
+		int agent = id & CHUNK_MASK;
+		int otherAgent = otherId & CHUNK_MASK;
+		int from = chunk == null ? 0 : chunk.agentStart(agent);
+		int otherFrom = otherChunk == null ? 0 : otherChunk.agentStart(otherAgent);
+		int count = chunk == null ? 0 : chunk.agentEnd(agent) - from;
+		int otherCount = otherChunk == null ? 0 : otherChunk.agentEnd(otherAgent) - otherFrom;
+		if (count != otherCount) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			int a = from + i;
+			int b = otherFrom + i;
+			if (chunk.instrument(a) != otherChunk.instrument(b) || chunk.price(a) != otherChunk.price(b) || chunk.quantity(a) != otherChunk.quantity(b) || chunk.type(a) != otherChunk.type(b)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
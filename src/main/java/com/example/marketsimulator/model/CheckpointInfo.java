@@ -0,0 +1,17 @@
+package com.example.marketsimulator.model;
+
+public class CheckpointInfo {
+	public String name;
+	public long tick;
+	public int agents;
+	public long bytes;
+	public double millis;
+	
+	public CheckpointInfo(String name, long tick, int agents, long bytes, double millis) {
+		this.name = name;
+		this.tick = tick;
+		this.agents = agents;
+		this.bytes = bytes;
+		this.millis = millis;
+	}
+}
@@ -1,25 +1,97 @@
 package com.example.marketsimulator.model;
 
+import java.util.HashMap;
 import java.util.List;
-import lombok.Getter;
+import java.util.Map;
 
-@Getter
+/**
+ * Registry of tradable instruments, each with its own order book, last price and price history. Instruments are
+ * addressed by a dense id in registration order; id 0 is the primary instrument that the single-price accessors refer
+ * to.
+ */
 public class Market {
-	private double price = 100.0;
+	public static final String DEFAULT_SYMBOL = "SIM";
+	public static final double INITIAL_PRICE = 100.0;
 	
-	public double getPrice() {
-		return price;
+	private final String[] symbols;
+	private final double[] prices;
+	private final OrderBook[] books;
+	private final PriceHistory history;
+	private final Map<String, Integer> idsBySymbol = new HashMap<>();
+	
+	public Market() {
+		this(List.of(DEFAULT_SYMBOL));
+	}
+	
+	public Market(List<String> symbols) {
+		this(symbols, PriceHistory.DEFAULT_CAPACITY);
 	}
 	
-	public void applyOrders(List<Order> orders) {
-		double buyMax = orders.stream().filter(o -> o.type == Order.Type.BUY).mapToDouble(o -> o.price).max().orElse(Double.NaN);
-		double sellMin = orders.stream().filter(o -> o.type == Order.Type.SELL).mapToDouble(o -> o.price).min().orElse(Double.NaN);
-		if (!Double.isNaN(buyMax) && !Double.isNaN(sellMin) && buyMax >= sellMin) {
-			this.price = (buyMax + sellMin) / 2.0;
+	public Market(List<String> symbols, int historyCapacity) {
+		if (symbols.isEmpty()) {
+			throw new IllegalArgumentException("at least one instrument is required");
 		}
+		this.symbols = symbols.toArray(new String[0]);
+		this.prices = new double[symbols.size()];
+		this.books = new OrderBook[symbols.size()];
+		this.history = new PriceHistory(symbols.size(), historyCapacity);
+		for (int id = 0; id < this.symbols.length; id++) {
+			if (idsBySymbol.put(this.symbols[id], id) != null) {
+				throw new IllegalArgumentException("duplicate instrument " + this.symbols[id]);
+			}
+			prices[id] = INITIAL_PRICE;
+			books[id] = new OrderBook();
+		}
+	}
+	
+	public double getPrice() {
+		return prices[0];
+	}
+	
+	public double getPrice(int instrument) {
+		return prices[instrument];
+	}
+	
+	public int instrumentCount() {
+		return symbols.length;
+	}
+	
+	public String symbol(int instrument) {
+		return symbols[instrument];
+	}
+	
+	public List<String> symbols() {
+		return List.of(symbols);
+	}
+	
+	/** Returns the instrument id of {@code symbol}, or -1 when it is not listed. */
+	public int instrumentId(String symbol) {
+		Integer id = idsBySymbol.get(symbol);
+		return id == null ? -1 : id;
+	}
+	
+	public OrderBook book(int instrument) {
+		return books[instrument];
+	}
+	
+	public PriceHistory history() {
+		return history;
 	}
 	
 	public void updatePrice(double price) {
-		this.price = price;
+		prices[0] = price;
+	}
+	
+	public void updatePrice(int instrument, double price) {
+		prices[instrument] = price;
+	}
+	
+	/** Restores every instrument to its initial price, an empty book and an empty history. */
+	public void reset() {
+		for (int id = 0; id < symbols.length; id++) {
+			prices[id] = INITIAL_PRICE;
+			books[id].clear();
+		}
+		history.clear();
 	}
 }
@@ -0,0 +1,23 @@
+package com.example.marketsimulator.model;
+
+import java.util.List;
+
+public class MarketDelta {
+	public long sequence;
+	public long baseSequence;
+	public double price;
+	public double[] prices;
+	public List<MarketSnapshot.AgentState> changed;
+	public List<String> removed;
+	public MarketSnapshot.MarketConfig config;
+	
+	public MarketDelta(long sequence, long baseSequence, double price, double[] prices, List<MarketSnapshot.AgentState> changed, List<String> removed, MarketSnapshot.MarketConfig config) {
+		this.sequence = sequence;
+		this.baseSequence = baseSequence;
+		this.price = price;
+		this.prices = prices;
+		this.changed = changed;
+		this.removed = removed;
+		this.config = config;
+	}
+}
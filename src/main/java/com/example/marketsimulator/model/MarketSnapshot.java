@@ -3,7 +3,12 @@ package com.example.marketsimulator.model;
 import java.util.List;
 
 public class MarketSnapshot {
+	public long sequence;
+	/** Price of the primary instrument, {@code instruments.get(0)}. */
 	public double price;
+	public List<String> instruments;
+	/** Last price per instrument, in {@code instruments} order. */
+	public double[] prices;
 	public List<AgentState> agents;
 	public MarketConfig config;
 	
@@ -16,7 +21,10 @@ public class MarketSnapshot {
 	public static class AgentState {
 		public String name;
 		public List<Order> lastOrders;
+		/** Position in the primary instrument. */
 		public double positionUnits;
+		/** Position per instrument, in {@link MarketSnapshot#instruments} order. */
+		public double[] positions;
 		public double cashBalance;
 		public double initialCash;
 		
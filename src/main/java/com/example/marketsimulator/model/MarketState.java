@@ -0,0 +1,220 @@
+package com.example.marketsimulator.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable copy of the whole simulation state as of one moment between ticks, published by the engine so readers
+ * never touch live engine state. Accounts are stored column-wise like the ledger, indexed by account id. {@code
+ * version} grows with every published state, also for changes made between ticks, while {@code tick} only grows with
+ * ticks. Nothing here may be modified after construction; the account columns share unchanged chunks with the states
+ * published before, see {@link AccountColumns}.
+ */
+public final class MarketState {
+	private final long version;
+	private final long tick;
+	private final List<String> instruments;
+	private final double[] prices;
+	private final double fundingRate;
+	private final double dividendRate;
+	private final double totalAssetUnits;
+	private final double totalCash;
+	private final double currentTotalCash;
+	private final double currentTotalAssets;
+	private final Map<String, Double> initialPositions;
+	private final AccountColumns accounts;
+	private final PriceHistory.View history;
+	
+	public MarketState(long version, long tick, List<String> instruments, double[] prices, double fundingRate, double dividendRate, double totalAssetUnits, double totalCash, double currentTotalCash, double currentTotalAssets, Map<String, Double> initialPositions, AccountColumns accounts, PriceHistory.View history) {
+		this.version = version;
+		this.tick = tick;
+		this.instruments = List.copyOf(instruments);
+		this.prices = prices;
+		this.fundingRate = fundingRate;
+		this.dividendRate = dividendRate;
+		this.totalAssetUnits = totalAssetUnits;
+		this.totalCash = totalCash;
+		this.currentTotalCash = currentTotalCash;
+		this.currentTotalAssets = currentTotalAssets;
+		this.initialPositions = Map.copyOf(initialPositions);
+		this.accounts = accounts;
+		this.history = history;
+	}
+	
+	public long version() {
+		return version;
+	}
+	
+	public long tick() {
+		return tick;
+	}
+	
+	public List<String> instruments() {
+		return instruments;
+	}
+	
+	public double price(int instrument) {
+		return prices[instrument];
+	}
+	
+	public double[] prices() {
+		return prices.clone();
+	}
+	
+	public double fundingRate() {
+		return fundingRate;
+	}
+	
+	public double dividendRate() {
+		return dividendRate;
+	}
+	
+	public double totalAssetUnits() {
+		return totalAssetUnits;
+	}
+	
+	public double totalCash() {
+		return totalCash;
+	}
+	
+	public double currentTotalCash() {
+		return currentTotalCash;
+	}
+	
+	/** Units of the primary instrument held across all accounts. */
+	public double currentTotalAssets() {
+		return currentTotalAssets;
+	}
+	
+	public int agentCount() {
+		return accounts.size();
+	}
+	
+	public String name(int id) {
+		return accounts.name(id);
+	}
+	
+	public double cash(int id) {
+		return accounts.cash(id);
+	}
+	
+	public double initialCash(int id) {
+		return accounts.initialCash(id);
+	}
+	
+	public double position(int instrument, int id) {
+		return accounts.position(instrument, id);
+	}
+	
+	public double[] positions(int id) {
+		double[] held = new double[accounts.instrumentCount()];
+		for (int instrument = 0; instrument < held.length; instrument++) {
+			held[instrument] = accounts.position(instrument, id);
+		}
+		return held;
+	}
+	
+	/** Cash plus every position at this state's prices. */
+	public double equity(int id) {
+		double equity = accounts.cash(id);
+		for (int instrument = 0; instrument < accounts.instrumentCount(); instrument++) {
+			equity += accounts.position(instrument, id) * prices[instrument];
+		}
+		return equity;
+	}
+	
+	/** The orders the account submitted in the last tick; empty for accounts opened since. */
+	public List<Order> lastOrders(int id) {
+		return accounts.lastOrders(id);
+	}
+	
+	/**
+	 * OHLCV candles of {@code symbol}, or of the primary instrument when null, as recorded up to this state; see {@link
+	 * PriceHistory#query}. Null when the engine has ticked far enough past this state to reuse the candles it covers;
+	 * a newer state answers then.
+	 */
+	public PriceCandles history(String symbol, int resolution, long fromTick, long toTick, int maxPoints) {
+		int instrument = symbol == null ? 0 : instruments.indexOf(symbol);
+		if (instrument < 0) {
+			throw new IllegalArgumentException("unknown instrument " + symbol);
+		}
+		PriceCandles candles = history.query(instrument, resolution, fromTick, toTick, maxPoints);
+		if (candles != null) {
+			candles.instrument = instruments.get(instrument);
+		}
+		return candles;
+	}
+	
+	/** The state in the shape broadcast to WebSocket subscribers and served by {@code /api/market/snapshot}. */
+	public MarketSnapshot toSnapshot() {
+		List<MarketSnapshot.AgentState> agents = new ArrayList<>(accounts.size());
+		for (int id = 0; id < accounts.size(); id++) {
+			agents.add(agentState(id));
+		}
+		MarketSnapshot snapshot = new MarketSnapshot(prices[0], agents, config());
+		snapshot.instruments = instruments;
+		snapshot.prices = prices.clone();
+		return snapshot;
+	}
+	
+	/**
+	 * The accounts that differ from {@code base}, found by comparing the two states' columns, and the names of those
+	 * gone since. Chunks both states share are skipped whole; only changed accounts are materialized. The sequence
+	 * numbers are left for the caller.
+	 */
+	public MarketDelta toDelta(MarketState base) {
+		List<MarketSnapshot.AgentState> changed = new ArrayList<>();
+		int count = accounts.size();
+		int baseCount = base.accounts.size();
+		boolean[] kept = new boolean[baseCount];
+		Map<String, Integer> baseIds = null;
+		for (int id = 0; id < count; id++) {
+			if ((id & (AccountColumns.CHUNK_SIZE - 1)) == 0 && accounts.sharesChunk(base.accounts, AccountColumns.chunk(id))) {
+				int end = Math.min(count, id + AccountColumns.CHUNK_SIZE);
+				Arrays.fill(kept, id, end, true);
+				id = end - 1;
+				continue;
+			}
+			String name = accounts.name(id);
+			int baseId;
+			if (id < baseCount && name.equals(base.accounts.name(id))) {
+				baseId = id;
+			} else {
+				// accounts moved since base, so match the rest by name
+				if (baseIds == null) {
+					baseIds = new HashMap<>(baseCount * 2);
+					for (int other = 0; other < baseCount; other++) {
+						baseIds.put(base.accounts.name(other), other);
+					}
+				}
+				baseId = baseIds.getOrDefault(name, -1);
+			}
+			if (baseId >= 0) {
+				kept[baseId] = true;
+			}
+			if (baseId < 0 || !accounts.sameAccount(id, base.accounts, baseId)) {
+				changed.add(agentState(id));
+			}
+		}
+		List<String> removed = new ArrayList<>();
+		for (int baseId = 0; baseId < kept.length; baseId++) {
+			if (!kept[baseId]) {
+				removed.add(base.accounts.name(baseId));
+			}
+		}
+		return new MarketDelta(0, 0, prices[0], prices.clone(), changed, removed, config());
+	}
+	
+	private MarketSnapshot.AgentState agentState(int id) {
+		MarketSnapshot.AgentState state = new MarketSnapshot.AgentState(accounts.name(id), lastOrders(id), accounts.position(0, id), accounts.cash(id), accounts.initialCash(id));
+		state.positions = positions(id);
+		return state;
+	}
+	
+	private MarketSnapshot.MarketConfig config() {
+		return new MarketSnapshot.MarketConfig(totalAssetUnits, totalCash, fundingRate, dividendRate, currentTotalAssets, currentTotalCash, new HashMap<>(initialPositions));
+	}
+}
@@ -5,13 +5,25 @@ public class Order {
 		BUY, SELL
 	}
 	
+	public final int agentId;
 	public final String agentName;
+	public final int instrument;
 	public final double price;
 	public final int quantity;
 	public final Type type;
 	
 	public Order(String agentName, double price, int quantity, Type type) {
+		this(-1, agentName, price, quantity, type);
+	}
+	
+	public Order(int agentId, String agentName, double price, int quantity, Type type) {
+		this(agentId, agentName, 0, price, quantity, type);
+	}
+	
+	public Order(int agentId, String agentName, int instrument, double price, int quantity, Type type) {
+		this.agentId = agentId;
 		this.agentName = agentName;
+		this.instrument = instrument;
 		this.price = price;
 		this.quantity = quantity;
 		this.type = type;
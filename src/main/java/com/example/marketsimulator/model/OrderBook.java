@@ -0,0 +1,418 @@
+package com.example.marketsimulator.model;
+
+import java.util.Arrays;
+
+/**
+ * Price-time priority limit order book. Each side keeps its price levels in a sorted primitive array with the best
+ * level at the tail, so the best price is O(1) and levels are located by binary search. Orders at a level are kept in a
+ * FIFO list and unfilled quantity rests across ticks until it is filled, cancelled or expires. Removed entries and
+ * levels go to free lists and are reused, so a book at its working size does not allocate.
+ */
+public class OrderBook {
+	
+	public interface TradeHandler {
+		/**
+		 * Settles up to {@code quantity} units between the two accounts and returns the executed quantity, or zero when
+		 * either counterparty cannot trade.
+		 */
+		double settle(int buyerId, int sellerId, double price, double quantity);
+		
+		boolean hasInventory(int sellerId);
+	}
+	
+	public interface RestingOrderVisitor {
+		void visit(int agentId, double price, boolean isBuy, double remaining, long tick);
+	}
+	
+	private final Side bids = new Side(true);
+	private final Side asks = new Side(false);
+	private Entry oldest;
+	private Entry newest;
+	private Entry freeEntries;
+	private Entry[] byId = new Entry[1024];
+	private Entry[] byAgent = new Entry[64];
+	private long nextId = 1;
+	private int size;
+	
+	/**
+	 * Matches the incoming order against the opposite side and rests whatever remains. A remainder that could still
+	 * cross the book (because the incoming side could not trade) is dropped instead of resting, so the book never
+	 * crosses. Returns the price of the last trade, or NaN when nothing traded.
+	 */
+	public double submit(Order order, long tick, TradeHandler handler) {
+		return submit(order.agentId, order.price, order.quantity, order.type == Order.Type.BUY, tick, handler);
+	}
+	
+	public double submit(int agentId, double price, double quantity, boolean isBuy, long tick, TradeHandler handler) {
+		Side opposite = isBuy ? asks : bids;
+		double remaining = quantity;
+		double lastTradePrice = Double.NaN;
+		while (remaining > 0.0 && opposite.levelCount > 0) {
+			Level level = opposite.levels[opposite.levelCount - 1];
+			if (isBuy ? price < level.price : price > level.price) {
+				break;
+			}
+			Entry resting = level.head;
+			int buyerId = isBuy ? agentId : resting.agentId;
+			int sellerId = isBuy ? resting.agentId : agentId;
+			double tradePrice = (price + resting.price) / 2.0;
+			double executed = handler.settle(buyerId, sellerId, tradePrice, Math.min(remaining, resting.remaining));
+			if (executed <= 0.0) {
+				boolean restingBlocked = isBuy ? !handler.hasInventory(sellerId) : handler.hasInventory(sellerId);
+				if (restingBlocked) {
+					remove(resting);
+					continue;
+				}
+				return lastTradePrice;
+			}
+			remaining -= executed;
+			resting.remaining -= executed;
+			level.quantity -= executed;
+			lastTradePrice = tradePrice;
+			if (resting.remaining <= 0.0) {
+				remove(resting);
+			}
+		}
+		if (remaining > 0.0) {
+			rest(agentId, price, isBuy, remaining, tick);
+		}
+		return lastTradePrice;
+	}
+	
+	public boolean cancel(long orderId) {
+		Entry entry = lookup(orderId);
+		if (entry == null) {
+			return false;
+		}
+		remove(entry);
+		return true;
+	}
+	
+	public int cancelAll(int agentId) {
+		int cancelled = 0;
+		while (agentId < byAgent.length && byAgent[agentId] != null) {
+			remove(byAgent[agentId]);
+			cancelled++;
+		}
+		return cancelled;
+	}
+	
+	/** Moves every resting order of {@code fromId} to {@code toId}, which must have no resting orders. */
+	public void reassign(int fromId, int toId) {
+		if (fromId >= byAgent.length || byAgent[fromId] == null) {
+			return;
+		}
+		ensureAgentCapacity(toId);
+		for (Entry entry = byAgent[fromId]; entry != null; entry = entry.agentNext) {
+			entry.agentId = toId;
+		}
+		byAgent[toId] = byAgent[fromId];
+		byAgent[fromId] = null;
+	}
+	
+	/** Cancels every resting order submitted before {@code tick}. */
+	public int expireBefore(long tick) {
+		int expired = 0;
+		while (oldest != null && oldest.tick < tick) {
+			remove(oldest);
+			expired++;
+		}
+		return expired;
+	}
+	
+	public double bestBid() {
+		return bids.levelCount == 0 ? Double.NaN : bids.levels[bids.levelCount - 1].price;
+	}
+	
+	public double bestAsk() {
+		return asks.levelCount == 0 ? Double.NaN : asks.levels[asks.levelCount - 1].price;
+	}
+	
+	public double bidQuantityAt(double price) {
+		return bids.quantityAt(price);
+	}
+	
+	public double askQuantityAt(double price) {
+		return asks.quantityAt(price);
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	/** Visits every resting order, oldest first. */
+	public void forEachResting(RestingOrderVisitor visitor) {
+		for (Entry entry = oldest; entry != null; entry = entry.newer) {
+			visitor.visit(entry.agentId, entry.price, entry.isBuy, entry.remaining, entry.tick);
+		}
+	}
+	
+	/**
+	 * Rests an order without matching it, for rebuilding a book from {@link #forEachResting}. Restoring in that order
+	 * reproduces time priority.
+	 */
+	public void restore(int agentId, double price, boolean isBuy, double remaining, long tick) {
+		rest(agentId, price, isBuy, remaining, tick);
+	}
+	
+	/** Empties the book in one pass, without the per-order level and index bookkeeping of {@link #remove}. */
+	public void clear() {
+		for (Entry entry = oldest; entry != null;) {
+			Entry newer = entry.newer;
+			entry.level = null;
+			entry.prev = null;
+			entry.older = null;
+			entry.newer = null;
+			entry.agentPrev = null;
+			entry.agentNext = null;
+			entry.next = freeEntries;
+			freeEntries = entry;
+			entry = newer;
+		}
+		oldest = null;
+		newest = null;
+		Arrays.fill(byId, null);
+		Arrays.fill(byAgent, null);
+		bids.clear();
+		asks.clear();
+		size = 0;
+	}
+	
+	private void rest(int agentId, double price, boolean isBuy, double remaining, long tick) {
+		Entry entry = freeEntries;
+		if (entry == null) {
+			entry = new Entry();
+		} else {
+			freeEntries = entry.next;
+			entry.next = null;
+		}
+		entry.id = nextId++;
+		entry.agentId = agentId;
+		entry.price = price;
+		entry.isBuy = isBuy;
+		entry.remaining = remaining;
+		entry.tick = tick;
+		if (entry.id - (oldest == null ? entry.id : oldest.id) >= byId.length) {
+			growIndex(entry.id);
+		}
+		byId[(int) (entry.id & (byId.length - 1))] = entry;
+		if (newest == null) {
+			oldest = entry;
+		} else {
+			newest.newer = entry;
+			entry.older = newest;
+		}
+		newest = entry;
+		ensureAgentCapacity(entry.agentId);
+		Entry head = byAgent[entry.agentId];
+		if (head != null) {
+			head.agentPrev = entry;
+			entry.agentNext = head;
+		}
+		byAgent[entry.agentId] = entry;
+		(isBuy ? bids : asks).level(price).append(entry);
+		size++;
+	}
+	
+	private void remove(Entry entry) {
+		Level level = entry.level;
+		level.unlink(entry);
+		if (level.head == null) {
+			(entry.isBuy ? bids : asks).removeLevel(level);
+		}
+		if (entry.older == null) {
+			oldest = entry.newer;
+		} else {
+			entry.older.newer = entry.newer;
+		}
+		if (entry.newer == null) {
+			newest = entry.older;
+		} else {
+			entry.newer.older = entry.older;
+		}
+		if (entry.agentPrev == null) {
+			byAgent[entry.agentId] = entry.agentNext;
+		} else {
+			entry.agentPrev.agentNext = entry.agentNext;
+		}
+		if (entry.agentNext != null) {
+			entry.agentNext.agentPrev = entry.agentPrev;
+		}
+		int slot = (int) (entry.id & (byId.length - 1));
+		if (byId[slot] == entry) {
+			byId[slot] = null;
+		}
+		size--;
+		entry.level = null;
+		entry.prev = null;
+		entry.older = null;
+		entry.newer = null;
+		entry.agentPrev = null;
+		entry.agentNext = null;
+		entry.next = freeEntries;
+		freeEntries = entry;
+	}
+	
+	private Entry lookup(long orderId) {
+		Entry entry = byId[(int) (orderId & (byId.length - 1))];
+		return entry != null && entry.id == orderId ? entry : null;
+	}
+	
+	private void ensureAgentCapacity(int agentId) {
+		if (agentId >= byAgent.length) {
+			byAgent = Arrays.copyOf(byAgent, Math.max(agentId + 1, byAgent.length * 2));
+		}
+	}
+	
+	private void growIndex(long newestId) {
+		int capacity = byId.length;
+		while (newestId - oldest.id >= capacity) {
+			capacity <<= 1;
+		}
+		Entry[] grown = new Entry[capacity];
+		for (Entry entry = oldest; entry != null; entry = entry.newer) {
+			grown[(int) (entry.id & (capacity - 1))] = entry;
+		}
+		byId = grown;
+	}
+	
+	private static final class Entry {
+		long id;
+		long tick;
+		int agentId;
+		double price;
+		boolean isBuy;
+		double remaining;
+		Level level;
+		Entry agentPrev;
+		Entry agentNext;
+		Entry prev;
+		Entry next;
+		Entry older;
+		Entry newer;
+	}
+	
+	private static final class Level {
+		double price;
+		double quantity;
+		Entry head;
+		Entry tail;
+		Level freeNext;
+		
+		void append(Entry entry) {
+			entry.level = this;
+			if (tail == null) {
+				head = entry;
+			} else {
+				tail.next = entry;
+				entry.prev = tail;
+			}
+			tail = entry;
+			quantity += entry.remaining;
+		}
+		
+		void unlink(Entry entry) {
+			if (entry.prev == null) {
+				head = entry.next;
+			} else {
+				entry.prev.next = entry.next;
+			}
+			if (entry.next == null) {
+				tail = entry.prev;
+			} else {
+				entry.next.prev = entry.prev;
+			}
+			quantity -= entry.remaining;
+		}
+	}
+	
+	/**
+	 * Levels sorted so that the best price sits at index {@code levelCount - 1}: ascending for bids, descending for
+	 * asks. Activity concentrates near the touch, so inserts and removals shift only a few tail elements.
+	 */
+	private static final class Side {
+		final boolean isBid;
+		double[] prices = new double[64];
+		Level[] levels = new Level[64];
+		int levelCount;
+		Level freeLevels;
+		
+		Side(boolean isBid) {
+			this.isBid = isBid;
+		}
+		
+		Level level(double price) {
+			int index = search(price);
+			if (index >= 0) {
+				return levels[index];
+			}
+			int insertAt = -index - 1;
+			if (levelCount == prices.length) {
+				prices = Arrays.copyOf(prices, levelCount * 2);
+				levels = Arrays.copyOf(levels, levelCount * 2);
+			}
+			System.arraycopy(prices, insertAt, prices, insertAt + 1, levelCount - insertAt);
+			System.arraycopy(levels, insertAt, levels, insertAt + 1, levelCount - insertAt);
+			Level level = freeLevels;
+			if (level == null) {
+				level = new Level();
+			} else {
+				freeLevels = level.freeNext;
+				level.freeNext = null;
+			}
+			level.price = price;
+			level.quantity = 0.0;
+			prices[insertAt] = price;
+			levels[insertAt] = level;
+			levelCount++;
+			return level;
+		}
+		
+		void removeLevel(Level level) {
+			int index = levelCount - 1;
+			if (levels[index] != level) {
+				index = search(level.price);
+				System.arraycopy(prices, index + 1, prices, index, levelCount - index - 1);
+				System.arraycopy(levels, index + 1, levels, index, levelCount - index - 1);
+			}
+			levelCount--;
+			levels[levelCount] = null;
+			level.freeNext = freeLevels;
+			freeLevels = level;
+		}
+		
+		void clear() {
+			for (int index = 0; index < levelCount; index++) {
+				Level level = levels[index];
+				level.head = null;
+				level.tail = null;
+				level.freeNext = freeLevels;
+				freeLevels = level;
+				levels[index] = null;
+			}
+			levelCount = 0;
+		}
+		
+		double quantityAt(double price) {
+			int index = search(price);
+			return index >= 0 ? levels[index].quantity : 0.0;
+		}
+		
+		private int search(double price) {
+			int low = 0;
+			int high = levelCount - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int cmp = isBid ? Double.compare(prices[mid], price) : Double.compare(price, prices[mid]);
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+	}
+}
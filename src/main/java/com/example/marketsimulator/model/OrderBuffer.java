@@ -0,0 +1,237 @@
+package com.example.marketsimulator.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Reusable struct-of-arrays order list. Orders are appended agent by agent between {@link #beginAgent()} and
+ * {@link #endAgent()}, so each agent's orders occupy a contiguous index range that can be looked up by the agent's
+ * position in the decision order. {@link #clear()} keeps the arrays, so a buffer that has reached its working size
+ * never allocates again.
+ */
+public class OrderBuffer {
+	private int[] agentIds;
+	private int[] instruments;
+	private double[] prices;
+	private int[] quantities;
+	private Order.Type[] types;
+	private int size;
+	private int[] rangeStarts = new int[16];
+	private int[] rangeEnds = new int[16];
+	private int agentCount;
+	
+	public OrderBuffer() {
+		this(16);
+	}
+	
+	public OrderBuffer(int capacity) {
+		int initial = Math.max(1, capacity);
+		agentIds = new int[initial];
+		instruments = new int[initial];
+		prices = new double[initial];
+		quantities = new int[initial];
+		types = new Order.Type[initial];
+	}
+	
+	public void add(int agentId, double price, int quantity, Order.Type type) {
+		add(agentId, 0, price, quantity, type);
+	}
+	
+	public void add(int agentId, int instrument, double price, int quantity, Order.Type type) {
+		if (size == prices.length) {
+			grow(size + 1);
+		}
+		agentIds[size] = agentId;
+		instruments[size] = instrument;
+		prices[size] = price;
+		quantities[size] = quantity;
+		types[size] = type;
+		size++;
+	}
+	
+	public void add(Order order) {
+		add(order.agentId, order.instrument, order.price, order.quantity, order.type);
+	}
+	
+	/** Opens the range of the next agent; its orders are those added until {@link #endAgent()}. */
+	public void beginAgent() {
+		if (agentCount == rangeStarts.length) {
+			rangeStarts = Arrays.copyOf(rangeStarts, agentCount * 2);
+			rangeEnds = Arrays.copyOf(rangeEnds, agentCount * 2);
+		}
+		rangeStarts[agentCount] = size;
+		rangeEnds[agentCount] = size;
+		agentCount++;
+	}
+	
+	public void endAgent() {
+		rangeEnds[agentCount - 1] = size;
+	}
+	
+	/**
+	 * Appends the range of an agent with exactly one order, like {@link #beginAgent()}, {@link #add(int, int, double,
+	 * int, Order.Type)} and {@link #endAgent()} in a row.
+	 */
+	public void addAgentOrder(int agentId, int instrument, double price, int quantity, Order.Type type) {
+		if (agentCount == rangeStarts.length) {
+			rangeStarts = Arrays.copyOf(rangeStarts, agentCount * 2);
+			rangeEnds = Arrays.copyOf(rangeEnds, agentCount * 2);
+		}
+		rangeStarts[agentCount] = size;
+		rangeEnds[agentCount] = size + 1;
+		agentCount++;
+		add(agentId, instrument, price, quantity, type);
+	}
+	
+	/** Grows the arrays to hold {@code orders} more orders in {@code agents} more agent ranges without reallocating. */
+	public void ensureCapacity(int orders, int agents) {
+		if (size + orders > prices.length) {
+			grow(size + orders);
+		}
+		if (agentCount + agents > rangeStarts.length) {
+			int capacity = Math.max(agentCount + agents, rangeStarts.length * 2);
+			rangeStarts = Arrays.copyOf(rangeStarts, capacity);
+			rangeEnds = Arrays.copyOf(rangeEnds, capacity);
+		}
+	}
+	
+	/** Appends every order and agent range of {@code other}, keeping their order. */
+	public void appendAll(OrderBuffer other) {
+		if (size + other.size > prices.length) {
+			grow(size + other.size);
+		}
+		System.arraycopy(other.agentIds, 0, agentIds, size, other.size);
+		System.arraycopy(other.instruments, 0, instruments, size, other.size);
+		System.arraycopy(other.prices, 0, prices, size, other.size);
+		System.arraycopy(other.quantities, 0, quantities, size, other.size);
+		System.arraycopy(other.types, 0, types, size, other.size);
+		for (int agent = 0; agent < other.agentCount; agent++) {
+			beginAgent();
+			rangeStarts[agentCount - 1] = size + other.rangeStarts[agent];
+			rangeEnds[agentCount - 1] = size + other.rangeEnds[agent];
+		}
+		size += other.size;
+	}
+	
+	/**
+	 * Mirrors a swap-remove of the agent at {@code agent} in the decision order: the last agent's range takes its place.
+	 * The orders themselves stay where they are.
+	 */
+	public void removeAgent(int agent) {
+		int last = --agentCount;
+		rangeStarts[agent] = rangeStarts[last];
+		rangeEnds[agent] = rangeEnds[last];
+	}
+	
+	public void clear() {
+		size = 0;
+		agentCount = 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int agentCount() {
+		return agentCount;
+	}
+	
+	public int agentStart(int agent) {
+		return agent < agentCount ? rangeStarts[agent] : 0;
+	}
+	
+	public int agentEnd(int agent) {
+		return agent < agentCount ? rangeEnds[agent] : 0;
+	}
+	
+	public int agentId(int index) {
+		return agentIds[index];
+	}
+	
+	public int instrument(int index) {
+		return instruments[index];
+	}
+	
+	public double price(int index) {
+		return prices[index];
+	}
+	
+	public int quantity(int index) {
+		return quantities[index];
+	}
+	
+	public Order.Type type(int index) {
+		return types[index];
+	}
+	
+	public boolean isBuy(int index) {
+		return types[index] == Order.Type.BUY;
+	}
+	
+	/** Materializes orders {@code [from, to)} as {@link Order} objects owned by the given account. */
+	public List<Order> toOrders(int from, int to, int agentId, String agentName) {
+		List<Order> orders = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			orders.add(new Order(agentId, agentName, instruments[i], prices[i], quantities[i], types[i]));
+		}
+		return orders;
+	}
+	
+	/** Exact-size copy of the orders and agent ranges, for handing out views that outlive the next {@link #clear()}. */
+	public OrderBuffer copy() {
+		OrderBuffer copy = new OrderBuffer(size);
+		copy.appendAll(this);
+		return copy;
+	}
+	
+	/**
+	 * Read-only view of the orders of the agent at {@code agent} in the decision order, reported as owned by the given
+	 * account. {@link Order} objects are created on access, so building views is O(1) per agent. The view reads this
+	 * buffer, so it must not be cleared while the view is in use; see {@link #copy()}.
+	 */
+	public List<Order> agentOrders(int agent, int agentId, String agentName) {
+		return new AgentOrders(this, agentStart(agent), agentEnd(agent), agentId, agentName);
+	}
+	
+	private void grow(int minCapacity) {
+		int capacity = Math.max(minCapacity, prices.length * 2);
+		agentIds = Arrays.copyOf(agentIds, capacity);
+		instruments = Arrays.copyOf(instruments, capacity);
+		prices = Arrays.copyOf(prices, capacity);
+		quantities = Arrays.copyOf(quantities, capacity);
+		types = Arrays.copyOf(types, capacity);
+	}
+	
+	private static final class AgentOrders extends AbstractList<Order> implements RandomAccess {
+		private final OrderBuffer buffer;
+		private final int from;
+		private final int to;
+		private final int agentId;
+		private final String agentName;
+		
+		AgentOrders(OrderBuffer buffer, int from, int to, int agentId, String agentName) {
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.agentId = agentId;
+			this.agentName = agentName;
+		}
+		
+		@Override
+		public Order get(int index) {
+			if (index < 0 || index >= to - from) {
+				throw new IndexOutOfBoundsException(index);
+			}
+			int i = from + index;
+			return new Order(agentId, agentName, buffer.instruments[i], buffer.prices[i], buffer.quantities[i], buffer.types[i]);
+		}
+		
+		@Override
+		public int size() {
+			return to - from;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.example.marketsimulator.model;
+
+/** Columnar OHLCV candles; {@code tick[i]} is the first tick candle {@code i} covers. */
+public class PriceCandles {
+	public String instrument;
+	public int resolution;
+	public long[] tick;
+	public double[] open;
+	public double[] high;
+	public double[] low;
+	public double[] close;
+	public double[] volume;
+	
+	public PriceCandles(int resolution, int count) {
+		this.resolution = resolution;
+		this.tick = new long[count];
+		this.open = new double[count];
+		this.high = new double[count];
+		this.low = new double[count];
+		this.close = new double[count];
+		this.volume = new double[count];
+	}
+}
@@ -0,0 +1,305 @@
+package com.example.marketsimulator.model;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bounded OHLCV history per instrument. Each tick is recorded once as a one-tick candle and folded into the open
+ * candle of every coarser resolution in {@link #RESOLUTIONS}. Every resolution keeps its latest {@code capacity}
+ * candles in a ring of primitive arrays, so recording never allocates and coarser resolutions reach further back. A
+ * candle at resolution {@code r} covers ticks {@code [start, start + r)} with {@code start} a multiple of {@code r}.
+ *
+ * <p>Recording and {@link #query} belong to one thread. Other threads query a {@link View}, which the rings carry
+ * spare slots for so that the recording thread can move on without invalidating it at once.
+ */
+public class PriceHistory {
+	public static final int[] RESOLUTIONS = { 1, 10, 100, 1000 };
+	public static final int DEFAULT_CAPACITY = 10_000;
+	
+	private final int capacity;
+	private final Series[][] series;
+	
+	public PriceHistory(int instruments, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("history capacity must be >= 1");
+		}
+		this.capacity = capacity;
+		// a view stays readable for this many new candles per resolution
+		int spare = Math.max(64, capacity / 4);
+		series = new Series[instruments][RESOLUTIONS.length];
+		for (int instrument = 0; instrument < instruments; instrument++) {
+			for (int r = 0; r < RESOLUTIONS.length; r++) {
+				series[instrument][r] = new Series(RESOLUTIONS[r], capacity + spare);
+			}
+		}
+	}
+	
+	public void record(int instrument, long tick, double open, double high, double low, double close, double volume) {
+		for (Series resolution : series[instrument]) {
+			resolution.record(tick, open, high, low, close, volume);
+		}
+	}
+	
+	public void clear() {
+		for (Series[] instrument : series) {
+			for (Series resolution : instrument) {
+				resolution.size = 0;
+			}
+		}
+	}
+	
+	/**
+	 * Candles of {@code instrument} overlapping ticks {@code [from, to]}, at most {@code maxPoints} of them. A positive
+	 * {@code resolution} must be one of {@link #RESOLUTIONS}; otherwise the finest resolution that still holds
+	 * {@code from} and fits {@code maxPoints} is used. When the range holds more candles than {@code maxPoints},
+	 * consecutive candles are merged into groups and the reported resolution grows accordingly.
+	 */
+	public PriceCandles query(int instrument, int resolution, long from, long to, int maxPoints) {
+		return query(frames(instrument), resolution, from, to, maxPoints);
+	}
+	
+	/** The history as recorded so far, for queries from other threads. */
+	public View view() {
+		Frame[][] frames = new Frame[series.length][];
+		for (int instrument = 0; instrument < series.length; instrument++) {
+			frames[instrument] = frames(instrument);
+		}
+		return new View(frames);
+	}
+	
+	private Frame[] frames(int instrument) {
+		Frame[] frames = new Frame[RESOLUTIONS.length];
+		for (int r = 0; r < frames.length; r++) {
+			frames[r] = new Frame(series[instrument][r], capacity);
+		}
+		return frames;
+	}
+	
+	private static PriceCandles query(Frame[] resolutions, int resolution, long from, long to, int maxPoints) {
+		if (maxPoints < 1) {
+			throw new IllegalArgumentException("maxPoints must be >= 1");
+		}
+		Frame source = resolution > 0 ? resolutions[resolutionIndex(resolution)] : autoResolution(resolutions, from, to, maxPoints);
+		int first = source.firstEndingAfter(from);
+		int last = source.firstStartingAfter(to);
+		int count = Math.max(0, last - first);
+		int group = Math.max(1, (count + maxPoints - 1) / maxPoints);
+		PriceCandles candles = new PriceCandles(source.resolution * group, (count + group - 1) / group);
+		for (int start = first, n = 0; start < last; start += group, n++) {
+			int end = Math.min(start + group, last);
+			double high = source.high(start);
+			double low = source.low(start);
+			double volume = 0.0;
+			for (int i = start; i < end; i++) {
+				high = Math.max(high, source.high(i));
+				low = Math.min(low, source.low(i));
+				volume += source.volume(i);
+			}
+			candles.tick[n] = source.start(start);
+			candles.open[n] = source.open(start);
+			candles.high[n] = high;
+			candles.low[n] = low;
+			candles.close[n] = source.close(end - 1);
+			candles.volume[n] = volume;
+		}
+		return candles;
+	}
+	
+	private static Frame autoResolution(Frame[] resolutions, long from, long to, int maxPoints) {
+		Frame coarsest = resolutions[resolutions.length - 1];
+		if (coarsest.size == 0) {
+			return resolutions[0];
+		}
+		// Nothing retains ticks before the coarsest ring's oldest candle, so no resolution is expected to.
+		long earliest = Math.max(from, coarsest.start(0));
+		for (Frame candidate : resolutions) {
+			boolean holdsFrom = candidate.size > 0 && candidate.start(0) <= earliest;
+			if (holdsFrom && candidate.firstStartingAfter(to) - candidate.firstEndingAfter(from) <= maxPoints) {
+				return candidate;
+			}
+		}
+		return coarsest;
+	}
+	
+	private static int resolutionIndex(int resolution) {
+		for (int r = 0; r < RESOLUTIONS.length; r++) {
+			if (RESOLUTIONS[r] == resolution) {
+				return r;
+			}
+		}
+		throw new IllegalArgumentException("resolution must be one of 1, 10, 100, 1000");
+	}
+	
+	/**
+	 * The history as of one moment, safe to query from any thread once published to it. It shares the rings with the
+	 * recording thread and copies only each resolution's open candle, so taking one is cheap. Candles recorded later
+	 * are not visible through it.
+	 */
+	public static final class View {
+		private final Frame[][] frames;
+		
+		private View(Frame[][] frames) {
+			this.frames = frames;
+		}
+		
+		/**
+		 * Same as {@link PriceHistory#query} at the moment the view was taken, or null when the recording thread has since
+		 * overwritten candles the view covers; a newer view answers then.
+		 */
+		public PriceCandles query(int instrument, int resolution, long from, long to, int maxPoints) {
+			PriceCandles candles = PriceHistory.query(frames[instrument], resolution, from, to, maxPoints);
+			// the slot reads above must not move past the checks of how far the recording thread has got
+			VarHandle.acquireFence();
+			for (Frame frame : frames[instrument]) {
+				if (!frame.intact()) {
+					return null;
+				}
+			}
+			return candles;
+		}
+	}
+	
+	/**
+	 * One resolution's latest {@code size} candles as of one moment; logical index 0 is the oldest. The newest candle
+	 * is still open in the ring, so it is read from a copy.
+	 */
+	private static final class Frame {
+		final Series series;
+		final int resolution;
+		final int next;
+		final int size;
+		final long appended;
+		final long lastStart;
+		final double lastOpen;
+		final double lastHigh;
+		final double lastLow;
+		final double lastClose;
+		final double lastVolume;
+		
+		Frame(Series series, int capacity) {
+			this.series = series;
+			this.resolution = series.resolution;
+			this.next = series.next;
+			this.size = Math.min(series.size, capacity);
+			this.appended = series.appended;
+			int last = series.slot(series.size - 1);
+			boolean any = series.size > 0;
+			this.lastStart = any ? series.start[last] : 0L;
+			this.lastOpen = any ? series.open[last] : 0.0;
+			this.lastHigh = any ? series.high[last] : 0.0;
+			this.lastLow = any ? series.low[last] : 0.0;
+			this.lastClose = any ? series.close[last] : 0.0;
+			this.lastVolume = any ? series.volume[last] : 0.0;
+		}
+		
+		int slot(int index) {
+			int slot = next - size + index;
+			return slot < 0 ? slot + series.start.length : slot;
+		}
+		
+		long start(int index) {
+			return index == size - 1 ? lastStart : series.start[slot(index)];
+		}
+		
+		double open(int index) {
+			return index == size - 1 ? lastOpen : series.open[slot(index)];
+		}
+		
+		double high(int index) {
+			return index == size - 1 ? lastHigh : series.high[slot(index)];
+		}
+		
+		double low(int index) {
+			return index == size - 1 ? lastLow : series.low[slot(index)];
+		}
+		
+		double close(int index) {
+			return index == size - 1 ? lastClose : series.close[slot(index)];
+		}
+		
+		double volume(int index) {
+			return index == size - 1 ? lastVolume : series.volume[slot(index)];
+		}
+		
+		/** Whether none of this frame's slots has been reused for a newer candle yet. */
+		boolean intact() {
+			return series.appended - appended <= series.start.length - size;
+		}
+		
+		/** Logical index of the first candle covering {@code tick} or later, or {@code size} when there is none. */
+		int firstEndingAfter(long tick) {
+			return firstStartingAfter(tick - resolution);
+		}
+		
+		/** Logical index of the first candle starting after {@code tick}, or {@code size} when there is none. */
+		int firstStartingAfter(long tick) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (start(mid) <= tick) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+	
+	/** One resolution's ring, written only by the recording thread. */
+	private static final class Series {
+		final int resolution;
+		final long[] start;
+		final double[] open;
+		final double[] high;
+		final double[] low;
+		final double[] close;
+		final double[] volume;
+		int next;
+		int size;
+		// candles ever started; raised before a slot is reused so views can tell that theirs changed
+		volatile long appended;
+		
+		Series(int resolution, int capacity) {
+			this.resolution = resolution;
+			start = new long[capacity];
+			open = new double[capacity];
+			high = new double[capacity];
+			low = new double[capacity];
+			close = new double[capacity];
+			volume = new double[capacity];
+		}
+		
+		void record(long tick, double o, double h, double l, double c, double v) {
+			long bucket = tick - Math.floorMod(tick, resolution);
+			if (size > 0) {
+				int current = slot(size - 1);
+				if (start[current] == bucket) {
+					high[current] = Math.max(high[current], h);
+					low[current] = Math.min(low[current], l);
+					close[current] = c;
+					volume[current] += v;
+					return;
+				}
+			}
+			appended = appended + 1;
+			VarHandle.storeStoreFence();
+			int slot = next;
+			next = next + 1 == start.length ? 0 : next + 1;
+			if (size < start.length) {
+				size++;
+			}
+			start[slot] = bucket;
+			open[slot] = o;
+			high[slot] = h;
+			low[slot] = l;
+			close[slot] = c;
+			volume[slot] = v;
+		}
+		
+		int slot(int index) {
+			int slot = next - size + index;
+			return slot < 0 ? slot + start.length : slot;
+		}
+	}
+}
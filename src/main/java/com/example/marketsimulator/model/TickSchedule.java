@@ -0,0 +1,19 @@
+package com.example.marketsimulator.model;
+
+public class TickSchedule {
+	public double ticksPerSecond;
+	public String overrunPolicy;
+	public boolean paused;
+	public double lastLagMillis;
+	public long overruns;
+	public long skippedTicks;
+	
+	public TickSchedule(double ticksPerSecond, String overrunPolicy, boolean paused, double lastLagMillis, long overruns, long skippedTicks) {
+		this.ticksPerSecond = ticksPerSecond;
+		this.overrunPolicy = overrunPolicy;
+		this.paused = paused;
+		this.lastLagMillis = lastLagMillis;
+		this.overruns = overruns;
+		this.skippedTicks = skippedTicks;
+	}
+}
@@ -0,0 +1,405 @@
+package com.example.marketsimulator.persistence;
+
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.engine.TickStats;
+import com.example.marketsimulator.model.MarketState;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind persistence of the live simulation: every fill, one row per instrument per tick, and every {@code
+ * pnlIntervalTicks} ticks each agent's cash, equity and PnL. Like {@link
+ * com.example.marketsimulator.journal.EventJournal}, the tick thread only copies values into a single-producer ring and a
+ * background thread does the I/O, here as JDBC batch inserts of up to {@code batchSize} rows per transaction, at least
+ * every {@code flushIntervalMillis}. Unlike the journal a full ring drops rows instead of waiting, and a failed batch is
+ * logged and dropped, so the database can never stall a tick.
+ *
+ * <p>Agent rows are read from the engine's immutable {@link MarketState} on the writer thread. Only the latest due state
+ * is kept: one that is replaced before the writer gets to it is counted as skipped.
+ *
+ * <p>Every row carries the run id, the wall-clock milliseconds the store was opened at, so several runs can share a
+ * database.
+ */
+public class WriteBehindStore implements SimulationEngine.TradeListener, AutoCloseable {
+	public enum Table {
+		TRADES, TICKS, PNL
+	}
+	
+	private static final Logger log = LoggerFactory.getLogger(WriteBehindStore.class);
+	private static final long IDLE_PARK_NANOS = 1_000_000;
+	private static final byte TRADE = 1;
+	private static final byte TICK = 2;
+	private static final String[] SCHEMA = {
+	        "CREATE TABLE IF NOT EXISTS market_trade (run_id BIGINT NOT NULL, tick BIGINT NOT NULL, instrument VARCHAR(64) NOT NULL, buyer VARCHAR(255) NOT NULL, seller VARCHAR(255) NOT NULL, price DOUBLE PRECISION NOT NULL, quantity DOUBLE PRECISION NOT NULL)",
+	        "CREATE INDEX IF NOT EXISTS market_trade_tick ON market_trade (run_id, tick)",
+	        "CREATE TABLE IF NOT EXISTS market_tick (run_id BIGINT NOT NULL, tick BIGINT NOT NULL, instrument VARCHAR(64) NOT NULL, price DOUBLE PRECISION NOT NULL, orders INT NOT NULL, trades INT NOT NULL, recorded_at TIMESTAMP NOT NULL)",
+	        "CREATE INDEX IF NOT EXISTS market_tick_tick ON market_tick (run_id, tick)",
+	        "CREATE TABLE IF NOT EXISTS agent_pnl (run_id BIGINT NOT NULL, tick BIGINT NOT NULL, agent VARCHAR(255) NOT NULL, cash DOUBLE PRECISION NOT NULL, equity DOUBLE PRECISION NOT NULL, pnl DOUBLE PRECISION NOT NULL)",
+	        "CREATE INDEX IF NOT EXISTS agent_pnl_tick ON agent_pnl (run_id, tick)"
+	};
+	private static final String INSERT_TRADE = "INSERT INTO market_trade (run_id, tick, instrument, buyer, seller, price, quantity) VALUES (?, ?, ?, ?, ?, ?, ?)";
+	private static final String INSERT_TICK = "INSERT INTO market_tick (run_id, tick, instrument, price, orders, trades, recorded_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+	private static final String INSERT_PNL = "INSERT INTO agent_pnl (run_id, tick, agent, cash, equity, pnl) VALUES (?, ?, ?, ?, ?, ?)";
+	
+	private final JdbcTemplate jdbc;
+	private final TransactionTemplate transactions;
+	private final int batchSize;
+	private final long flushIntervalNanos;
+	private final long pnlIntervalTicks;
+	private final long runId;
+	private final long openedNanos;
+	
+	private final int mask;
+	private final byte[] kinds;
+	private final long[] ticks;
+	private final long[] offeredAt;
+	private final String[] instruments;
+	private final String[] buyers;
+	private final String[] sellers;
+	private final double[] prices;
+	private final double[] quantities;
+	private final int[] orderCounts;
+	private final int[] tradeCounts;
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong consumed = new AtomicLong();
+	private long nextSequence;
+	private long cachedConsumed;
+	private long tradeTick = -1;
+	private long tradeOfferedAt;
+	private final AtomicReference<MarketState> duePnl = new AtomicReference<>();
+	
+	private final AtomicLong droppedRows = new AtomicLong();
+	private final AtomicLong skippedPnl = new AtomicLong();
+	private final AtomicLong[] rows = { new AtomicLong(), new AtomicLong(), new AtomicLong() };
+	private final AtomicLong failedBatches = new AtomicLong();
+	private volatile long offeredTick = -1;
+	private volatile long writtenTick = -1;
+	private volatile long lagNanos;
+	
+	private final Thread writer;
+	private volatile boolean closed;
+	// writer thread only
+	private final int[] tradeSlots;
+	private final int[] tickSlots;
+	private MarketState pnlState;
+	private int pnlNext;
+	
+	/**
+	 * Creates the tables if they do not exist yet and starts the writer. A {@code pnlIntervalTicks} of zero or less never
+	 * writes agent rows.
+	 */
+	public WriteBehindStore(JdbcTemplate jdbc, PlatformTransactionManager transactionManager, int queueCapacity, int batchSize, long flushIntervalMillis, long pnlIntervalTicks) {
+		if (queueCapacity < 2 || queueCapacity > 1 << 30) {
+			throw new IllegalArgumentException("queueCapacity must be between 2 and 2^30");
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		if (flushIntervalMillis < 1) {
+			throw new IllegalArgumentException("flushIntervalMillis must be positive");
+		}
+		for (String statement : SCHEMA) {
+			jdbc.execute(statement);
+		}
+		this.jdbc = jdbc;
+		this.transactions = new TransactionTemplate(transactionManager);
+		int capacity = Integer.highestOneBit(queueCapacity - 1) << 1;
+		this.batchSize = Math.min(batchSize, capacity);
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+		this.pnlIntervalTicks = pnlIntervalTicks;
+		this.runId = System.currentTimeMillis();
+		this.openedNanos = System.nanoTime();
+		this.mask = capacity - 1;
+		this.kinds = new byte[capacity];
+		this.ticks = new long[capacity];
+		this.offeredAt = new long[capacity];
+		this.instruments = new String[capacity];
+		this.buyers = new String[capacity];
+		this.sellers = new String[capacity];
+		this.prices = new double[capacity];
+		this.quantities = new double[capacity];
+		this.orderCounts = new int[capacity];
+		this.tradeCounts = new int[capacity];
+		this.tradeSlots = new int[this.batchSize];
+		this.tickSlots = new int[this.batchSize];
+		this.writer = new Thread(this::drain, "persistence-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+	
+	public long runId() {
+		return runId;
+	}
+	
+	/** Queues one fill; called by the engine on the tick thread. */
+	@Override
+	public void trade(long tick, String instrument, String buyer, String seller, double price, double quantity) {
+		int slot = claim();
+		if (slot < 0) {
+			return;
+		}
+		if (tick != tradeTick) {
+			// one clock read per tick's fills; they are all reported together
+			tradeTick = tick;
+			tradeOfferedAt = System.nanoTime();
+		}
+		kinds[slot] = TRADE;
+		ticks[slot] = tick;
+		offeredAt[slot] = tradeOfferedAt;
+		instruments[slot] = instrument;
+		buyers[slot] = buyer;
+		sellers[slot] = seller;
+		prices[slot] = price;
+		quantities[slot] = quantity;
+		publish();
+	}
+	
+	/**
+	 * Queues the tick rows of {@code state}, the state published by the tick that {@code stats} describes, and hands it to
+	 * the writer for agent rows when they are due. Calls must not run concurrently with each other or with {@link #trade}.
+	 */
+	public void tickCompleted(MarketState state, TickStats stats) {
+		long tick = state.tick();
+		long now = System.nanoTime();
+		for (int instrument = 0; instrument < state.instruments().size(); instrument++) {
+			int slot = claim();
+			if (slot < 0) {
+				continue;
+			}
+			kinds[slot] = TICK;
+			ticks[slot] = tick;
+			offeredAt[slot] = now;
+			instruments[slot] = state.instruments().get(instrument);
+			prices[slot] = state.price(instrument);
+			orderCounts[slot] = stats.orders();
+			tradeCounts[slot] = stats.trades();
+			publish();
+		}
+		offeredTick = tick;
+		if (pnlIntervalTicks > 0 && tick % pnlIntervalTicks == 0 && duePnl.getAndSet(state) != null) {
+			skippedPnl.incrementAndGet();
+		}
+	}
+	
+	/** Rows waiting in the ring. */
+	public int depth() {
+		return (int) (published.get() - consumed.get());
+	}
+	
+	/** Tick and trade rows dropped because the ring was full. */
+	public long droppedRows() {
+		return droppedRows.get();
+	}
+	
+	/** States due for agent rows that were replaced by a newer one before the writer got to them. */
+	public long skippedPnlSnapshots() {
+		return skippedPnl.get();
+	}
+	
+	public long rowsWritten(Table table) {
+		return rows[table.ordinal()].get();
+	}
+	
+	/** Batches that failed and were dropped. */
+	public long failedBatches() {
+		return failedBatches.get();
+	}
+	
+	/** How long the oldest row of the last committed batch had been queued when it committed. */
+	public long lagNanos() {
+		return lagNanos;
+	}
+	
+	/** Ticks queued but not yet committed. */
+	public long ticksBehind() {
+		long offered = offeredTick;
+		return offered < 0 ? 0 : Math.max(0, offered - writtenTick);
+	}
+	
+	/** Writes out everything queued so far and stops the writer. */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private int claim() {
+		long sequence = nextSequence;
+		if (sequence - cachedConsumed > mask && sequence - (cachedConsumed = consumed.get()) > mask) {
+			droppedRows.incrementAndGet();
+			return -1;
+		}
+		return (int) sequence & mask;
+	}
+	
+	private void publish() {
+		published.lazySet(++nextSequence);
+	}
+	
+	private void drain() {
+		long head = 0;
+		long lastFlush = System.nanoTime();
+		while (true) {
+			long available = published.get();
+			long pending = available - head;
+			boolean closing = closed;
+			if (pending >= batchSize || (pending > 0 && (closing || System.nanoTime() - lastFlush >= flushIntervalNanos))) {
+				long end = Math.min(available, head + batchSize);
+				flush(head, end);
+				head = end;
+				consumed.lazySet(head);
+				lastFlush = System.nanoTime();
+				continue;
+			}
+			if (pnlState == null) {
+				pnlState = duePnl.getAndSet(null);
+				pnlNext = 0;
+			}
+			if (pnlState != null) {
+				flushPnl();
+				continue;
+			}
+			if (closing && published.get() == head && duePnl.get() == null) {
+				break;
+			}
+			LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+		}
+	}
+	
+	private void flush(long from, long to) {
+		int trades = 0;
+		int tickRows = 0;
+		for (long sequence = from; sequence < to; sequence++) {
+			int slot = (int) sequence & mask;
+			if (kinds[slot] == TRADE) {
+				tradeSlots[trades++] = slot;
+			} else {
+				tickSlots[tickRows++] = slot;
+			}
+		}
+		int tradeCount = trades;
+		int tickCount = tickRows;
+		try {
+			transactions.executeWithoutResult(status -> {
+				if (tradeCount > 0) {
+					jdbc.batchUpdate(INSERT_TRADE, new SlotSetter(tradeSlots, tradeCount) {
+						@Override
+						void set(PreparedStatement ps, int slot) throws SQLException {
+							ps.setString(3, instruments[slot]);
+							ps.setString(4, buyers[slot]);
+							ps.setString(5, sellers[slot]);
+							ps.setDouble(6, prices[slot]);
+							ps.setDouble(7, quantities[slot]);
+						}
+					});
+				}
+				if (tickCount > 0) {
+					jdbc.batchUpdate(INSERT_TICK, new SlotSetter(tickSlots, tickCount) {
+						@Override
+						void set(PreparedStatement ps, int slot) throws SQLException {
+							ps.setString(3, instruments[slot]);
+							ps.setDouble(4, prices[slot]);
+							ps.setInt(5, orderCounts[slot]);
+							ps.setInt(6, tradeCounts[slot]);
+							ps.setTimestamp(7, new Timestamp(runId + TimeUnit.NANOSECONDS.toMillis(offeredAt[slot] - openedNanos)));
+						}
+					});
+				}
+			});
+			rows[Table.TRADES.ordinal()].addAndGet(tradeCount);
+			rows[Table.TICKS.ordinal()].addAndGet(tickCount);
+		} catch (RuntimeException ex) {
+			failedBatches.incrementAndGet();
+			log.warn("Dropping {} rows after a failed batch", to - from, ex);
+		}
+		int last = (int) (to - 1) & mask;
+		lagNanos = System.nanoTime() - offeredAt[(int) from & mask];
+		writtenTick = kinds[last] == TICK ? ticks[last] : ticks[last] - 1;
+		for (long sequence = from; sequence < to; sequence++) {
+			int slot = (int) sequence & mask;
+			buyers[slot] = null;
+			sellers[slot] = null;
+		}
+	}
+	
+	private void flushPnl() {
+		MarketState state = pnlState;
+		int from = pnlNext;
+		int count = Math.min(batchSize, state.agentCount() - from);
+		if (count > 0) {
+			try {
+				transactions.executeWithoutResult(status -> jdbc.batchUpdate(INSERT_PNL, new BatchPreparedStatementSetter() {
+					@Override
+					public void setValues(PreparedStatement ps, int i) throws SQLException {
+						int id = from + i;
+						double equity = state.equity(id);
+						ps.setLong(1, runId);
+						ps.setLong(2, state.tick());
+						ps.setString(3, state.name(id));
+						ps.setDouble(4, state.cash(id));
+						ps.setDouble(5, equity);
+						ps.setDouble(6, equity - state.initialCash(id));
+					}
+					
+					@Override
+					public int getBatchSize() {
+						return count;
+					}
+				}));
+				rows[Table.PNL.ordinal()].addAndGet(count);
+			} catch (RuntimeException ex) {
+				failedBatches.incrementAndGet();
+				log.warn("Dropping {} agent rows of tick {} after a failed batch", count, state.tick(), ex);
+			}
+		}
+		pnlNext = from + count;
+		if (pnlNext >= state.agentCount()) {
+			pnlState = null;
+		}
+	}
+	
+	/** Binds the run id and tick of each ring slot, leaving the remaining columns to {@link #set}. */
+	private abstract class SlotSetter implements BatchPreparedStatementSetter {
+		private final int[] slots;
+		private final int count;
+		
+		SlotSetter(int[] slots, int count) {
+			this.slots = slots;
+			this.count = count;
+		}
+		
+		abstract void set(PreparedStatement ps, int slot) throws SQLException;
+		
+		@Override
+		public void setValues(PreparedStatement ps, int i) throws SQLException {
+			int slot = slots[i];
+			ps.setLong(1, runId);
+			ps.setLong(2, ticks[slot]);
+			set(ps, slot);
+		}
+		
+		@Override
+		public int getBatchSize() {
+			return count;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.marketsimulator.service;
+
+import com.example.marketsimulator.cluster.ShardCoordinator;
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.engine.SimulationSettings;
+import com.example.marketsimulator.journal.EventJournal;
+import com.example.marketsimulator.model.MarketSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "market.mode", havingValue = "batch")
+public class BatchSimulationRunner implements ApplicationRunner {
+	private static final Logger log = LoggerFactory.getLogger(BatchSimulationRunner.class);
+	
+	private final SimulationSettings settings;
+	private final ObjectMapper objectMapper;
+	private final ApplicationContext context;
+	private final EventJournal journal;
+	private final long ticks;
+	private final boolean exitWhenDone;
+	private final int shardWorkers;
+	private final String shardAddress;
+	
+	/** With {@code market.cluster.workers} above zero the agents run in that many {@code worker} processes instead. */
+	public BatchSimulationRunner(SimulationSettings settings, ObjectMapper objectMapper, ApplicationContext context, Optional<EventJournal> journal, @Value("${market.batch.ticks:100000}") long ticks, @Value("${market.batch.exit-when-done:true}") boolean exitWhenDone, @Value("${market.cluster.workers:0}") int shardWorkers, @Value("${market.cluster.address:localhost:7070}") String shardAddress) {
+		this.settings = settings;
+		this.objectMapper = objectMapper;
+		this.context = context;
+		this.journal = journal.orElse(null);
+		this.ticks = ticks;
+		this.exitWhenDone = exitWhenDone;
+		this.shardWorkers = shardWorkers;
+		this.shardAddress = shardAddress;
+	}
+	
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		if (shardWorkers > 0) {
+			try (ServerSocketChannel server = ShardCoordinator.listen(shardAddress)) {
+				log.info("waiting for {} shard workers on {}", shardWorkers, shardAddress);
+				try (ShardCoordinator coordinator = new ShardCoordinator(settings, journal, server, shardWorkers)) {
+					runTicks(coordinator.engine(), coordinator::step);
+				}
+			}
+		} else {
+			try (SimulationEngine engine = new SimulationEngine(settings, journal)) {
+				runTicks(engine, engine::step);
+			}
+		}
+		if (exitWhenDone) {
+			System.exit(SpringApplication.exit(context, () -> 0));
+		}
+	}
+	
+	private void runTicks(SimulationEngine engine, Tick tick) throws IOException {
+		log.info("batch run: {} ticks, seed {}", ticks, settings.seed());
+		long started = System.nanoTime();
+		for (long i = 0; i < ticks; i++) {
+			tick.step();
+		}
+		long elapsed = System.nanoTime() - started;
+		double ticksPerSecond = elapsed > 0 ? ticks * 1_000_000_000.0 / elapsed : Double.POSITIVE_INFINITY;
+		MarketSnapshot snapshot = engine.snapshot();
+		log.info("batch run finished: {} ticks in {} ms ({} ticks/sec), {} agents left, price {}", ticks, elapsed / 1_000_000, String.format("%.1f", ticksPerSecond), engine.getAgentCount(), engine.getPrice());
+		log.info("final snapshot: {}", objectMapper.writeValueAsString(snapshot));
+	}
+	
+	private interface Tick {
+		void step() throws IOException;
+	}
+}
@@ -1,444 +1,320 @@
 package com.example.marketsimulator.service;
 
-import com.example.marketsimulator.agent.Agent;
-import com.example.marketsimulator.agent.MeanReversionTrader;
-import com.example.marketsimulator.agent.MomentumTrader;
-import com.example.marketsimulator.agent.NaiveMarketMaker;
-import com.example.marketsimulator.agent.RandomTrader;
-import com.example.marketsimulator.model.Market;
-import com.example.marketsimulator.model.MarketSnapshot;
-import com.example.marketsimulator.model.Order;
-import java.util.HashMap;
-import java.util.ArrayList;
-import java.util.HashSet;
+import com.example.marketsimulator.engine.AgentGroup;
+import com.example.marketsimulator.engine.OrderGateway;
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.engine.SimulationSettings;
+import com.example.marketsimulator.journal.EventJournal;
+import com.example.marketsimulator.model.CheckpointInfo;
+import com.example.marketsimulator.model.MarketState;
+import com.example.marketsimulator.model.PriceCandles;
+import com.example.marketsimulator.persistence.WriteBehindStore;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+/**
+ * Owns the live engine. Readers get the engine's published {@link MarketState} and never wait for a tick. Everything
+ * that changes or reads live engine state is a command: while {@link TickScheduler} drives the engine, commands are
+ * queued to its tick thread and run between ticks, so neither side ever blocks the other on a lock. Without a tick
+ * thread (scheduling disabled, or before it starts) commands run on the caller's thread.
+ */
 @Service
-public class MarketSimulationService {
+public class MarketSimulationService implements TickScheduler.Simulation {
+	private static final Pattern CHECKPOINT_NAME = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+	private static final String CHECKPOINT_SUFFIX = ".state";
 	
-	private final SimpMessagingTemplate messagingTemplate;
-	private final Market market = new Market();
-	private final List<Agent> agents = new ArrayList<>();
-	private final Map<String, Double> positions = new HashMap<>();
-	private final Map<String, Double> cashBalances = new HashMap<>();
-	private final Map<String, Double> initialCashBalances = new HashMap<>();
-	private final double totalAssetUnits;
-	private double totalCash;
-	private final Map<String, Double> initialPositions;
-	private volatile double fundingRate;
-	private volatile double dividendRate;
-	private int mmCounter = 1;
-	private int rtCounter = 1;
-	private int mtCounter = 1;
-	private int mrCounter = 1;
-	private volatile boolean paused = false;
+	private final SnapshotPublisher publisher;
+	private final TickMetrics metrics;
+	private final SimulationEngine engine;
+	private final WriteBehindStore store;
+	private final Path checkpointDirectory;
+	private final long commandTimeoutMillis;
+	private final Queue<PendingCommand<?>> commands = new ConcurrentLinkedQueue<>();
+	private volatile Thread tickThread;
+	private volatile Runnable wakeTickThread = () -> {
+	};
 	
-	public MarketSimulationService(
-	                               SimpMessagingTemplate messagingTemplate, @Value("${market.total-asset-units:100}") double totalAssetUnits, @Value("${market.total-cash:10000}") double totalCash, @Value("${market.initial-positions:MM1:100,RT1:0}") String initialPositions, @Value("${market.funding-rate:0.01}") double fundingRate, @Value("${market.dividend-rate:0.02}") double dividendRate
-	) {
-		this.messagingTemplate = messagingTemplate;
-		this.totalAssetUnits = totalAssetUnits;
-		this.totalCash = totalCash;
-		this.initialPositions = parseInitialPositions(initialPositions);
-		this.fundingRate = fundingRate;
-		this.dividendRate = dividendRate;
-		agents.add(new NaiveMarketMaker("NMM1", 2.0));
-		agents.add(new RandomTrader("RT1"));
-		mmCounter = 2;
-		rtCounter = 2;
-		mtCounter = 1;
-		mrCounter = 1;
-		double initialCashPerAgent = 100.0;
-		for (Agent agent : agents) {
-			positions.put(agent.getName(), this.initialPositions.getOrDefault(agent.getName(), 0.0));
-			cashBalances.put(agent.getName(), initialCashPerAgent);
-			initialCashBalances.put(agent.getName(), initialCashPerAgent);
-		}
+	@FunctionalInterface
+	private interface Command<T> {
+		T run(SimulationEngine engine) throws IOException;
+	}
+	
+	/**
+	 * Only the live engine journals and persists; in batch and replay mode it never ticks and the runner owns the
+	 * journal.
+	 */
+	public MarketSimulationService(SnapshotPublisher publisher, TickMetrics metrics, SimulationSettings settings, Optional<EventJournal> journal, Optional<WriteBehindStore> store, OrderGateway gateway, @Value("${market.mode:live}") String mode, @Value("${market.checkpoint.directory:checkpoints}") String checkpointDirectory, @Value("${market.command.timeout-ms:10000}") long commandTimeoutMillis) {
+		this.publisher = publisher;
+		this.metrics = metrics;
+		this.engine = new SimulationEngine(settings, "live".equals(mode) ? journal.orElse(null) : null);
+		engine.attachGateway(gateway);
+		engine.publishStates(true);
+		this.store = "live".equals(mode) ? store.orElse(null) : null;
+		engine.attachTradeListener(this.store);
+		this.checkpointDirectory = Path.of(checkpointDirectory);
+		this.commandTimeoutMillis = commandTimeoutMillis;
 	}
 	
-	@Scheduled(fixedRate = 1000)
+	/** Runs one live tick; {@link TickScheduler} calls it from its tick thread. */
+	@Override
 	public void runMarketTick() {
-		if (paused) {
-			return;
-		}
-		MarketSnapshot snapshot;
+		long started = System.nanoTime();
 		synchronized (this) {
-			List<Order> allOrders = new ArrayList<>();
-			List<MarketSnapshot.AgentState> agentStates = new ArrayList<>();
-			
-			for (Agent agent : agents) {
-				List<Order> orders = agent.decideAction(market);
-				allOrders.addAll(orders);
-			}
-			
-			applyFundingRate();
-			applyDividendRate();
-			
-			double lastTradePrice = matchAndSettle(allOrders);
-			if (!Double.isNaN(lastTradePrice)) {
-				market.updatePrice(lastTradePrice);
-			}
-			
-			List<Agent> bankruptCandidates = new ArrayList<>();
-			for (Agent agent : agents) {
-				double positionUnits = positions.getOrDefault(agent.getName(), 0.0);
-				double cashBalance = cashBalances.getOrDefault(agent.getName(), 0.0);
-				double totalValue = cashBalance + positionUnits * market.getPrice();
-				if (totalValue < 0.0) {
-					bankruptCandidates.add(agent);
-				}
-			}
-			if (!bankruptCandidates.isEmpty()) {
-				Map<String, Double> mmBids = new HashMap<>();
-				for (Order order : allOrders) {
-					if (order.type == Order.Type.BUY && isMarketMakerName(order.agentName)) {
-						mmBids.merge(order.agentName, order.price, Math::max);
-					}
-				}
-				liquidateBankruptAgents(bankruptCandidates, mmBids);
-				List<Agent> bankruptAgents = new ArrayList<>();
-				for (Agent agent : bankruptCandidates) {
-					double positionUnits = positions.getOrDefault(agent.getName(), 0.0);
-					double cashBalance = cashBalances.getOrDefault(agent.getName(), 0.0);
-					double totalValue = cashBalance + positionUnits * market.getPrice();
-					if (totalValue < 0.0) {
-						bankruptAgents.add(agent);
-					}
-				}
-				for (Agent agent : bankruptAgents) {
-					agents.remove(agent);
-					positions.remove(agent.getName());
-					cashBalances.remove(agent.getName());
-				}
+			engine.step();
+			metrics.recordStep(engine.lastTickStats());
+			if (store != null) {
+				store.tickCompleted(engine.state(), engine.lastTickStats());
 			}
-			
-			for (Agent agent : agents) {
-				double positionUnits = positions.getOrDefault(agent.getName(), 0.0);
-				double cashBalance = cashBalances.getOrDefault(agent.getName(), 0.0);
-				double initialCash = initialCashBalances.getOrDefault(agent.getName(), 0.0);
-				List<Order> orders = allOrders.stream().filter(o -> o.agentName.equals(agent.getName())).toList();
-				agentStates.add(new MarketSnapshot.AgentState(agent.getName(), orders, positionUnits, cashBalance, initialCash));
-			}
-			
-			double currentTotalCash = cashBalances.values().stream().mapToDouble(Double::doubleValue).sum();
-			double currentTotalAssets = positions.values().stream().mapToDouble(Double::doubleValue).sum();
-			MarketSnapshot.MarketConfig config = new MarketSnapshot.MarketConfig(
-			        totalAssetUnits, totalCash, fundingRate, dividendRate, currentTotalAssets, currentTotalCash, new HashMap<>(initialPositions)
-			);
-			snapshot = new MarketSnapshot(market.getPrice(), agentStates, config);
 		}
-		messagingTemplate.convertAndSend("/topic/market", snapshot);
+		if (publisher.isDue()) {
+			long built = System.nanoTime();
+			Object message = publisher.prepare(engine.state());
+			metrics.recordSnapshot(System.nanoTime() - built);
+			long broadcastStarted = System.nanoTime();
+			publisher.publish(message);
+			metrics.recordBroadcast(System.nanoTime() - broadcastStarted);
+		}
+		metrics.recordTick(System.nanoTime() - started);
 	}
 	
-	private double matchAndSettle(List<Order> orders) {
-		if (orders.isEmpty()) {
-			return Double.NaN;
-		}
-		List<MutableOrder> buys = orders.stream().filter(o -> o.type == Order.Type.BUY).map(MutableOrder::new).sorted((a, b) -> Double.compare(b.price, a.price)).toList();
-		List<MutableOrder> sells = orders.stream().filter(o -> o.type == Order.Type.SELL).map(MutableOrder::new).sorted((a, b) -> Double.compare(a.price, b.price)).toList();
-		
-		int bi = 0;
-		int si = 0;
-		double lastTradePrice = Double.NaN;
-		while (bi < buys.size() && si < sells.size()) {
-			MutableOrder buy = buys.get(bi);
-			MutableOrder sell = sells.get(si);
-			if (buy.price < sell.price) {
-				break;
-			}
-			double tradePrice = (buy.price + sell.price) / 2.0;
-			double sellerPosition = positions.getOrDefault(sell.agentName, 0.0);
-			double buyerCash = cashBalances.getOrDefault(buy.agentName, 0.0);
-			double maxByCash = tradePrice > 0.0 ? buyerCash / tradePrice : 0.0;
-			if (buy.agentName.startsWith("RT")) {
-				maxByCash = buy.remaining;
-			}
-			
-			double tradable = Math.min(Math.min(buy.remaining, sell.remaining), Math.min(sellerPosition, maxByCash));
-			if (tradable <= 0.0) {
-				if (sellerPosition <= 0.0 || sell.remaining <= 0.0) {
-					si++;
-				} else if (buyerCash <= 0.0 || buy.remaining <= 0.0 || maxByCash <= 0.0) {
-					bi++;
-				} else {
-					bi++;
-				}
-				continue;
-			}
-			
-			positions.put(buy.agentName, positions.getOrDefault(buy.agentName, 0.0) + tradable);
-			positions.put(sell.agentName, positions.getOrDefault(sell.agentName, 0.0) - tradable);
-			cashBalances.put(buy.agentName, buyerCash - tradable * tradePrice);
-			cashBalances.put(sell.agentName, cashBalances.getOrDefault(sell.agentName, 0.0) + tradable * tradePrice);
-			buy.remaining -= tradable;
-			sell.remaining -= tradable;
-			lastTradePrice = tradePrice;
-			
-			if (buy.remaining <= 0.0) {
-				bi++;
-			}
-			if (sell.remaining <= 0.0) {
-				si++;
-			}
-		}
-		return lastTradePrice;
+	/** The state as of the last tick or command; never blocks. */
+	public MarketState state() {
+		return engine.state();
 	}
 	
-	private void liquidateBankruptAgents(List<Agent> bankruptCandidates, Map<String, Double> mmBids) {
-		List<Agent> marketMakers = new ArrayList<>();
-		for (Agent agent : agents) {
-			if (isMarketMakerName(agent.getName())) {
-				marketMakers.add(agent);
-			}
-		}
-		for (Agent agent : bankruptCandidates) {
-			double positionUnits = positions.getOrDefault(agent.getName(), 0.0);
-			if (positionUnits <= 0.0) {
-				continue;
-			}
-			double remaining = positionUnits;
-			for (Agent mm : marketMakers) {
-				if (mm.getName().equals(agent.getName())) {
-					continue;
-				}
-				double price = mmBids.getOrDefault(mm.getName(), Double.NaN);
-				if (Double.isNaN(price) || price <= 0.0) {
-					continue;
-				}
-				double mmCash = cashBalances.getOrDefault(mm.getName(), 0.0);
-				double maxBuy = mmCash / price;
-				if (maxBuy <= 0.0) {
-					continue;
-				}
-				double tradeUnits = Math.min(remaining, maxBuy);
-				if (tradeUnits <= 0.0) {
-					continue;
-				}
-				positions.put(agent.getName(), positions.getOrDefault(agent.getName(), 0.0) - tradeUnits);
-				positions.put(mm.getName(), positions.getOrDefault(mm.getName(), 0.0) + tradeUnits);
-				cashBalances.put(agent.getName(), cashBalances.getOrDefault(agent.getName(), 0.0) + tradeUnits * price);
-				cashBalances.put(mm.getName(), mmCash - tradeUnits * price);
-				remaining -= tradeUnits;
-				if (remaining <= 0.0) {
-					break;
-				}
-			}
-		}
+	/**
+	 * Makes the calling thread the tick thread: from now on commands are queued for it, and {@code wakeUp} is run after
+	 * each is queued so the thread can pick it up between ticks.
+	 */
+	@Override
+	public void bindTickThread(Runnable wakeUp) {
+		wakeTickThread = wakeUp;
+		tickThread = Thread.currentThread();
 	}
 	
-	private void applyFundingRate() {
-		double rate = fundingRate;
-		if (rate <= 0.0) {
-			return;
-		}
-		for (Map.Entry<String, Double> entry : cashBalances.entrySet()) {
-			double cash = entry.getValue();
-			if (cash < 0.0) {
-				double updated = cash * (1.0 + rate);
-				entry.setValue(updated);
-			}
-		}
+	/** Called by the tick thread as it exits; commands queued meanwhile run on it before it goes. */
+	@Override
+	public void unbindTickThread() {
+		tickThread = null;
+		runPendingCommands();
 	}
 	
-	private void applyDividendRate() {
-		double rate = dividendRate;
-		if (rate <= 0.0) {
-			return;
-		}
-		double price = market.getPrice();
-		for (Map.Entry<String, Double> entry : cashBalances.entrySet()) {
-			double positionUnits = positions.getOrDefault(entry.getKey(), 0.0);
-			double updated = entry.getValue() + (positionUnits * price * rate);
-			entry.setValue(updated);
-		}
+	@Override
+	public boolean hasPendingCommands() {
+		return !commands.isEmpty();
 	}
 	
-	public synchronized String addAgent(String type, String name, Double initialCashIgnored) {
-		String normalizedType = type == null ? "" : type.trim().toUpperCase();
-		boolean isMm = "MM".equals(normalizedType) || "NMM".equals(normalizedType) || "MARKET_MAKER".equals(normalizedType) || "NAIVE_MARKET_MAKER".equals(normalizedType);
-		boolean isRt = "RT".equals(normalizedType) || "RANDOM_TRADER".equals(normalizedType);
-		boolean isMt = "MT".equals(normalizedType) || "MOMENTUM_TRADER".equals(normalizedType);
-		boolean isMr = "MR".equals(normalizedType) || "MEAN_REVERSION_TRADER".equals(normalizedType);
-		if (!isMm && !isRt && !isMt && !isMr) {
-			throw new IllegalArgumentException("type must be NMM, RT, MT, or MR");
-		}
-		Set<String> existingNames = new HashSet<>();
-		for (Agent agent : agents) {
-			existingNames.add(agent.getName());
-		}
-		String resolvedName = (name == null) ? "" : name.trim();
-		if (resolvedName.isEmpty() || existingNames.contains(resolvedName)) {
-			if (isMm) {
-				while (existingNames.contains("NMM" + mmCounter)) {
-					mmCounter++;
-				}
-				resolvedName = "NMM" + mmCounter;
-				mmCounter++;
-			} else if (isRt) {
-				while (existingNames.contains("RT" + rtCounter)) {
-					rtCounter++;
-				}
-				resolvedName = "RT" + rtCounter;
-				rtCounter++;
-			} else if (isMt) {
-				while (existingNames.contains("MT" + mtCounter)) {
-					mtCounter++;
-				}
-				resolvedName = "MT" + mtCounter;
-				mtCounter++;
-			} else {
-				while (existingNames.contains("MR" + mrCounter)) {
-					mrCounter++;
-				}
-				resolvedName = "MR" + mrCounter;
-				mrCounter++;
+	/** Runs queued commands in submission order; tick thread only. */
+	@Override
+	public void runPendingCommands() {
+		PendingCommand<?> next;
+		while ((next = commands.poll()) != null) {
+			synchronized (this) {
+				next.run(engine);
 			}
 		}
-		Agent newAgent;
-		if (isMm) {
-			newAgent = new NaiveMarketMaker(resolvedName, 2.0);
-		} else if (isRt) {
-			newAgent = new RandomTrader(resolvedName);
-		} else if (isMt) {
-			newAgent = new MomentumTrader(resolvedName);
-		} else {
-			newAgent = new MeanReversionTrader(resolvedName);
-		}
-		agents.add(newAgent);
-		positions.put(resolvedName, 0.0);
-		double initialCash = isMm ? -5000.0 : 5000.0;
-		cashBalances.put(resolvedName, initialCash);
-		initialCashBalances.put(resolvedName, initialCash);
-		totalCash += initialCash;
-		return resolvedName;
 	}
 	
-	private boolean isMarketMakerName(String name) {
-		return name != null && name.startsWith("NMM");
+	public String addAgent(String type, String name, Double initialCashIgnored) {
+		return execute(engine -> engine.addAgent(type, name));
+	}
+	
+	/** Adds every group between two ticks, so no tick sees a partly added population. Returns each group's names. */
+	public List<List<String>> addAgents(List<AgentGroup> groups) {
+		return execute(engine -> engine.addAgents(groups));
 	}
 	
-	public synchronized void updateRates(Double newFundingRate, Double newDividendRate) {
-		if (newFundingRate != null) {
-			if (newFundingRate < 0.0) {
-				throw new IllegalArgumentException("fundingRate must be >= 0");
+	/**
+	 * Served from the published state, so it never waits for a tick. Only a reader that keeps losing its view to the
+	 * tick thread overwriting candles falls back to a command.
+	 */
+	public PriceCandles history(String instrument, int resolution, long fromTick, long toTick, int maxPoints) {
+		for (int attempt = 0; attempt < 3; attempt++) {
+			PriceCandles candles = engine.state().history(instrument, resolution, fromTick, toTick, maxPoints);
+			if (candles != null) {
+				return candles;
 			}
-			fundingRate = newFundingRate;
 		}
-		if (newDividendRate != null) {
-			if (newDividendRate < 0.0) {
-				throw new IllegalArgumentException("dividendRate must be >= 0");
+		return execute(engine -> engine.history(instrument, resolution, fromTick, toTick, maxPoints));
+	}
+	
+	public void updateRates(Double newFundingRate, Double newDividendRate) {
+		execute(engine -> {
+			engine.updateRates(newFundingRate, newDividendRate);
+			return null;
+		});
+	}
+	
+	public void reset() {
+		execute(engine -> {
+			engine.reset();
+			publisher.requestKeyframe();
+			return null;
+		});
+	}
+	
+	/**
+	 * Writes the full engine state, agents' strategy state included, to {@code <name>.state} in the checkpoint directory.
+	 * Only encoding the state waits for the tick thread; the file is written on the caller's thread.
+	 */
+	public CheckpointInfo checkpoint(String name) throws IOException {
+		long started = System.nanoTime();
+		Path path = checkpointPath(name);
+		Captured captured = executeIo(engine -> new Captured(engine.checkpoint(), engine.getTick(), engine.getAgentCount()));
+		ByteBuffer state = captured.state();
+		long bytes = state.remaining();
+		Files.createDirectories(checkpointDirectory);
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (state.hasRemaining()) {
+				channel.write(state);
 			}
-			dividendRate = newDividendRate;
 		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return new CheckpointInfo(name, captured.tick(), captured.agentCount(), bytes, (System.nanoTime() - started) / 1e6);
 	}
 	
-	public void pause() {
-		paused = true;
+	/** Replaces the running simulation with a state written by {@link #checkpoint}. */
+	public CheckpointInfo restore(String name) throws IOException {
+		long started = System.nanoTime();
+		Path path = checkpointPath(name);
+		long bytes;
+		ByteBuffer state;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			bytes = channel.size();
+			state = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes).load();
+		}
+		Captured restored = executeIo(engine -> {
+			engine.restore(state);
+			publisher.requestKeyframe();
+			return new Captured(null, engine.getTick(), engine.getAgentCount());
+		});
+		return new CheckpointInfo(name, restored.tick(), restored.agentCount(), bytes, (System.nanoTime() - started) / 1e6);
 	}
 	
-	public void resume() {
-		paused = false;
+	private <T> T execute(Command<T> command) {
+		try {
+			return executeIo(command);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
 	}
 	
-	public synchronized void reset() {
-		agents.clear();
-		positions.clear();
-		cashBalances.clear();
-		initialCashBalances.clear();
-		mmCounter = 1;
-		rtCounter = 1;
-		agents.add(new NaiveMarketMaker("NMM1", 2.0));
-		agents.add(new RandomTrader("RT1"));
-		mmCounter = 2;
-		rtCounter = 2;
-		double initialCashPerAgent = 100.0;
-		for (Agent agent : agents) {
-			positions.put(agent.getName(), initialPositions.getOrDefault(agent.getName(), 0.0));
-			cashBalances.put(agent.getName(), initialCashPerAgent);
-			initialCashBalances.put(agent.getName(), initialCashPerAgent);
+	/**
+	 * Runs {@code command} on the tick thread between two ticks and waits for its result, or runs it right here when
+	 * there is no tick thread. A command still queued after {@code market.command.timeout-ms} is withdrawn and never runs.
+	 */
+	private <T> T executeIo(Command<T> command) throws IOException {
+		Thread ticking = tickThread;
+		if (ticking == null || ticking == Thread.currentThread()) {
+			synchronized (this) {
+				return command.run(engine);
+			}
+		}
+		PendingCommand<T> pending = new PendingCommand<>(command);
+		commands.add(pending);
+		wakeTickThread.run();
+		if (tickThread == null) {
+			// the tick thread left between the check above and the queueing; nobody else will run the command
+			runPendingCommands();
 		}
-		market.updatePrice(100.0);
+		return pending.await(commandTimeoutMillis);
 	}
 	
-	private static class MutableOrder {
-		final String agentName;
-		final double price;
-		double remaining;
-		
-		MutableOrder(Order order) {
-			this.agentName = order.agentName;
-			this.price = order.price;
-			this.remaining = order.quantity;
-		}
+	private record Captured(ByteBuffer state, long tick, int agentCount) {
 	}
 	
-	private Map<String, Double> parseInitialPositions(String raw) {
-		Map<String, Double> parsed = new HashMap<>();
-		if (raw != null && !raw.isBlank()) {
-			String[] entries = raw.split(",");
-			for (String entry : entries) {
-				String trimmed = entry.trim();
-				if (trimmed.isEmpty() || !trimmed.contains(":")) {
-					continue;
+	/** A queued command; whichever of the tick thread and a timed-out caller claims it first decides whether it runs. */
+	private static final class PendingCommand<T> {
+		private final Command<T> command;
+		private final AtomicBoolean claimed = new AtomicBoolean();
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		
+		PendingCommand(Command<T> command) {
+			this.command = command;
+		}
+		
+		void run(SimulationEngine engine) {
+			if (!claimed.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				result.complete(command.run(engine));
+			} catch (IOException | RuntimeException ex) {
+				result.completeExceptionally(ex);
+			} catch (Error ex) {
+				result.completeExceptionally(ex);
+				throw ex;
+			}
+		}
+		
+		T await(long timeoutMillis) throws IOException {
+			boolean interrupted = false;
+			try {
+				try {
+					return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException ex) {
+					if (claimed.compareAndSet(false, true)) {
+						throw new IllegalStateException("the tick thread did not get to the command within " + timeoutMillis + " ms");
+					}
+				} catch (InterruptedException ex) {
+					interrupted = true;
+					if (claimed.compareAndSet(false, true)) {
+						throw new IllegalStateException("interrupted while waiting for the tick thread");
+					}
 				}
-				String[] parts = trimmed.split(":", 2);
-				String name = parts[0].trim();
-				if (name.isEmpty()) {
-					continue;
+				// the tick thread is already running the command, so its outcome is only moments away
+				while (true) {
+					try {
+						return result.get();
+					} catch (InterruptedException ex) {
+						interrupted = true;
+					}
 				}
-				try {
-					double value = Double.parseDouble(parts[1].trim());
-					parsed.put(name, value);
-				} catch (NumberFormatException ignored) {
-					// ignore invalid values
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof IOException io) {
+					throw io;
+				}
+				if (ex.getCause() instanceof Error error) {
+					throw error;
+				}
+				throw (RuntimeException) ex.getCause();
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
 				}
 			}
 		}
-		if (parsed.isEmpty()) {
-			parsed.put(agents.get(0).getName(), totalAssetUnits);
-		}
-		double sum = parsed.values().stream().mapToDouble(Double::doubleValue).sum();
-		if (sum <= 0.0) {
-			parsed.replaceAll((k, v) -> 0.0);
-			parsed.put(agents.get(0).getName(), totalAssetUnits);
-			return parsed;
-		}
-		if (Math.abs(sum - totalAssetUnits) > 1e-6) {
-			double scale = totalAssetUnits / sum;
-			parsed.replaceAll((k, v) -> v * scale);
-		}
-		return parsed;
 	}
 	
-	//    @Scheduled(fixedRate = 1000)
-	//    public void runMarketTick() {
-	//        List<Order> allOrders = new ArrayList<>();
-	//        agents.forEach(agent -> allOrders.addAll(agent.decideAction(market)));
-	//        market.applyOrders(allOrders);
-	//
-	//        double newPrice = market.getPrice();
-	//        messagingTemplate.convertAndSend("/topic/market", newPrice);
-	//    }
+	private Path checkpointPath(String name) {
+		if (!CHECKPOINT_NAME.matcher(name).matches()) {
+			throw new IllegalArgumentException("checkpoint name must be 1-64 letters, digits, '.', '_' or '-'");
+		}
+		return checkpointDirectory.resolve(name + CHECKPOINT_SUFFIX);
+	}
 	
-	//    @Scheduled(fixedRate = 1000)
-	//    public void simulate() {
-	//        CompletableFuture.runAsync(
-	//            () -> {
-	//                List<Agent> agents = List.of(new NaiveMarketMaker("MM1", 2.0));
-	//
-	//                for (Agent agent : agents) {
-	//                    List<Order> orders = agent.decideAction(market);
-	//                    market.applyOrders(orders);
-	//
-	//                    messagingTemplate.convertAndSend("/topic/market", orders);
-	//                }
-	//            }
-	//        );
-	//    }
+	@PreDestroy
+	public void shutdown() {
+		engine.close();
+	}
 }
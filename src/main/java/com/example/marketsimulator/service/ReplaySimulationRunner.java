@@ -0,0 +1,55 @@
+package com.example.marketsimulator.service;
+
+import com.example.marketsimulator.engine.SimulationReplay;
+import com.example.marketsimulator.engine.SimulationSettings;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "market.mode", havingValue = "replay")
+public class ReplaySimulationRunner implements ApplicationRunner {
+	private static final Logger log = LoggerFactory.getLogger(ReplaySimulationRunner.class);
+	
+	private final SimulationSettings settings;
+	private final ApplicationContext context;
+	private final Path directory;
+	private final long fromTick;
+	private final long toTick;
+	private final boolean exitWhenDone;
+	
+	public ReplaySimulationRunner(SimulationSettings settings, ApplicationContext context, @Value("${market.replay.directory:journal}") String directory, @Value("${market.replay.from-tick:0}") long fromTick, @Value("${market.replay.to-tick:-1}") long toTick, @Value("${market.replay.exit-when-done:true}") boolean exitWhenDone) {
+		this.settings = settings;
+		this.context = context;
+		this.directory = Path.of(directory);
+		this.fromTick = fromTick;
+		this.toTick = toTick;
+		this.exitWhenDone = exitWhenDone;
+	}
+	
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		log.info("replaying {} from tick {} to {}", directory, fromTick, toTick < 0 ? "end" : toTick);
+		long started = System.nanoTime();
+		SimulationReplay.Result result = SimulationReplay.run(settings, directory, fromTick, toTick);
+		long elapsed = System.nanoTime() - started;
+		double ticksPerSecond = elapsed > 0 ? result.ticks() * 1_000_000_000.0 / elapsed : Double.POSITIVE_INFINITY;
+		log.info("replayed ticks {}..{} in {} ms ({} ticks/sec): {} events and {} checkpoints verified, price {}", result.fromTick(), result.toTick(), elapsed / 1_000_000, String.format("%.1f", ticksPerSecond), result.eventsVerified(), result.checkpointsVerified(), result.price());
+		if (result.matched()) {
+			log.info("replay matches the recording");
+		} else {
+			log.warn("replay diverged: {}", result.divergence());
+		}
+		if (exitWhenDone) {
+			int exitCode = result.matched() ? 0 : 1;
+			System.exit(SpringApplication.exit(context, () -> exitCode));
+		}
+	}
+}
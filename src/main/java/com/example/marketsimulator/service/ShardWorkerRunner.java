@@ -0,0 +1,48 @@
+package com.example.marketsimulator.service;
+
+import com.example.marketsimulator.cluster.ShardWorker;
+import com.example.marketsimulator.engine.AgentDecisionPhase;
+import com.example.marketsimulator.engine.SimulationSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "market.mode", havingValue = "worker")
+public class ShardWorkerRunner implements ApplicationRunner {
+	private static final Logger log = LoggerFactory.getLogger(ShardWorkerRunner.class);
+	
+	private final SimulationSettings settings;
+	private final ApplicationContext context;
+	private final String address;
+	private final long connectTimeoutMillis;
+	private final boolean exitWhenDone;
+	
+	public ShardWorkerRunner(SimulationSettings settings, ApplicationContext context, @Value("${market.cluster.address:localhost:7070}") String address, @Value("${market.cluster.connect-timeout-ms:60000}") long connectTimeoutMillis, @Value("${market.cluster.exit-when-done:true}") boolean exitWhenDone) {
+		this.settings = settings;
+		this.context = context;
+		this.address = address;
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.exitWhenDone = exitWhenDone;
+	}
+	
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		AgentDecisionPhase decisionPhase = new AgentDecisionPhase(settings.decisionMode(), settings.decisionParallelism(), settings.decisionMinChunkSize());
+		try (ShardWorker worker = ShardWorker.connect(address, decisionPhase, connectTimeoutMillis)) {
+			log.info("shard worker connected to {}", address);
+			long started = System.nanoTime();
+			long ticks = worker.run();
+			log.info("shard worker {} served {} ticks in {} ms with {} agents at the end", worker.index(), ticks, (System.nanoTime() - started) / 1_000_000, worker.agentCount());
+		}
+		if (exitWhenDone) {
+			System.exit(SpringApplication.exit(context, () -> 0));
+		}
+	}
+}
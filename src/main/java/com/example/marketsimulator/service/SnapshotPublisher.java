@@ -0,0 +1,108 @@
+package com.example.marketsimulator.service;
+
+import com.example.marketsimulator.handler.MarketBinaryMessageConverter;
+import com.example.marketsimulator.handler.MarketSubscriptionInterceptor;
+import com.example.marketsimulator.model.MarketDelta;
+import com.example.marketsimulator.model.MarketSnapshot;
+import com.example.marketsimulator.model.MarketState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes market state at no more than {@code market.broadcast.max-rate} messages per second. Every
+ * {@code keyframe-interval}-th message is a full snapshot on {@code /topic/market}; the rest are deltas on
+ * {@code /topic/market/delta} carrying only agents whose state changed since the previous message, found by comparing
+ * the previous and current {@link MarketState} columns. Each message is encoded only for the formats (JSON, binary)
+ * that currently have subscribers. Only the tick thread calls {@link #isDue()}, {@link #prepare} and {@link #publish}.
+ */
+@Component
+public class SnapshotPublisher {
+	public static final String KEYFRAME_TOPIC = "/topic/market";
+	public static final String DELTA_TOPIC = "/topic/market/delta";
+	
+	private final SimpMessagingTemplate messagingTemplate;
+	private final MarketSubscriptionInterceptor subscriptions;
+	private final long minIntervalNanos;
+	private final int keyframeInterval;
+	private long sequence = 0;
+	private long lastPublishNanos;
+	private boolean keyframeRequested = true;
+	private volatile Published latest;
+	
+	private record Published(MarketState state, long sequence) {
+	}
+	
+	public SnapshotPublisher(SimpMessagingTemplate messagingTemplate, MarketSubscriptionInterceptor subscriptions, @Value("${market.broadcast.max-rate:10}") double maxRate, @Value("${market.broadcast.keyframe-interval:10}") int keyframeInterval) {
+		this.messagingTemplate = messagingTemplate;
+		this.subscriptions = subscriptions;
+		this.minIntervalNanos = maxRate > 0.0 ? (long) (1_000_000_000L / maxRate) : 0L;
+		this.keyframeInterval = Math.max(1, keyframeInterval);
+		this.lastPublishNanos = System.nanoTime() - minIntervalNanos;
+	}
+	
+	public boolean isDue() {
+		return System.nanoTime() - lastPublishNanos >= minIntervalNanos;
+	}
+	
+	public void requestKeyframe() {
+		keyframeRequested = true;
+	}
+	
+	/**
+	 * Numbers {@code state} as the next message and builds it: a {@link MarketSnapshot} when a keyframe is due, otherwise
+	 * a {@link MarketDelta} against the previously prepared state.
+	 */
+	public Object prepare(MarketState state) {
+		lastPublishNanos = System.nanoTime();
+		Published previous = latest;
+		long next = ++sequence;
+		boolean keyframe = previous == null || keyframeRequested || next % keyframeInterval == 0;
+		keyframeRequested = false;
+		latest = new Published(state, next);
+		if (keyframe) {
+			MarketSnapshot snapshot = state.toSnapshot();
+			snapshot.sequence = next;
+			return snapshot;
+		}
+		MarketDelta delta = state.toDelta(previous.state());
+		delta.sequence = next;
+		delta.baseSequence = previous.sequence();
+		return delta;
+	}
+	
+	/** Sends a message built by {@link #prepare}. */
+	public void publish(Object message) {
+		send(message instanceof MarketSnapshot ? KEYFRAME_TOPIC : DELTA_TOPIC, message);
+	}
+	
+	/** The last published full state, for clients that joined late or missed a delta. */
+	public MarketSnapshot latest() {
+		Published published = latest;
+		if (published == null) {
+			return null;
+		}
+		MarketSnapshot snapshot = published.state().toSnapshot();
+		snapshot.sequence = published.sequence();
+		return snapshot;
+	}
+	
+	private void send(String topic, Object payload) {
+		if (subscriptions.hasSubscribers(topic)) {
+			messagingTemplate.convertAndSend(topic, payload);
+		}
+		if (subscriptions.hasBinarySubscribers(topic)) {
+			messagingTemplate.convertAndSend(topic + MarketSubscriptionInterceptor.BINARY_SUFFIX, payload, binaryHeaders());
+		}
+	}
+	
+	private static MessageHeaders binaryHeaders() {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setContentType(MarketBinaryMessageConverter.MIME_TYPE);
+		accessor.setLeaveMutable(true);
+		return accessor.getMessageHeaders();
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.marketsimulator.service;
+
+import com.example.marketsimulator.engine.SimulationSettings;
+import com.example.marketsimulator.sweep.ParameterSweep;
+import com.example.marketsimulator.sweep.SweepResultWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a {@link ParameterSweep} over the {@code market.sweep.*} grid. A swept list left empty falls back to the single
+ * value of the corresponding {@code market.*} property.
+ */
+@Component
+@ConditionalOnProperty(name = "market.mode", havingValue = "sweep")
+public class SweepSimulationRunner implements ApplicationRunner {
+	private static final Logger log = LoggerFactory.getLogger(SweepSimulationRunner.class);
+	
+	private final ParameterSweep sweep;
+	private final ApplicationContext context;
+	private final int parallelism;
+	private final Path output;
+	private final boolean exitWhenDone;
+	
+	public SweepSimulationRunner(SimulationSettings settings, ApplicationContext context, @Value("${market.sweep.funding-rates:}") String fundingRates, @Value("${market.sweep.dividend-rates:}") String dividendRates, @Value("${market.sweep.mm-spreads:}") String spreads, @Value("${market.sweep.populations:RT:50,MT:50,MR:50}") String populations, @Value("${market.sweep.replications:10}") int replications, @Value("${market.sweep.ticks:10000}") long ticks, @Value("${market.sweep.parallelism:0}") int parallelism, @Value("${market.sweep.output:sweep-results.csv}") String output, @Value("${market.sweep.exit-when-done:true}") boolean exitWhenDone) {
+		this.sweep = new ParameterSweep(settings, parseValues(fundingRates, settings.fundingRate()), parseValues(dividendRates, settings.dividendRate()), parseValues(spreads, settings.marketMakerSpread()), List.of(populations.split(";")), replications, ticks);
+		this.context = context;
+		this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		this.output = Path.of(output);
+		this.exitWhenDone = exitWhenDone;
+	}
+	
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		int total = sweep.runs().size();
+		log.info("sweep: {} runs of {} ticks on {} threads, writing {}", total, sweep.ticks(), parallelism, output.toAbsolutePath());
+		long started = System.nanoTime();
+		try (SweepResultWriter writer = SweepResultWriter.open(output, sweep.populations())) {
+			int[] done = { 0 };
+			sweep.run(parallelism, result -> {
+				writer.write(result);
+				done[0]++;
+				if (done[0] % Math.max(1, total / 20) == 0 || done[0] == total) {
+					log.info("sweep: {}/{} runs finished", done[0], total);
+				}
+			});
+		}
+		log.info("sweep finished: {} runs in {} ms", total, (System.nanoTime() - started) / 1_000_000);
+		if (exitWhenDone) {
+			System.exit(SpringApplication.exit(context, () -> 0));
+		}
+	}
+	
+	private static List<Double> parseValues(String raw, double fallback) {
+		List<Double> values = new ArrayList<>();
+		for (String value : raw.split(",")) {
+			if (!value.isBlank()) {
+				values.add(Double.parseDouble(value.trim()));
+			}
+		}
+		return values.isEmpty() ? List.of(fallback) : values;
+	}
+}
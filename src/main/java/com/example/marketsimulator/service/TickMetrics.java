@@ -0,0 +1,122 @@
+package com.example.marketsimulator.service;
+
+import com.example.marketsimulator.engine.OrderGateway;
+import com.example.marketsimulator.engine.TickStats;
+import com.example.marketsimulator.persistence.WriteBehindStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters for the live tick loop, exported through Actuator ({@code /actuator/metrics},
+ * {@code /actuator/prometheus}). Every engine phase plus snapshot building and broadcasting gets a {@code market.tick.phase}
+ * timer with 50/90/99/99.9th percentiles and a histogram, so recording a tick is a few array writes on the engine side
+ * and one histogram update per phase here. The {@link TickScheduler} reports each tick's start lag, overruns and
+ * skipped ticks. The STOMP channel executors' queues are exported as {@code market.broker.queue}, and the order
+ * gateway's outcomes and backlog as {@code market.gateway.orders} and {@code market.gateway.queue}. With persistence
+ * enabled, the write-behind store's backlog, lag and outcomes are exported as {@code market.persistence.*}.
+ */
+@Component
+public class TickMetrics {
+	private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 };
+	private static final TickStats.Phase[] ENGINE_PHASES = TickStats.Phase.values();
+	
+	private final Timer[] phases;
+	private final Timer snapshot;
+	private final Timer broadcast;
+	private final Timer tick;
+	private final DistributionSummary orders;
+	private final DistributionSummary trades;
+	private final Counter removedAccounts;
+	private final Timer lag;
+	private final Counter overruns;
+	private final Counter skipped;
+	
+	public TickMetrics(MeterRegistry registry, Map<String, ThreadPoolTaskExecutor> executors, OrderGateway gateway, Optional<WriteBehindStore> persistence) {
+		this.phases = new Timer[ENGINE_PHASES.length];
+		for (TickStats.Phase phase : ENGINE_PHASES) {
+			phases[phase.ordinal()] = phaseTimer(registry, phase.name().toLowerCase(Locale.ROOT));
+		}
+		this.snapshot = phaseTimer(registry, "snapshot");
+		this.broadcast = phaseTimer(registry, "broadcast");
+		this.tick = Timer.builder("market.tick").description("Whole tick, engine step through broadcast").publishPercentiles(PERCENTILES).publishPercentileHistogram().maximumExpectedValue(Duration.ofSeconds(10)).register(registry);
+		this.orders = DistributionSummary.builder("market.tick.orders").description("Orders submitted per tick").publishPercentiles(PERCENTILES).register(registry);
+		this.trades = DistributionSummary.builder("market.tick.trades").description("Fills settled per tick").publishPercentiles(PERCENTILES).register(registry);
+		this.removedAccounts = Counter.builder("market.accounts.removed").description("Accounts removed as bankrupt").register(registry);
+		this.lag = Timer.builder("market.tick.lag").description("How late ticks start relative to their schedule").publishPercentiles(PERCENTILES).publishPercentileHistogram().maximumExpectedValue(Duration.ofSeconds(10)).register(registry);
+		this.overruns = Counter.builder("market.tick.overruns").description("Ticks that ran past the next tick's due time").register(registry);
+		this.skipped = Counter.builder("market.tick.skipped").description("Ticks dropped by the overrun policy").register(registry);
+		for (OrderGateway.Result result : OrderGateway.Result.values()) {
+			FunctionCounter.builder("market.gateway.orders", gateway, g -> g.count(result)).description("Client orders offered to the gateway, by outcome").tag("result", result.name().toLowerCase(Locale.ROOT)).register(registry);
+		}
+		FunctionCounter.builder("market.gateway.orders", gateway, OrderGateway::unknownClients).description("Client orders offered to the gateway, by outcome").tag("result", "unknown_client").register(registry);
+		Gauge.builder("market.gateway.queue", gateway, OrderGateway::depth).description("Client orders waiting for the next tick").register(registry);
+		persistence.ifPresent(store -> registerPersistence(registry, store));
+		executors.forEach((name, executor) -> {
+			if (name.endsWith("ChannelExecutor")) {
+				Gauge.builder("market.broker.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size()).description("Messages waiting in a STOMP channel executor").tag("channel", name.substring(0, name.length() - "ChannelExecutor".length())).register(registry);
+			}
+		});
+	}
+	
+	private static void registerPersistence(MeterRegistry registry, WriteBehindStore store) {
+		Gauge.builder("market.persistence.queue", store, WriteBehindStore::depth).description("Rows waiting for the persistence writer").register(registry);
+		TimeGauge.builder("market.persistence.lag", store, TimeUnit.NANOSECONDS, WriteBehindStore::lagNanos).description("How long the oldest row of the last committed batch had been queued").register(registry);
+		Gauge.builder("market.persistence.ticks.behind", store, WriteBehindStore::ticksBehind).description("Ticks queued but not yet committed").register(registry);
+		for (WriteBehindStore.Table table : WriteBehindStore.Table.values()) {
+			FunctionCounter.builder("market.persistence.rows", store, s -> s.rowsWritten(table)).description("Rows committed, by table").tag("table", table.name().toLowerCase(Locale.ROOT)).register(registry);
+		}
+		FunctionCounter.builder("market.persistence.dropped", store, WriteBehindStore::droppedRows).description("Rows dropped instead of stalling a tick").tag("kind", "queue_full").register(registry);
+		FunctionCounter.builder("market.persistence.dropped", store, WriteBehindStore::skippedPnlSnapshots).description("Rows dropped instead of stalling a tick").tag("kind", "pnl_snapshot").register(registry);
+		FunctionCounter.builder("market.persistence.failures", store, WriteBehindStore::failedBatches).description("Batches that failed and were dropped").register(registry);
+	}
+	
+	private static Timer phaseTimer(MeterRegistry registry, String phase) {
+		return Timer.builder("market.tick.phase").description("Time spent in one phase of a tick").tag("phase", phase).publishPercentiles(PERCENTILES).publishPercentileHistogram().maximumExpectedValue(Duration.ofSeconds(10)).register(registry);
+	}
+	
+	/** Records the engine's last tick. */
+	public void recordStep(TickStats stats) {
+		for (TickStats.Phase phase : ENGINE_PHASES) {
+			phases[phase.ordinal()].record(stats.nanos(phase), TimeUnit.NANOSECONDS);
+		}
+		orders.record(stats.orders());
+		trades.record(stats.trades());
+		if (stats.removedAccounts() > 0) {
+			removedAccounts.increment(stats.removedAccounts());
+		}
+	}
+	
+	public void recordSnapshot(long nanos) {
+		snapshot.record(nanos, TimeUnit.NANOSECONDS);
+	}
+	
+	public void recordBroadcast(long nanos) {
+		broadcast.record(nanos, TimeUnit.NANOSECONDS);
+	}
+	
+	public void recordTick(long nanos) {
+		tick.record(nanos, TimeUnit.NANOSECONDS);
+	}
+	
+	public void recordSchedule(long lagNanos, boolean overran, int skippedTicks) {
+		lag.record(lagNanos, TimeUnit.NANOSECONDS);
+		if (overran) {
+			overruns.increment();
+		}
+		if (skippedTicks > 0) {
+			skipped.increment(skippedTicks);
+		}
+	}
+}
@@ -0,0 +1,314 @@
+package com.example.marketsimulator.service;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drives the live simulation from one dedicated platform thread. Ticks are due every {@code 1 / rate} seconds on a
+ * fixed schedule; the thread parks until shortly before a tick is due and spins the rest of the way, so rates in the
+ * thousands per second stay accurate. How far a tick starts after its due time is its lag. When a tick runs past the
+ * next due time, the {@link OverrunPolicy} decides what happens to the ticks that are now late. Rate, policy and
+ * pausing can be changed at any time; they take effect at the next tick boundary, never inside a tick. The thread also
+ * runs the simulation's queued commands as soon as they arrive, between ticks and while paused.
+ */
+@Component
+public class TickScheduler implements SmartLifecycle {
+	private static final Logger log = LoggerFactory.getLogger(TickScheduler.class);
+	private static final long SPIN_NANOS = 200_000;
+	public static final double MAX_RATE = 100_000.0;
+	
+	public enum OverrunPolicy {
+		/** Late ticks are dropped; the schedule keeps its phase and resumes at the next due time still ahead. */
+		SKIP,
+		/** Late ticks run back to back until the schedule is caught up, at most {@code max-catch-up} of them. */
+		CATCH_UP,
+		/** The schedule restarts one full interval after the overrunning tick ends; late ticks are neither run nor counted. */
+		STRETCH;
+		
+		public static OverrunPolicy parse(String raw) {
+			String normalized = raw == null ? "" : raw.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+			return switch (normalized) {
+				case "SKIP" -> SKIP;
+				case "CATCH_UP", "CATCHUP" -> CATCH_UP;
+				case "STRETCH" -> STRETCH;
+				default -> throw new IllegalArgumentException("overrun policy must be skip, catch-up, or stretch");
+			};
+		}
+	}
+	
+	/** What the tick thread drives: {@link MarketSimulationService}, or a stand-in in tests. */
+	interface Simulation {
+		void runMarketTick();
+		
+		boolean hasPendingCommands();
+		
+		void runPendingCommands();
+		
+		void bindTickThread(Runnable wakeUp);
+		
+		void unbindTickThread();
+	}
+	
+	/** The tick thread's time source and wait; tests substitute a synthetic clock. */
+	interface Clock {
+		Clock SYSTEM = new Clock() {
+			@Override
+			public long nanoTime() {
+				return System.nanoTime();
+			}
+			
+			@Override
+			public void await(Object blocker, long nanos) {
+				if (nanos > SPIN_NANOS) {
+					LockSupport.parkNanos(blocker, nanos - SPIN_NANOS);
+				} else {
+					Thread.onSpinWait();
+				}
+			}
+		};
+		
+		long nanoTime();
+		
+		/** Waits for at most {@code nanos}, possibly much less; the caller reads the time again afterwards. */
+		void await(Object blocker, long nanos);
+	}
+	
+	private final Simulation simulation;
+	private final TickMetrics metrics;
+	private final boolean enabled;
+	private final int maxCatchUp;
+	private final Clock clock;
+	private final Object pauseLock = new Object();
+	private volatile long intervalNanos;
+	private volatile OverrunPolicy policy;
+	private volatile boolean paused;
+	private volatile boolean running;
+	private volatile boolean rescheduled;
+	private volatile long lastLagNanos;
+	private volatile long skippedTicks;
+	private volatile long overruns;
+	private volatile Thread thread;
+	
+	@Autowired
+	public TickScheduler(MarketSimulationService simulation, TickMetrics metrics, @Value("${market.scheduling.enabled:true}") boolean enabled, @Value("${market.tick.interval-ms:1000}") double intervalMillis, @Value("${market.tick.overrun-policy:skip}") String policy, @Value("${market.tick.max-catch-up:10}") int maxCatchUp) {
+		this(simulation, metrics, enabled, intervalMillis, policy, maxCatchUp, Clock.SYSTEM);
+	}
+	
+	TickScheduler(Simulation simulation, TickMetrics metrics, boolean enabled, double intervalMillis, String policy, int maxCatchUp, Clock clock) {
+		this.simulation = simulation;
+		this.metrics = metrics;
+		this.enabled = enabled;
+		this.maxCatchUp = Math.max(1, maxCatchUp);
+		this.policy = OverrunPolicy.parse(policy);
+		this.clock = clock;
+		setRate(1000.0 / intervalMillis);
+	}
+	
+	/**
+	 * When the tick after one due at {@code due} is due, given that the tick ended at {@code ended}: one interval after
+	 * {@code due}, unless the tick ran past that and {@code policy} moves it.
+	 */
+	static long nextDue(OverrunPolicy policy, long due, long ended, long interval, int maxCatchUp) {
+		if (policy == OverrunPolicy.STRETCH && ended > due + interval) {
+			return ended + interval;
+		}
+		return due + (1 + skipCount(policy, due, ended, interval, maxCatchUp)) * interval;
+	}
+	
+	/** How many due times a tick due at {@code due} and ended at {@code ended} makes {@link #nextDue} pass over. */
+	static long skipCount(OverrunPolicy policy, long due, long ended, long interval, int maxCatchUp) {
+		long next = due + interval;
+		if (ended <= next) {
+			return 0;
+		}
+		long late = (ended - next) / interval;
+		return switch (policy) {
+			case SKIP -> late + 1;
+			case CATCH_UP -> late >= maxCatchUp ? late - maxCatchUp + 1 : 0;
+			case STRETCH -> 0;
+		};
+	}
+	
+	/** Changes the target rate; the next tick is due one new interval after the change. */
+	public void setRate(double ticksPerSecond) {
+		if (!(ticksPerSecond > 0.0) || ticksPerSecond > MAX_RATE) {
+			throw new IllegalArgumentException("tick rate must be > 0 and <= " + (long) MAX_RATE + " per second");
+		}
+		intervalNanos = Math.max(1L, Math.round(1_000_000_000.0 / ticksPerSecond));
+		rescheduled = true;
+		LockSupport.unpark(thread);
+	}
+	
+	public double getRate() {
+		return 1_000_000_000.0 / intervalNanos;
+	}
+	
+	public long intervalNanos() {
+		return intervalNanos;
+	}
+	
+	public void setOverrunPolicy(OverrunPolicy policy) {
+		this.policy = policy;
+	}
+	
+	public OverrunPolicy getOverrunPolicy() {
+		return policy;
+	}
+	
+	public void pause() {
+		paused = true;
+	}
+	
+	/** Resumes ticking with a fresh schedule, so the paused time is not caught up. */
+	public void resume() {
+		synchronized (pauseLock) {
+			paused = false;
+			rescheduled = true;
+			pauseLock.notifyAll();
+		}
+	}
+	
+	public boolean isPaused() {
+		return paused;
+	}
+	
+	/** How late the last tick started relative to its due time. */
+	public long lastLagNanos() {
+		return lastLagNanos;
+	}
+	
+	/** Ticks dropped by {@link OverrunPolicy#SKIP} or beyond the catch-up limit. */
+	public long skippedTicks() {
+		return skippedTicks;
+	}
+	
+	/** Ticks that ran past the next tick's due time. */
+	public long overruns() {
+		return overruns;
+	}
+	
+	@Override
+	public void start() {
+		if (!enabled || running) {
+			return;
+		}
+		running = true;
+		thread = Thread.ofPlatform().name("market-tick").priority(Thread.MAX_PRIORITY).unstarted(this::loop);
+		thread.start();
+	}
+	
+	@Override
+	public void stop() {
+		running = false;
+		Thread ticking = thread;
+		if (ticking == null) {
+			return;
+		}
+		synchronized (pauseLock) {
+			pauseLock.notifyAll();
+		}
+		LockSupport.unpark(ticking);
+		try {
+			ticking.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+	
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+	
+	private void loop() {
+		simulation.bindTickThread(this::wakeForCommand);
+		try {
+			tick();
+		} finally {
+			simulation.unbindTickThread();
+		}
+	}
+	
+	private void wakeForCommand() {
+		synchronized (pauseLock) {
+			pauseLock.notifyAll();
+		}
+		LockSupport.unpark(thread);
+	}
+	
+	private void tick() {
+		long due = clock.nanoTime() + intervalNanos;
+		rescheduled = false;
+		while (running) {
+			simulation.runPendingCommands();
+			if (paused) {
+				if (!awaitResume()) {
+					return;
+				}
+				continue;
+			}
+			if (rescheduled) {
+				rescheduled = false;
+				due = clock.nanoTime() + intervalNanos;
+			}
+			if (!awaitDue(due)) {
+				continue;
+			}
+			long started = clock.nanoTime();
+			lastLagNanos = started - due;
+			try {
+				simulation.runMarketTick();
+			} catch (RuntimeException ex) {
+				log.error("tick failed", ex);
+			}
+			long ended = clock.nanoTime();
+			long interval = intervalNanos;
+			OverrunPolicy overrunPolicy = policy;
+			boolean overran = ended > due + interval;
+			int skipped = (int) Math.min(Integer.MAX_VALUE, skipCount(overrunPolicy, due, ended, interval, maxCatchUp));
+			due = nextDue(overrunPolicy, due, ended, interval, maxCatchUp);
+			if (overran) {
+				overruns++;
+				skippedTicks += skipped;
+			}
+			metrics.recordSchedule(lastLagNanos, overran, skipped);
+		}
+	}
+	
+	/** Waits until {@code due}; false when the wait was cut short by a stop, pause, schedule change or command. */
+	private boolean awaitDue(long due) {
+		while (true) {
+			if (!running || paused || rescheduled || simulation.hasPendingCommands()) {
+				return false;
+			}
+			long remaining = due - clock.nanoTime();
+			if (remaining <= 0) {
+				return true;
+			}
+			clock.await(this, remaining);
+		}
+	}
+	
+	/** Waits while paused; returns early, still paused, when a command is queued. */
+	private boolean awaitResume() {
+		synchronized (pauseLock) {
+			while (paused && running && !simulation.hasPendingCommands()) {
+				try {
+					pauseLock.wait();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		return running;
+	}
+}
@@ -0,0 +1,164 @@
+package com.example.marketsimulator.sweep;
+
+import com.example.marketsimulator.engine.AgentDecisionPhase;
+import com.example.marketsimulator.engine.AgentGroup;
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.engine.SimulationSettings;
+import com.example.marketsimulator.engine.TickStats;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs every combination of funding rate, dividend rate, market maker spread and population mix, each {@code
+ * replications} times, as independent engines spread over a work-stealing pool. Each run owns its engine outright and
+ * decides serially, so runs share nothing and the pool's threads are the only parallelism. Results are handed back on
+ * the calling thread in the order runs finish, typically to a {@link SweepResultWriter}.
+ *
+ * <p>Runs are reproducible on their own: replication {@code r} of every grid point is seeded from the base seed and
+ * {@code r} only, so a run's outcome depends neither on scheduling nor on the rest of the grid, and grid points are
+ * compared on the same random streams.
+ */
+public class ParameterSweep {
+	private final SimulationSettings base;
+	private final List<String> populations;
+	private final List<SweepRun> runs = new ArrayList<>();
+	private final long ticks;
+	
+	/** Receives finished runs, one at a time, on the thread that called {@link #run}. */
+	@FunctionalInterface
+	public interface Results {
+		void finished(SweepResult result) throws IOException;
+	}
+	
+	/**
+	 * {@code populations} are agent mixes such as {@code RT:50,MT:50,NMM:1}, added on top of the engine's initial agents
+	 * before the first tick. {@code base} supplies everything not swept, including the base seed.
+	 */
+	public ParameterSweep(SimulationSettings base, List<Double> fundingRates, List<Double> dividendRates, List<Double> marketMakerSpreads, List<String> populations, int replications, long ticks) {
+		if (fundingRates.isEmpty() || dividendRates.isEmpty() || marketMakerSpreads.isEmpty() || populations.isEmpty()) {
+			throw new IllegalArgumentException("every swept parameter needs at least one value");
+		}
+		if (replications < 1 || ticks < 1) {
+			throw new IllegalArgumentException("replications and ticks must be >= 1");
+		}
+		this.base = base.withDecisionMode(AgentDecisionPhase.Mode.SERIAL);
+		this.populations = populations.stream().map(String::trim).toList();
+		this.ticks = ticks;
+		for (String population : this.populations) {
+			parsePopulation(population);
+		}
+		for (double fundingRate : fundingRates) {
+			for (double dividendRate : dividendRates) {
+				for (double spread : marketMakerSpreads) {
+					for (int p = 0; p < populations.size(); p++) {
+						for (int r = 0; r < replications; r++) {
+							runs.add(new SweepRun(runs.size(), r, replicationSeed(base.seed(), r), fundingRate, dividendRate, spread, p, this.populations.get(p)));
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	public List<SweepRun> runs() {
+		return List.copyOf(runs);
+	}
+	
+	public List<String> populations() {
+		return populations;
+	}
+	
+	public long ticks() {
+		return ticks;
+	}
+	
+	/** Runs the whole grid on {@code parallelism} threads, writing each result as it finishes. */
+	public void run(int parallelism, Results out) throws IOException, InterruptedException {
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+		try {
+			CompletionService<SweepResult> finished = new ExecutorCompletionService<>(pool);
+			for (SweepRun run : runs) {
+				finished.submit(() -> simulate(run));
+			}
+			for (int done = 0; done < runs.size(); done++) {
+				try {
+					out.finished(finished.take().get());
+				} catch (ExecutionException ex) {
+					throw new IllegalStateException("sweep run failed", ex.getCause());
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/** Runs one simulation of the grid to completion on the calling thread. */
+	public SweepResult simulate(SweepRun run) {
+		SimulationSettings settings = base.withSeed(run.seed()).withRates(run.fundingRate(), run.dividendRate()).withMarketMakerSpread(run.marketMakerSpread());
+		long started = System.nanoTime();
+		try (SimulationEngine engine = new SimulationEngine(settings)) {
+			for (String[] group : parsePopulation(run.populationMix())) {
+				int count = Integer.parseInt(group[1]);
+				if (count > 0) {
+					engine.addAgents(new AgentGroup(group[0], count, null, null, null, null, null, null, null));
+				}
+			}
+			double startEquity = engine.marketMakerEquity();
+			double previous = engine.getPrice();
+			double mean = 0.0;
+			double squares = 0.0;
+			long returns = 0;
+			int bankruptcies = 0;
+			for (long t = 0; t < ticks; t++) {
+				engine.step();
+				TickStats stats = engine.lastTickStats();
+				bankruptcies += stats.removedAccounts();
+				double price = engine.getPrice();
+				if (previous > 0.0 && price > 0.0) {
+					double logReturn = Math.log(price / previous);
+					returns++;
+					double delta = logReturn - mean;
+					mean += delta / returns;
+					squares += delta * (logReturn - mean);
+				}
+				previous = price;
+			}
+			double volatility = returns > 1 ? Math.sqrt(squares / (returns - 1)) : 0.0;
+			return new SweepResult(run, ticks, engine.getPrice(), volatility, bankruptcies, engine.marketMakerEquity() - startEquity, engine.getAgentCount(), System.nanoTime() - started);
+		}
+	}
+	
+	/** SplitMix64 of the base seed and replication, so neighbouring replications get unrelated streams. */
+	static long replicationSeed(long baseSeed, int replication) {
+		long z = baseSeed + (replication + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/** Splits {@code TYPE:count,...} into type and count pairs; an empty mix adds no agents. */
+	private static List<String[]> parsePopulation(String raw) {
+		List<String[]> groups = new ArrayList<>();
+		for (String entry : raw.split(",")) {
+			String trimmed = entry.trim();
+			if (trimmed.isEmpty()) {
+				continue;
+			}
+			String[] parts = trimmed.split(":", 2);
+			try {
+				if (parts.length != 2 || Integer.parseInt(parts[1].trim()) < 0) {
+					throw new NumberFormatException();
+				}
+			} catch (NumberFormatException ex) {
+				throw new IllegalArgumentException("population entries must be TYPE:count, got " + trimmed);
+			}
+			groups.add(new String[] { parts[0].trim(), parts[1].trim() });
+		}
+		return groups;
+	}
+}
@@ -0,0 +1,10 @@
+package com.example.marketsimulator.sweep;
+
+/**
+ * Summary of one finished {@link SweepRun}. {@code volatility} is the standard deviation of the primary instrument's
+ * per-tick log returns, {@code bankruptcies} counts accounts removed as bankrupt, and {@code marketMakerPnl} is the
+ * change in the market makers' combined equity over the run, a market maker removed as bankrupt counting as ending at
+ * zero.
+ */
+public record SweepResult(SweepRun run, long ticks, double finalPrice, double volatility, int bankruptcies, double marketMakerPnl, int agentsLeft, long elapsedNanos) {
+}
@@ -0,0 +1,108 @@
+package com.example.marketsimulator.sweep;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams {@link SweepResult}s to a file as runs finish, so a long sweep can be inspected or cut short without losing
+ * finished runs. Files ending in {@code .csv} get one header line and one line per run; anything else gets the binary
+ * layout: a header of {@code i32 magic "MSWP", u16 version, u16 populations} and each population mix as a {@code u16}
+ * length and UTF-8 bytes, then one fixed {@value #RECORD_BYTES}-byte big-endian record per run:
+ * {@code i32 run, i32 replication, i64 seed, f64 fundingRate, f64 dividendRate, f64 marketMakerSpread, u16 population,
+ * i64 ticks, f64 finalPrice, f64 volatility, i32 bankruptcies, f64 marketMakerPnl, i32 agentsLeft, i64 elapsedNanos}.
+ */
+public abstract class SweepResultWriter implements AutoCloseable {
+	public static final int MAGIC = 0x4D535750;
+	public static final short VERSION = 1;
+	public static final int RECORD_BYTES = 90;
+	
+	public static SweepResultWriter open(Path file, List<String> populations) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+			return new Csv(file);
+		}
+		return new Binary(file, populations);
+	}
+	
+	public abstract void write(SweepResult result) throws IOException;
+	
+	@Override
+	public abstract void close() throws IOException;
+	
+	private static final class Csv extends SweepResultWriter {
+		private final BufferedWriter out;
+		
+		Csv(Path file) throws IOException {
+			out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+			out.write("run,replication,seed,funding_rate,dividend_rate,mm_spread,population,ticks,final_price,volatility,bankruptcies,mm_pnl,agents_left,elapsed_ms");
+			out.newLine();
+			out.flush();
+		}
+		
+		@Override
+		public void write(SweepResult result) throws IOException {
+			SweepRun run = result.run();
+			out.write(String.format(Locale.ROOT, "%d,%d,%d,%s,%s,%s,\"%s\",%d,%s,%s,%d,%s,%d,%.3f", run.index(), run.replication(), run.seed(), run.fundingRate(), run.dividendRate(), run.marketMakerSpread(), run.populationMix().replace("\"", "\"\""), result.ticks(), result.finalPrice(), result.volatility(), result.bankruptcies(), result.marketMakerPnl(), result.agentsLeft(), result.elapsedNanos() / 1_000_000.0));
+			out.newLine();
+			out.flush();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+	
+	private static final class Binary extends SweepResultWriter {
+		private final FileChannel channel;
+		private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+		
+		Binary(Path file, List<String> populations) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			int headerBytes = Integer.BYTES + 2 * Short.BYTES;
+			for (String population : populations) {
+				headerBytes += Short.BYTES + population.getBytes(StandardCharsets.UTF_8).length;
+			}
+			ByteBuffer header = ByteBuffer.allocate(headerBytes);
+			header.putInt(MAGIC).putShort(VERSION).putShort((short) populations.size());
+			for (String population : populations) {
+				byte[] bytes = population.getBytes(StandardCharsets.UTF_8);
+				header.putShort((short) bytes.length).put(bytes);
+			}
+			writeFully(header.flip());
+		}
+		
+		@Override
+		public void write(SweepResult result) throws IOException {
+			SweepRun run = result.run();
+			record.clear();
+			record.putInt(run.index()).putInt(run.replication()).putLong(run.seed());
+			record.putDouble(run.fundingRate()).putDouble(run.dividendRate()).putDouble(run.marketMakerSpread()).putShort((short) run.population());
+			record.putLong(result.ticks()).putDouble(result.finalPrice()).putDouble(result.volatility()).putInt(result.bankruptcies());
+			record.putDouble(result.marketMakerPnl()).putInt(result.agentsLeft()).putLong(result.elapsedNanos());
+			writeFully(record.flip());
+		}
+		
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+		
+		private void writeFully(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+}
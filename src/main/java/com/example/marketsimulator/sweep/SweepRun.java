@@ -0,0 +1,8 @@
+package com.example.marketsimulator.sweep;
+
+/**
+ * One simulation of a {@link ParameterSweep}: a point of the parameter grid and a replication. {@code population}
+ * indexes the sweep's population mixes and {@code populationMix} is that mix, e.g. {@code RT:50,MT:50}.
+ */
+public record SweepRun(int index, int replication, long seed, double fundingRate, double dividendRate, double marketMakerSpread, int population, String populationMix) {
+}
@@ -0,0 +1,91 @@
+package com.example.marketsimulator.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.marketsimulator.engine.AgentDecisionPhase;
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.engine.SimulationSettings;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ShardCoordinatorTest {
+	private static final SimulationSettings SETTINGS = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.01, 0.01, 5, 1L, AgentDecisionPhase.Mode.SERIAL, 1, 256, List.of("SIM", "ALT"));
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void shardedRunOverTcpMatchesLocalRun() throws Exception {
+		assertShardedRunMatchesLocalRun("localhost:0", 3);
+	}
+	
+	@Test
+	void shardedRunOverUnixSocketMatchesLocalRun() throws Exception {
+		assertShardedRunMatchesLocalRun("unix:" + directory.resolve("shards.sock"), 2);
+	}
+	
+	private void assertShardedRunMatchesLocalRun(String address, int workers) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try (ServerSocketChannel server = ShardCoordinator.listen(address); SimulationEngine local = new SimulationEngine(SETTINGS)) {
+			String connectTo = address.startsWith("unix:") ? address : "localhost:" + ((InetSocketAddress) server.getLocalAddress()).getPort();
+			Future<?>[] served = new Future<?>[workers];
+			for (int w = 0; w < workers; w++) {
+				served[w] = executor.submit(() -> {
+					try (ShardWorker worker = ShardWorker.connect(connectTo, new AgentDecisionPhase(AgentDecisionPhase.Mode.SERIAL, 1, 1), 5000)) {
+						return worker.run();
+					}
+				});
+			}
+			try (ShardCoordinator coordinator = new ShardCoordinator(SETTINGS, null, server, workers)) {
+				SimulationEngine sharded = coordinator.engine();
+				for (SimulationEngine engine : List.of(local, sharded)) {
+					for (int k = 0; k < 50; k++) {
+						engine.addAgent("RT", null);
+						engine.addAgent("MT", null);
+						engine.addAgent("MR", null);
+					}
+					engine.addAgent("NMM", null);
+				}
+				for (int i = 1; i <= 3000; i++) {
+					local.step();
+					coordinator.step();
+					if (i == 1000) {
+						local.addAgent("MR", null);
+						sharded.addAgent("MR", null);
+					}
+					if (i == 2000) {
+						assertSameState(local, sharded);
+						local.reset();
+						sharded.reset();
+						local.addAgent("RT", null);
+						sharded.addAgent("RT", null);
+					}
+				}
+				assertSameState(local, sharded);
+			}
+			for (Future<?> worker : served) {
+				assertEquals(3000L, worker.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private static void assertSameState(SimulationEngine local, SimulationEngine sharded) {
+		assertEquals(local.getAgentCount(), sharded.getAgentCount());
+		assertEquals(local.getPrice(1), sharded.getPrice(1));
+		assertEquals(stateWithoutAgents(local.checkpoint()), stateWithoutAgents(sharded.checkpoint()));
+	}
+	
+	private static ByteBuffer stateWithoutAgents(ByteBuffer checkpoint) {
+		return checkpoint.slice(checkpoint.position(), SimulationEngine.checkpointAgentsOffset(checkpoint));
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.marketsimulator.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AccountLedgerAtRiskTest {
+	private static final SimulationSettings SETTINGS = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.05, 0.01, 5, 5L, AgentDecisionPhase.Mode.SERIAL, 1, 256, List.of("SIM", "ALT"));
+	
+	@Test
+	void atRiskSetFindsEveryAccountAFullScanFinds() {
+		int removed = 0;
+		try (SimulationEngine engine = new SimulationEngine(SETTINGS)) {
+			engine.addAgents(new AgentGroup("RT", 200, null, 0.0, 50.0, 0.0, 1.0, null, null));
+			engine.addAgents(new AgentGroup("MR", 100, null, 0.0, 50.0, 0.0, 1.0, null, 3));
+			engine.addAgents(new AgentGroup("MT", 100, null, 0.0, 50.0, 0.0, 1.0, null, null));
+			engine.addAgents(new AgentGroup("NMM", 5, null, 500.0, 500.0, 5.0, 5.0, 1.0, null));
+			for (int i = 1; i <= 3000; i++) {
+				engine.step();
+				removed += engine.lastTickStats().removedAccounts();
+				assertAtRiskCoversEveryRiskyAccount(engine);
+				if (i == 1000) {
+					engine.restore(engine.checkpoint());
+					assertAtRiskCoversEveryRiskyAccount(engine);
+				}
+				if (i == 2000) {
+					engine.updateRates(0.2, null);
+					engine.addAgents(new AgentGroup("RT", 100, null, 0.0, 20.0, 0.0, 0.5, null, null));
+				}
+			}
+		}
+		assertTrue(removed > 0, "the run should remove bankrupt accounts");
+	}
+	
+	/**
+	 * Every account with negative cash or a short position is in the at-risk set, so with positive prices every account
+	 * a full equity scan finds bankrupt is among the ones the engine checks.
+	 */
+	private static void assertAtRiskCoversEveryRiskyAccount(SimulationEngine engine) {
+		AccountLedger ledger = engine.ledger();
+		boolean[] tracked = new boolean[ledger.size()];
+		for (int n = 0; n < ledger.atRiskCount(); n++) {
+			tracked[ledger.atRisk(n)] = true;
+		}
+		double[] prices = { engine.getPrice(0), engine.getPrice(1) };
+		List<Integer> bankrupt = new ArrayList<>();
+		List<Integer> found = new ArrayList<>();
+		for (int id = 0; id < ledger.size(); id++) {
+			boolean risky = ledger.cash(id) < 0.0 || ledger.position(0, id) < 0.0 || ledger.position(1, id) < 0.0;
+			String name = ledger.name(id);
+			assertTrue(!risky || tracked[id], () -> name + " has negative cash or a short position but is not at risk");
+			if (ledger.equity(id, prices) < 0.0) {
+				bankrupt.add(id);
+				if (tracked[id]) {
+					found.add(id);
+				}
+			}
+		}
+		assertEquals(bankrupt, found);
+	}
+}
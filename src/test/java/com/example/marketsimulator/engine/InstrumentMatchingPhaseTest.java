@@ -0,0 +1,76 @@
+package com.example.marketsimulator.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.marketsimulator.model.Market;
+import com.example.marketsimulator.model.Order;
+import com.example.marketsimulator.model.OrderBuffer;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class InstrumentMatchingPhaseTest {
+	private static final List<String> INSTRUMENTS = List.of("SIM", "ALT", "THIRD");
+	
+	@Test
+	void buyerCannotSpendTheSameCashInTwoInstruments() {
+		Market market = new Market(List.of("SIM", "ALT"));
+		AccountLedger ledger = new AccountLedger(2);
+		int buyer = ledger.open("buyer", 0, 0.0, 100.0, 100.0);
+		int seller = ledger.open("seller", 0, 10.0, 0.0, 0.0);
+		try (InstrumentMatchingPhase phase = new InstrumentMatchingPhase(market, ledger, AgentDecisionPhase.Mode.SERIAL, 1, null)) {
+			OrderBuffer asks = new OrderBuffer();
+			asks.add(seller, 0, 100.0, 1, Order.Type.SELL);
+			asks.add(seller, 1, 100.0, 1, Order.Type.SELL);
+			phase.match(asks, 1, 0);
+			OrderBuffer bids = new OrderBuffer();
+			bids.add(buyer, 0, 100.0, 1, Order.Type.BUY);
+			bids.add(buyer, 1, 100.0, 1, Order.Type.BUY);
+			phase.match(bids, 2, 0);
+		}
+		assertEquals(0.0, ledger.cash(buyer));
+		assertEquals(1.0, ledger.position(0, buyer));
+		assertEquals(0.0, ledger.position(1, buyer));
+		assertEquals(100.0, ledger.cash(seller));
+	}
+	
+	@Test
+	void multiInstrumentTradingNeverTakesCashBelowZero() {
+		double[] serial = run(AgentDecisionPhase.Mode.SERIAL, 1);
+		assertArrayEquals(serial, run(AgentDecisionPhase.Mode.FORK_JOIN, 3));
+		assertArrayEquals(serial, run(AgentDecisionPhase.Mode.VIRTUAL, 3));
+	}
+	
+	/** Random crossing orders on every instrument from cash-checked accounts; returns the final cash column. */
+	private static double[] run(AgentDecisionPhase.Mode mode, int parallelism) {
+		Market market = new Market(INSTRUMENTS);
+		AccountLedger ledger = new AccountLedger(INSTRUMENTS.size());
+		for (int i = 0; i < 50; i++) {
+			ledger.open("A" + i, 0, 5.0, 200.0, 200.0);
+		}
+		SplittableRandom random = new SplittableRandom(7L);
+		OrderBuffer orders = new OrderBuffer();
+		try (InstrumentMatchingPhase phase = new InstrumentMatchingPhase(market, ledger, mode, parallelism, null)) {
+			for (long tick = 1; tick <= 200; tick++) {
+				orders.clear();
+				for (int n = 0; n < 100; n++) {
+					int id = random.nextInt(ledger.size());
+					int instrument = random.nextInt(INSTRUMENTS.size());
+					double price = 90.0 + random.nextInt(21);
+					orders.add(id, instrument, price, 1 + random.nextInt(3), random.nextBoolean() ? Order.Type.BUY : Order.Type.SELL);
+				}
+				phase.match(orders, tick, tick - 5);
+				for (int id = 0; id < ledger.size(); id++) {
+					double cash = ledger.cash(id);
+					String name = ledger.name(id);
+					long at = tick;
+					// a fill sized to the buyer's whole budget can leave a rounding residue
+					assertTrue(cash >= -1e-9, () -> name + " has cash " + cash + " after tick " + at);
+				}
+			}
+		}
+		return ledger.copyOfCash();
+	}
+}
@@ -0,0 +1,33 @@
+package com.example.marketsimulator.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class LedgerKernelsTest {
+	
+	@Test
+	void vectorDividendMatchesScalarBitForBit() {
+		SplittableRandom random = new SplittableRandom(3);
+		// past the vector kernel's 1024-account threshold, and not a multiple of any vector width
+		int size = 4099;
+		double[][] positions = new double[3][size + 5];
+		double[] cash = new double[size + 5];
+		for (int i = 0; i < cash.length; i++) {
+			for (double[] column : positions) {
+				column[i] = random.nextDouble(-50.0, 50.0);
+			}
+			cash[i] = random.nextDouble(-1e6, 1e6);
+		}
+		double[] prices = { 101.37, 0.013, 25_000.5 };
+		double[] scalar = Arrays.copyOf(cash, cash.length);
+		double[] vector = Arrays.copyOf(cash, cash.length);
+		for (int tick = 0; tick < 10; tick++) {
+			new LedgerKernels.Scalar().applyDividend(positions, scalar, size, prices, 0.0173);
+			new VectorLedgerKernels().applyDividend(positions, vector, size, prices, 0.0173);
+		}
+		assertArrayEquals(scalar, vector);
+	}
+}
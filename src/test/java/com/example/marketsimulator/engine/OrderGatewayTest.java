@@ -0,0 +1,149 @@
+package com.example.marketsimulator.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.marketsimulator.model.Order;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class OrderGatewayTest {
+	private static final List<String> INSTRUMENTS = List.of("SIM", "ALT");
+	
+	@Test
+	void concurrentProducersKeepEachClientsSequenceOrder() throws Exception {
+		OrderGateway gateway = new OrderGateway(INSTRUMENTS, 1 << 10);
+		int producers = 4;
+		int perProducer = 20_000;
+		Map<String, Long> lastSeen = new HashMap<>();
+		long[] drained = new long[1];
+		OrderGateway.Consumer consumer = (client, sequence, instrument, price, quantity, type) -> {
+			Long previous = lastSeen.put(client, sequence);
+			assertTrue(previous == null || previous < sequence, client + " went from " + previous + " to " + sequence);
+			drained[0]++;
+			return true;
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+		try {
+			Future<?>[] done = new Future<?>[producers];
+			for (int p = 0; p < producers; p++) {
+				String client = "client" + p;
+				done[p] = executor.submit(() -> {
+					for (int sequence = 1; sequence <= perProducer; sequence++) {
+						while (gateway.offer(client, client, sequence, "ALT", 100.0, 1, Order.Type.BUY) == OrderGateway.Result.REJECTED_FULL) {
+							Thread.onSpinWait();
+						}
+					}
+				});
+			}
+			for (Future<?> producer : done) {
+				while (!producer.isDone()) {
+					gateway.drain(consumer);
+				}
+				producer.get();
+			}
+			gateway.drain(consumer);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals((long) producers * perProducer, drained[0]);
+		assertEquals((long) producers * perProducer, gateway.count(OrderGateway.Result.ACCEPTED));
+		assertEquals(0, gateway.depth());
+	}
+	
+	@Test
+	void rejectsWhenFullAndOnStaleSequences() {
+		OrderGateway gateway = new OrderGateway(INSTRUMENTS, 2);
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("a", "a", 1, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("a", "a", 2, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.REJECTED_FULL, gateway.offer("a", "a", 3, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.REJECTED_SEQUENCE, gateway.offer("a", "a", 2, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.REJECTED_INVALID, gateway.offer("a", "a", 4, "NOPE", 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.REJECTED_SEQUENCE, gateway.offer("b", "b", 0, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(2, gateway.drain((client, sequence, instrument, price, quantity, type) -> true));
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("a", "a", 3, null, 100.0, 1, Order.Type.BUY));
+	}
+	
+	@Test
+	void capsTrackedClientsAndForgetsThoseWithoutAnAccount() {
+		OrderGateway gateway = new OrderGateway(INSTRUMENTS, 16, 2);
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("alice", "alice", 1, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("spoof1", "spoof1", 1, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.REJECTED_CLIENTS, gateway.offer("spoof2", "spoof2", 1, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("alice", "alice", 2, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(3, gateway.drain((client, sequence, instrument, price, quantity, type) -> client.equals("alice")));
+		assertEquals(1, gateway.clients());
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("spoof2", "spoof2", 1, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.REJECTED_SEQUENCE, gateway.offer("alice", "alice", 2, null, 100.0, 1, Order.Type.BUY));
+	}
+	
+	@Test
+	void spoofedNamesCannotTradeOnAnotherClientsAccount() {
+		OrderGateway gateway = new OrderGateway(INSTRUMENTS, 16);
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("session:1", "alice", 1, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.REJECTED_ACCOUNT, gateway.offer("session:2", "alice", 2, null, 100.0, 1, Order.Type.SELL));
+		assertEquals(OrderGateway.Result.REJECTED_ACCOUNT, gateway.offer("session:1", "bob", 2, null, 100.0, 1, Order.Type.BUY));
+		List<String> drained = new ArrayList<>();
+		gateway.drain((account, sequence, instrument, price, quantity, type) -> drained.add(account));
+		assertEquals(List.of("alice"), drained);
+		
+		gateway.release("session:1");
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("session:2", "alice", 1, null, 100.0, 1, Order.Type.SELL));
+	}
+	
+	@Test
+	void nobodyCanBurnAClientsSequences() {
+		OrderGateway gateway = new OrderGateway(INSTRUMENTS, 16, 16, 100);
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("session:1", "alice", 1, null, 100.0, 1, Order.Type.BUY));
+		// another session cannot spend alice's sequences, and alice cannot jump past the window herself
+		assertEquals(OrderGateway.Result.REJECTED_ACCOUNT, gateway.offer("session:2", "alice", Long.MAX_VALUE, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.REJECTED_SEQUENCE, gateway.offer("session:1", "alice", Long.MAX_VALUE, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.REJECTED_SEQUENCE, gateway.offer("session:1", "alice", 102, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("session:1", "alice", 2, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("session:1", "alice", 102, null, 100.0, 1, Order.Type.BUY));
+		assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("session:1", "alice", 103, null, 100.0, 1, Order.Type.BUY));
+	}
+	
+	@Test
+	void engineResetAndRestoreReleaseClients() {
+		SimulationSettings settings = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.0, 0.0, 5, 7L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+		OrderGateway gateway = new OrderGateway(settings.instruments(), 16);
+		try (SimulationEngine engine = new SimulationEngine(settings)) {
+			engine.attachGateway(gateway);
+			engine.addAgent("EXT", "alice");
+			ByteBuffer checkpoint = engine.checkpoint();
+			assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("session:1", "alice", 50, null, 100.0, 1, Order.Type.BUY));
+			engine.step();
+			engine.restore(checkpoint);
+			assertEquals(0, gateway.clients());
+			assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("session:2", "alice", 1, null, 100.0, 1, Order.Type.BUY));
+			engine.reset();
+			assertEquals(0, gateway.clients());
+			assertEquals(OrderGateway.Result.ACCEPTED, gateway.offer("session:2", "alice", 1, null, 100.0, 1, Order.Type.BUY));
+		}
+	}
+	
+	@Test
+	void externalOrdersTradeAgainstTheAgents() {
+		SimulationSettings settings = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.0, 0.0, 5, 7L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+		OrderGateway gateway = new OrderGateway(settings.instruments(), 16);
+		try (SimulationEngine engine = new SimulationEngine(settings)) {
+			engine.attachGateway(gateway);
+			engine.addAgent("EXT", "alice");
+			int alice = engine.ledger().idOf("alice");
+			gateway.offer("alice", "alice", 1, "SIM", engine.getPrice() + 5.0, 5, Order.Type.BUY);
+			gateway.offer("nobody", "nobody", 1, "SIM", engine.getPrice() + 5.0, 5, Order.Type.BUY);
+			engine.step();
+			assertEquals(2, engine.lastTickStats().externalOrders());
+			assertEquals(1, gateway.unknownClients());
+			assertEquals(5.0, engine.ledger().position(0, alice));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.marketsimulator.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.example.marketsimulator.model.AccountColumns;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.Test;
+
+class SimulationEngineAllocationTest {
+	
+	@Test
+	void steadyStateTicksDoNotAllocate() {
+		com.sun.management.ThreadMXBean threads = allocationCounter();
+		SimulationSettings settings = new SimulationSettings(1000.0, 100000.0, "NMM1:1000", 0.01, 0.01, 5, 1L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+		try (SimulationEngine engine = new SimulationEngine(settings)) {
+			engine.addAgent("NMM", null);
+			for (int i = 0; i < 50; i++) {
+				engine.addAgent("RT", null);
+				engine.addAgent("MT", null);
+				engine.addAgent("MR", null);
+			}
+			// Warm-up lets the order buffers, book pools and level arrays reach their working size.
+			for (int i = 0; i < 5_000; i++) {
+				engine.step();
+			}
+			
+			long before = threads.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < 500; i++) {
+				engine.step();
+			}
+			long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+			assertEquals(0, allocated, "bytes allocated over 500 steady-state ticks");
+		}
+	}
+	
+	@Test
+	void publishedStatesCopyOnlyTheChunksThatChanged() {
+		com.sun.management.ThreadMXBean threads = allocationCounter();
+		// Both fill the chunk of the trading accounts, so both copy one full chunk a tick.
+		long few = bytesPerPublishedTick(threads, AccountColumns.CHUNK_SIZE);
+		long many = bytesPerPublishedTick(threads, 65 * AccountColumns.CHUNK_SIZE);
+		// Copying every column of 64 more chunks would cost about 28 bytes an account, 1.8 MB a tick; sharing them
+		// costs a handful of references each.
+		assertTrue(many - few < 64 * 128, "64 idle chunks added " + (many - few) + " bytes to each published tick (" + few + " without them)");
+	}
+	
+	/**
+	 * Bytes one tick allocates with publishing on, for the agents of {@link #steadyStateTicksDoNotAllocate} followed by
+	 * {@code idle} external traders that never trade, so every tick changes the same few accounts.
+	 */
+	private static long bytesPerPublishedTick(com.sun.management.ThreadMXBean threads, int idle) {
+		SimulationSettings settings = new SimulationSettings(1000.0, 100000.0, "NMM1:1000", 0.0, 0.0, 5, 1L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+		try (SimulationEngine engine = new SimulationEngine(settings)) {
+			engine.addAgent("NMM", null);
+			for (int i = 0; i < 50; i++) {
+				engine.addAgent("RT", null);
+				engine.addAgent("MT", null);
+				engine.addAgent("MR", null);
+			}
+			if (idle > 0) {
+				engine.addAgents(new AgentGroup("EXT", idle, "Idle", 0.0, 0.0, 0.0, 0.0, null, null));
+			}
+			engine.publishStates(true);
+			for (int i = 0; i < 5_000; i++) {
+				engine.step();
+			}
+			
+			long before = threads.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < 500; i++) {
+				engine.step();
+			}
+			return (threads.getCurrentThreadAllocatedBytes() - before) / 500;
+		}
+	}
+	
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.marketsimulator.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.marketsimulator.agent.MeanReversionTrader;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SimulationEngineCheckpointTest {
+	private static final SimulationSettings SETTINGS = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.01, 0.01, 5, 7L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+	
+	@Test
+	void restoredEngineContinuesExactlyLikeTheOriginal() {
+		try (SimulationEngine original = new SimulationEngine(SETTINGS); SimulationEngine restored = new SimulationEngine(SETTINGS)) {
+			for (int i = 0; i < 30; i++) {
+				original.addAgent(switch (i % 3) {
+					case 0 -> "RT";
+					case 1 -> "MT";
+					default -> "MR";
+				}, null);
+			}
+			for (int i = 0; i < 300; i++) {
+				original.step();
+			}
+			restored.restore(original.checkpoint());
+			for (int i = 0; i < 500; i++) {
+				original.step();
+				restored.step();
+			}
+			assertEquals(original.checkpoint(), restored.checkpoint());
+			assertEquals(original.snapshot().agents.size(), restored.snapshot().agents.size());
+		}
+	}
+	
+	@Test
+	void agentStateLongerThan64KiBRoundTrips() {
+		try (SimulationEngine original = new SimulationEngine(SETTINGS); SimulationEngine restored = new SimulationEngine(SETTINGS)) {
+			// 12 + 8 * 10_001 state bytes, more than a u16 length holds
+			original.openAccount(new MeanReversionTrader("MR-wide", 10_000), 0.0, 1000.0);
+			original.addAgent("RT", null);
+			for (int i = 0; i < 100; i++) {
+				original.step();
+			}
+			// restores into a cohort of window 10_000
+			restored.restore(original.checkpoint());
+			assertEquals(original.checkpoint(), restored.checkpoint());
+			for (int i = 0; i < 100; i++) {
+				original.step();
+				restored.step();
+			}
+			assertEquals(original.checkpoint(), restored.checkpoint());
+		}
+	}
+	
+	@Test
+	void truncatedCheckpointLeavesTheEngineUntouched() {
+		try (SimulationEngine engine = new SimulationEngine(SETTINGS)) {
+			for (int i = 0; i < 50; i++) {
+				engine.step();
+			}
+			ByteBuffer before = engine.checkpoint();
+			ByteBuffer truncated = before.duplicate().limit(before.limit() - 3);
+			assertThrows(IllegalArgumentException.class, () -> engine.restore(truncated));
+			assertEquals(before, engine.checkpoint());
+		}
+	}
+	
+	@Test
+	void groupsThatDoNotFitAddNothing() {
+		try (SimulationEngine engine = new SimulationEngine(SETTINGS)) {
+			ByteBuffer before = engine.checkpoint();
+			AgentGroup randomTraders = new AgentGroup("RT", 10, null, null, null, null, null, null, null);
+			AgentGroup tooMany = new AgentGroup("MR", AgentGroup.MAX_COUNT, null, null, null, null, null, null, AgentGroup.MAX_WINDOW);
+			assertThrows(IllegalArgumentException.class, () -> engine.addAgents(List.of(randomTraders, tooMany)));
+			assertEquals(before, engine.checkpoint());
+			assertThrows(IllegalArgumentException.class, () -> new AgentGroup("MR", 1, null, null, null, null, null, null, AgentGroup.MAX_WINDOW + 1));
+		}
+	}
+}
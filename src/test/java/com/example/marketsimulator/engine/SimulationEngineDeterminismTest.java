@@ -0,0 +1,42 @@
+package com.example.marketsimulator.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SimulationEngineDeterminismTest {
+	
+	@Test
+	void everyExecutorAndThreadCountProducesTheSameRun() {
+		ByteBuffer serial = run(AgentDecisionPhase.Mode.SERIAL, 1);
+		assertEquals(serial, run(AgentDecisionPhase.Mode.FORK_JOIN, 1));
+		assertEquals(serial, run(AgentDecisionPhase.Mode.FORK_JOIN, 4));
+		assertEquals(serial, run(AgentDecisionPhase.Mode.VIRTUAL, 1));
+		assertEquals(serial, run(AgentDecisionPhase.Mode.VIRTUAL, 4));
+	}
+	
+	private static ByteBuffer run(AgentDecisionPhase.Mode mode, int parallelism) {
+		// small chunks, so several workers share each tick's decisions and matching runs per instrument in parallel
+		SimulationSettings settings = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.01, 0.01, 5, 11L, mode, parallelism, 16, List.of("SIM", "ALT", "THIRD"));
+		try (SimulationEngine engine = new SimulationEngine(settings)) {
+			for (int i = 0; i < 60; i++) {
+				engine.addAgent(switch (i % 4) {
+					case 0 -> "RT";
+					case 1 -> "MT";
+					case 2 -> "MR";
+					default -> "NMM";
+				}, null);
+			}
+			engine.addAgents(new AgentGroup("RT", 300, null, 0.0, 500.0, 0.0, 3.0, null, null));
+			for (int i = 1; i <= 600; i++) {
+				engine.step();
+				if (i == 300) {
+					engine.addAgents(new AgentGroup("MR", 200, null, 0.0, 500.0, 0.0, 3.0, null, 9));
+				}
+			}
+			return engine.checkpoint();
+		}
+	}
+}
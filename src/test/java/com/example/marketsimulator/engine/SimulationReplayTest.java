@@ -0,0 +1,68 @@
+package com.example.marketsimulator.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.marketsimulator.journal.EventJournal;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SimulationReplayTest {
+	private static final SimulationSettings SETTINGS = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.01, 0.01, 5, 7L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void replayReproducesRecordedRunAndSeeksFromCheckpoints() throws Exception {
+		double recordedPrice;
+		try (EventJournal journal = new EventJournal(directory, EventJournal.DEFAULT_SEGMENT_BYTES, 1024, 500); SimulationEngine engine = new SimulationEngine(SETTINGS, journal)) {
+			for (int i = 0; i < 20; i++) {
+				engine.addAgent(i % 2 == 0 ? "RT" : "MR", null);
+			}
+			for (int i = 1; i <= 3000; i++) {
+				engine.step();
+				if (i == 1200) {
+					engine.addAgent("NMM", null);
+					engine.addAgents(new AgentGroup("MT", 50, "bulk", 1000.0, 9000.0, 0.0, 5.0, null, null));
+					// replay opens these as agent objects, so matching it also checks that cohorts decide like objects
+					engine.addAgents(new AgentGroup("RT", 40, null, 0.0, 200.0, 0.0, 2.0, null, null));
+					engine.addAgents(new AgentGroup("MR", 40, null, 0.0, 200.0, 0.0, 2.0, null, 7));
+					engine.updateRates(0.02, null);
+				}
+			}
+			recordedPrice = engine.getPrice();
+		}
+		
+		SimulationReplay.Result full = SimulationReplay.run(SETTINGS, directory, 0, -1);
+		assertTrue(full.matched(), full.divergence());
+		assertEquals(3000, full.ticks());
+		assertEquals(6, full.checkpointsVerified());
+		assertEquals(recordedPrice, full.price());
+		
+		SimulationReplay.Result seek = SimulationReplay.run(SETTINGS, directory, 1700, 2200);
+		assertTrue(seek.matched(), seek.divergence());
+		assertEquals(1500, seek.fromTick());
+		assertEquals(2200, seek.toTick());
+		assertEquals(1, seek.checkpointsVerified());
+	}
+	
+	@Test
+	void replayWithDifferentSettingsReportsTheDivergence() throws Exception {
+		try (EventJournal journal = new EventJournal(directory); SimulationEngine engine = new SimulationEngine(SETTINGS, journal)) {
+			for (int i = 0; i < 10; i++) {
+				engine.addAgent("RT", null);
+			}
+			for (int i = 0; i < 500; i++) {
+				engine.step();
+			}
+		}
+		
+		SimulationSettings longerTtl = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.01, 0.01, 50, 7L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+		SimulationReplay.Result result = SimulationReplay.run(longerTtl, directory, 0, -1);
+		assertFalse(result.matched());
+		assertTrue(result.toTick() < 500);
+	}
+}
@@ -0,0 +1,161 @@
+package com.example.marketsimulator.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.marketsimulator.model.MarketDelta;
+import com.example.marketsimulator.model.MarketSnapshot;
+import com.example.marketsimulator.model.Order;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MarketBinaryCodecTest {
+	
+	private final ObjectMapper json = new ObjectMapper();
+	
+	@Test
+	void snapshotsDecodeTheWayTheFrontendReadsThem() throws Exception {
+		MarketSnapshot snapshot = snapshot();
+		byte[] bytes = MarketBinaryCodec.encode(snapshot);
+		
+		assertEquals(json.readTree(json.writeValueAsString(snapshot)), json.readTree(json.writeValueAsString(decode(bytes))));
+		int jsonBytes = json.writeValueAsBytes(snapshot).length;
+		assertTrue(bytes.length * 2 < jsonBytes, bytes.length + " binary bytes vs " + jsonBytes + " JSON bytes");
+	}
+	
+	@Test
+	void deltasDecodeTheWayTheFrontendReadsThem() throws Exception {
+		MarketSnapshot snapshot = snapshot();
+		MarketDelta delta = new MarketDelta(43L, 42L, 101.25, new double[] { 101.25, 49.5 }, snapshot.agents.subList(0, 2), List.of("MR-7", "Noise-ü"), null);
+		byte[] bytes = MarketBinaryCodec.encode(delta);
+		
+		assertEquals(json.readTree(json.writeValueAsString(delta)), json.readTree(json.writeValueAsString(decode(bytes))));
+		int jsonBytes = json.writeValueAsBytes(delta).length;
+		assertTrue(bytes.length * 2 < jsonBytes, bytes.length + " binary bytes vs " + jsonBytes + " JSON bytes");
+	}
+	
+	@Test
+	void countsAndLengthsPastTheU16RangeRoundTrip() throws Exception {
+		// the order gateway holds 65536 slots, so one external client can leave that many orders in a tick
+		List<Order> orders = new ArrayList<>();
+		for (int i = 0; i < 65_537; i++) {
+			orders.add(new Order(7, "EXT-1", 0, 100.0 + i % 10, 1, i % 2 == 0 ? Order.Type.BUY : Order.Type.SELL));
+		}
+		MarketSnapshot.AgentState busy = new MarketSnapshot.AgentState("EXT-1", orders, 1.0, 100.0, 100.0);
+		busy.positions = new double[] { 1.0 };
+		String longName = "EXT-" + "x".repeat(70_000);
+		MarketSnapshot.AgentState named = new MarketSnapshot.AgentState(longName, List.of(new Order(8, longName, 0, 99.0, 1, Order.Type.BUY)), 0.0, 100.0, 100.0);
+		named.positions = new double[] { 0.0 };
+		MarketSnapshot snapshot = new MarketSnapshot(100.0, List.of(busy, named), null);
+		snapshot.sequence = 1L;
+		snapshot.instruments = List.of("SIM");
+		snapshot.prices = new double[] { 100.0 };
+		
+		assertEquals(json.readTree(json.writeValueAsString(snapshot)), json.readTree(json.writeValueAsString(decode(MarketBinaryCodec.encode(snapshot)))));
+	}
+	
+	private static MarketSnapshot snapshot() {
+		List<MarketSnapshot.AgentState> agents = new ArrayList<>();
+		for (int id = 0; id < 20; id++) {
+			String name = id % 5 == 0 ? "Trader-é" + id : "RT" + id;
+			List<Order> orders = new ArrayList<>();
+			for (int i = 0; i < id % 3; i++) {
+				orders.add(new Order(id, name, i % 2, 100.0 + id * 0.25 - i, 1 + i, i % 2 == 0 ? Order.Type.BUY : Order.Type.SELL));
+			}
+			MarketSnapshot.AgentState agent = new MarketSnapshot.AgentState(name, orders, id - 10.5, 1000.0 + id / 3.0, 1000.0);
+			agent.positions = new double[] { id - 10.5, id * 0.5 };
+			agents.add(agent);
+		}
+		Map<String, Double> initialPositions = new LinkedHashMap<>();
+		initialPositions.put("SIM", 100.0);
+		initialPositions.put("ALT", 50.0);
+		MarketSnapshot snapshot = new MarketSnapshot(100.5, agents, new MarketSnapshot.MarketConfig(150.0, 20000.0, 0.01, 0.02, 149.5, 20001.25, initialPositions));
+		snapshot.sequence = 42L;
+		snapshot.instruments = List.of("SIM", "ALT");
+		snapshot.prices = new double[] { 100.5, 50.0 };
+		return snapshot;
+	}
+	
+	/** Mirrors {@code decodeMarketMessage} in {@code frontend/src/types.ts}, field for field. */
+	private static Object decode(byte[] bytes) {
+		ByteBuffer in = ByteBuffer.wrap(bytes);
+		int kind = Byte.toUnsignedInt(in.get());
+		assertEquals(3, Byte.toUnsignedInt(in.get()));
+		long sequence = in.getLong();
+		long baseSequence = kind == 2 ? in.getLong() : 0;
+		double price = in.getDouble();
+		List<String> instruments = new ArrayList<>();
+		double[] prices = new double[in.getInt()];
+		for (int i = 0; i < prices.length; i++) {
+			if (kind == 1) {
+				instruments.add(string(in));
+			}
+			prices[i] = in.getDouble();
+		}
+		MarketSnapshot.MarketConfig config = null;
+		if (in.get() == 1) {
+			double totalAssetUnits = in.getDouble();
+			double totalCash = in.getDouble();
+			double fundingRate = in.getDouble();
+			double dividendRate = in.getDouble();
+			double currentTotalAssets = in.getDouble();
+			double currentTotalCash = in.getDouble();
+			Map<String, Double> initialPositions = new LinkedHashMap<>();
+			for (int n = in.getInt(); n > 0; n--) {
+				String name = string(in);
+				initialPositions.put(name, in.getDouble());
+			}
+			config = new MarketSnapshot.MarketConfig(totalAssetUnits, totalCash, fundingRate, dividendRate, currentTotalAssets, currentTotalCash, initialPositions);
+		}
+		List<MarketSnapshot.AgentState> agents = new ArrayList<>();
+		for (int n = in.getInt(); n > 0; n--) {
+			String name = string(in);
+			double positionUnits = in.getDouble();
+			double cashBalance = in.getDouble();
+			double initialCash = in.getDouble();
+			double[] positions = new double[in.getInt()];
+			for (int m = 0; m < positions.length; m++) {
+				positions[m] = in.getDouble();
+			}
+			List<Order> lastOrders = new ArrayList<>();
+			for (int m = in.getInt(); m > 0; m--) {
+				int agentId = in.getInt();
+				int instrument = in.getInt();
+				double orderPrice = in.getDouble();
+				int quantity = in.getInt();
+				Order.Type type = in.get() == 0 ? Order.Type.BUY : Order.Type.SELL;
+				lastOrders.add(new Order(agentId, name, instrument, orderPrice, quantity, type));
+			}
+			MarketSnapshot.AgentState agent = new MarketSnapshot.AgentState(name, lastOrders, positionUnits, cashBalance, initialCash);
+			agent.positions = positions;
+			agents.add(agent);
+		}
+		if (kind == 1) {
+			assertFalse(in.hasRemaining(), "trailing bytes after snapshot");
+			MarketSnapshot snapshot = new MarketSnapshot(price, agents, config);
+			snapshot.sequence = sequence;
+			snapshot.instruments = instruments;
+			snapshot.prices = prices;
+			return snapshot;
+		}
+		List<String> removed = new ArrayList<>();
+		for (int n = in.getInt(); n > 0; n--) {
+			removed.add(string(in));
+		}
+		assertFalse(in.hasRemaining(), "trailing bytes after delta");
+		return new MarketDelta(sequence, baseSequence, price, prices, agents, removed, config);
+	}
+	
+	private static String string(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,96 @@
+package com.example.marketsimulator.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.marketsimulator.engine.AgentDecisionPhase;
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.engine.SimulationSettings;
+import com.example.marketsimulator.model.MarketSnapshot;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventJournalTest {
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void recordsRoundTripAcrossSegmentsAndReopens() throws Exception {
+		int segmentBytes = JournalFormat.HEADER_BYTES + 7 * JournalFormat.RECORD_BYTES;
+		try (EventJournal journal = new EventJournal(directory, segmentBytes, 4, 0)) {
+			for (int i = 0; i < 50; i++) {
+				journal.append(JournalEventType.ORDER, i % 2, i, i % 3, i, -1, 100.0 + i, 10.0);
+			}
+		}
+		try (EventJournal journal = new EventJournal(directory, segmentBytes, 4, 0)) {
+			assertEquals(50, journal.nextSequence());
+			journal.append(JournalEventType.RESET, 0, 99, 0, -1, -1, 0.0, 0.0);
+		}
+		assertEquals(9, JournalFormat.segments(directory).size());
+		
+		JournalReader reader = JournalReader.open(directory);
+		JournalEvent event = new JournalEvent();
+		for (int i = 0; i < 50; i++) {
+			assertTrue(reader.next(event));
+			assertEquals(i, event.sequence);
+			assertEquals(JournalEventType.ORDER, event.type);
+			assertEquals(i % 2 == 1, event.isSell());
+			assertEquals(i, event.tick);
+			assertEquals(i % 3, event.instrument);
+			assertEquals(i, event.account);
+			assertEquals(100.0 + i, event.price);
+		}
+		assertTrue(reader.next(event));
+		assertEquals(50, event.sequence);
+		assertEquals(JournalEventType.RESET, event.type);
+		assertFalse(reader.next(event));
+	}
+	
+	@Test
+	void journaledFillsReproduceEnginePositions() throws Exception {
+		SimulationSettings settings = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.01, 0.01, 5, 1L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+		MarketSnapshot snapshot;
+		try (EventJournal journal = new EventJournal(directory); SimulationEngine engine = new SimulationEngine(settings, journal)) {
+			for (int i = 0; i < 10; i++) {
+				engine.addAgent("RT", null);
+				engine.addAgent("MT", null);
+			}
+			for (int i = 0; i < 2000; i++) {
+				engine.step();
+			}
+			snapshot = engine.snapshot();
+		}
+		
+		double[] positions = new double[64];
+		int accounts = 0;
+		JournalReader reader = JournalReader.open(directory);
+		JournalEvent event = new JournalEvent();
+		while (reader.next(event)) {
+			switch (event.type) {
+				case ACCOUNT_OPENED -> {
+					positions[event.account] = event.quantity;
+					accounts++;
+				}
+				case TRADE, LIQUIDATION -> {
+					positions[event.account] += event.quantity;
+					positions[event.counterparty] -= event.quantity;
+				}
+				case ACCOUNT_REMOVED -> {
+					if (event.counterparty >= 0) {
+						positions[event.account] = positions[event.counterparty];
+					}
+					accounts--;
+				}
+				default -> {
+				}
+			}
+		}
+		assertEquals(snapshot.agents.size(), accounts);
+		for (int id = 0; id < accounts; id++) {
+			assertEquals(snapshot.agents.get(id).positionUnits, positions[id], snapshot.agents.get(id).name);
+		}
+	}
+}
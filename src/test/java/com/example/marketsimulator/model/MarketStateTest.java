@@ -0,0 +1,92 @@
+package com.example.marketsimulator.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.marketsimulator.engine.AgentDecisionPhase;
+import com.example.marketsimulator.engine.AgentGroup;
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.engine.SimulationSettings;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MarketStateTest {
+	private static final SimulationSettings SETTINGS = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.05, 0.01, 5, 5L, AgentDecisionPhase.Mode.SERIAL, 1, 256, List.of("SIM", "ALT"));
+	
+	@Test
+	void deltasMatchAComparisonOfFullSnapshots() {
+		int removed = 0;
+		try (SimulationEngine engine = new SimulationEngine(SETTINGS)) {
+			engine.publishStates(true);
+			engine.addAgents(new AgentGroup("RT", 100, null, 0.0, 50.0, 0.0, 1.0, null, null));
+			engine.addAgents(new AgentGroup("NMM", 3, null, 500.0, 500.0, 5.0, 5.0, 1.0, null));
+			MarketState base = engine.state();
+			for (int i = 1; i <= 1500; i++) {
+				engine.step();
+				if (i % 500 == 0) {
+					engine.addAgents(new AgentGroup("MR", 20, null, 0.0, 20.0, 0.0, 0.5, null, 4));
+				}
+				MarketState state = engine.state();
+				MarketDelta delta = state.toDelta(base);
+				assertDeltaMatchesSnapshots(base.toSnapshot(), state.toSnapshot(), delta);
+				removed += delta.removed.size();
+				base = state;
+			}
+		}
+		assertTrue(removed > 0, "the run should remove bankrupt accounts");
+	}
+	
+	@Test
+	void deltasAcrossSharedChunksMatchAComparisonOfFullSnapshots() {
+		int removed = 0;
+		try (SimulationEngine engine = new SimulationEngine(SETTINGS)) {
+			engine.publishStates(true);
+			engine.addAgents(new AgentGroup("RT", 100, null, 0.0, 50.0, 0.0, 1.0, null, null));
+			engine.addAgents(new AgentGroup("NMM", 3, null, 500.0, 500.0, 5.0, 5.0, 1.0, null));
+			// idle accounts fill later chunks, and removals move them into the traders' chunk
+			engine.addAgents(new AgentGroup("EXT", 3 * AccountColumns.CHUNK_SIZE, "Idle", 10.0, 10.0, 0.0, 0.0, null, null));
+			MarketState base = engine.state();
+			for (int i = 1; i <= 500; i++) {
+				engine.step();
+				MarketState state = engine.state();
+				MarketDelta delta = state.toDelta(base);
+				assertDeltaMatchesSnapshots(base.toSnapshot(), state.toSnapshot(), delta);
+				removed += delta.removed.size();
+				base = state;
+			}
+		}
+		assertTrue(removed > 0, "the run should remove bankrupt accounts");
+	}
+	
+	private static void assertDeltaMatchesSnapshots(MarketSnapshot before, MarketSnapshot after, MarketDelta delta) {
+		Map<String, MarketSnapshot.AgentState> previous = new HashMap<>();
+		for (MarketSnapshot.AgentState agent : before.agents) {
+			previous.put(agent.name, agent);
+		}
+		List<String> changed = new ArrayList<>();
+		for (MarketSnapshot.AgentState agent : after.agents) {
+			MarketSnapshot.AgentState was = previous.remove(agent.name);
+			if (was == null || !describe(was).equals(describe(agent))) {
+				changed.add(agent.name);
+			}
+		}
+		assertEquals(changed, delta.changed.stream().map(agent -> agent.name).toList());
+		assertEquals(previous.keySet(), new HashSet<>(delta.removed));
+		assertEquals(delta.removed.size(), previous.size());
+		assertArrayEquals(after.prices, delta.prices);
+	}
+	
+	private static String describe(MarketSnapshot.AgentState agent) {
+		StringBuilder out = new StringBuilder().append(agent.cashBalance).append('/').append(agent.initialCash).append('/').append(Arrays.toString(agent.positions));
+		for (Order order : agent.lastOrders) {
+			out.append('/').append(order.instrument).append(order.type).append(order.quantity).append('@').append(order.price);
+		}
+		return out.toString();
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.marketsimulator.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class OrderBookTest {
+	
+	private final List<String> fills = new ArrayList<>();
+	private final OrderBook.TradeHandler unlimited = new OrderBook.TradeHandler() {
+		@Override
+		public double settle(int buyerId, int sellerId, double price, double quantity) {
+			fills.add(buyerId + "<-" + sellerId + "@" + price + "x" + quantity);
+			return quantity;
+		}
+		
+		@Override
+		public boolean hasInventory(int sellerId) {
+			return true;
+		}
+	};
+	
+	@Test
+	void unfilledOrdersRestAndMatchInTimePriority() {
+		OrderBook book = new OrderBook();
+		book.submit(new Order(1, "S1", 101.0, 10, Order.Type.SELL), 1, unlimited);
+		book.submit(new Order(2, "S2", 101.0, 10, Order.Type.SELL), 1, unlimited);
+		book.submit(new Order(3, "B1", 99.0, 10, Order.Type.BUY), 1, unlimited);
+		assertEquals(99.0, book.bestBid());
+		assertEquals(101.0, book.bestAsk());
+		assertEquals(3, book.size());
+		
+		double lastPrice = book.submit(new Order(4, "B2", 103.0, 15, Order.Type.BUY), 2, unlimited);
+		assertEquals(102.0, lastPrice);
+		assertEquals(List.of("4<-1@102.0x10.0", "4<-2@102.0x5.0"), fills);
+		assertEquals(5.0, book.askQuantityAt(101.0));
+		assertEquals(2, book.size());
+	}
+	
+	@Test
+	void expiryAndCancelRemoveLevels() {
+		OrderBook book = new OrderBook();
+		book.submit(new Order(3, "B1", 98.0, 10, Order.Type.BUY), 1, unlimited);
+		book.submit(new Order(4, "B2", 99.0, 10, Order.Type.BUY), 2, unlimited);
+		book.submit(new Order(1, "S1", 105.0, 10, Order.Type.SELL), 2, unlimited);
+		assertEquals(1, book.expireBefore(2));
+		assertEquals(99.0, book.bestBid());
+		assertEquals(1, book.cancelAll(1));
+		assertTrue(Double.isNaN(book.bestAsk()));
+		assertEquals(1, book.size());
+	}
+	
+	@Test
+	void reassignMovesRestingOrdersToTheNewId() {
+		OrderBook book = new OrderBook();
+		book.submit(new Order(5, "S5", 101.0, 10, Order.Type.SELL), 1, unlimited);
+		book.reassign(5, 2);
+		assertEquals(0, book.cancelAll(5));
+		book.submit(new Order(3, "B3", 101.0, 10, Order.Type.BUY), 1, unlimited);
+		assertEquals(List.of("3<-2@101.0x10.0"), fills);
+	}
+	
+	@Test
+	void blockedRestingSellerIsCancelled() {
+		OrderBook book = new OrderBook();
+		OrderBook.TradeHandler noInventory = new OrderBook.TradeHandler() {
+			@Override
+			public double settle(int buyerId, int sellerId, double price, double quantity) {
+				return sellerId == 9 ? 0.0 : quantity;
+			}
+			
+			@Override
+			public boolean hasInventory(int sellerId) {
+				return sellerId != 9;
+			}
+		};
+		book.submit(new Order(9, "EMPTY", 100.0, 10, Order.Type.SELL), 1, noInventory);
+		book.submit(new Order(1, "S1", 100.5, 10, Order.Type.SELL), 1, noInventory);
+		double lastPrice = book.submit(new Order(3, "B1", 101.0, 10, Order.Type.BUY), 1, noInventory);
+		assertEquals(100.75, lastPrice);
+		assertEquals(0, book.size());
+	}
+}
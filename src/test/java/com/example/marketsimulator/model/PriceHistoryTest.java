@@ -0,0 +1,66 @@
+package com.example.marketsimulator.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class PriceHistoryTest {
+	
+	@Test
+	void coarserResolutionsFoldTicksAndQueriesDownsample() {
+		PriceHistory history = new PriceHistory(1, 100);
+		for (long tick = 1; tick <= 2500; tick++) {
+			double price = 100.0 + tick % 7;
+			history.record(0, tick, price, price + 1.0, price - 1.0, price, 2.0);
+		}
+		
+		PriceCandles tens = history.query(0, 10, 2015, 2034, 100);
+		assertEquals(10, tens.resolution);
+		assertArrayEquals(new long[] { 2010, 2020, 2030 }, tens.tick);
+		assertEquals(100.0 + 2010 % 7, tens.open[0]);
+		assertEquals(100.0 + 2019 % 7, tens.close[0]);
+		assertEquals(107.0, tens.high[1]);
+		assertEquals(99.0, tens.low[1]);
+		assertEquals(20.0, tens.volume[1]);
+		
+		PriceCandles merged = history.query(0, 1, 2401, 2500, 10);
+		assertEquals(10, merged.resolution);
+		assertEquals(10, merged.tick.length);
+		assertEquals(2401, merged.tick[0]);
+		assertEquals(20.0, merged.volume[1]);
+		
+		// 100 candles per resolution: only 100-tick candles still reach back to tick 1.
+		PriceCandles auto = history.query(0, 0, 1, 2500, 100);
+		assertEquals(100, auto.resolution);
+		assertEquals(0, auto.tick[0]);
+		assertEquals(26, auto.tick.length);
+		assertEquals(198.0, auto.volume[0]);
+	}
+	
+	@Test
+	void viewsAnswerAsOfWhenTheyWereTakenUntilTheirCandlesAreReused() {
+		PriceHistory history = new PriceHistory(1, 100);
+		for (long tick = 1; tick <= 150; tick++) {
+			history.record(0, tick, tick, tick, tick, tick, 1.0);
+		}
+		PriceHistory.View view = history.view();
+		PriceCandles expected = history.query(0, 1, 0, 200, 200);
+		for (long tick = 151; tick <= 190; tick++) {
+			history.record(0, tick, tick, tick, tick, tick, 1.0);
+		}
+		// 40 new one-tick candles fit in the rings' spare slots
+		PriceCandles seen = view.query(0, 1, 0, 200, 200);
+		assertArrayEquals(expected.tick, seen.tick);
+		assertArrayEquals(expected.close, seen.close);
+		assertEquals(150.0, view.query(0, 10, 150, 150, 1).close[0]);
+		assertEquals(51, seen.tick[0]);
+		
+		for (long tick = 191; tick <= 300; tick++) {
+			history.record(0, tick, tick, tick, tick, tick, 1.0);
+		}
+		assertNull(view.query(0, 1, 0, 200, 200));
+		assertEquals(300, history.view().query(0, 1, 0, 300, 200).tick[99]);
+	}
+}
@@ -0,0 +1,60 @@
+package com.example.marketsimulator.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.marketsimulator.engine.AgentDecisionPhase;
+import com.example.marketsimulator.engine.AgentGroup;
+import com.example.marketsimulator.engine.SimulationEngine;
+import com.example.marketsimulator.engine.SimulationSettings;
+import com.example.marketsimulator.model.MarketState;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class WriteBehindStoreTest {
+	
+	@Test
+	void persistsEveryTickTradeAndDueAgentRow() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		SimulationSettings settings = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.01, 0.01, 5, 1L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+		long trades = 0;
+		MarketState last;
+		WriteBehindStore store = new WriteBehindStore(jdbc, new DataSourceTransactionManager(dataSource), 1 << 16, 64, 10, 100);
+		try (SimulationEngine engine = new SimulationEngine(settings)) {
+			engine.publishStates(true);
+			engine.attachTradeListener(store);
+			engine.addAgents(new AgentGroup("RT", 20, null, null, null, null, null, null, null));
+			engine.addAgents(new AgentGroup("MR", 10, null, null, null, null, null, null, null));
+			for (int i = 0; i < 500; i++) {
+				engine.step();
+				trades += engine.lastTickStats().trades();
+				store.tickCompleted(engine.state(), engine.lastTickStats());
+			}
+			last = engine.state();
+		}
+		store.close();
+		
+		long runId = store.runId();
+		assertEquals(0, store.droppedRows());
+		assertEquals(0, store.failedBatches());
+		assertEquals(500, count(jdbc, "market_tick", runId));
+		assertEquals(trades, count(jdbc, "market_trade", runId));
+		assertEquals(trades, store.rowsWritten(WriteBehindStore.Table.TRADES));
+		assertEquals(last.price(0), jdbc.queryForObject("SELECT price FROM market_tick WHERE run_id = ? AND tick = 500", Double.class, runId));
+		assertEquals(count(jdbc, "agent_pnl", runId), store.rowsWritten(WriteBehindStore.Table.PNL));
+		long sampled = jdbc.queryForObject("SELECT COUNT(DISTINCT tick) FROM agent_pnl WHERE run_id = ?", Long.class, runId);
+		assertEquals(5, sampled + store.skippedPnlSnapshots());
+		if (store.skippedPnlSnapshots() == 0) {
+			for (int id = 0; id < last.agentCount(); id++) {
+				double pnl = jdbc.queryForObject("SELECT pnl FROM agent_pnl WHERE run_id = ? AND tick = 500 AND agent = ?", Double.class, runId, last.name(id));
+				assertEquals(last.equity(id) - last.initialCash(id), pnl);
+			}
+		}
+	}
+	
+	private static long count(JdbcTemplate jdbc, String table, long runId) {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE run_id = ?", Long.class, runId);
+	}
+}
@@ -0,0 +1,225 @@
+package com.example.marketsimulator.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.marketsimulator.engine.OrderGateway;
+import com.example.marketsimulator.service.TickScheduler.OverrunPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+import org.junit.jupiter.api.Test;
+
+class TickSchedulerTest {
+	private static final long MS = 1_000_000L;
+	private static final long INTERVAL = 10 * MS;
+	private static final int MAX_CATCH_UP = 10;
+	
+	@Test
+	void skipDropsLateTicksAndKeepsThePhase() {
+		assertNext(OverrunPolicy.SKIP, 4 * MS, 10 * MS, 0);
+		assertNext(OverrunPolicy.SKIP, 10 * MS, 10 * MS, 0);
+		// ran past the tick due at 10 ms: it is dropped and the next one starts at 20 ms
+		assertNext(OverrunPolicy.SKIP, 15 * MS, 20 * MS, 1);
+		assertNext(OverrunPolicy.SKIP, 63 * MS, 70 * MS, 6);
+		assertNext(OverrunPolicy.SKIP, 263 * MS, 270 * MS, 26);
+	}
+	
+	@Test
+	void catchUpRunsLateTicksUpToTheLimit() {
+		assertNext(OverrunPolicy.CATCH_UP, 4 * MS, 10 * MS, 0);
+		// late ticks are due at once and run back to back
+		assertNext(OverrunPolicy.CATCH_UP, 15 * MS, 10 * MS, 0);
+		assertNext(OverrunPolicy.CATCH_UP, 63 * MS, 10 * MS, 0);
+		// 26 ticks are late; the last ten, due at 170 to 260 ms, still run
+		assertNext(OverrunPolicy.CATCH_UP, 263 * MS, 170 * MS, 16);
+	}
+	
+	@Test
+	void stretchRestartsTheScheduleAfterTheOverrunningTick() {
+		assertNext(OverrunPolicy.STRETCH, 4 * MS, 10 * MS, 0);
+		assertNext(OverrunPolicy.STRETCH, 15 * MS, 25 * MS, 0);
+		assertNext(OverrunPolicy.STRETCH, 63 * MS, 73 * MS, 0);
+		assertNext(OverrunPolicy.STRETCH, 263 * MS, 273 * MS, 0);
+	}
+	
+	@Test
+	void overrunsAreCountedAndLateTicksSkipped() throws InterruptedException {
+		SyntheticClock clock = new SyntheticClock();
+		RecordingSimulation simulation = new RecordingSimulation(clock, (scheduler, tick) -> {
+			if (tick == 2) {
+				clock.advance(24 * MS);
+			}
+		});
+		TickScheduler scheduler = simulation.start("skip", 3);
+		simulation.awaitPaused();
+		scheduler.stop();
+		
+		// the second tick ends at 45 ms, past the ticks due at 30 and 40 ms
+		assertEquals(List.of(10 * MS, 20 * MS, 50 * MS), simulation.starts);
+		assertEquals(1, scheduler.overruns());
+		assertEquals(2, scheduler.skippedTicks());
+	}
+	
+	@Test
+	void resumingDoesNotCatchUpThePausedTime() throws InterruptedException {
+		SyntheticClock clock = new SyntheticClock();
+		RecordingSimulation simulation = new RecordingSimulation(clock, (scheduler, tick) -> {
+		});
+		TickScheduler scheduler = simulation.start("catch-up", 3);
+		simulation.awaitPaused();
+		clock.advance(1000 * INTERVAL);
+		long resumed = clock.nanoTime();
+		simulation.pauseAfter = 6;
+		scheduler.resume();
+		simulation.awaitPaused();
+		scheduler.stop();
+		
+		assertEquals(List.of(10 * MS, 20 * MS, 30 * MS, resumed + INTERVAL, resumed + 2 * INTERVAL, resumed + 3 * INTERVAL), simulation.starts);
+		assertEquals(0, scheduler.overruns());
+		assertEquals(0, scheduler.skippedTicks());
+	}
+	
+	@Test
+	void aNewRateTakesEffectOneNewIntervalAfterTheChange() throws InterruptedException {
+		SyntheticClock clock = new SyntheticClock();
+		RecordingSimulation simulation = new RecordingSimulation(clock, (scheduler, tick) -> {
+			if (tick == 2) {
+				scheduler.setRate(50.0);
+			}
+		});
+		TickScheduler scheduler = simulation.start("skip", 4);
+		simulation.awaitPaused();
+		scheduler.stop();
+		
+		// the second tick changes the rate as it ends, at 21 ms
+		assertEquals(List.of(10 * MS, 20 * MS, 41 * MS, 61 * MS), simulation.starts);
+	}
+	
+	@Test
+	void aCommandCutsTheWaitShortWithoutMovingTheNextTick() throws InterruptedException {
+		SyntheticClock clock = new SyntheticClock();
+		RecordingSimulation simulation = new RecordingSimulation(clock, (scheduler, tick) -> {
+		});
+		clock.alarm(15 * MS, () -> simulation.pendingCommands = 1);
+		TickScheduler scheduler = simulation.start("skip", 3);
+		simulation.awaitPaused();
+		scheduler.stop();
+		
+		assertEquals(List.of(15 * MS), simulation.commands);
+		assertEquals(List.of(10 * MS, 20 * MS, 30 * MS), simulation.starts);
+		assertEquals(0, scheduler.lastLagNanos());
+	}
+	
+	/** Checks the tick after one due at 0 that ended at {@code ended}. */
+	private static void assertNext(OverrunPolicy policy, long ended, long due, long skipped) {
+		assertEquals(due, TickScheduler.nextDue(policy, 0, ended, INTERVAL, MAX_CATCH_UP), policy + " due after a tick ending at " + ended);
+		assertEquals(skipped, TickScheduler.skipCount(policy, 0, ended, INTERVAL, MAX_CATCH_UP), policy + " skips after a tick ending at " + ended);
+	}
+	
+	/** Time that only passes when the scheduler waits or a test advances it, so every due time is met exactly. */
+	private static final class SyntheticClock implements TickScheduler.Clock {
+		private final AtomicLong now = new AtomicLong();
+		private volatile long alarmAt = Long.MAX_VALUE;
+		private volatile Runnable alarm;
+		
+		@Override
+		public long nanoTime() {
+			return now.get();
+		}
+		
+		/** Waits the whole time, or stops at the alarm and rings it. */
+		@Override
+		public void await(Object blocker, long nanos) {
+			long target = now.get() + nanos;
+			if (alarmAt > now.get() && alarmAt <= target) {
+				now.set(alarmAt);
+				alarmAt = Long.MAX_VALUE;
+				alarm.run();
+			} else {
+				now.set(target);
+			}
+		}
+		
+		void advance(long nanos) {
+			now.addAndGet(nanos);
+		}
+		
+		void alarm(long at, Runnable action) {
+			alarm = action;
+			alarmAt = at;
+		}
+	}
+	
+	/**
+	 * Ticks that take 1 ms each, recording the time each starts, and commands that record the time they run. Pauses the
+	 * scheduler after {@link #pauseAfter} ticks; {@link #awaitPaused} returns once the tick thread waits for a resume.
+	 */
+	private static final class RecordingSimulation implements TickScheduler.Simulation {
+		private final SyntheticClock clock;
+		private final ObjIntConsumer<TickScheduler> onTick;
+		private final Semaphore paused = new Semaphore(0);
+		private TickScheduler scheduler;
+		final List<Long> starts = new ArrayList<>();
+		final List<Long> commands = new ArrayList<>();
+		volatile int pauseAfter;
+		volatile int pendingCommands;
+		
+		RecordingSimulation(SyntheticClock clock, ObjIntConsumer<TickScheduler> onTick) {
+			this.clock = clock;
+			this.onTick = onTick;
+		}
+		
+		TickScheduler start(String policy, int pauseAfter) {
+			this.pauseAfter = pauseAfter;
+			TickMetrics metrics = new TickMetrics(new SimpleMeterRegistry(), Map.of(), new OrderGateway(List.of("SIM"), 16), Optional.empty());
+			scheduler = new TickScheduler(this, metrics, true, INTERVAL / (double) MS, policy, MAX_CATCH_UP, clock);
+			scheduler.start();
+			return scheduler;
+		}
+		
+		void awaitPaused() throws InterruptedException {
+			assertTrue(paused.tryAcquire(10, TimeUnit.SECONDS), "scheduler did not pause");
+		}
+		
+		@Override
+		public void runMarketTick() {
+			starts.add(clock.nanoTime());
+			clock.advance(MS);
+			onTick.accept(scheduler, starts.size());
+			if (starts.size() == pauseAfter) {
+				scheduler.pause();
+			}
+		}
+		
+		@Override
+		public boolean hasPendingCommands() {
+			// while paused only the wait for a resume asks, just before it blocks
+			if (scheduler.isPaused()) {
+				paused.release();
+			}
+			return pendingCommands > 0;
+		}
+		
+		@Override
+		public void runPendingCommands() {
+			for (; pendingCommands > 0; pendingCommands--) {
+				commands.add(clock.nanoTime());
+			}
+		}
+		
+		@Override
+		public void bindTickThread(Runnable wakeUp) {
+		}
+		
+		@Override
+		public void unbindTickThread() {
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.marketsimulator.sweep;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import com.example.marketsimulator.engine.AgentDecisionPhase;
+import com.example.marketsimulator.engine.SimulationSettings;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParameterSweepTest {
+	private static final SimulationSettings BASE = new SimulationSettings(100.0, 10000.0, "NMM1:100,RT1:0", 0.01, 0.01, 5, 1L, AgentDecisionPhase.Mode.SERIAL, 1, 256);
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void parallelSweepMatchesRunsSimulatedOneByOne() throws Exception {
+		ParameterSweep sweep = new ParameterSweep(BASE, List.of(0.0, 0.02), List.of(0.01), List.of(1.0, 4.0), List.of("RT:20,MT:20,MR:20", "RT:40,NMM:1"), 2, 300);
+		List<SweepResult> finished = new ArrayList<>();
+		sweep.run(4, finished::add);
+		
+		assertEquals(16, finished.size());
+		for (SweepResult result : finished) {
+			SweepResult alone = sweep.simulate(result.run());
+			assertEquals(alone.finalPrice(), result.finalPrice());
+			assertEquals(alone.volatility(), result.volatility());
+			assertEquals(alone.bankruptcies(), result.bankruptcies());
+			assertEquals(alone.marketMakerPnl(), result.marketMakerPnl());
+			assertEquals(alone.agentsLeft(), result.agentsLeft());
+		}
+		List<SweepRun> runs = sweep.runs();
+		assertEquals(runs.get(0).seed(), runs.get(2).seed());
+		assertNotEquals(runs.get(0).seed(), runs.get(1).seed());
+	}
+	
+	@Test
+	void writesOneRecordPerRun() throws Exception {
+		ParameterSweep sweep = new ParameterSweep(BASE, List.of(0.01), List.of(0.0, 0.01), List.of(2.0), List.of("RT:10"), 3, 50);
+		Path csv = directory.resolve("sweep.csv");
+		Path binary = directory.resolve("sweep.bin");
+		try (SweepResultWriter toCsv = SweepResultWriter.open(csv, sweep.populations()); SweepResultWriter toBinary = SweepResultWriter.open(binary, sweep.populations())) {
+			sweep.run(2, result -> {
+				toCsv.write(result);
+				toBinary.write(result);
+			});
+		}
+		
+		assertEquals(1 + 6, Files.readAllLines(csv).size());
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(binary));
+		assertEquals(SweepResultWriter.MAGIC, in.getInt());
+		assertEquals(SweepResultWriter.VERSION, in.getShort());
+		assertEquals(1, in.getShort());
+		in.position(in.position() + Short.BYTES + in.getShort(in.position()));
+		assertEquals(6 * SweepResultWriter.RECORD_BYTES, in.remaining());
+	}
+}